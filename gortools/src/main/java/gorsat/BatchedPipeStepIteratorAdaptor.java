@@ -28,6 +28,7 @@ import org.gorpipe.exceptions.GorSystemException;
 import org.gorpipe.gor.model.GenomicIterator;
 import org.gorpipe.gor.model.GenomicIteratorBase;
 import org.gorpipe.gor.model.Row;
+import org.gorpipe.gor.monitor.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -56,6 +57,7 @@ public class BatchedPipeStepIteratorAdaptor extends GenomicIteratorBase implemen
 
     private final BatchedReadSourceConfig brsConfig;
     private final boolean autoclose;
+    private CancellationToken cancellationToken = CancellationToken.none();
 
     private Throwable ex = null;
     public void setEx(Throwable throwable) {
@@ -68,6 +70,22 @@ public class BatchedPipeStepIteratorAdaptor extends GenomicIteratorBase implemen
         return ex;
     }
 
+    /**
+     * Sets the token used to cancel reading. A cancelled query ends quietly, as with the cancel monitor, while a
+     * query that times out throws.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    private boolean isCancelledWithoutTimeout() {
+        return cancellationToken.isCancelled() && !cancellationToken.isTimedOut();
+    }
+
     public void setCurrentChrom(String chrom) {
         this.currentChrom = chrom;
     }
@@ -199,8 +217,10 @@ public class BatchedPipeStepIteratorAdaptor extends GenomicIteratorBase implemen
                 readerThread.setMDC(MDC.getCopyOfContextMap());
                 readerThread.start();
                 rowBuffer = readerThread.pollBatch();
+                if (cancellationToken.isCancelled()) return cancelled();
             } else if (!rowBuffer.available()) {
                 rowBuffer = readerThread.pollBatch();
+                if (cancellationToken.isCancelled()) return cancelled();
             }
 
             Throwable exception = getEx();
@@ -223,6 +243,14 @@ public class BatchedPipeStepIteratorAdaptor extends GenomicIteratorBase implemen
         }
     }
 
+    private boolean cancelled() {
+        throwOnExit = false;
+        if (cancellationToken.isTimedOut()) {
+            cancellationToken.throwIfCancelled();
+        }
+        return false;
+    }
+
     @Override
     public Row next() {
         return rowBuffer.next();
@@ -316,7 +344,7 @@ public class BatchedPipeStepIteratorAdaptor extends GenomicIteratorBase implemen
             }
         }
 
-        if (throwOnExit) {
+        if (throwOnExit && !isCancelledWithoutTimeout()) {
             Throwable exception = getEx();
 
             if (exception != null) {
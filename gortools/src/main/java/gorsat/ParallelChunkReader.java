@@ -0,0 +1,327 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat;
+
+import org.gorpipe.exceptions.GorException;
+import org.gorpipe.exceptions.GorResourceException;
+import org.gorpipe.exceptions.GorSystemException;
+import org.gorpipe.gor.driver.DataSource;
+import org.gorpipe.gor.driver.meta.SourceMetadata;
+import org.gorpipe.gor.driver.providers.stream.sources.StreamSourceMetadata;
+import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
+import org.gorpipe.gor.driver.providers.stream.sources.file.FileSourceType;
+import org.gorpipe.gor.model.FileReader;
+import org.gorpipe.gor.util.DataUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Reads a large text file by splitting it into byte ranges aligned to line ends and parsing the ranges concurrently.
+ * The parsed items are returned in line order.
+ * <p>
+ * Each range is read with its own source instance, as stream sources only support one open stream at a time.  A range
+ * owns the lines that start within it, so a line crossing a range end is parsed by the range it starts in.  Line ends
+ * are handled as in {@link java.io.BufferedReader#readLine()}, that is '\n', '\r' and "\r\n" all end a line.
+ * <p>
+ * Only uncompressed local files larger than {@code gor.nor.parallel.minsize} bytes are read this way, other files
+ * should be read sequentially.
+ */
+public class ParallelChunkReader<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelChunkReader.class);
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The first line of a file accepted by the line filter, with the byte offset following it.
+     */
+    public record FirstLine(String line, long end, long length) {}
+
+    private final String fileName;
+    private final FileReader fileReader;
+    private final Function<String, T> parser;
+    private final long length;
+    private final long chunkSize;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+    private final ArrayDeque<Future<List<T>>> inFlight = new ArrayDeque<>();
+    private long nextChunkStart;
+    private final long start;
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /**
+     * @param fileName   file to read.
+     * @param fileReader file reader used to open the file.
+     * @param start      offset of the first line to read.
+     * @param length     length of the file.
+     * @param parser     parses a line, lines parsed to null are skipped.  Called concurrently.
+     */
+    public ParallelChunkReader(String fileName, FileReader fileReader, long start, long length, Function<String, T> parser) {
+        this.fileName = fileName;
+        this.fileReader = fileReader;
+        this.start = start;
+        this.nextChunkStart = start;
+        this.length = length;
+        this.parser = parser;
+        this.chunkSize = Long.parseLong(System.getProperty("gor.nor.parallel.chunksize", String.valueOf(8 << 20)));
+        int threads = getThreads();
+        this.maxInFlight = 2 * threads;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "chunk-reader");
+            t.setDaemon(true);
+            return t;
+        });
+        fillInFlight();
+    }
+
+    private static int getThreads() {
+        return Integer.parseInt(System.getProperty("gor.nor.parallel.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Find the first line of the file for parallel reading.
+     *
+     * @param skip lines to skip before the first line.
+     * @return the first line or null if the file should be read sequentially.
+     */
+    public static FirstLine scanFirstLine(String fileName, FileReader fileReader, Predicate<String> skip) {
+        if (getThreads() < 2 || DataUtil.isGZip(fileName) || DataUtil.isMeta(fileName)) {
+            return null;
+        }
+        try {
+            DataSource source = fileReader.resolveUrl(fileName);
+            try {
+                if (!(source instanceof StreamSource) || source.getSourceType() != FileSourceType.FILE || source.isDirectory()) {
+                    return null;
+                }
+                SourceMetadata meta = source.getSourceMetadata();
+                Long length = meta instanceof StreamSourceMetadata ? ((StreamSourceMetadata) meta).getLength() : null;
+                long minSize = Long.parseLong(System.getProperty("gor.nor.parallel.minsize", String.valueOf(256L << 20)));
+                if (length == null || length < minSize) {
+                    return null;
+                }
+                try (InputStream is = ((StreamSource) source).open()) {
+                    LineScanner scanner = new LineScanner(is, 0);
+                    byte[] segment;
+                    while ((segment = scanner.nextSegment()) != null) {
+                        String line = decode(segment, 0, scanner.segmentLength());
+                        if (line.indexOf('\r') >= 0) {
+                            // Line ends other than '\n' within the header, leave it to the sequential reader.
+                            return null;
+                        }
+                        if (!skip.test(line)) {
+                            return new FirstLine(line, scanner.position(), length);
+                        }
+                    }
+                    return null;
+                }
+            } finally {
+                source.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Reading {} sequentially", fileName, e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            Future<List<T>> next = inFlight.poll();
+            if (next == null) {
+                return false;
+            }
+            try {
+                current = next.get().iterator();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GorSystemException("Interrupted while reading " + fileName, e);
+            } catch (ExecutionException e) {
+                close();
+                if (e.getCause() instanceof GorException) {
+                    throw (GorException) e.getCause();
+                }
+                throw new GorResourceException("Error reading " + fileName, fileName, e.getCause());
+            }
+            fillInFlight();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    private void fillInFlight() {
+        while (inFlight.size() < maxInFlight && nextChunkStart < length && !executor.isShutdown()) {
+            final long chunkStart = nextChunkStart;
+            final long chunkEnd = Math.min(length, chunkStart + chunkSize);
+            inFlight.add(executor.submit(() -> readChunk(chunkStart, chunkEnd)));
+            nextChunkStart = chunkEnd;
+        }
+    }
+
+    private List<T> readChunk(long chunkStart, long chunkEnd) throws IOException {
+        List<T> result = new ArrayList<>();
+        boolean ownsFirstLine = chunkStart == start;
+        long openAt = ownsFirstLine ? chunkStart : chunkStart - 1;
+        DataSource source = fileReader.resolveUrl(fileName);
+        try (InputStream is = ((StreamSource) source).open(openAt)) {
+            LineScanner scanner = new LineScanner(is, openAt);
+            if (!ownsFirstLine && scanner.nextSegment() == null) {
+                // The line (or the line end) before the chunk start belongs to the previous chunk.
+                return result;
+            }
+            while (scanner.position() < chunkEnd) {
+                byte[] segment = scanner.nextSegment();
+                if (segment == null) {
+                    break;
+                }
+                addLines(segment, scanner.segmentLength(), result);
+            }
+        } finally {
+            source.close();
+        }
+        return result;
+    }
+
+    private void addLines(byte[] segment, int len, List<T> result) {
+        // A trailing '\r' is part of a "\r\n" line end, other '\r' end lines on their own.
+        if (len > 0 && segment[len - 1] == '\r') {
+            len--;
+        }
+        int lineStart = 0;
+        for (int i = 0; i < len; i++) {
+            if (segment[i] == '\r') {
+                addLine(decode(segment, lineStart, i - lineStart), result);
+                lineStart = i + 1;
+            }
+        }
+        addLine(decode(segment, lineStart, len - lineStart), result);
+    }
+
+    private void addLine(String line, List<T> result) {
+        T item = parser.apply(line);
+        if (item != null) {
+            result.add(item);
+        }
+    }
+
+    private static String decode(byte[] bytes, int offset, int len) {
+        return new String(bytes, offset, len, Charset.defaultCharset());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        inFlight.clear();
+        current = Collections.emptyIterator();
+    }
+
+    /**
+     * Splits a stream into '\n' terminated segments, tracking the byte position.
+     */
+    private static class LineScanner {
+        private final InputStream is;
+        private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        private int bufferPos = 0;
+        private int bufferLen = 0;
+        private long position;
+        private byte[] segment = new byte[256];
+        private int segmentLength = 0;
+
+        LineScanner(InputStream is, long position) {
+            this.is = is;
+            this.position = position;
+        }
+
+        long position() {
+            return position;
+        }
+
+        int segmentLength() {
+            return segmentLength;
+        }
+
+        /**
+         * @return the next segment, without the '\n', valid until the next call, or null at end of stream.  The last
+         * segment of a stream not ending with '\n' is returned if not empty.
+         */
+        byte[] nextSegment() throws IOException {
+            segmentLength = 0;
+            while (true) {
+                if (bufferPos == bufferLen) {
+                    bufferLen = is.read(buffer);
+                    bufferPos = 0;
+                    if (bufferLen <= 0) {
+                        bufferLen = 0;
+                        return segmentLength > 0 ? segment : null;
+                    }
+                }
+                int i = bufferPos;
+                while (i < bufferLen && buffer[i] != '\n') {
+                    i++;
+                }
+                append(bufferPos, i - bufferPos);
+                position += i - bufferPos;
+                if (i < bufferLen) {
+                    bufferPos = i + 1;
+                    position++;
+                    return segment;
+                }
+                bufferPos = bufferLen;
+            }
+        }
+
+        private void append(int from, int len) {
+            if (segmentLength + len > segment.length) {
+                byte[] larger = new byte[Math.max(segment.length * 2, segmentLength + len)];
+                System.arraycopy(segment, 0, larger, 0, segmentLength);
+                segment = larger;
+            }
+            System.arraycopy(buffer, from, segment, segmentLength, len);
+            segmentLength += len;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import gorsat.Commands.Analysis;
 import org.gorpipe.exceptions.GorSystemException;
 import org.gorpipe.gor.model.GenomicIterator;
 import org.gorpipe.gor.model.Row;
+import org.gorpipe.gor.monitor.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -17,6 +18,9 @@ import java.util.concurrent.TimeUnit;
 public class ReaderThread extends Thread {
     private static final Logger log = LoggerFactory.getLogger(ReaderThread.class);
 
+    // Poll the cancellation token once every CANCEL_CHECK_MASK + 1 rows
+    private static final int CANCEL_CHECK_MASK = 1023;
+
     private final BatchedPipeStepIteratorAdaptor batchedPipeStepIteratorAdaptor;
 
     private final Duration batchOfferTimeout;
@@ -29,7 +33,7 @@ public class ReaderThread extends Thread {
     final RowBuffer rowBuffer2 = new RowBuffer(rowBuffer1);
     Analysis bufferedPipeStep;
     BufferAdaptor bufferAdaptor;
-    private boolean stopProcessing = false;
+    private volatile boolean stopProcessing = false;
     boolean didStart = false;
 
     private long numberOfPollsBeforeLog;
@@ -116,6 +120,15 @@ public class ReaderThread extends Thread {
         }
     }
 
+    /**
+     * Stops processing and interrupts the thread, called when the query is cancelled so that a source blocked
+     * waiting for data does not hold the query until the next row arrives.
+     */
+    void cancel() {
+        stopProcessing("Stop processing query cancelled");
+        interrupt();
+    }
+
     public void finish() {
         try {
             bufferedPipeStep.securedFinish(batchedPipeStepIteratorAdaptor.getEx());
@@ -136,19 +149,28 @@ public class ReaderThread extends Thread {
         }
         didStart = true;
         Row r = null;
+        CancellationToken token = batchedPipeStepIteratorAdaptor.getCancellationToken();
+        CancellationToken previousToken = CancellationToken.attach(token);
+        CancellationToken.Registration registration = token.onCancel(this::cancel);
         try {
             Iterator<? extends Row> sourceIterator = batchedPipeStepIteratorAdaptor.sourceIterator;
+            int count = 0;
             while (sourceIterator.hasNext() && !bufferedPipeStep.wantsNoMore()) {
                 r = sourceIterator.next();
                 bufferedPipeStep.process(r);
+                if ((++count & CANCEL_CHECK_MASK) == 0 && token.isCancelled()) {
+                    break;
+                }
             }
         } catch (Throwable e) {
             batchedPipeStepIteratorAdaptor.setEx(e);
             stopProcessing("Stop processinng cause error " + e.getMessage() + " last row " + r);
         } finally {
+            registration.close();
             finish();
             // we don't want to stop processing even though sourceIterator has been read
             closeSourceIterator();
+            CancellationToken.restore(previousToken);
         }
     }
 
@@ -172,9 +194,10 @@ public class ReaderThread extends Thread {
     }
 
     public RowBuffer pollBatch() throws InterruptedException {
+        CancellationToken token = batchedPipeStepIteratorAdaptor.getCancellationToken();
         RowBuffer ret = rowQueue.poll(batchOfferTimeout.toMillis(), TimeUnit.MILLISECONDS);
         int count = 0;
-        while (!stopProcessing && ret == null) {
+        while (!stopProcessing && ret == null && !token.isCancelled()) {
             ret = rowQueue.poll(batchOfferTimeout.toMillis(), TimeUnit.MILLISECONDS);
             if (count > numberOfPollsBeforeTimeout) {
                 throw new GorSystemException("BatchedIteratorAdaptor polling for too long " + timeout.getSeconds(), null);
@@ -0,0 +1,556 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.columnar;
+
+import org.gorpipe.exceptions.GorDataException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A typed, column oriented copy of a nor text file. It is written as a sidecar next to nor results in the
+ * query cache so that later reads can skip tokenising the text and report column types up front.
+ * <p>
+ * Numeric columns are only stored as numbers when the canonical string form of every value equals the original
+ * text, so rows reconstructed from the table are identical to the lines in the text file. The rows are stored in
+ * blocks of {@value #BLOCK_ROWS}, each with its own string dictionaries, so the table can be streamed with a
+ * {@link Reader}.
+ */
+public class ColumnarNorTable {
+    public static final String SIDECAR_SUFFIX = ".norc";
+    static final String MAGIC = "GORNORC2";
+    static final int BLOCK_ROWS = 4096;
+
+    static final byte INT = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte STRING = 3;
+
+    private static final String[] TYPE_NAMES = {"I", "L", "D", "S"};
+
+    private final String[] columnNames;
+    private final byte[] kinds;
+    private final Object[] values;
+    private final String[][] dictionaries;
+    private final int rowCount;
+
+    ColumnarNorTable(String[] columnNames, byte[] kinds, Object[] values, String[][] dictionaries, int rowCount) {
+        this.columnNames = columnNames;
+        this.kinds = kinds;
+        this.values = values;
+        this.dictionaries = dictionaries;
+        this.rowCount = rowCount;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return columnNames.length;
+    }
+
+    public void write(OutputStream outputStream, String signature) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        out.writeUTF(MAGIC);
+        out.writeUTF(signature);
+        out.writeInt(columnNames.length);
+        for (int c = 0; c < columnNames.length; c++) {
+            out.writeUTF(columnNames[c]);
+            out.writeByte(kinds[c]);
+        }
+        int[] localCodes = new int[0];
+        for (int first = 0; first < rowCount; first += BLOCK_ROWS) {
+            int last = Math.min(rowCount, first + BLOCK_ROWS);
+            out.writeInt(last - first);
+            for (int c = 0; c < columnNames.length; c++) {
+                switch (kinds[c]) {
+                    case INT:
+                        for (int r = first; r < last; r++) out.writeInt(((int[]) values[c])[r]);
+                        break;
+                    case LONG:
+                        for (int r = first; r < last; r++) out.writeLong(((long[]) values[c])[r]);
+                        break;
+                    case DOUBLE:
+                        for (int r = first; r < last; r++) out.writeDouble(((double[]) values[c])[r]);
+                        break;
+                    default:
+                        // Dictionaries are written per block, so a reader only holds the strings of one block
+                        String[] dictionary = dictionaries[c];
+                        int[] codes = (int[]) values[c];
+                        if (localCodes.length < dictionary.length) localCodes = new int[dictionary.length];
+                        int size = 0;
+                        for (int r = first; r < last; r++) {
+                            if (localCodes[codes[r]] == 0) localCodes[codes[r]] = ++size;
+                        }
+                        String[] blockDictionary = new String[size];
+                        for (int r = first; r < last; r++) {
+                            blockDictionary[localCodes[codes[r]] - 1] = dictionary[codes[r]];
+                        }
+                        out.writeInt(size);
+                        for (String v : blockDictionary) writeString(out, v);
+                        for (int r = first; r < last; r++) out.writeInt(localCodes[codes[r]] - 1);
+                        for (int r = first; r < last; r++) localCodes[codes[r]] = 0;
+                }
+            }
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /**
+     * Read a table written with {@link #write}, one block of rows at a time.
+     *
+     * @return the reader or null if the stream is not a columnar table for a file with the given signature.
+     */
+    public static Reader read(InputStream inputStream, String signature) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream, 1 << 16));
+        try {
+            if (!MAGIC.equals(in.readUTF()) || !signature.equals(in.readUTF())) {
+                return null;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            return null;
+        }
+        int columnCount = in.readInt();
+        String[] columnNames = new String[columnCount];
+        byte[] kinds = new byte[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            columnNames[c] = in.readUTF();
+            kinds[c] = in.readByte();
+            if (kinds[c] < INT || kinds[c] > STRING) {
+                throw new GorDataException("Unknown column kind " + kinds[c] + " in columnar nor table");
+            }
+        }
+        return new Reader(in, columnNames, kinds);
+    }
+
+    // writeUTF is limited to 64k bytes, values can be longer than that
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        char[] chars = s.toCharArray();
+        out.writeInt(chars.length);
+        for (char ch : chars) out.writeChar(ch);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        char[] chars = new char[in.readInt()];
+        for (int i = 0; i < chars.length; i++) chars[i] = in.readChar();
+        return new String(chars);
+    }
+
+    /**
+     * Streams the blocks of a columnar table. Only the values and dictionaries of the current block are held in
+     * memory.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final String[] columnNames;
+        private final byte[] kinds;
+        private final int[][] ints;
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final String[][] dictionaries;
+        private int blockRows;
+        private boolean done;
+
+        Reader(DataInputStream in, String[] columnNames, byte[] kinds) {
+            this.in = in;
+            this.columnNames = columnNames;
+            this.kinds = kinds;
+            this.ints = new int[kinds.length][];
+            this.longs = new long[kinds.length][];
+            this.doubles = new double[kinds.length][];
+            this.dictionaries = new String[kinds.length][];
+        }
+
+        public int columnCount() {
+            return columnNames.length;
+        }
+
+        /**
+         * @return the header as NorInputSource reports it, including the ChromNOR and PosNOR columns.
+         */
+        public String header() {
+            return "ChromNOR\tPosNOR\t" + String.join("\t", columnNames);
+        }
+
+        /**
+         * @return column types in RowHeader notation, including the ChromNOR and PosNOR columns.
+         */
+        public String[] types() {
+            String[] types = new String[columnNames.length + 2];
+            types[0] = "S";
+            types[1] = "I";
+            for (int i = 0; i < kinds.length; i++) {
+                types[i + 2] = TYPE_NAMES[kinds[i]];
+            }
+            return types;
+        }
+
+        /**
+         * @return the number of rows in the current block.
+         */
+        public int blockRows() {
+            return blockRows;
+        }
+
+        /**
+         * Read the next block of rows.
+         *
+         * @return false when there are no more rows.
+         */
+        public boolean nextBlock() throws IOException {
+            if (done) return false;
+            int rows = in.readInt();
+            if (rows <= 0) {
+                done = true;
+                blockRows = 0;
+                return false;
+            }
+            for (int c = 0; c < kinds.length; c++) {
+                switch (kinds[c]) {
+                    case INT:
+                        ints[c] = readInts(in, ints[c], rows);
+                        break;
+                    case LONG:
+                        if (longs[c] == null || longs[c].length < rows) longs[c] = new long[rows];
+                        for (int r = 0; r < rows; r++) longs[c][r] = in.readLong();
+                        break;
+                    case DOUBLE:
+                        if (doubles[c] == null || doubles[c].length < rows) doubles[c] = new double[rows];
+                        for (int r = 0; r < rows; r++) doubles[c][r] = in.readDouble();
+                        break;
+                    default:
+                        String[] dictionary = new String[in.readInt()];
+                        for (int i = 0; i < dictionary.length; i++) dictionary[i] = readString(in);
+                        dictionaries[c] = dictionary;
+                        ints[c] = readInts(in, ints[c], rows);
+                }
+            }
+            blockRows = rows;
+            return true;
+        }
+
+        private static int[] readInts(DataInputStream in, int[] buffer, int rows) throws IOException {
+            if (buffer == null || buffer.length < rows) buffer = new int[rows];
+            for (int r = 0; r < rows; r++) buffer[r] = in.readInt();
+            return buffer;
+        }
+
+        /**
+         * Append the text of a single value of the current block to the builder.
+         */
+        public void appendValue(StringBuilder sb, int row, int col) {
+            switch (kinds[col]) {
+                case INT:
+                    sb.append(ints[col][row]);
+                    break;
+                case LONG:
+                    sb.append(longs[col][row]);
+                    break;
+                case DOUBLE:
+                    sb.append(doubles[col][row]);
+                    break;
+                default:
+                    sb.append(dictionaries[col][ints[col][row]]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Accumulates nor lines into a columnar table. The builder gives up, and stays abandoned, when a line
+     * could not be reproduced exactly by NorInputSource from the columnar form or when the estimated memory
+     * footprint exceeds the given limit.
+     */
+    public static class Builder {
+        private final String[] columnNames;
+        private final long maxBytes;
+        private final ColumnBuilder[] columns;
+        private final String[] tokens;
+        private int rowCount;
+        private boolean abandoned;
+
+        public Builder(String[] columnNames, long maxBytes) {
+            this.columnNames = columnNames;
+            this.maxBytes = maxBytes;
+            this.columns = new ColumnBuilder[columnNames.length];
+            for (int i = 0; i < columns.length; i++) columns[i] = new ColumnBuilder();
+            this.tokens = new String[columnNames.length];
+            this.abandoned = !validHeader(columnNames);
+        }
+
+        private static boolean validHeader(String[] columnNames) {
+            if (columnNames.length == 0 || columnNames[0].startsWith("#")) return false;
+            for (String name : columnNames) {
+                if (name.isEmpty() || name.indexOf('\n') >= 0) return false;
+            }
+            return true;
+        }
+
+        public boolean isAbandoned() {
+            return abandoned;
+        }
+
+        public int rowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Add a nor line, i.e. the columns after ChromNOR and PosNOR.
+         *
+         * @return false if the builder has been abandoned.
+         */
+        public boolean add(CharSequence line) {
+            if (abandoned) return false;
+            int length = line.length();
+            if (length == 0 || (length > 1 && line.charAt(0) == '#' && line.charAt(1) == '#')) {
+                return abandon();
+            }
+            int start = 0;
+            int col = 0;
+            for (int i = 0; i <= length; i++) {
+                char ch = i < length ? line.charAt(i) : '\t';
+                if (ch == '\t') {
+                    if (col == tokens.length) return abandon();
+                    tokens[col++] = line.subSequence(start, i).toString();
+                    start = i + 1;
+                } else if (ch == '"' || ch == '\n' || ch == '\r') {
+                    return abandon();
+                }
+            }
+            if (col != tokens.length) return abandon();
+
+            long bytes = 0;
+            for (int c = 0; c < tokens.length; c++) {
+                columns[c].add(tokens[c], rowCount);
+                bytes += columns[c].estimatedBytes();
+            }
+            rowCount++;
+            if (bytes > maxBytes) return abandon();
+            return true;
+        }
+
+        private boolean abandon() {
+            abandoned = true;
+            Arrays.fill(columns, null);
+            return false;
+        }
+
+        public ColumnarNorTable build() {
+            if (abandoned) return null;
+            byte[] kinds = new byte[columns.length];
+            Object[] values = new Object[columns.length];
+            String[][] dictionaries = new String[columns.length][];
+            for (int c = 0; c < columns.length; c++) {
+                ColumnBuilder column = columns[c];
+                kinds[c] = column.kind;
+                switch (column.kind) {
+                    case INT:
+                        values[c] = Arrays.copyOf(column.ints, rowCount);
+                        break;
+                    case LONG:
+                        values[c] = Arrays.copyOf(column.longs, rowCount);
+                        break;
+                    case DOUBLE:
+                        values[c] = Arrays.copyOf(column.doubles, rowCount);
+                        break;
+                    default:
+                        values[c] = Arrays.copyOf(column.ints, rowCount);
+                        dictionaries[c] = column.dictionaryValues.toArray(new String[0]);
+                }
+            }
+            return new ColumnarNorTable(columnNames, kinds, values, dictionaries, rowCount);
+        }
+    }
+
+    private static class ColumnBuilder {
+        byte kind = -1;
+        int[] ints = new int[16];
+        long[] longs;
+        double[] doubles;
+        Map<String, Integer> dictionary;
+        List<String> dictionaryValues;
+        long dictionaryBytes;
+
+        void add(String token, int row) {
+            if (kind == -1) {
+                kind = classify(token);
+                if (kind == LONG) {
+                    longs = new long[16];
+                    ints = null;
+                } else if (kind == DOUBLE) {
+                    doubles = new double[16];
+                    ints = null;
+                } else if (kind == STRING) {
+                    dictionary = new HashMap<>();
+                    dictionaryValues = new ArrayList<>();
+                }
+            }
+            switch (kind) {
+                case INT:
+                    if (isInt(token)) {
+                        ensureCapacity(row);
+                        ints[row] = Integer.parseInt(token);
+                        return;
+                    }
+                    if (isLong(token)) {
+                        longs = new long[ints.length];
+                        for (int r = 0; r < row; r++) longs[r] = ints[r];
+                        ints = null;
+                        kind = LONG;
+                        ensureCapacity(row);
+                        longs[row] = Long.parseLong(token);
+                        return;
+                    }
+                    break;
+                case LONG:
+                    if (isLong(token)) {
+                        ensureCapacity(row);
+                        longs[row] = Long.parseLong(token);
+                        return;
+                    }
+                    break;
+                case DOUBLE:
+                    if (isDouble(token)) {
+                        ensureCapacity(row);
+                        doubles[row] = Double.parseDouble(token);
+                        return;
+                    }
+                    break;
+                default:
+                    ensureCapacity(row);
+                    ints[row] = code(token);
+                    return;
+            }
+            toStrings(row);
+            ensureCapacity(row);
+            ints[row] = code(token);
+        }
+
+        private void toStrings(int row) {
+            dictionary = new HashMap<>();
+            dictionaryValues = new ArrayList<>();
+            int[] codes = new int[Math.max(16, row + 1)];
+            for (int r = 0; r < row; r++) {
+                String text;
+                if (kind == INT) text = Integer.toString(ints[r]);
+                else if (kind == LONG) text = Long.toString(longs[r]);
+                else text = Double.toString(doubles[r]);
+                codes[r] = code(text);
+            }
+            ints = codes;
+            longs = null;
+            doubles = null;
+            kind = STRING;
+        }
+
+        private int code(String token) {
+            Integer code = dictionary.get(token);
+            if (code == null) {
+                code = dictionaryValues.size();
+                dictionary.put(token, code);
+                dictionaryValues.add(token);
+                dictionaryBytes += 64L + 2L * token.length();
+            }
+            return code;
+        }
+
+        private void ensureCapacity(int row) {
+            if (kind == LONG) {
+                if (row >= longs.length) longs = Arrays.copyOf(longs, longs.length * 2);
+            } else if (kind == DOUBLE) {
+                if (row >= doubles.length) doubles = Arrays.copyOf(doubles, doubles.length * 2);
+            } else if (row >= ints.length) {
+                ints = Arrays.copyOf(ints, ints.length * 2);
+            }
+        }
+
+        long estimatedBytes() {
+            if (kind == LONG) return 8L * longs.length;
+            if (kind == DOUBLE) return 8L * doubles.length;
+            return 4L * ints.length + dictionaryBytes;
+        }
+    }
+
+    static byte classify(String token) {
+        if (isInt(token)) return INT;
+        if (isLong(token)) return LONG;
+        if (isDouble(token)) return DOUBLE;
+        return STRING;
+    }
+
+    private static boolean looksIntegral(String token, int maxLength) {
+        int length = token.length();
+        if (length == 0 || length > maxLength) return false;
+        int i = token.charAt(0) == '-' ? 1 : 0;
+        if (i == length) return false;
+        for (; i < length; i++) {
+            char ch = token.charAt(i);
+            if (ch < '0' || ch > '9') return false;
+        }
+        return true;
+    }
+
+    static boolean isInt(String token) {
+        if (!looksIntegral(token, 11)) return false;
+        try {
+            return Integer.toString(Integer.parseInt(token)).equals(token);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isLong(String token) {
+        if (!looksIntegral(token, 20)) return false;
+        try {
+            return Long.toString(Long.parseLong(token)).equals(token);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isDouble(String token) {
+        int length = token.length();
+        if (length < 3 || length > 32) return false;
+        char first = token.charAt(0);
+        if (first != '-' && (first < '0' || first > '9')) return false;
+        for (int i = 1; i < length; i++) {
+            char ch = token.charAt(i);
+            if ((ch < '0' || ch > '9') && ch != '.' && ch != 'E' && ch != '-') return false;
+        }
+        try {
+            return Double.toString(Double.parseDouble(token)).equals(token);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
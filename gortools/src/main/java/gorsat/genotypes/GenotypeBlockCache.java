@@ -0,0 +1,221 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A memory bounded cache of decoded genotype blocks, shared by the genotype commands of all queries in the process.
+ *
+ * A block holds the decoded values rows of one bucket over one window of a chromosome, in the order they were read.
+ * Each row is stored as one byte per position in the bucket, the byte being the genotype character the commands
+ * would have taken from the values column, so a block is a flat {@code byte[]} of {@code rows * width} values and an
+ * {@code int[]} of row positions.
+ *
+ * Blocks are keyed by the signature of the rows feeding the command (see {@link GenotypeBlockCursor}), the layout
+ * of the values column, the bucket and the window. The cache is bounded by the total size of the blocks in bytes,
+ * {@code gor.genotypes.blockcache.bytes}. It is off by default, set it to a positive size to enable it.
+ */
+public final class GenotypeBlockCache {
+
+    private static final GenotypeBlockCache SHARED = new GenotypeBlockCache(
+            Long.getLong("gor.genotypes.blockcache.bytes", 0L),
+            Integer.getInteger("gor.genotypes.blockcache.window", 100000));
+
+    private final long maxBytes;
+    private final int window;
+    private final Cache<Key, Block> blocks;
+
+    public GenotypeBlockCache(long maxBytes, int window) {
+        this.maxBytes = maxBytes;
+        this.window = Math.max(1, window);
+        this.blocks = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .weigher((Key key, Block block) -> (int) Math.min(Integer.MAX_VALUE, block.bytes()))
+                .build();
+    }
+
+    public static GenotypeBlockCache shared() {
+        return SHARED;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Start of the window containing the given position.
+     */
+    public int windowStart(int pos) {
+        return pos - Math.floorMod(pos, window);
+    }
+
+    public Block get(Key key) {
+        return blocks.getIfPresent(key);
+    }
+
+    /**
+     * Adds the block unless the key already has a block with at least as many rows.
+     */
+    public void put(Key key, Block block) {
+        if (!isEnabled()) return;
+        blocks.asMap().merge(key, block, (old, b) -> b.rows() > old.rows() ? b : old);
+    }
+
+    public long size() {
+        return blocks.size();
+    }
+
+    public void invalidateAll() {
+        blocks.invalidateAll();
+    }
+
+    public static final class Key {
+        private final String source;
+        private final String layout;
+        private final String bucket;
+        private final String chrom;
+        private final int start;
+        private final int hash;
+
+        public Key(String source, String layout, String bucket, String chrom, int start) {
+            this.source = source;
+            this.layout = layout;
+            this.bucket = bucket;
+            this.chrom = chrom;
+            this.start = start;
+            this.hash = Objects.hash(source, layout, bucket, chrom, start);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key that = (Key) o;
+            return hash == that.hash && start == that.start && chrom.equals(that.chrom) && bucket.equals(that.bucket)
+                    && layout.equals(that.layout) && source.equals(that.source);
+        }
+    }
+
+    /**
+     * The decoded rows of one bucket in one window. Blocks are immutable once built.
+     */
+    public static final class Block {
+        private final int[] positions;
+        private final byte[] values;
+        private final int width;
+
+        Block(int[] positions, byte[] values, int width) {
+            this.positions = positions;
+            this.values = values;
+            this.width = width;
+        }
+
+        public int rows() {
+            return positions.length;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int position(int row) {
+            return positions[row];
+        }
+
+        public byte[] values() {
+            return values;
+        }
+
+        public int offset(int row) {
+            return row * width;
+        }
+
+        long bytes() {
+            return 64L + 4L * positions.length + values.length;
+        }
+    }
+
+    /**
+     * Collects the decoded rows of a block.
+     */
+    static final class BlockBuilder {
+        private int[] positions = new int[16];
+        private byte[] values;
+        private int rows;
+        private final int width;
+
+        BlockBuilder(int width) {
+            this.width = width;
+            this.values = new byte[16 * width];
+        }
+
+        int width() {
+            return width;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        /**
+         * Size of the arrays held by the builder.
+         */
+        long bytes() {
+            return 4L * positions.length + values.length;
+        }
+
+        /**
+         * Adds the first {@code width()} values of {@code row} and returns the array holding them, at offset
+         * {@code (rows() - 1) * width()}. Arrays returned earlier are not modified when the builder grows, so rows
+         * handed out stay valid.
+         */
+        byte[] add(int pos, byte[] row) {
+            if (rows == positions.length) {
+                positions = Arrays.copyOf(positions, rows * 2);
+                values = Arrays.copyOf(values, rows * 2 * width);
+            }
+            positions[rows] = pos;
+            System.arraycopy(row, 0, values, rows * width, width);
+            rows++;
+            return values;
+        }
+
+        Block build() {
+            return new Block(Arrays.copyOf(positions, rows), Arrays.copyOf(values, rows * width), width);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves the decoded values rows of a genotype command from the {@link GenotypeBlockCache}, decoding and adding the
+ * blocks that are not cached yet.
+ *
+ * The rows must be given in the order they are read. A block is only added once the bucket moves on to the next
+ * window, so blocks cut short by the end of the stream are never cached. The source signature must identify the
+ * rows completely, i.e. the input source with its range and the identity of the files read, a null signature
+ * disables the cache. The blocks being built by a cursor are together limited to the size of the cache, a block
+ * growing past that is dropped and the rest of its window is read by the caller.
+ *
+ * Instances are not thread safe and the rows of a cursor must come from a single reader, e.g. one bin of a binned
+ * analysis, as the rows served stay valid and are expected in read order.
+ */
+public final class GenotypeBlockCursor {
+
+    private final GenotypeBlockCache cache;
+    private final String source;
+    private final String layout;
+    private final char separator;
+    private final int valueSize;
+    private final Map<String, BucketCursor> buckets = new HashMap<>();
+
+    private byte[] decoded = new byte[0];
+    private long buildingBytes;
+    private byte[] values;
+    private int offset;
+    private int width;
+    private long hits;
+
+    /**
+     * @param valueSize the fixed size of each value, or -1 if the values are separated by {@code separator}
+     */
+    public GenotypeBlockCursor(GenotypeBlockCache cache, String source, char separator, int valueSize) {
+        this.cache = cache;
+        this.source = source;
+        this.separator = separator;
+        this.valueSize = valueSize;
+        this.layout = valueSize > 0 ? "vs" + valueSize : "s" + separator;
+    }
+
+    public boolean isEnabled() {
+        return source != null && cache.isEnabled();
+    }
+
+    /**
+     * Moves to the row of {@code bucket} at {@code chrom:pos}. If this returns true the decoded row is found in
+     * {@link #values()} from {@link #offset()}, {@link #width()} values long, and stays there. Returns false if the
+     * row is neither cached nor being added to the cache, the caller must then read the values itself.
+     */
+    public boolean next(String bucket, String chrom, int pos, CharSequence row) {
+        final BucketCursor bc = buckets.computeIfAbsent(bucket, BucketCursor::new);
+        final int start = cache.windowStart(pos);
+        if (bc.chrom == null || bc.start != start || !bc.chrom.equals(chrom)) {
+            bc.moveTo(chrom, start);
+        }
+
+        final GenotypeBlockCache.Block block = bc.cached;
+        if (block != null) {
+            if (bc.ordinal < block.rows() && block.position(bc.ordinal) == pos) {
+                values = block.values();
+                offset = block.offset(bc.ordinal);
+                width = block.width();
+                bc.ordinal++;
+                hits++;
+                return true;
+            }
+            // The rows differ from the cached block, read the rest of the window without the cache
+            bc.cached = null;
+        }
+        if (!bc.building) {
+            return false;
+        }
+
+        final int count = count(row, separator, valueSize);
+        if (decoded.length < count) {
+            decoded = new byte[count];
+        }
+        if (!decode(row, separator, valueSize, decoded)) {
+            bc.stopBuilding();
+            return false;
+        }
+        if (bc.builder == null) {
+            bc.builder = new GenotypeBlockCache.BlockBuilder(count);
+        } else if (bc.builder.width() != count) {
+            bc.stopBuilding();
+            return false;
+        }
+        final long before = bc.builder.bytes();
+        values = bc.builder.add(pos, decoded);
+        offset = (bc.builder.rows() - 1) * count;
+        width = count;
+        buildingBytes += bc.builder.bytes() - before;
+        if (buildingBytes > cache.maxBytes()) {
+            // The row stays valid in the array handed out, only the block is given up
+            bc.stopBuilding();
+        }
+        return true;
+    }
+
+    public byte[] values() {
+        return values;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Number of rows served from cached blocks.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Number of values in a values column.
+     */
+    public static int count(CharSequence row, char separator, int valueSize) {
+        final int length = row.length();
+        if (valueSize > 0) {
+            return length / valueSize;
+        }
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            final char c = row.charAt(i);
+            if (c == separator || c == '\t') count++;
+        }
+        return count;
+    }
+
+    /**
+     * Decodes a values column to one byte per value into {@code decoded}, the last character of each value or 0 for
+     * an empty value. The array must hold at least {@link #count} values. Returns false if a genotype character does
+     * not fit in a byte.
+     */
+    public static boolean decode(CharSequence row, char separator, int valueSize, byte[] decoded) {
+        final int length = row.length();
+        if (valueSize > 0) {
+            final int count = length / valueSize;
+            for (int i = 0; i < count; i++) {
+                final char c = row.charAt(i * valueSize + valueSize - 1);
+                if (c > 127) return false;
+                decoded[i] = (byte) c;
+            }
+        } else {
+            int n = 0;
+            decoded[0] = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = row.charAt(i);
+                if (c == separator || c == '\t') {
+                    decoded[++n] = 0;
+                } else if (c > 127) {
+                    return false;
+                } else {
+                    decoded[n] = (byte) c;
+                }
+            }
+        }
+        return true;
+    }
+
+    private final class BucketCursor {
+        final String bucket;
+        String chrom;
+        int start;
+        GenotypeBlockCache.Block cached;
+        int ordinal;
+        boolean building;
+        GenotypeBlockCache.BlockBuilder builder;
+
+        BucketCursor(String bucket) {
+            this.bucket = bucket;
+        }
+
+        void moveTo(String newChrom, int newStart) {
+            if (building && builder != null) {
+                cache.put(new GenotypeBlockCache.Key(source, layout, bucket, chrom, start), builder.build());
+            }
+            chrom = newChrom;
+            start = newStart;
+            ordinal = 0;
+            stopBuilding();
+            cached = null;
+            if (isEnabled()) {
+                cached = cache.get(new GenotypeBlockCache.Key(source, layout, bucket, chrom, start));
+                building = cached == null;
+            }
+        }
+
+        void stopBuilding() {
+            if (builder != null) {
+                buildingBytes -= builder.bytes();
+            }
+            building = false;
+            builder = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+/**
+ * A computation over a pair of packed genotype vectors. Implementations keep their own counters so a kernel instance
+ * can be reused for many pairs by a single thread, e.g. one instance per batch in a parallel stream.
+ */
+public interface GenotypePairKernel {
+
+    void reset();
+
+    /**
+     * Accumulates the first {@code length} genotypes of {@code a} and {@code b}.
+     */
+    void apply(PackedGenotypes a, PackedGenotypes b, int length);
+}
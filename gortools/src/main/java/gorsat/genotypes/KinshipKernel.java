@@ -0,0 +1,165 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+/**
+ * The KING kinship counts of a pair of samples, computed 64 markers at a time with {@link Long#bitCount(long)}.
+ *
+ * When marker weights are given the tpq and kpq sums are accumulated as well. They are added in ascending marker
+ * order, exactly as a marker by marker loop would, so the results are bit for bit the same. The prefix sums are used
+ * to skip the leading run of markers where both samples have a genotype.
+ */
+public final class KinshipKernel implements GenotypePairKernel {
+
+    public int ibs0;
+    public int xx;
+    public int nhet;
+    public int nhom;
+    public int naai;
+    public int naaj;
+    public int count;
+    public double tpq;
+    public double kpq;
+
+    private final float[] tpqWeights;
+    private final float[] kpqWeights;
+    private final double[] tpqPrefix;
+    private final double[] kpqPrefix;
+
+    public KinshipKernel() {
+        this(null, null, 0);
+    }
+
+    /**
+     * @param tpqWeights per marker tpq weights
+     * @param kpqWeights per marker kpq weights
+     * @param markers    number of markers in use
+     */
+    public KinshipKernel(float[] tpqWeights, float[] kpqWeights, int markers) {
+        this(tpqWeights, kpqWeights, prefixSums(tpqWeights, markers), prefixSums(kpqWeights, markers));
+    }
+
+    /**
+     * Creates a kernel sharing prefix sums created by {@link #prefixSums(float[], int)} with other kernels.
+     */
+    public KinshipKernel(float[] tpqWeights, float[] kpqWeights, double[] tpqPrefix, double[] kpqPrefix) {
+        this.tpqWeights = tpqWeights;
+        this.kpqWeights = kpqWeights;
+        this.tpqPrefix = tpqPrefix;
+        this.kpqPrefix = kpqPrefix;
+    }
+
+    public static double[] prefixSums(float[] weights, int markers) {
+        if (weights == null) {
+            return null;
+        }
+        final double[] prefix = new double[markers + 1];
+        double sum = 0.0;
+        for (int i = 0; i < markers; i++) {
+            prefix[i] = sum;
+            sum += weights[i];
+        }
+        prefix[markers] = sum;
+        return prefix;
+    }
+
+    @Override
+    public void reset() {
+        ibs0 = 0;
+        xx = 0;
+        nhet = 0;
+        nhom = 0;
+        naai = 0;
+        naaj = 0;
+        count = 0;
+        tpq = 0.0;
+        kpq = 0.0;
+    }
+
+    @Override
+    public void apply(PackedGenotypes a, PackedGenotypes b, int length) {
+        final int words = PackedGenotypes.wordCount(length);
+        int firstGap = length;
+        for (int w = 0; w < words; w++) {
+            final long mask = w == words - 1 ? PackedGenotypes.lastWordMask(length) : -1L;
+            final long valid = applyWord(a.low(w), a.high(w), b.low(w), b.high(w), mask);
+            if (valid != mask && firstGap == length) {
+                firstGap = (w << 6) + Long.numberOfTrailingZeros(~valid & mask);
+            }
+        }
+        if (tpqWeights != null) {
+            addWeights(a, b, length, firstGap);
+        }
+    }
+
+    /**
+     * Accumulates the counts of one word of markers.
+     *
+     * @return the markers where both samples have a genotype
+     */
+    public long applyWord(long lowA, long highA, long lowB, long highB, long mask) {
+        final long valid = ~(lowA & highA) & ~(lowB & highB) & mask;
+        final long hetA = lowA & ~highA & valid;
+        final long hetB = lowB & ~highB & valid;
+        final long homRefA = ~lowA & ~highA & valid;
+        final long homRefB = ~lowB & ~highB & valid;
+        final long homAltA = highA & ~lowA & valid;
+        final long homAltB = highB & ~lowB & valid;
+
+        final long opposite = (homRefA & homAltB) | (homAltA & homRefB);
+        final long hetHom = (hetA & (homRefB | homAltB)) | (hetB & (homRefA | homAltA));
+        final int oppositeCount = Long.bitCount(opposite);
+
+        count += Long.bitCount(valid);
+        ibs0 += oppositeCount;
+        nhom += oppositeCount;
+        xx += Long.bitCount(hetHom) + 4 * oppositeCount;
+        nhet += Long.bitCount(hetA & hetB);
+        naai += Long.bitCount(hetA);
+        naaj += Long.bitCount(hetB);
+        return valid;
+    }
+
+    private void addWeights(PackedGenotypes a, PackedGenotypes b, int length, int firstGap) {
+        double t = tpqPrefix[firstGap];
+        double k = kpqPrefix[firstGap];
+        if (firstGap < length) {
+            final int words = PackedGenotypes.wordCount(length);
+            for (int w = firstGap >>> 6; w < words; w++) {
+                final long mask = w == words - 1 ? PackedGenotypes.lastWordMask(length) : -1L;
+                long valid = ~(a.low(w) & a.high(w)) & ~(b.low(w) & b.high(w)) & mask;
+                if (w == firstGap >>> 6) {
+                    valid &= -1L << firstGap;
+                }
+                while (valid != 0) {
+                    final int i = (w << 6) + Long.numberOfTrailingZeros(valid);
+                    t += tpqWeights[i];
+                    k += kpqWeights[i];
+                    valid &= valid - 1;
+                }
+            }
+        }
+        tpq += t;
+        kpq += k;
+    }
+}
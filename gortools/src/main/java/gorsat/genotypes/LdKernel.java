@@ -0,0 +1,70 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import java.util.Arrays;
+
+/**
+ * Counts the nine combinations of genotypes 0, 1 and 2 of two variants over the same samples, as used by the LD
+ * calculation. Samples where either value is not 0, 1 or 2 are not counted.
+ */
+public final class LdKernel implements GenotypePairKernel {
+
+    /**
+     * The counts, ordered g00, g10, g20, g01, g11, g21, g02, g12, g22 where the first digit is the genotype of the
+     * first variant.
+     */
+    public final int[] counts = new int[9];
+
+    @Override
+    public void reset() {
+        Arrays.fill(counts, 0);
+    }
+
+    @Override
+    public void apply(PackedGenotypes a, PackedGenotypes b, int length) {
+        final int words = PackedGenotypes.wordCount(length);
+        for (int w = 0; w < words; w++) {
+            final long mask = w == words - 1 ? PackedGenotypes.lastWordMask(length) : -1L;
+            final long la = a.low(w);
+            final long ha = a.high(w);
+            final long lb = b.low(w);
+            final long hb = b.high(w);
+            final long a0 = ~la & ~ha & mask;
+            final long a1 = la & ~ha & mask;
+            final long a2 = ha & ~la & mask;
+            final long b0 = ~lb & ~hb;
+            final long b1 = lb & ~hb;
+            final long b2 = hb & ~lb;
+            counts[0] += Long.bitCount(a0 & b0);
+            counts[1] += Long.bitCount(a1 & b0);
+            counts[2] += Long.bitCount(a2 & b0);
+            counts[3] += Long.bitCount(a0 & b1);
+            counts[4] += Long.bitCount(a1 & b1);
+            counts[5] += Long.bitCount(a2 & b1);
+            counts[6] += Long.bitCount(a0 & b2);
+            counts[7] += Long.bitCount(a1 & b2);
+            counts[8] += Long.bitCount(a2 & b2);
+        }
+    }
+}
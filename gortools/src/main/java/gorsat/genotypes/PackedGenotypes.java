@@ -0,0 +1,133 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import java.util.Arrays;
+
+/**
+ * A vector of genotypes packed two bits per value.
+ *
+ * The two bits of each genotype are kept in separate bit planes, so 64 genotypes fit in one word of each plane and
+ * the genotype classes of a whole word can be derived with a couple of bitwise operations:
+ * <pre>
+ *     '0' : low=0 high=0
+ *     '1' : low=1 high=0
+ *     '2' : low=0 high=1
+ *     other (missing, usually '3') : low=1 high=1
+ * </pre>
+ * Bits beyond the length of the vector are never set, use {@link #lastWordMask(int)} to exclude them.
+ */
+public final class PackedGenotypes {
+
+    private final long[] low;
+    private final long[] high;
+    private final int capacity;
+
+    public PackedGenotypes(int capacity) {
+        this.capacity = capacity;
+        final int words = wordCount(capacity);
+        this.low = new long[words];
+        this.high = new long[words];
+    }
+
+    /**
+     * Packs {@code length} genotype characters starting at {@code offset} in {@code values}.
+     */
+    public static PackedGenotypes pack(CharSequence values, int offset, int length) {
+        final PackedGenotypes packed = new PackedGenotypes(length);
+        for (int i = 0; i < length; i++) {
+            final char gt = values.charAt(offset + i);
+            if (gt != '0') {
+                packed.setNonZero(i, gt);
+            }
+        }
+        return packed;
+    }
+
+    public static PackedGenotypes pack(CharSequence values) {
+        return pack(values, 0, values.length());
+    }
+
+    public static int wordCount(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    /**
+     * Mask of the valid bits in the last word of a vector of the given length.
+     */
+    public static long lastWordMask(int length) {
+        final int rest = length & 63;
+        return rest == 0 ? -1L : (1L << rest) - 1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int words() {
+        return low.length;
+    }
+
+    public long low(int word) {
+        return low[word];
+    }
+
+    public long high(int word) {
+        return high[word];
+    }
+
+    public void set(int i, char gt) {
+        final int w = i >>> 6;
+        final long bit = 1L << i;
+        low[w] &= ~bit;
+        high[w] &= ~bit;
+        if (gt != '0') {
+            setNonZero(i, gt);
+        }
+    }
+
+    private void setNonZero(int i, char gt) {
+        final int w = i >>> 6;
+        final long bit = 1L << i;
+        if (gt == '1') {
+            low[w] |= bit;
+        } else if (gt == '2') {
+            high[w] |= bit;
+        } else {
+            low[w] |= bit;
+            high[w] |= bit;
+        }
+    }
+
+    public char get(int i) {
+        final int w = i >>> 6;
+        final int l = (int) (low[w] >>> i) & 1;
+        final int h = (int) (high[w] >>> i) & 1;
+        return (char) ('0' + (l | (h << 1)));
+    }
+
+    public void clear() {
+        Arrays.fill(low, 0L);
+        Arrays.fill(high, 0L);
+    }
+}
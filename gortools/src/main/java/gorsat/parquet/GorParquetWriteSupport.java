@@ -23,6 +23,9 @@ public class GorParquetWriteSupport extends WriteSupport<Row> {
     boolean ordered;
     boolean nor;
     String[] schemaSplit;
+    // Column type codes and names resolved once in init, so writing a row does no string comparisons
+    char[] columnTypes;
+    String[] columnNames;
 
     @Override
     public WriteContext init(Configuration configuration) {
@@ -48,6 +51,13 @@ public class GorParquetWriteSupport extends WriteSupport<Row> {
             }
         }
         if(nor) schemaSplit = Arrays.copyOfRange(schemaSplit,2,schemaSplit.length);
+        columnTypes = new char[types.size()];
+        columnNames = new String[types.size()];
+        for(int i = 0; i < types.size(); i++) {
+            String typeName = schemaSplit[i];
+            columnTypes[i] = typeName.equals("I") || typeName.equals("L") || typeName.equals("D") ? typeName.charAt(0) : 'S';
+            columnNames[i] = types.get(i).getName();
+        }
         MessageType msgType = new MessageType(nor?"nor":"gor", types);
         Map<String,String> meta = new HashMap<>();
         return new WriteContext(msgType, meta);
@@ -63,28 +73,27 @@ public class GorParquetWriteSupport extends WriteSupport<Row> {
         currentRecordConsumer.startMessage();
         int start = 0;
         if(!nor) {
-            currentRecordConsumer.startField(types.get(0).getName(), 0);
+            currentRecordConsumer.startField(columnNames[0], 0);
             Binary chr = Binary.fromCharSequence(row.chr);
             currentRecordConsumer.addBinary(chr);
-            currentRecordConsumer.endField(types.get(0).getName(), 0);
+            currentRecordConsumer.endField(columnNames[0], 0);
 
-            currentRecordConsumer.startField(types.get(1).getName(), 1);
+            currentRecordConsumer.startField(columnNames[1], 1);
             currentRecordConsumer.addInteger(row.pos);
-            currentRecordConsumer.endField(types.get(1).getName(), 1);
+            currentRecordConsumer.endField(columnNames[1], 1);
 
             start = 2;
         }
         for(int i = start; i < types.size(); i++) {
-            currentRecordConsumer.startField(types.get(i).getName(), i);
+            currentRecordConsumer.startField(columnNames[i], i);
             int offset = i+2-start;
-            if(schemaSplit[i].equals("I")) currentRecordConsumer.addInteger(row.colAsInt(offset));
-            else if(schemaSplit[i].equals("L")) currentRecordConsumer.addLong(row.colAsLong(offset));
-            else if(schemaSplit[i].equals("D")) currentRecordConsumer.addDouble(row.colAsDouble(offset));
-            else {
-                Binary bin = Binary.fromCharSequence(row.colAsString(offset));
-                currentRecordConsumer.addBinary(bin);
+            switch (columnTypes[i]) {
+                case 'I' -> currentRecordConsumer.addInteger(row.colAsInt(offset));
+                case 'L' -> currentRecordConsumer.addLong(row.colAsLong(offset));
+                case 'D' -> currentRecordConsumer.addDouble(row.colAsDouble(offset));
+                default -> currentRecordConsumer.addBinary(Binary.fromCharSequence(row.colAsString(offset)));
             }
-            currentRecordConsumer.endField(types.get(i).getName(), i);
+            currentRecordConsumer.endField(columnNames[i], i);
         }
         currentRecordConsumer.endMessage();
     }
@@ -237,7 +237,11 @@ public class CalcCompiler extends GorScriptBaseVisitor<TypedCalcLambda> {
                         orgLambda instanceof Numeric && argumentPromotion == ArgumentPromotion.NUMERIC_AS_STRING ||
                         orgLambda instanceof CalcLambdaVariable && argumentPromotion == ArgumentPromotion.NUMERIC_VARIABLES_AS_STRING
                 ) {
-                    typedExpression = new TypedExpression(FunctionTypes.StringFun(), (CvpStringLambda)orgLambda::evaluateString);
+                    if (orgLambda instanceof CalcLambdaStringConstant) {
+                        typedExpression = new TypedExpression(FunctionTypes.StringFun(), new ConstantStringFun(orgLambda.evaluateString(null)));
+                    } else {
+                        typedExpression = new TypedExpression(FunctionTypes.StringFun(), (CvpStringLambda) orgLambda::evaluateString);
+                    }
                 }
             } else if (argType.equals(FunctionTypes.StringList()) && argLambda instanceof CalcLambdaStringConstant) {
                 ListBuffer<String> sl = new ListBuffer<>();
@@ -0,0 +1,56 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.parser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled regular expressions for patterns that are only known when rows are evaluated, e.g. when the pattern
+ * comes from a column. Each compiled expression has its own cache. When the cache is full it is cleared, so a
+ * pattern that changes on every row costs no more than compiling it directly.
+ */
+public class PatternCache {
+    private static final int MAX_SIZE = Integer.getInteger("gor.calc.regex.cache.size", 1024);
+
+    private final ConcurrentHashMap<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+    public Pattern get(String regex) {
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            if (patterns.size() >= MAX_SIZE) {
+                patterns.clear();
+            }
+            patterns.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Same as input.matches(regex).
+     */
+    public boolean matches(String regex, CharSequence input) {
+        return get(regex).matcher(input).matches();
+    }
+}
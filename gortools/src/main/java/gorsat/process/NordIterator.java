@@ -81,6 +81,10 @@ public class NordIterator extends GenomicIteratorBase {
     private GorSession gorSession;
     private final Set<String> nestedIterators;
 
+    private int readAhead = 1;
+    private boolean ordered = true;
+    private ParallelNordReader parallelReader;
+
     /**
      * Nor dictionary constructor. Creates an instance of nor dictionary iterator, see class description.
      *
@@ -95,7 +99,7 @@ public class NordIterator extends GenomicIteratorBase {
                         String sourceColumnName,
                         boolean ignoreMissingEntries,
                         boolean forceReadOfHeader) {
-        this(nordDict, filterEntries, sourceColumnName, ignoreMissingEntries, forceReadOfHeader, new HashSet<>());
+        this(nordDict, filterEntries, sourceColumnName, ignoreMissingEntries, forceReadOfHeader, Collections.synchronizedSet(new HashSet<>()));
     }
 
     private NordIterator(NorDictionaryTable nordDict,
@@ -112,8 +116,23 @@ public class NordIterator extends GenomicIteratorBase {
         this.nestedIterators = nestedIterators;
     }
 
+    /**
+     * Read the dictionary entries in parallel.  Must be called before {@link #init(GorSession)}.
+     *
+     * @param readAhead number of entries opened and parsed ahead of the consumer, 1 reads the entries one by one.
+     * @param ordered   if true rows are returned in dictionary order, otherwise rows from different entries can be
+     *                  interleaved.
+     */
+    public void setParallelism(int readAhead, boolean ordered) {
+        this.readAhead = readAhead;
+        this.ordered = ordered;
+    }
+
     @Override
     public void close() {
+        if (parallelReader != null) {
+            parallelReader.close();
+        }
         if (activeIterator != null) {
             activeIterator.close();
             activeIterator = null;
@@ -122,6 +141,9 @@ public class NordIterator extends GenomicIteratorBase {
 
     @Override
     public boolean hasNext() {
+        if (parallelReader != null) {
+            return parallelReader.hasNext();
+        }
         while (activeIterator == null || !activeIterator.hasNext()) {
             // Note that we do this in a loop to handle potentially empty files in the middle of the dict
             if(!prepareNextIterator()) {
@@ -134,6 +156,9 @@ public class NordIterator extends GenomicIteratorBase {
 
     @Override
     public Row next() {
+        if (parallelReader != null) {
+            return parallelReader.next();
+        }
         if (activeIterator != null && activeIterator.hasNext()) {
              String extraColumn = "";
              if (this.nordDict.getLineFilter() && addSourceColumn) extraColumn = "\t" + activeEntry.getAlias();
@@ -169,6 +194,14 @@ public class NordIterator extends GenomicIteratorBase {
             setHeader(addOptionalSourceColumn("ChromNOR\tPosNOR\t" +  String.join("\t", nordDict.getColumns())));
         }
 
+        if (readAhead > 1 && entries.size() > 1) {
+            // The first entry is opened here, as in the sequential case, to get the header.
+            List<DictionaryEntry> entryList = new ArrayList<>(entries);
+            ParallelNordReader.OpenedEntry first = openEntry(entryList.get(0));
+            parallelReader = new ParallelNordReader(entryList, first, this::openEntry, readAhead, ordered);
+            return;
+        }
+
         nordEntriesIterator = entries.iterator();
 
         prepareNextIterator();
@@ -178,9 +211,7 @@ public class NordIterator extends GenomicIteratorBase {
         try {
             File file = new File(filename);
             String canonicalPath = file.getCanonicalPath();
-            if (!nestedIterators.contains(canonicalPath)) {
-                nestedIterators.add(canonicalPath);
-            } else {
+            if (!nestedIterators.add(canonicalPath)) {
                 String message = String.format("Recursion detected in nested nor dictionary: %s", filename);
                 throw new GorDataException(message);
             }
@@ -197,20 +228,11 @@ public class NordIterator extends GenomicIteratorBase {
 
             // Read the next nord entry
             activeEntry = nordEntriesIterator.next();
-
-            // Get the file path from entry
-            String fileName = activeEntry.getContentReal(nordDict.getRootPath());
-            if (DataUtil.isNord(fileName)) {
-                var newnordDict = new NorDictionaryTable(fileName, this.fileReader);
-                activeIterator = new NordIterator(newnordDict, filterEntries, "", ignoreMissingEntries, forceReadOfHeader, nestedIterators);
-            } else {
-                activeIterator = new NorInputSource(fileName, this.fileReader, false, this.forceReadOfHeader, 0, false, false, true);
-            }
-            activeIterator.init(gorSession);
+            activeIterator = createEntryIterator(activeEntry);
 
             // Test header
             try {
-                getHeaderFromIterator(this.activeIterator);
+                addSourceColumn = getHeaderFromIterator(activeEntry, this.activeIterator);
             } catch (Exception e) {
                 close();
                 throw e;
@@ -221,12 +243,47 @@ public class NordIterator extends GenomicIteratorBase {
         }
     }
 
-    private void getHeaderFromIterator(GenomicIterator inputSource) {
+    private GenomicIterator createEntryIterator(DictionaryEntry entry) {
+        // Get the file path from entry
+        String fileName = entry.getContentReal(nordDict.getRootPath());
+        GenomicIterator iterator;
+        if (DataUtil.isNord(fileName)) {
+            var newnordDict = new NorDictionaryTable(fileName, this.fileReader);
+            NordIterator nested = new NordIterator(newnordDict, filterEntries, "", ignoreMissingEntries, forceReadOfHeader, nestedIterators);
+            // Nested dictionaries are read sequentially, the parallelism is at the top level.
+            nested.setParallelism(1, ordered);
+            iterator = nested;
+        } else {
+            iterator = new NorInputSource(fileName, this.fileReader, false, this.forceReadOfHeader, 0, false, false, true);
+        }
+        iterator.init(gorSession);
+        return iterator;
+    }
+
+    private ParallelNordReader.OpenedEntry openEntry(DictionaryEntry entry) {
+        GenomicIterator iterator = createEntryIterator(entry);
+        try {
+            boolean addSource = getHeaderFromIterator(entry, iterator);
+            String suffix = this.nordDict.getLineFilter() && addSource ? "\t" + entry.getAlias() : "";
+            return new ParallelNordReader.OpenedEntry(iterator, suffix);
+        } catch (Exception e) {
+            iterator.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Validate the header of an entry.
+     *
+     * @return true if the source column should be added to the rows of the entry.
+     */
+    private boolean getHeaderFromIterator(DictionaryEntry entry, GenomicIterator inputSource) {
         String iteratorHeader = inputSource.getHeader();
         if(iteratorHeader.isEmpty()) {
-            throw new GorDataException("Missing header for: " + activeEntry.getAlias());
+            throw new GorDataException("Missing header for: " + entry.getAlias());
         }
-        iteratorHeader = addOptionalSourceColumn(iteratorHeader);
+        boolean addSource = !iteratorHeader.contains("\t" + this.sourceColumnName);
+        if (addSource && this.nordDict.getLineFilter()) iteratorHeader += "\t" + this.sourceColumnName;
         String expectedHeader = getHeader();
 
         if (getHeader().isEmpty()) {
@@ -234,9 +291,10 @@ public class NordIterator extends GenomicIteratorBase {
         } else if (nordDict.isValidateFiles() && !iteratorHeader.equalsIgnoreCase(expectedHeader)) {
             String message = String.format("Headers do not match between dictionary files for: %s\n" +
                     "Expected header: %s\n" +
-                    "     Got header: %s", activeEntry.getAlias(), expectedHeader, iteratorHeader);
+                    "     Got header: %s", entry.getAlias(), expectedHeader, iteratorHeader);
             throw new GorDataException(message);
         }
+        return addSource;
     }
 
     private String addOptionalSourceColumn(String iteratorHeader) {
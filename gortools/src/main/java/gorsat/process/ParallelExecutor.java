@@ -22,6 +22,7 @@
 
 package gorsat.process;
 
+import org.gorpipe.gor.monitor.CancellationToken;
 import scala.Function0;
 import scala.Unit;
 
@@ -37,11 +38,21 @@ public class ParallelExecutor {
     private Throwable firstException;
     private final Thread[] threads;
     private final Function0<Unit>[] commands;
+    private final CancellationToken cancellationToken;
 
     public ParallelExecutor(int workers, Function0<Unit>[] commands) {
+        this(workers, commands, CancellationToken.none());
+    }
+
+    /**
+     * Workers stop taking new commands when the token is cancelled and are interrupted, the token is attached to
+     * the worker threads so that sources opened by the commands can observe it.
+     */
+    public ParallelExecutor(int workers, Function0<Unit>[] commands, CancellationToken cancellationToken) {
         this.commands = commands;
         this.threads = new Thread[workers];
         this.firstException = null;
+        this.cancellationToken = cancellationToken;
     }
 
     @SuppressWarnings("squid:S00112") // We need to handle Throwable here, sorry
@@ -49,22 +60,35 @@ public class ParallelExecutor {
         ConcurrentLinkedQueue<Function0<Unit>> clq = new ConcurrentLinkedQueue<>(Arrays.asList(commands));
         for( int i = 0; i < threads.length; i++ ) {
             Thread t = new Thread(() -> {
-                Function0<Unit> func = clq.poll();
+                CancellationToken.attach(cancellationToken);
+                Function0<Unit> func = cancellationToken.isCancelled() ? null : clq.poll();
                 while( func != null ) {
                     func.apply();
-                    func = clq.poll();
+                    func = cancellationToken.isCancelled() ? null : clq.poll();
                 }
             }, "ParallelExecutorThread-" + i);
             t.setUncaughtExceptionHandler(this::parallelExcecuteUncaughtExceptionHandler);
-            t.start();
             threads[i] = t;
         }
-        for( Thread t : threads ) {
-            t.join();
-            if (firstException != null) {
-                throw firstException;
+        try (CancellationToken.Registration ignored = cancellationToken.onCancel(this::interruptWorkers)) {
+            for (Thread t : threads) {
+                t.start();
+            }
+            for( Thread t : threads ) {
+                t.join();
+                if (firstException != null) {
+                    cancellationToken.throwIfCancelled();
+                    throw firstException;
+                }
             }
         }
+        cancellationToken.throwIfCancelled();
+    }
+
+    private void interruptWorkers() {
+        for (Thread t : threads) {
+            t.interrupt();
+        }
     }
 
     private synchronized void parallelExcecuteUncaughtExceptionHandler(Thread thread, Throwable throwable) {
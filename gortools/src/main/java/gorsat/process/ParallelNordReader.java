@@ -0,0 +1,224 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.process;
+
+import org.gorpipe.exceptions.GorException;
+import org.gorpipe.exceptions.GorSystemException;
+import org.gorpipe.gor.model.GenomicIterator;
+import org.gorpipe.gor.model.Row;
+import org.gorpipe.gor.table.dictionary.DictionaryEntry;
+import org.gorpipe.model.gor.RowObj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Reads the entries of a nor dictionary on a bounded pool, opening and parsing up to {@code threads} entries ahead of
+ * the consumer.
+ * <p>
+ * In ordered mode each entry has its own bounded queue of row batches and the rows are returned in dictionary order.
+ * In unordered mode all entries share one queue and rows from different entries may be interleaved, the rows of each
+ * entry are still in file order.
+ */
+class ParallelNordReader implements AutoCloseable {
+
+    /**
+     * Entry opened for reading, {@code suffix} is appended to every row (the source column).
+     */
+    record OpenedEntry(GenomicIterator iterator, String suffix) {}
+
+    private static final int BATCH_SIZE = 256;
+    private static final int QUEUE_BATCHES = 8;
+    private static final Object END = new Object();
+
+    private final List<DictionaryEntry> entries;
+    private final Function<DictionaryEntry, OpenedEntry> opener;
+    private final boolean ordered;
+    private final int threads;
+    private final ExecutorService executor;
+    private final AtomicInteger nextEntry = new AtomicInteger();
+    private final AtomicReference<OpenedEntry> firstEntry;
+    private final Map<Integer, BlockingQueue<Object>> entryQueues = new ConcurrentHashMap<>();
+    private final BlockingQueue<Object> sharedQueue;
+    private volatile boolean closed = false;
+
+    private int currentEntry = 0;       // Ordered mode, entry being consumed.
+    private int finishedWorkers = 0;    // Unordered mode, workers that have no more entries.
+    private List<Row> batch = null;
+    private int batchPos = 0;
+    private boolean done = false;
+
+    /**
+     * @param entries    dictionary entries to read.
+     * @param firstEntry the first entry, already opened by the caller to get the header.
+     * @param opener     opens the other entries, validating their headers.
+     * @param threads    number of entries read in parallel.
+     * @param ordered    if true the rows are returned in dictionary order.
+     */
+    ParallelNordReader(List<DictionaryEntry> entries, OpenedEntry firstEntry, Function<DictionaryEntry, OpenedEntry> opener,
+                       int threads, boolean ordered) {
+        this.entries = entries;
+        this.firstEntry = new AtomicReference<>(firstEntry);
+        this.opener = opener;
+        this.ordered = ordered;
+        this.threads = Math.max(1, Math.min(threads, entries.size()));
+        this.sharedQueue = ordered ? null : new ArrayBlockingQueue<>(QUEUE_BATCHES * this.threads);
+        this.executor = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "nord-reader");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < this.threads; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    boolean hasNext() {
+        while (batch == null || batchPos >= batch.size()) {
+            if (done || !nextBatch()) {
+                done = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Row next() {
+        return hasNext() ? batch.get(batchPos++) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean nextBatch() {
+        while (true) {
+            Object item;
+            try {
+                if (ordered) {
+                    if (currentEntry >= entries.size()) {
+                        return false;
+                    }
+                    item = queueFor(currentEntry).take();
+                } else {
+                    if (finishedWorkers >= threads) {
+                        return false;
+                    }
+                    item = sharedQueue.take();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GorSystemException("Interrupted while reading nor dictionary", e);
+            }
+
+            if (item == END) {
+                if (ordered) {
+                    entryQueues.remove(currentEntry++);
+                } else {
+                    finishedWorkers++;
+                }
+            } else if (item instanceof Throwable) {
+                close();
+                if (item instanceof GorException) {
+                    throw (GorException) item;
+                }
+                throw new GorSystemException("Error reading nor dictionary entry", (Throwable) item);
+            } else {
+                batch = (List<Row>) item;
+                batchPos = 0;
+                return true;
+            }
+        }
+    }
+
+    private BlockingQueue<Object> queueFor(int entryIndex) {
+        return ordered ? entryQueues.computeIfAbsent(entryIndex, k -> new ArrayBlockingQueue<>(QUEUE_BATCHES)) : sharedQueue;
+    }
+
+    private void work() {
+        try {
+            int idx;
+            while (!closed && (idx = nextEntry.getAndIncrement()) < entries.size()) {
+                BlockingQueue<Object> queue = queueFor(idx);
+                try {
+                    OpenedEntry opened = idx == 0 ? firstEntry.getAndSet(null) : opener.apply(entries.get(idx));
+                    readEntry(opened, queue);
+                    if (ordered) {
+                        queue.put(END);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable t) {
+                    try {
+                        queue.put(t);
+                    } catch (InterruptedException e) {
+                        // Closing
+                    }
+                    return;
+                }
+            }
+        } finally {
+            if (!ordered && !closed) {
+                try {
+                    sharedQueue.put(END);
+                } catch (InterruptedException e) {
+                    // Closing
+                }
+            }
+        }
+    }
+
+    private void readEntry(OpenedEntry opened, BlockingQueue<Object> queue) throws InterruptedException {
+        try {
+            List<Row> rows = new ArrayList<>(BATCH_SIZE);
+            while (!closed && opened.iterator().hasNext()) {
+                rows.add(RowObj.StoR(opened.iterator().next() + opened.suffix()));
+                if (rows.size() == BATCH_SIZE) {
+                    queue.put(rows);
+                    rows = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!rows.isEmpty()) {
+                queue.put(rows);
+            }
+        } finally {
+            opened.iterator().close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        OpenedEntry first = firstEntry.getAndSet(null);
+        if (first != null) {
+            first.iterator().close();
+        }
+    }
+}
@@ -60,7 +60,7 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
 
     private boolean mustReCheck = true;
     private boolean myHasNext = true;
-    private final BufferedReader breader;
+    private final ProcessLineReader reader;
 
     private final Process proc;
     final InputStream is;
@@ -75,11 +75,13 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
     private final OutThread outThread;
 
     static class ProcessAdaptor extends Analysis {
-        OutputStream os;
+        final ProcessRowWriter os;
+        final boolean nor;
         Analysis pps;
 
-        ProcessAdaptor(OutputStream os) {
+        ProcessAdaptor(ProcessRowWriter os, boolean nor) {
             this.os = os;
+            this.nor = nor;
         }
 
         void setProcessPipeStep(Analysis pps) {
@@ -90,13 +92,14 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
         public void process(Row row) {
             try {
                 if (!wantsNoMore()) {
-                    row.writeRowToStream(os);
-                    os.write('\n');
+                    os.writeRow(row, nor);
                 } else {
                     pps.wantsNoMore_$eq(true);
                 }
             } catch (IOException e) {
-                // ignore, external process already closed the output stream
+                // external process already closed the output stream, stop reading rows for it
+                wantsNoMore_$eq(true);
+                pps.wantsNoMore_$eq(true);
             }
         }
 
@@ -110,32 +113,13 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
         }
     }
 
-    class NorProcessAdaptor extends ProcessAdaptor {
-        NorProcessAdaptor(OutputStream os) {
-            super(os);
-        }
-
-        @Override
-        public void process(Row row) {
-            try {
-                if (!wantsNoMore()) {
-                    row.writeNorRowToStream(os);
-                    os.write('\n');
-                } else {
-                    pps.wantsNoMore_$eq(true);
-                }
-            } catch (IOException e) {
-                // ignore, external process already closed the output stream
-            }
-        }
-    }
-
     private class OutThread extends Thread {
         private final Iterator<Row> rs;
         private final Analysis processPipeStep;
         private final OutputStream os;
         private Throwable th = null;
         private final String header;
+        private volatile boolean cancelled = false;
 
         OutThread(Iterator<Row> rs, Analysis processPipeStep, OutputStream os, String header) {
             this.rs = rs;
@@ -152,9 +136,16 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
             return th;
         }
 
+        /**
+         * Stops feeding rows to the process, the row source is closed by this thread when it notices.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
         void writeOutput() {
             try {
-                while (rs.hasNext() && !processPipeStep.wantsNoMore()) {
+                while (!cancelled && rs.hasNext() && !processPipeStep.wantsNoMore()) {
                     Row row = rs.next();
                     processPipeStep.process(row);
                 }
@@ -213,10 +204,10 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
         startReadStdErrThread(es);
 
         is = proc.getInputStream();
-        breader = new BufferedReader(new InputStreamReader(is));
+        reader = new ProcessLineReader(is);
 
-        final OutputStream os = proc.getOutputStream();
-        ProcessAdaptor processAdaptor = nor ? new NorProcessAdaptor(os) : new ProcessAdaptor(os);
+        final ProcessRowWriter os = new ProcessRowWriter(proc.getOutputStream());
+        ProcessAdaptor processAdaptor = new ProcessAdaptor(os, nor);
         Analysis processPipeStep;
         if (an != null) {
             an = PipeInstance.injectTypeInferral(an, false, null);
@@ -235,12 +226,12 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
             try {
                 int skipnum = Integer.parseInt(skipstr);
                 for (int i = 0; i < skipnum; i++) {
-                    breader.readLine();
+                    reader.readLine();
                 }
             } catch (NumberFormatException e) {
-                String line = breader.readLine();
+                String line = reader.readLine();
                 while (line != null && line.startsWith(skipstr)) {
-                    line = breader.readLine();
+                    line = reader.readLine();
                 }
 
                 mustReCheck = false;
@@ -254,19 +245,19 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
     }
 
     private void processHeader(boolean nor, OutputStream os) throws IOException {
-        setHeader(line != null ? line : breader.readLine());
+        setHeader(line != null ? line : reader.readLine());
         // R in some cases outputs 'WARNING' as first line to stdout
         while (getHeader() != null && (getHeader().length() == 0 || getHeader().startsWith("WARNING"))) {
-            setHeader(breader.readLine());
+            setHeader(reader.readLine());
         }
 
         if (getHeader() == null) {
-            String newline = breader.readLine();
+            String newline = reader.readLine();
 
             proc.destroy();
             Exception ie = null;
             try {
-                breader.close();
+                reader.close();
                 os.close();
                 proc.waitFor();
             } catch (Exception e) {
@@ -284,11 +275,7 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
         Thread readStdErrThread = new Thread(() -> {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             try {
-                int r = es.read();
-                while (r != -1) {
-                    baos.write(r);
-                    r = es.read();
-                }
+                es.transferTo(baos);
                 es.close();
                 baos.close();
                 String stderr = baos.toString();
@@ -312,7 +299,7 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
             return myHasNext;
         }
         try {
-            line = breader.readLine();
+            line = reader.readLine();
             myHasNext = line != null;
         } catch (IOException e) {
             throw new GorSystemException("unable to read from process", e);
@@ -353,6 +340,7 @@ public class ProcessIteratorAdaptor extends GenomicIteratorBase implements Seria
     @Override
     public void close() {
         mustReCheck = true;
+        outThread.cancel();
 
         int exitValue = 0;
         if (proc.isAlive()) {
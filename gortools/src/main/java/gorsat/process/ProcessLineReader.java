@@ -0,0 +1,118 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.process;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads lines from the output of an external process.
+ * <p>
+ * Lines are found by scanning a large reusable byte buffer and each line is decoded straight into its String,
+ * avoiding the char buffer and line builder copies of {@link java.io.BufferedReader}. Line terminators are
+ * handled like {@link java.io.BufferedReader#readLine()}: '\n', '\r' and "\r\n".
+ */
+public class ProcessLineReader implements Closeable {
+    static final int BUFFER_SIZE = Integer.getInteger("gor.process.buffer.size", 256 * 1024);
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private boolean eof;
+    private boolean skipLF;
+
+    public ProcessLineReader(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    ProcessLineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return the next line without its terminator, or null at end of stream
+     */
+    public String readLine() throws IOException {
+        int scan = start;
+        while (true) {
+            if (skipLF && start < end) {
+                skipLF = false;
+                if (buffer[start] == '\n') {
+                    start++;
+                    if (scan < start) scan = start;
+                }
+            }
+            for (int i = scan; i < end; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    String line = new String(buffer, start, i - start, CHARSET);
+                    start = i + 1;
+                    skipLF = b == '\r';
+                    return line;
+                }
+            }
+            scan = end;
+            if (eof) {
+                if (start == end) return null;
+                String line = new String(buffer, start, end - start, CHARSET);
+                start = end;
+                return line;
+            }
+            scan -= start;
+            fill();
+        }
+    }
+
+    /**
+     * Reads more data, keeping the unfinished line at the start of the buffer.
+     */
+    private void fill() throws IOException {
+        int remaining = end - start;
+        if (remaining == buffer.length) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, start, grown, 0, remaining);
+            buffer = grown;
+        } else if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, remaining);
+        }
+        start = 0;
+        end = remaining;
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+        } else {
+            end += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
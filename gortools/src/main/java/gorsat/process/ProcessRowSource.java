@@ -162,6 +162,7 @@ public class ProcessRowSource extends ProcessSource {
                     // don't care throw new RuntimeException("", e);
                 }
             });
+            errorThread.setDaemon(true);
             errorThread.start();
             InputStream is = p.getInputStream();
 
@@ -182,7 +183,7 @@ public class ProcessRowSource extends ProcessSource {
     }
 
     private GenomicIterator gorIterator( InputStream is, List<String> headercommands, String type, boolean headerLess ) throws IOException {
-        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        ProcessLineReader br = new ProcessLineReader(is);
         String header = null;
         if (!headerLess) {
             header = br.readLine();
@@ -191,7 +192,7 @@ public class ProcessRowSource extends ProcessSource {
             }
         }
         var it = new GenomicIteratorBase() {
-            BufferedReader reader = br;
+            ProcessLineReader reader = br;
             String next = readLine();
 
             private String readLine() throws IOException {
@@ -220,7 +221,7 @@ public class ProcessRowSource extends ProcessSource {
             @Override
             public boolean seek(String seekChr, int seekPos) {
                 InputStream is = setRange(seekChr, seekPos, -1);
-                reader = new BufferedReader(new InputStreamReader(is));
+                reader = new ProcessLineReader(is);
                 try {
                     if (type != null) readLine();
                     next = readLine();
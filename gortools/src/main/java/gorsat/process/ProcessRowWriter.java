@@ -0,0 +1,135 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.process;
+
+import org.gorpipe.gor.model.Row;
+import org.gorpipe.gor.model.RowBase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes rows to the input of an external process through a large reusable byte buffer.
+ * <p>
+ * ASCII text rows are copied straight from their column text into the buffer, other rows fall back to
+ * {@link Row#writeRowToStream(OutputStream)}. The buffer is only flushed when full or on {@link #flush()},
+ * writes block while the process is not consuming its input.
+ */
+public class ProcessRowWriter extends OutputStream {
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+
+    public ProcessRowWriter(OutputStream out) {
+        this(out, ProcessLineReader.BUFFER_SIZE);
+    }
+
+    ProcessRowWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Writes the row followed by a newline, without the chromosome and position columns if nor is set.
+     */
+    public void writeRow(Row row, boolean nor) throws IOException {
+        if (!(row instanceof RowBase) || row.getAllCols() == null || !writeAscii(row.getAllCols(), nor ? norStart(row) : 0)) {
+            if (nor) {
+                row.writeNorRowToStream(this);
+            } else {
+                row.writeRowToStream(this);
+            }
+        }
+        write('\n');
+    }
+
+    private static int norStart(Row row) {
+        return row.numCols() <= 2 ? row.getAllCols().length() : row.sa(1) + 1;
+    }
+
+    /**
+     * Copies the text from start into the buffer, returns false without writing anything if the text is not ASCII.
+     */
+    private boolean writeAscii(CharSequence text, int start) throws IOException {
+        int length = text.length() - start;
+        if (length > buffer.length) {
+            return false;
+        }
+        if (length > buffer.length - count) {
+            flushBuffer();
+        }
+        int pos = count;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return false;
+            }
+            buffer[pos++] = (byte) c;
+        }
+        count = pos;
+        return true;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.length - count) {
+            flushBuffer();
+            if (len > buffer.length) {
+                out.write(b, off, len);
+                return;
+            }
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
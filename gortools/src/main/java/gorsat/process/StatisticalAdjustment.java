@@ -25,9 +25,13 @@ package gorsat.process;
 import cern.jet.stat.Probability;
 import org.apache.commons.math3.util.FastMath;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
 public class StatisticalAdjustment {
     private static final double CHI_INV_HALF = 0.4549364231195736D;
     private static final double EULER_MASCHERONI = 0.5772156649015328606065121D;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
 
     private StatisticalAdjustment() {}
 
@@ -191,6 +195,43 @@ public class StatisticalAdjustment {
         }
     }
 
+    /**
+     * Sorts the first n values into {@code sorted} and returns the permutation taking sorted positions to
+     * positions in {@code values}. Equal values keep their original order.
+     */
+    public static int[] sortOrder(double[] values, int n, double[] sorted) {
+        System.arraycopy(values, 0, sorted, 0, n);
+        Arrays.parallelSort(sorted, 0, n);
+        final long[] keys = new long[n];
+        range(n).forEach(i -> keys[i] = ((long) lowerBound(sorted, n, values[i]) << 32) | i);
+        Arrays.parallelSort(keys);
+        final int[] order = new int[n];
+        range(n).forEach(k -> order[k] = (int) keys[k]);
+        return order;
+    }
+
+    private static IntStream range(int n) {
+        final IntStream range = IntStream.range(0, n);
+        return n < PARALLEL_THRESHOLD ? range : range.parallel();
+    }
+
+    /**
+     * Returns the first index in the sorted array holding a value not less than {@code v}.
+     */
+    static int lowerBound(double[] sorted, int n, double v) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (Double.compare(sorted[mid], v) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
     /**
      * Inverts a permutation.
      */
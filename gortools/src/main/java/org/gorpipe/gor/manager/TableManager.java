@@ -39,8 +39,14 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class to manage gor tables (dictionaries and tables).
@@ -69,6 +75,10 @@ public class TableManager {
     public static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofMinutes(30);
     public static final Class<? extends TableLock> DEFAULT_LOCK_TYPE = ExclusiveFileTableLock.class;
 
+    // Concurrent inserts into the same table are grouped and committed in one write transaction.
+    private static final boolean BATCH_INSERTS = Boolean.parseBoolean(System.getProperty("gor.table.insert.batch", "false"));
+    private static final Map<String, InsertBatch> pendingInserts = new ConcurrentHashMap<>();
+
     // Members
 
     // TODO:  This is passed on to the tables, so ALL the tables must share the same security context so the tm can
@@ -179,12 +189,104 @@ public class TableManager {
      * @param entries   Files/lines to insert.
      */
     public void insert(DictionaryTable table, BucketManager.BucketPackLevel packLevel, int workers, DictionaryEntry... entries) {
+        if (BATCH_INSERTS) {
+            insertBatched(table, entries);
+            return;
+        }
         try (TableTransaction trans = TableTransaction.openWriteTransaction(this.lockType, table, table.getName(), this.lockTimeout)) {
             table.insert(entries);
             trans.commit();
         }
     }
 
+    /**
+     * Insert the entries as part of a group commit.  The first caller for a table becomes the leader, while it waits for
+     * the table lock other callers add their entries to the same batch.  The leader then writes all the entries in one
+     * transaction and the other callers wait for the result, reloading their own table instance so it includes the
+     * committed entries.
+     */
+    void insertBatched(DictionaryTable table, DictionaryEntry... entries) {
+        String key = table.getPath().toString();
+        InsertBatch batch;
+        boolean leader;
+        while (true) {
+            batch = pendingInserts.computeIfAbsent(key, k -> new InsertBatch());
+            int added = batch.add(table, entries);
+            if (added >= 0) {
+                leader = added == 0;
+                break;
+            }
+        }
+
+        if (!leader) {
+            try {
+                batch.done.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new GorSystemException("Batched insert into " + key + " failed", e.getCause());
+            }
+            if (batch.leaderTable != table) {
+                table.reload();
+            }
+            return;
+        }
+
+        try (TableTransaction trans = TableTransaction.openWriteTransaction(this.lockType, table, table.getName(), this.lockTimeout)) {
+            pendingInserts.remove(key, batch);
+            List<DictionaryEntry> batchEntries = batch.close();
+            log.debug("Inserting batch of {} entries into {}", batchEntries.size(), key);
+            table.insertEntries(batchEntries);
+            trans.commit();
+            batch.done.complete(null);
+        } catch (RuntimeException e) {
+            pendingInserts.remove(key, batch);
+            batch.close();
+            batch.done.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of callers in the open insert batch for the table, 0 if there is none.
+     */
+    static int pendingInsertCallers(DictionaryTable table) {
+        InsertBatch batch = pendingInserts.get(table.getPath().toString());
+        return batch != null ? batch.callers() : 0;
+    }
+
+    private static class InsertBatch {
+        private final List<DictionaryEntry> entries = new ArrayList<>();
+        private DictionaryTable leaderTable;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private int callers = 0;
+        private boolean closed = false;
+
+        /**
+         * @return number of callers that joined before this one, or -1 if the batch is already closed.
+         */
+        synchronized int add(DictionaryTable table, DictionaryEntry... newEntries) {
+            if (closed) {
+                return -1;
+            }
+            if (callers == 0) {
+                leaderTable = table;
+            }
+            Collections.addAll(entries, newEntries);
+            return callers++;
+        }
+
+        synchronized int callers() {
+            return callers;
+        }
+
+        synchronized List<DictionaryEntry> close() {
+            closed = true;
+            return entries;
+        }
+    }
+
     /**
      * Save the given table.
      *
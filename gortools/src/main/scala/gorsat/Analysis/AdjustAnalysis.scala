@@ -23,7 +23,8 @@
 package gorsat.Analysis
 
 import java.io._
-import java.util.zip.{GZIPInputStream, GZIPOutputStream}
+import java.nio.charset.StandardCharsets
+import java.util.Comparator
 import gorsat.Commands.Analysis
 import gorsat.process.StatisticalAdjustment
 import org.apache.commons.io.FileUtils
@@ -32,14 +33,22 @@ import org.gorpipe.model.gor.RowObj
 import org.slf4j.LoggerFactory
 
 import scala.collection.mutable
-import scala.collection.mutable.ArrayBuffer
-import scala.io.Source
+
+object AdjustAnalysis {
+  val SINGLE_BUFFER_SIZE: Int = 256 * 1024
+  val GROUP_BUFFER_SIZE: Int = 32 * 1024
+}
 
 case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) extends Analysis {
   private val logger = LoggerFactory.getLogger(this.getClass)
 
-  case class StatHolder(file: File) {
-    val pValues = new ArrayBuffer[Double]()
+  /**
+    * Collects the p-values of a group in a primitive array and spills its rows, uncompressed and length prefixed,
+    * to a temporary file. All groups are read back at the same time in the merge, so grouped holders use small
+    * buffers to keep the memory linear in the number of groups modest.
+    */
+  case class StatHolder(file: File, bufferSize: Int) {
+    var pValues = new Array[Double](1024)
     var bhValues: Array[Double] =_
     var byValues: Array[Double] =_
     var sdValues: Array[Double] =_
@@ -47,8 +56,35 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
     var rank: Array[Int] =_
     var invSqrtLambda: Double =_
     var count = 0
-    var rowIdx = 0
-    val rowOS = new GZIPOutputStream(new FileOutputStream(file), 32 * 1024)
+    val rowOS = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), bufferSize))
+
+    def add(p: Double, r: Row): Unit = {
+      if (count == pValues.length) pValues = java.util.Arrays.copyOf(pValues, 2 * count)
+      pValues(count) = p
+      count += 1
+      val bytes = r.toString.getBytes(StandardCharsets.UTF_8)
+      rowOS.writeInt(bytes.length)
+      rowOS.write(bytes)
+    }
+
+    def rows(): Iterator[Row] = new Iterator[Row] {
+      private val is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize))
+      private var rowIdx = 0
+
+      override def hasNext: Boolean = {
+        val more = rowIdx < count
+        if (!more) is.close()
+        more
+      }
+
+      override def next(): Row = {
+        val bytes = new Array[Byte](is.readInt())
+        is.readFully(bytes)
+        val r = rowMapper.map(RowObj(new String(bytes, StandardCharsets.UTF_8)), rowIdx, StatHolder.this)
+        rowIdx += 1
+        r
+      }
+    }
   }
 
   val useGroup = grCols.nonEmpty
@@ -68,45 +104,64 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
     } else {
       columnValue
     }
-    sh.pValues += adjustedColumnValue
-    r.writeRowToStream(sh.rowOS)
-    sh.rowOS.write('\n')
-    sh.count += 1
+    sh.add(adjustedColumnValue, r)
   }
 
   override def finish(): Unit = {
     if (useGroup) flushHolders(groupMap)
     else if(theHolder.count > 0) flushSingleHolder(theHolder)
+    else {
+      theHolder.rowOS.close()
+      deleteFiles(Array(theHolder))
+    }
   }
 
   var numberOfStatHolders = 0
 
   private def getNewStatHolder(): StatHolder = {
-    val file = File.createTempFile("adjustAnalysisTmpFile", s"$numberOfStatHolders.tmp.gz")
+    val file = File.createTempFile("adjustAnalysisTmpFile", s"$numberOfStatHolders.tmp")
     numberOfStatHolders += 1
-    StatHolder(file)
+    StatHolder(file, if (useGroup) AdjustAnalysis.GROUP_BUFFER_SIZE else AdjustAnalysis.SINGLE_BUFFER_SIZE)
   }
 
   private def flushSingleHolder(sh: StatHolder): Unit = {
     sh.rowOS.close()
-    val outRows = adjust(sh)
-    outRows.foreach(r => super.process(r))
+    adjust(sh)
+    sh.rows().foreach(r => super.process(r))
+    deleteFiles(Array(sh))
+  }
+
+  /**
+    * A group's position in the merge of the adjusted groups.
+    */
+  private class GroupCursor(val rows: Iterator[Row], val idx: Int) {
+    var row: Row = _
   }
 
   def flushHolders(groupMap: mutable.LinkedHashMap[String, StatHolder]): Unit = {
-    val statHolders = groupMap.toArray.map(_._2)
+    val statHolders = groupMap.valuesIterator.toArray
     statHolders.foreach(_.rowOS.close())
-    val adjustedRowBuffers = statHolders.map(adjust)
-    val queue = mutable.PriorityQueue.empty[(Row, Int)](implicitly[Ordering[(Row, Int)]].reverse)
+    java.util.Arrays.stream(statHolders).parallel().forEach(sh => adjust(sh))
 
-    initializeQueue(adjustedRowBuffers, queue)
+    val order: Comparator[GroupCursor] = (a, b) => {
+      val cmp = a.row.compareTo(b.row)
+      if (cmp != 0) cmp else Integer.compare(a.idx, b.idx)
+    }
+    val queue = new java.util.PriorityQueue[GroupCursor](math.max(1, statHolders.length), order)
+    statHolders.indices.foreach(idx => {
+      val cursor = new GroupCursor(statHolders(idx).rows(), idx)
+      if (cursor.rows.hasNext) {
+        cursor.row = cursor.rows.next()
+        queue.add(cursor)
+      }
+    })
 
-    while (queue.nonEmpty) {
-      val (rowToProcess, bufferIdx) = queue.dequeue()
-      super.process(rowToProcess)
-      val it = adjustedRowBuffers(bufferIdx)
-      if (it.hasNext) {
-        queue += ((it.next(), bufferIdx))
+    while (!queue.isEmpty) {
+      val cursor = queue.poll()
+      super.process(cursor.row)
+      if (cursor.rows.hasNext) {
+        cursor.row = cursor.rows.next()
+        queue.add(cursor)
       }
     }
 
@@ -131,12 +186,6 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
     })
   }
 
-  private def initializeQueue(rowIterators: Array[Iterator[Row]], queue: mutable.PriorityQueue[(Row, Int)]) = {
-    rowIterators.zipWithIndex.filter(_._1.hasNext).foreach({
-      case (it, idx) => queue += ((it.next(), idx))
-    })
-  }
-
   private def getStatHolder(r: Row): StatHolder = {
     if (useGroup) {
       val groupID = r.selectedColumns(grColsArray)
@@ -151,7 +200,7 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
   }
 
   case class RowMapper(adjustOptions: AdjustOptions) {
-    val functions: List[(Int, StatHolder) => Double] = {
+    val functions: Array[(Int, StatHolder) => Double] = {
       var flb: List[(Int, StatHolder) => Double] = Nil
       if (adjustOptions.gcc) flb ::= {
         (idx, sh) => StatisticalAdjustment.genomic_control_correct_p(sh.pValues(idx), sh.invSqrtLambda)
@@ -177,45 +226,51 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
       if (adjustOptions.by) flb ::= {
         (idx, sh) => sh.byValues(idx)
       }
-      flb.reverse
+      flb.reverse.toArray
     }
 
     def map(r: Row, rowIdx: Int, sh: StatHolder): Row = {
       var colIdx = r.numCols() - 2
       r.addColumns(functions.length)
-      functions.foreach(func => {
-        r.setColumn(colIdx, "%.5g".format(func(rowIdx, sh)))
+      var i = 0
+      while (i < functions.length) {
+        r.setColumn(colIdx, "%.5g".format(functions(i)(rowIdx, sh)))
         colIdx += 1
-      })
+        i += 1
+      }
       r
     }
   }
 
-  private def adjust(sh: StatHolder): Iterator[Row] = {
-    lazy val sortedPValues = sh.pValues.toArray.sorted
-    lazy val pInd = Array.tabulate(sh.count)(i => i).sortBy(i => sh.pValues(i))
-    lazy val adjustedPValues = new Array[Double](sh.count)
+  /**
+    * Computes the adjusted p-values of a group. Groups are independent so this may run concurrently for many groups.
+    */
+  private def adjust(sh: StatHolder): Unit = {
+    val count = sh.count
+    val sortedPValues = new Array[Double](count)
+    val pInd = StatisticalAdjustment.sortOrder(sh.pValues, count, sortedPValues)
+    lazy val adjustedPValues = new Array[Double](count)
 
     if (adOpt.gcc) {
       sh.invSqrtLambda = StatisticalAdjustment.getInvSqrtLambda_p(sortedPValues)
     }
     if (adOpt.holm) {
-      sh.holmValues = new Array[Double](sh.count)
+      sh.holmValues = new Array[Double](count)
       StatisticalAdjustment.holm_bonferroni(sortedPValues, adjustedPValues)
       copyInSpecificOrder(adjustedPValues, pInd, sh.holmValues)
     }
     if (adOpt.sd) {
-      sh.sdValues = new Array[Double](sh.count)
+      sh.sdValues = new Array[Double](count)
       StatisticalAdjustment.sidak_sd(sortedPValues, adjustedPValues)
       copyInSpecificOrder(adjustedPValues, pInd, sh.sdValues)
     }
     if (adOpt.bh) {
-      sh.bhValues = new Array[Double](sh.count)
+      sh.bhValues = new Array[Double](count)
       StatisticalAdjustment.benjamini_hochberg(sortedPValues, adjustedPValues)
       copyInSpecificOrder(adjustedPValues, pInd, sh.bhValues)
     }
     if (adOpt.by) {
-      sh.byValues = new Array[Double](sh.count)
+      sh.byValues = new Array[Double](count)
       StatisticalAdjustment.benjamini_yekutieli(sortedPValues, adjustedPValues)
       copyInSpecificOrder(adjustedPValues, pInd, sh.byValues)
     }
@@ -223,11 +278,9 @@ case class AdjustAnalysis(adOpt: AdjustOptions, pCol: Int, grCols: List[Int]) ex
       StatisticalAdjustment.invert(pInd)
       sh.rank = pInd
     }
-    Source.fromInputStream(new GZIPInputStream(new FileInputStream(sh.file), 32 * 1024))
-      .getLines().map(s => RowObj.apply(s)).zipWithIndex.map({ case (r, rowIdx) => rowMapper.map(r, rowIdx, sh) })
   }
 
-  private def copyInSpecificOrder[T](toCopy: Array[T], order: Array[Int], copy: Array[T]): Unit = {
+  private def copyInSpecificOrder(toCopy: Array[Double], order: Array[Int], copy: Array[Double]): Unit = {
     val len = toCopy.length
     var idx = 0
     while (idx < len) {
@@ -0,0 +1,86 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.Analysis
+
+import gorsat.Commands.Analysis
+import gorsat.columnar.{ColumnarNorSource, ColumnarNorTable}
+import org.gorpipe.gor.model.{FileReader, Row}
+import org.gorpipe.gor.util.DataUtil
+import org.slf4j.LoggerFactory
+
+/**
+  * Collects the rows of a nor result into a typed columnar table while passing them on unchanged. The table is
+  * written as a sidecar next to the text file once it has been moved into place, see [[ColumnarNorCapture.writeSidecar]].
+  */
+case class ColumnarNorCapture(header: String) extends Analysis {
+  private val builder = new ColumnarNorTable.Builder(header.split("\t", -1).drop(2), ColumnarNorCapture.maxBytes)
+
+  override def isTypeInformationMaintained: Boolean = true
+
+  override def process(r: Row): Unit = {
+    if (!builder.isAbandoned) builder.add(r.otherCols())
+    super.process(r)
+  }
+
+  def table: ColumnarNorTable = if (isInErrorState) null else builder.build()
+}
+
+object ColumnarNorCapture {
+  private val logger = LoggerFactory.getLogger(this.getClass)
+
+  val maxBytes: Long = System.getProperty("gor.nor.columnar.maxbytes", "67108864").toLong
+
+  /**
+    * @return a capture step if columnar sidecars are enabled and the output is a nor text file, otherwise null.
+    */
+  def create(outfile: String, header: String, nor: Boolean): ColumnarNorCapture = {
+    if (nor && outfile != null && ColumnarNorSource.isEnabled && (DataUtil.isTsv(outfile) || DataUtil.isNor(outfile))) {
+      ColumnarNorCapture(header)
+    } else null
+  }
+
+  def writeSidecar(fileReader: FileReader, fileName: String, capture: ColumnarNorCapture): Unit = {
+    val sidecar = fileName + ColumnarNorTable.SIDECAR_SUFFIX
+    try {
+      val table = capture.table
+      if (table != null) {
+        val os = fileReader.getOutputStream(sidecar)
+        try {
+          table.write(os, fileReader.getFileSignature(fileName))
+        } finally {
+          os.close()
+        }
+      } else if (fileReader.exists(sidecar)) {
+        fileReader.delete(sidecar)
+      }
+    } catch {
+      case e: Exception =>
+        logger.warn(s"Unable to write columnar sidecar $sidecar", e)
+        try {
+          fileReader.delete(sidecar)
+        } catch {
+          case _: Exception => /* do nothing */
+        }
+    }
+  }
+}
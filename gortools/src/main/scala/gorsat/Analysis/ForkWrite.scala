@@ -26,7 +26,7 @@ import java.util.zip.Deflater
 import gorsat.Commands.{Analysis, Output, RowHeader}
 import gorsat.Outputs.OutFile
 import org.apache.commons.io.FilenameUtils
-import org.gorpipe.exceptions.GorResourceException
+import org.gorpipe.exceptions.{GorResourceException, GorSystemException}
 import org.gorpipe.gor.binsearch.GorIndexType
 import org.gorpipe.gor.driver.meta.DataType
 import org.gorpipe.gor.model.{DriverBackedFileReader, GorMeta, GorOptions, Row}
@@ -36,6 +36,7 @@ import org.gorpipe.gor.util.DataUtil
 import org.gorpipe.model.gor.RowObj
 
 import java.util.UUID
+import java.util.concurrent.ArrayBlockingQueue
 import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
 
@@ -102,6 +103,43 @@ case class ForkWrite(forkCol: Int,
     var headerWritten = false
     var rowBuffer = new ArrayBuffer[Row]
     var out: Output = _
+    // Rows of an open file waiting to be handed to the background writer
+    var pending = new ArrayBuffer[Row]
+    val lane: WriterLane = laneFor(forkValue)
+  }
+
+  /**
+    * A background thread writing the output of the forks assigned to it. Work is done in submission order, so the
+    * output of each fork is the same as when written directly, and the bounded queue keeps the input from running
+    * ahead of the writers.
+    */
+  class WriterLane(idx: Int) {
+    private val queue = new ArrayBlockingQueue[(() => Unit, Boolean)](ForkWrite.LANE_QUEUE_SIZE)
+    private val thread = new Thread(() => run(), "forkwrite-" + idx)
+    thread.setDaemon(true)
+    thread.start()
+
+    def submit(work: () => Unit, always: Boolean): Unit = queue.put((work, always))
+
+    def stop(): Unit = {
+      queue.put((null, true))
+      thread.join()
+    }
+
+    private def run(): Unit = {
+      var work = queue.take()
+      while (work._1 != null) {
+        // After an error only the work closing the outputs is done
+        if (writerError == null || work._2) {
+          try {
+            work._1()
+          } catch {
+            case e: Throwable => if (writerError == null) writerError = e
+          }
+        }
+        work = queue.take()
+      }
+    }
   }
 
   def ensureDir(projectContext: ProjectContext, path: String, parent: Boolean = false): Unit = {
@@ -119,13 +157,20 @@ case class ForkWrite(forkCol: Int,
   }
 
   var useFork: Boolean = forkCol >= 0
+  @volatile var writerError: Throwable = _
+  var lanes: Array[WriterLane] = _
+  var lanesStopped = false
+  // Set while finish closes the outputs, writer errors are then rethrown once every output has been closed
+  var finishing = false
+  // Open files in access order, the least recently used one is closed when too many files are open
+  val openHolders = new java.util.LinkedHashMap[String, FileHolder](16, 0.75f, true)
   var forkMap = mutable.Map.empty[String, FileHolder]
   val forkTagSet: mutable.Set[String] = scala.collection.mutable.Set()++options.forkTags
   val dictTagSet: mutable.Set[String] = scala.collection.mutable.Set()++options.dictTags
   var singleFileHolder: FileHolder = FileHolder("")
   if (!useFork) forkMap += ("theOnlyFile" -> singleFileHolder)
   var openFiles = 0
-  val maxOpenFiles = 5000
+  val maxOpenFiles: Int = ForkWrite.maxOpenFiles
   var maxBufferSize = 1000
   var counter = 0
   var somethingToWrite = false
@@ -177,14 +222,80 @@ case class ForkWrite(forkCol: Int,
     } else {
       true
     })
-    sh.out = createOutFile(name, skipHeader)
-    sh.out.setup()
+    val rows = sh.rowBuffer
+    sh.rowBuffer = new ArrayBuffer[Row]
     sh.fileOpen = true
     openFiles += 1
-    sh.rowBuffer.foreach(x => {
-      sh.out.process(x)
+    openHolders.put(sh.forkValue, sh)
+    runForFork(sh, () => {
+      sh.out = createOutFile(name, skipHeader)
+      sh.out.setup()
+      rows.foreach(x => {
+        sh.out.process(x)
+      })
     })
-    sh.rowBuffer = new ArrayBuffer[Row]
+  }
+
+  def closeFile(sh: FileHolder): Unit = {
+    flushPending(sh)
+    sh.fileOpen = false
+    openFiles -= 1
+    openHolders.remove(sh.forkValue)
+    runForFork(sh, () => if (sh.out != null) outFinish(sh), always = true)
+  }
+
+  private def write(sh: FileHolder, r: Row): Unit = {
+    if (sh.lane != null) {
+      sh.pending += r
+      if (sh.pending.length >= ForkWrite.WRITE_BATCH_SIZE) flushPending(sh)
+    } else {
+      sh.out.process(r)
+    }
+  }
+
+  private def flushPending(sh: FileHolder): Unit = {
+    if (sh.pending.nonEmpty) {
+      val rows = sh.pending
+      sh.pending = new ArrayBuffer[Row](ForkWrite.WRITE_BATCH_SIZE)
+      runForFork(sh, () => rows.foreach(x => sh.out.process(x)))
+    }
+  }
+
+  private def runForFork(sh: FileHolder, work: () => Unit, always: Boolean = false): Unit = {
+    if (sh.lane != null && !lanesStopped) {
+      if (!always && !finishing) checkWriterError()
+      sh.lane.submit(work, always)
+    } else {
+      work()
+    }
+  }
+
+  private def checkWriterError(): Unit = {
+    val e = writerError
+    if (e != null) {
+      e match {
+        case re: RuntimeException => throw re
+        case _ => throw new GorSystemException("Error writing " + fullFileName, e)
+      }
+    }
+  }
+
+  private def laneFor(forkValue: String): WriterLane = {
+    if (!useFork || ForkWrite.WRITER_THREADS <= 0 || lanesStopped) {
+      null
+    } else {
+      if (lanes == null) lanes = Array.tabulate(ForkWrite.WRITER_THREADS)(i => new WriterLane(i))
+      lanes((forkValue.hashCode & Int.MaxValue) % lanes.length)
+    }
+  }
+
+  private def stopWriters(): Unit = {
+    lanesStopped = true
+    if (lanes != null) {
+      val stopping = lanes
+      lanes = null
+      stopping.foreach(_.stop())
+    }
   }
 
   override def process(ir: Row): Unit = {
@@ -210,19 +321,15 @@ case class ForkWrite(forkCol: Int,
     }
 
     if (sh.fileOpen) {
-      sh.out.process(r)
+      if (useFork) openHolders.get(sh.forkValue)
+      write(sh, r)
     } else {
       if (sh.rowBuffer.length < maxBufferSize) {
         sh.rowBuffer += r
-      } else if (openFiles < maxOpenFiles) {
-        sh.rowBuffer += r
-        openFile(sh)
       } else {
-        forkMap.values.filter(_.fileOpen).foreach(sh => {
-          sh.out.finish()
-          sh.fileOpen = false
-          openFiles -= 1
-        })
+        if (openFiles >= maxOpenFiles) {
+          closeFile(openHolders.values().iterator().next())
+        }
         sh.rowBuffer += r
         openFile(sh)
       }
@@ -234,18 +341,21 @@ case class ForkWrite(forkCol: Int,
   }
 
   override def finish(): Unit = {
-    forkMap.values.foreach(sh => {
-      if (sh.fileOpen) {
-        if (sh.out != null) outFinish(sh)
-        sh.fileOpen = false
-        openFiles -= 1
-      }
-      if (sh.rowBuffer.nonEmpty) {
-        openFile(sh)
-        if (sh.out != null) outFinish(sh)
-        sh.fileOpen = false
-      }
-    })
+    finishing = true
+    try {
+      forkMap.values.foreach(sh => {
+        if (sh.fileOpen) {
+          closeFile(sh)
+        }
+        if (sh.rowBuffer.nonEmpty && writerError == null) {
+          openFile(sh)
+          closeFile(sh)
+        }
+      })
+    } finally {
+      stopWriters()
+    }
+    checkWriterError()
     if (options.useFolder.isEmpty && !somethingToWrite && !useFork) {
       val out = createOutFile(fullFileName, false)
       out.setup()
@@ -332,3 +442,13 @@ case class ForkWrite(forkCol: Int,
     }
   }
 }
+
+object ForkWrite {
+  // Number of background threads writing fork outputs, 0 writes on the calling thread
+  val WRITER_THREADS: Int = Integer.getInteger("gor.write.fork.threads", Math.min(4, Runtime.getRuntime.availableProcessors()))
+  val WRITE_BATCH_SIZE: Int = 256
+  val LANE_QUEUE_SIZE: Int = 64
+
+  // Maximum number of fork outputs open at a time, the least recently used one is closed when the limit is reached
+  def maxOpenFiles: Int = Math.max(1, Integer.getInteger("gor.write.fork.maxopenfiles", 5000))
+}
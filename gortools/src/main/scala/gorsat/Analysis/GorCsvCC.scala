@@ -414,7 +414,7 @@ object GorCsvCC {
         val phenoRowsLeft = phenoRows.iterator.map(_._1).toArray
         val phenoRowsRight = phenoRows.iterator.map(_._2).toArray
         val phenoMap = phenoOrderMap.iterator.map(x => (x._2, x._1)).toMap[Int, String]
-        val pnBucketTable = PnBucketParsing.parse(l1).filter(tags.distinct)
+        val pnBucketTable = PnBucketParsing.parseCached(l1).filter(tags.distinct)
         TagBucketPhenoInfo(pnBucketTable, phenoMap, phenoRowsLeft, phenoRowsRight)
       })
     }
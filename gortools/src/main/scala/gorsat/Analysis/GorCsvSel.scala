@@ -494,7 +494,7 @@ object GorCsvSel {
             MapAndListUtilities.getStringArray(fileName2, session)
           }
 
-          PnBucketParsing.parse(l1).filter(l2)
+          PnBucketParsing.parseCached(l1).filter(l2)
         } finally {
             if (iterator1 != null) iterator1.close()
             if (iterator2 != null) iterator2.close()
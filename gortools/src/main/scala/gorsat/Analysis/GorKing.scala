@@ -24,6 +24,7 @@ package gorsat.Analysis
 
 import gorsat.Buckets.{PnBucketParsing, PnBucketTable}
 import gorsat.Commands.{Analysis, BinAggregator, BinAnalysis, BinFactory, BinInfo, BinState, Processor, RegularRowHandler, RowHeader}
+import gorsat.genotypes.{GenotypeBlockCache, GenotypeBlockCursor, KinshipKernel, PackedGenotypes}
 import gorsat.gorsatGorIterator.MapAndListUtilities
 import org.gorpipe.exceptions.GorDataException
 import org.gorpipe.gor.model.{Line, Row}
@@ -86,12 +87,15 @@ object GorKing2 {
                          afCol: Int,
                          sepVals: String,
                          valSize: Int,
-                         uv: String) extends BinState {
+                         uv: String,
+                         blocks: GenotypeBlockCursor) extends BinState {
 
     case class ColHolder() {
       var buckRows: Array[CharSequence] = _
       var offsetArray: Array[Int] = _
       var splitArr: Array[SaHolder] = _
+      var decodedRows: Array[Array[Byte]] = _
+      var decodedOffsets: Array[Int] = _
       var af : Float = _
     }
 
@@ -115,10 +119,13 @@ object GorKing2 {
         sh.buckRows = new Array[CharSequence](maxUsedBuckets)
         sh.offsetArray = new Array[Int](maxUsedBuckets)
         sh.splitArr = new Array[SaHolder](maxUsedBuckets)
+        sh.decodedRows = new Array[Array[Byte]](maxUsedBuckets)
+        sh.decodedOffsets = new Array[Int](maxUsedBuckets)
       }
       var i = 0
       while (i < sh.buckRows.length) {
         sh.buckRows(i) = null
+        sh.decodedRows(i) = null
         if (valSize == -1) sh.splitArr(i) = SaHolder(new scala.collection.mutable.ArrayBuffer[Int](100))
         i += 1
       }
@@ -144,7 +151,8 @@ object GorKing2 {
         line = r.toString
       }
 
-      bui.buckNameToIdx.get(r.colAsString(buckCol).toString) match {
+      val bucket = r.colAsString(buckCol).toString
+      bui.buckNameToIdx.get(bucket) match {
         case Some(buckNo) =>
           var sh: ColHolder = null
           if (useGroup) {
@@ -162,7 +170,12 @@ object GorKing2 {
           sh.buckRows(buckNo) = line
           val offset = if (useLineObject) 0 else r.getSplitArray()(valCol - 1) + 1
           sh.offsetArray(buckNo) = offset
-          if (valSize == -1) {
+          sh.decodedRows(buckNo) = null
+          if (blocks.isEnabled && blocks.next(bucket, r.chr, r.pos, r.colAsString(valCol))
+            && blocks.width >= bui.getBucketSize(buckNo)) {
+            sh.decodedRows(buckNo) = blocks.values
+            sh.decodedOffsets(buckNo) = blocks.offset
+          } else if (valSize == -1) {
             splitArray(line, offset, sh.splitArr(buckNo), sepval)
           }
         case None => /* Do nothing - a row representing unused bucket */
@@ -189,6 +202,8 @@ object GorKing2 {
               val offset = sh.offsetArray(buckNo)
               if (r == null) {
                 GTS(outCol) = '3'
+              } else if (sh.decodedRows(buckNo) != null) {
+                GTS(outCol) = sh.decodedRows(buckNo)(sh.decodedOffsets(buckNo) + buckPos).toChar
               } else {
                   if (valSize == -1) {
                   colCharMove(buckPos, r, offset, sh.splitArr(buckNo), GTS, outCol)
@@ -225,9 +240,17 @@ object GorKing2 {
                            afCol: Int,
                            sepVal: String,
                            valSize: Int,
-                           uv: String) extends BinFactory {
-    def create: BinState =
-      KingState(session, lookupSignature, buckCol, valCol, grCols, afCol, sepVal, valSize, uv)
+                           uv: String,
+                           inputSignature: String) extends BinFactory {
+    private var binCount = 0
+
+    def create: BinState = {
+      // Each bin holds its own rows, so each bin gets its own cursor and its own blocks in the cache
+      val source = if (inputSignature != null) s"$inputSignature#bin$binCount" else null
+      binCount += 1
+      val blocks = new GenotypeBlockCursor(GenotypeBlockCache.shared(), source, if (valSize == -1 && sepVal.nonEmpty) sepVal(0) else ',', valSize)
+      KingState(session, lookupSignature, buckCol, valCol, grCols, afCol, sepVal, valSize, uv, blocks)
+    }
   }
 
   case class BucketInfo(pbt: PnBucketTable, pns1: Array[Int], pns2: Array[Int])
@@ -262,32 +285,23 @@ object GorKing2 {
     var numberOfPNs = 1;
     var markerNumber = 0
 
-    var gtbarray : Array[Array[Byte]] = null
+    var genotypes : Array[PackedGenotypes] = null
     var tpqc : Array[Float] = null
     var kpqc : Array[Float] = null
+    var tpqPrefix : Array[Double] = null
+    var kpqPrefix : Array[Double] = null
     /*
     var idPairs: Array[(Int,Int)] = null
     */
     var pns1 : Array[Int] = null
     var pns2 : Array[Int] = null
 
-    def setGTb(pn : Int, marker : Int, gt : Char) : Unit = { /* only to be used once per seat */
-      val shift = (marker % 4)*2
-      val mpos = marker / 4
-      gtbarray(pn)(mpos) = (gtbarray(pn)(mpos) | (((gt-'0') & 3) << shift)).toByte
-    }
-    def getGTb(pn : Int, marker : Int) : Char = { /* not used in the optimized access */
-      val shift : Int = (marker % 4)*2
-      val mpos : Int = marker / 4
-      return ('0'+((gtbarray(pn)(mpos) >>> shift) & 3)).toChar
-    }
-
     override def process(r: Row): Unit = {
       bh = r.bH.asInstanceOf[binaryHolder]
       if (needsInitialization) {
         needsInitialization = false
         numberOfPNs = bh.GTS.length
-        gtbarray = Array.ofDim[Byte](numberOfPNs,(maxVars+3)/4)
+        genotypes = Array.fill(numberOfPNs)(new PackedGenotypes(maxVars))
         val af = bh.af
         tpqc = Array.ofDim[Float](maxVars)
         kpqc = Array.ofDim[Float](maxVars)
@@ -303,8 +317,7 @@ object GorKing2 {
         kpqc(markerNumber) = 2.0f*af*(1.0f-af)
         var pn = 0
         while (pn < numberOfPNs) {
-          val gt = bh.GTS(pn)
-          setGTb(pn, markerNumber, gt)
+          genotypes(pn).set(markerNumber, bh.GTS(pn))
           pn += 1
         }
         markerNumber += 1
@@ -320,61 +333,22 @@ object GorKing2 {
     def process_group(pns1 : Array[Int], pns2 : Array[Int], symmetric_PNlists : Boolean): Unit = {
       val skip_test = if (!t_pi0 && !t_phi && !t_theta) true else false
       var outrows : List[Row] = Nil
+      val kernel = new KinshipKernel(tpqc, kpqc, tpqPrefix, kpqPrefix)
       pns1.foreach(pn1 => {
         if (!wantsNoMore) {
           pns2.foreach(pn2 => {
             if (!wantsNoMore && (!symmetric_PNlists || pn1 < pn2)) {
-              var IBS0: Int = 0
-              var XX: Int = 0
-              var Nhet: Int = 0
-              var Nhom: Int = 0
-              var NAai: Int = 0
-              var NAaj: Int = 0
-              var tpq: Double = 0.0
-              var kpq: Double = 0.0
-              var count: Int = 0
-
-              var mi = 0
-              var shift = 0
-              var mpos = 0
-              var temp1 = gtbarray(pn1)(mpos)
-              var temp2 = gtbarray(pn2)(mpos)
-
-              while (mi < markerNumber) {
-
-                val gt1 = ('0' + ((temp1 >>> shift) & 3)).toChar
-                val gt2 = ('0' + ((temp2 >>> shift) & 3)).toChar
-
-                if (gt1 != '3' && gt2 != '3') {
-                  count += 1
-                  tpq += tpqc(mi)
-                  kpq += kpqc(mi)
-
-                  if (gt1 == '0' && gt2 == '2' || gt1 == '2' && gt2 == '0') IBS0 += 1
-
-                  if (gt1 == '0' && gt2 == '1' || gt1 == '1' && gt2 == '0' || gt1 == '2' && gt2 == '1' || gt1 == '1' && gt2 == '2') {
-                    XX += 1
-                  } else if (gt1 == '0' && gt2 == '2' || gt1 == '2' && gt2 == '0') {
-                    XX += 4
-                    Nhom += 1
-                  }
-
-                  if (gt1 == '1' && gt2 == '1') Nhet += 1
-
-                  if (gt1 == '1') NAai += 1
-
-                  if (gt2 == '1') NAaj += 1
-                }
-
-                mi += 1
-                shift += 2
-                if (mi % 4 == 0 && mi < markerNumber) {
-                  mpos += 1;
-                  shift = 0;
-                  temp1 = gtbarray(pn1)(mpos);
-                  temp2 = gtbarray(pn2)(mpos);
-                }
-              }
+              kernel.reset()
+              kernel.apply(genotypes(pn1), genotypes(pn2), markerNumber)
+              val IBS0 = kernel.ibs0
+              val XX = kernel.xx
+              val Nhet = kernel.nhet
+              val Nhom = kernel.nhom
+              val NAai = kernel.naai
+              val NAaj = kernel.naaj
+              val tpq = kernel.tpq
+              val kpq = kernel.kpq
+              val count = kernel.count
 
               val PNi = bh.bui.getPnNameFromIdx(pn1)
               val PNj = bh.bui.getPnNameFromIdx(pn2)
@@ -410,6 +384,9 @@ object GorKing2 {
             swapped = true
           }
 
+          tpqPrefix = KinshipKernel.prefixSums(tpqc, markerNumber)
+          kpqPrefix = KinshipKernel.prefixSums(kpqc, markerNumber)
+
           val grsize = (pns1.length / 100).max(1) // split for max 100 threads
           /* val pns1groups = pns1.zipWithIndex.groupBy(_._2 / grsize).map(_._2).map(_.map(_._2)) */
           val pns1groups = pns1.zipWithIndex.groupBy(_._2 / grsize).map(_._2).map(_.map(_._1))
@@ -419,14 +396,15 @@ object GorKing2 {
           else jpns1groups.parallelStream().forEach(x => process_group(x, pns2,symmetric_PNlists))
 
            /* pns1groups.foreach(x => process_group(x, pns2, symmetric_PNlists)) */
-          gtbarray = Array.ofDim[Byte](1,1) /* Free the memory */
+          genotypes = null /* Free the memory */
         }
       }
   }
 
   case class KingAnalysis(fileName1: String, iteratorCommand1: String, iterator1: LineIterator, fileName2: String, iteratorCommand2: String, iterator2: LineIterator, fileName3: String, iteratorCommand3: String, iterator3: LineIterator, buckCol: Int, valCol: Int,
-                            grCols: List[Int], afCol : Int, sepVal: String, valSize: Int, uv: String, session: GorSession) extends
-    BinAnalysis(RegularRowHandler(1), BinAggregator(KingFactory(session, s"king2#$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2#$fileName3#$iteratorCommand3", buckCol, valCol, grCols, afCol, sepVal, valSize, uv), 2, 1)) {
+                            grCols: List[Int], afCol : Int, sepVal: String, valSize: Int, uv: String, session: GorSession,
+                            inputSignature: String = null) extends
+    BinAnalysis(RegularRowHandler(1), BinAggregator(KingFactory(session, s"king2#$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2#$fileName3#$iteratorCommand3", buckCol, valCol, grCols, afCol, sepVal, valSize, uv, inputSignature), 2, 1)) {
 
     val lookupSignature: String = s"king2#$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2#$fileName3#$iteratorCommand3"
 
@@ -491,7 +469,7 @@ object GorKing2 {
 
 
 
-      val pbt = PnBucketParsing.parse(l1).filter(tags)
+      val pbt = PnBucketParsing.parseCached(l1).filter(tags)
 
       BucketInfo(pbt, pns1, pns2)
     })
@@ -24,6 +24,7 @@ package gorsat.Analysis
 
 import gorsat.Buckets.{PnBucketParsing, PnBucketTable}
 import gorsat.Commands.{Analysis, BinAggregator, BinAnalysis, BinFactory, BinInfo, BinState, Processor, RegularRowHandler, RowHeader}
+import gorsat.genotypes.{GenotypeBlockCache, GenotypeBlockCursor, KinshipKernel, PackedGenotypes}
 import gorsat.gorsatGorIterator.MapAndListUtilities
 import org.gorpipe.exceptions.GorDataException
 import org.gorpipe.gor.model.{Line, Row}
@@ -85,12 +86,15 @@ object GorKing {
                          afCol: Int,
                          sepVals: String,
                          valSize: Int,
-                         uv: String) extends BinState {
+                         uv: String,
+                         blocks: GenotypeBlockCursor) extends BinState {
 
     case class ColHolder() {
       var buckRows: Array[CharSequence] = _
       var offsetArray: Array[Int] = _
       var splitArr: Array[SaHolder] = _
+      var decodedRows: Array[Array[Byte]] = _
+      var decodedOffsets: Array[Int] = _
       var af : Float = _
     }
 
@@ -114,10 +118,13 @@ object GorKing {
         sh.buckRows = new Array[CharSequence](maxUsedBuckets)
         sh.offsetArray = new Array[Int](maxUsedBuckets)
         sh.splitArr = new Array[SaHolder](maxUsedBuckets)
+        sh.decodedRows = new Array[Array[Byte]](maxUsedBuckets)
+        sh.decodedOffsets = new Array[Int](maxUsedBuckets)
       }
       var i = 0
       while (i < sh.buckRows.length) {
         sh.buckRows(i) = null
+        sh.decodedRows(i) = null
         if (valSize == -1) sh.splitArr(i) = SaHolder(new scala.collection.mutable.ArrayBuffer[Int](100))
         i += 1
       }
@@ -143,7 +150,8 @@ object GorKing {
         line = r.toString
       }
 
-      bui.buckNameToIdx.get(r.colAsString(buckCol).toString) match {
+      val bucket = r.colAsString(buckCol).toString
+      bui.buckNameToIdx.get(bucket) match {
         case Some(buckNo) =>
           var sh: ColHolder = null
           if (useGroup) {
@@ -161,7 +169,12 @@ object GorKing {
           sh.buckRows(buckNo) = line
           val offset = if (useLineObject) 0 else r.getSplitArray()(valCol - 1) + 1
           sh.offsetArray(buckNo) = offset
-          if (valSize == -1) {
+          sh.decodedRows(buckNo) = null
+          if (blocks.isEnabled && blocks.next(bucket, r.chr, r.pos, r.colAsString(valCol))
+            && blocks.width >= bui.getBucketSize(buckNo)) {
+            sh.decodedRows(buckNo) = blocks.values
+            sh.decodedOffsets(buckNo) = blocks.offset
+          } else if (valSize == -1) {
             splitArray(line, offset, sh.splitArr(buckNo), sepval)
           }
         case None => /* Do nothing - a row representing unused bucket */
@@ -189,6 +202,8 @@ object GorKing {
               val offset = sh.offsetArray(buckNo)
               if (r == null) {
                 GTS(outCol) = '3'
+              } else if (sh.decodedRows(buckNo) != null) {
+                GTS(outCol) = sh.decodedRows(buckNo)(sh.decodedOffsets(buckNo) + buckPos).toChar
               } else {
                   if (valSize == -1) {
                   colCharMove(buckPos, r, offset, sh.splitArr(buckNo), GTS, outCol)
@@ -228,9 +243,17 @@ object GorKing {
                            afCol: Int,
                            sepVal: String,
                            valSize: Int,
-                           uv: String) extends BinFactory {
-    def create: BinState =
-      KingState(session, lookupSignature, buckCol, valCol, grCols, afCol, sepVal, valSize, uv)
+                           uv: String,
+                           inputSignature: String) extends BinFactory {
+    private var binCount = 0
+
+    def create: BinState = {
+      // Each bin holds its own rows, so each bin gets its own cursor and its own blocks in the cache
+      val source = if (inputSignature != null) s"$inputSignature#bin$binCount" else null
+      binCount += 1
+      val blocks = new GenotypeBlockCursor(GenotypeBlockCache.shared(), source, if (valSize == -1 && sepVal.nonEmpty) sepVal(0) else ',', valSize)
+      KingState(session, lookupSignature, buckCol, valCol, grCols, afCol, sepVal, valSize, uv, blocks)
+    }
   }
 
   case class BucketInfo(pbt: PnBucketTable, idPairs: Array[(Int,Int)])
@@ -262,6 +285,14 @@ object GorKing {
       super.setRowHeader(RowHeader(columnNames,columnTypes))
     }
 
+    /* Markers are gathered into blocks of 64, one word per sample in each bit plane of the packed genotypes */
+    var blockLow: Array[Long] = _
+    var blockHigh: Array[Long] = _
+    val blockTpqc = new Array[Float](64)
+    val blockKpqc = new Array[Float](64)
+    var blockSize = 0
+    val kernel = new KinshipKernel()
+
     override def process(r: Row): Unit = {
 
       bh = r.bH.asInstanceOf[binaryHolder]
@@ -278,50 +309,48 @@ object GorKing {
         tpq = new Array[Float](gtPairSize)
         kpq = new Array[Float](gtPairSize)
         count = new Array[Int](gtPairSize)
+        blockLow = new Array[Long](gtSize)
+        blockHigh = new Array[Long](gtSize)
       }
 
       val af = bh.af
-      val tpqc = 2.0f*af*af*(1.0f-af)*(1.0f-af)
-      val kpqc = 2.0f*af*(1.0f-af)
+      blockTpqc(blockSize) = 2.0f*af*af*(1.0f-af)*(1.0f-af)
+      blockKpqc(blockSize) = 2.0f*af*(1.0f-af)
+
+      val bit = 1L << blockSize
+      var pn = 0
+      while (pn < gtSize) {
+        val gt = bh.GTS(pn)
+        if (gt != '0') {
+          if (gt != '2') blockLow(pn) |= bit
+          if (gt != '1') blockHigh(pn) |= bit
+        }
+        pn += 1
+      }
+      blockSize += 1
+      if (blockSize == 64) processBlock()
+    }
 
+    def processBlock(): Unit = {
+      val mask = PackedGenotypes.lastWordMask(blockSize)
       var ai: Int = 0
       while (ai < gtPairSize && !cancelled) {
         val (pn1,pn2) = bh.bui.idPairs(ai)
-        val gt1 = bh.GTS(pn1)
-        val gt2 = bh.GTS(pn2)
-
-        if (gt1 != '3' && gt2 != '3') {
-          count(ai) += 1
-          tpq(ai) += tpqc
-          kpq(ai) += kpqc
-
-          if (gt1 == '0' && gt2 == '2' || gt1 == '2' && gt2 == '0') IBS0(ai) += 1
-          /*
-          | calc IBS0 if(values='02' or values = '20',1,0)
-          */
-          if (gt1 == '0' && gt2 == '1' || gt1 == '1' && gt2 == '0' || gt1 == '2' && gt2 == '1' || gt1 == '1' && gt2 == '2') {
-            XX(ai) += 1
-          }
-          else if (gt1 == '0' && gt2 == '2' || gt1 == '2' && gt2 == '0') {
-            XX(ai) += 4
-            Nhom(ai) += 1
-          }
-          /* else XX(ai) += 0
-          | calc XX if(values='01' or values = '10' or values = '21' or values = '12',1,if(values='02' or values = '20',4,0))
-          | calc Nhom if(values = '02' or values = '20',1,0)
-          */
-          if (gt1 == '1' && gt2 == '1') Nhet(ai) += 1
-          /*
-          | calc Nhet if(values = '11',1,0)
-           */
-          if (gt1 == '1') NAai(ai) += 1
-          /*
-          | calc NAai if(left(values,1)='1',1,0)
-          */
-          if (gt2 == '1') NAaj(ai) += 1
-          /*
-          | calc NAaj if(right(values,1)='1',1,0)
-          */
+        kernel.reset()
+        var valid = kernel.applyWord(blockLow(pn1), blockHigh(pn1), blockLow(pn2), blockHigh(pn2), mask)
+        count(ai) += kernel.count
+        IBS0(ai) += kernel.ibs0
+        XX(ai) += kernel.xx
+        Nhom(ai) += kernel.nhom
+        Nhet(ai) += kernel.nhet
+        NAai(ai) += kernel.naai
+        NAaj(ai) += kernel.naaj
+        /* The weights are added marker by marker to keep the float sums identical */
+        while (valid != 0) {
+          val m = java.lang.Long.numberOfTrailingZeros(valid)
+          tpq(ai) += blockTpqc(m)
+          kpq(ai) += blockKpqc(m)
+          valid &= valid - 1
         }
 
         if (ai % 1000 == 0 && gm != null && gm.isCancelled()) {
@@ -330,10 +359,14 @@ object GorKing {
         }
         ai += 1
       }
+      java.util.Arrays.fill(blockLow, 0L)
+      java.util.Arrays.fill(blockHigh, 0L)
+      blockSize = 0
     }
 
     override def finish(): Unit = {
       val skip_test = if (!t_pi0 && !t_phi && !t_theta) true else false
+      if (!cancelled && !needsInitialization && blockSize > 0) processBlock()
       if (!cancelled && !needsInitialization) {
         var ai: Int = 0
         while (ai < gtPairSize && !cancelled && !wantsNoMore) {
@@ -363,12 +396,15 @@ object GorKing {
       tpq = null
       kpq = null
       count = null
+      blockLow = null
+      blockHigh = null
     }
   }
 
   case class KingAnalysis(fileName1: String, iteratorCommand1: String, iterator1: LineIterator, fileName2: String, iteratorCommand2: String, iterator2: LineIterator, buckCol: Int, valCol: Int,
-                            grCols: List[Int], afCol : Int, sepVal: String, valSize: Int, uv: String, session: GorSession) extends
-    BinAnalysis(RegularRowHandler(1), BinAggregator(KingFactory(session, s"$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2", buckCol, valCol, grCols, afCol, sepVal, valSize, uv), 2, 1)) {
+                            grCols: List[Int], afCol : Int, sepVal: String, valSize: Int, uv: String, session: GorSession,
+                            inputSignature: String = null) extends
+    BinAnalysis(RegularRowHandler(1), BinAggregator(KingFactory(session, s"$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2", buckCol, valCol, grCols, afCol, sepVal, valSize, uv, inputSignature), 2, 1)) {
 
     val lookupSignature: String = s"$fileName1#$iteratorCommand1#$fileName2#$iteratorCommand2"
 
@@ -419,7 +455,7 @@ object GorKing {
         // System.out.println(idPairCount+" ("+id1+","+id2+") = ("+r(0)+","+r(1)+") ("+tags(id1)+","+tags(id2)+")")
         idPairCount += 1
       })
-      val pbt = PnBucketParsing.parse(l1).filter(tags)
+      val pbt = PnBucketParsing.parseCached(l1).filter(tags)
       BucketInfo(pbt, idPairs)
     })
   }
@@ -288,6 +288,18 @@ object GorQueen {
       super.setRowHeader(RowHeader(columnNames,columnTypes))
     }
 
+    /*
+     * Markers are gathered into blocks of 64. For each block we keep one word of carrier bits per sample in the first
+     * list and words of sharing and non-missing bits per sample in the second list, so that the counts of a sample pair
+     * are updated for the whole block with two bitCount calls.
+     */
+    var carriers1: Array[Long] = _
+    var carrierRows: Array[Int] = _
+    var carrierRowCount = 0
+    var share2: Array[Long] = _
+    var present2: Array[Long] = _
+    var blockSize = 0
+
     override def process(r: Row): Unit = {
 
       bh = r.bH.asInstanceOf[binaryHolder]
@@ -298,19 +310,46 @@ object GorQueen {
         gtPairSize = gtSize1 * gtSize2
         share = new Array[Int](gtPairSize)
         count = new Array[Int](gtPairSize)
+        carriers1 = new Array[Long](gtSize1)
+        carrierRows = new Array[Int](gtSize1)
+        share2 = new Array[Long](gtSize2)
+        present2 = new Array[Long](gtSize2)
       }
 
+      val bit = 1L << blockSize
       var i: Int = 0
       while (i < bh.IDX1size) {
         val pni = bh.IDX1(i)
+        if (carriers1(pni) == 0L) {
+          carrierRows(carrierRowCount) = pni
+          carrierRowCount += 1
+        }
+        carriers1(pni) |= bit
+        i += 1
+      }
+      var j: Int = 0
+      while (j < gtSize2) {
+        val gt2 = bh.GTS2(j)
+        if (gt2 == '1' || gt2 == '2') share2(j) |= bit
+        if (gt2 != '3') present2(j) |= bit
+        j += 1
+      }
+      blockSize += 1
+      if (blockSize == 64) processBlock()
+    }
+
+    def processBlock(): Unit = {
+      var i: Int = 0
+      while (i < carrierRowCount && !cancelled) {
+        val pni = carrierRows(i)
+        val carriers = carriers1(pni)
         var j: Int = 0
         var ai = pni*gtSize2
         while (j < gtSize2) {
-            val gt2 = bh.GTS2(j)
-            if (gt2 == '1' || gt2 == '2') share(ai) += 1
-            if (gt2 != '3') count(ai) += 1
-            ai += 1
-            j += 1
+          share(ai) += java.lang.Long.bitCount(carriers & share2(j))
+          count(ai) += java.lang.Long.bitCount(carriers & present2(j))
+          ai += 1
+          j += 1
         }
         if (gm != null && gm.isCancelled()) {
           reportWantsNoMore()
@@ -318,9 +357,15 @@ object GorQueen {
         }
         i += 1
       }
+      java.util.Arrays.fill(carriers1, 0L)
+      java.util.Arrays.fill(share2, 0L)
+      java.util.Arrays.fill(present2, 0L)
+      carrierRowCount = 0
+      blockSize = 0
     }
 
     override def finish(): Unit = {
+      if (!cancelled && !needsInitialization && blockSize > 0) processBlock()
       if (!cancelled && !needsInitialization) {
         var i: Int = 0
         while (i < gtSize1 && !cancelled && !wantsNoMore) {
@@ -344,6 +389,9 @@ object GorQueen {
       }
       share = null
       count = null
+      carriers1 = null
+      share2 = null
+      present2 = null
     }
   }
 
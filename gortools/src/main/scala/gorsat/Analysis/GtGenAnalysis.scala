@@ -135,7 +135,7 @@ object GtGenAnalysis {
           iterator1.close()
           throw e
       }
-      PnBucketParsing.parse(l1)
+      PnBucketParsing.parseCached(l1)
     })
   }
 
@@ -22,8 +22,9 @@
 
 package gorsat.Analysis
 
-import gorsat.Utilities.AnalysisUtilities.{ParameterHolder, SEGinfo}
+import gorsat.Utilities.AnalysisUtilities.ParameterHolder
 import gorsat.Commands._
+import gorsat.genotypes.{LdKernel, PackedGenotypes}
 import gorsat.Iterators.{ChromBoundedIteratorSource, RowListIterator}
 import gorsat.process.GenericGorRunner
 import org.gorpipe.exceptions.GorDataException
@@ -38,7 +39,12 @@ object GtLDAnalysis {
 
     var rightSource = new ChromBoundedIteratorSource(inRightSource)
 
-    type myRowBufferType = scala.collection.mutable.ArrayBuffer[SEGinfo]
+    /* A segment whose values are packed the first time they are needed and then shared by all its overlaps */
+    case class LDSEGinfo(start: Int, stop: Int, r: Row) {
+      lazy val genotypes: PackedGenotypes = PackedGenotypes.pack(r.colAsString(valuesCol))
+    }
+
+    type myRowBufferType = scala.collection.mutable.ArrayBuffer[LDSEGinfo]
     var lastRightChr = "chr"
     var lastRightPos = 0
     var maxLeftStop = -1
@@ -159,7 +165,7 @@ object GtLDAnalysis {
               case e: Exception => throw new GorDataException("Illegal stop position in column #" + (rstop + 1) + " in the JOIN right-source.", rstop + 1, "", rr.toString(), e);
             }
           }
-          val rSeg = SEGinfo(rightStart, rightStop, rr)
+          val rSeg = LDSEGinfo(rightStart, rightStop, rr)
 
           if (useGroup) {
             val groupKeyRight = rr.selectedColumns(req)
@@ -182,7 +188,7 @@ object GtLDAnalysis {
         }
 
       }
-      val lSeg = SEGinfo(leftStart, leftStop, lr)
+      val lSeg = LDSEGinfo(leftStart, leftStop, lr)
 
       if (useGroup) {
         val groupKeyLeft = lr.selectedColumns(leq)
@@ -202,7 +208,7 @@ object GtLDAnalysis {
         val rSeg = gr.rowBuffer(gr.buffer)(i)
         val rr = rSeg.r
         if (lr.chr == rr.chr && lSeg.start - fuzzFactor < rSeg.stop && lSeg.stop + fuzzFactor > rSeg.start) {
-            val LDs = LDstatCalc(lr.colAsString(valuesCol).toString, rr.colAsString(valuesCol).toString)
+            val LDs = LDstatCalc(lSeg.genotypes, rSeg.genotypes)
             nextProcessor.process(RowObj(s"${lr.chr}\t${lr.pos}\t${lr.selectedColumns(otherCols)}\t${(rr.pos - lr.pos)}\t${rr.pos}\t${rr.selectedColumns(otherCols)}\t${LDs.g00}\t${LDs.g10}\t${LDs.g20}\t${LDs.g01}\t${LDs.g11}\t${LDs.g21}\t${LDs.g02}\t${LDs.g12}\t${LDs.g22}"))
 
         }
@@ -260,40 +266,17 @@ object GtLDAnalysis {
   case class LDstats(g00 : Int, g10 : Int, g20 : Int, g01 : Int, g11 :Int, g21 : Int, g02 : Int, g12 : Int, g22 : Int)
 
   def LDstatCalc(a : String, b : String) : LDstats = {
-    var i = 0
-    var g00 = 0; var g10 = 0; var g20 = 0;
-    var g01 = 0; var g11 = 0; var g21 = 0;
-    var g02 = 0; var g12 = 0; var g22 = 0;
-
-    while (i < a.length) {
-      if (a(i) == '0') {
-        if (b(i) == '0') {
-          g00 += 1
-        } else if (b(i)=='1') {
-          g01 += 1
-        } else if (b(i)=='2') {
-          g02 += 1
-        }
-      } else if (a(i)=='1') {
-        if (b(i) == '0') {
-          g10 += 1
-        } else if (b(i)=='1') {
-          g11 += 1
-        } else if (b(i)=='2') {
-          g12 += 1
-        }
-      } else if (a(i)=='2') {
-        if (b(i) == '0') {
-          g20 += 1
-        } else if (b(i)=='1') {
-          g21 += 1
-        } else if (b(i)=='2') {
-          g22 += 1
-        }
-      }
-      i += 1
+    LDstatCalc(PackedGenotypes.pack(a), PackedGenotypes.pack(b))
+  }
+
+  def LDstatCalc(a : PackedGenotypes, b : PackedGenotypes) : LDstats = {
+    if (b.capacity < a.capacity) {
+      throw new GorDataException(s"Values of length ${a.capacity} can not be compared with values of length ${b.capacity}")
     }
-    LDstats(g00,g10,g20,g01,g11,g21,g02,g12,g22)
+    val kernel = new LdKernel
+    kernel.apply(a, b, a.capacity)
+    val g = kernel.counts
+    LDstats(g(0),g(1),g(2),g(3),g(4),g(5),g(6),g(7),g(8))
   }
 
 
@@ -357,13 +340,16 @@ object GtLDAnalysis {
     def sendToNextProcessor(bi: BinInfo, nextProcessor: Processor): Unit = {
       if (nextProcessor.wantsNoMore) return
       if (rRows.nonEmpty && lRows.length * rRows.length < 400) {
-        for (lr <- lRows.reverse;
-             rr <- rRows.reverse) {
-          if (nextProcessor.wantsNoMore) return
-          if (rr.pos - fuzz - 1 < lr.pos && lr.pos <= rr.pos + fuzz && (noEquijoin || rr.selectedColumns(req) == lr.selectedColumns(req))) {
-              val LDs = LDstatCalc(lr.colAsString(valuesCol).toString, rr.colAsString(valuesCol).toString)
+        val rPacked = rRows.reverse.map(rr => (rr, PackedGenotypes.pack(rr.colAsString(valuesCol))))
+        for (lr <- lRows.reverse) {
+          lazy val lGenotypes = PackedGenotypes.pack(lr.colAsString(valuesCol))
+          for ((rr, rGenotypes) <- rPacked) {
+            if (nextProcessor.wantsNoMore) return
+            if (rr.pos - fuzz - 1 < lr.pos && lr.pos <= rr.pos + fuzz && (noEquijoin || rr.selectedColumns(req) == lr.selectedColumns(req))) {
+              val LDs = LDstatCalc(lGenotypes, rGenotypes)
               val r = RowObj(s"${lr.chr}\t${lr.pos}\t${lr.selectedColumns(otherCols)}\t${rr.pos - lr.pos}\t${rr.pos}\t${rr.selectedColumns(otherCols)}\t${LDs.g00}\t${LDs.g10}\t${LDs.g20}\t${LDs.g01}\t${LDs.g11}\t${LDs.g21}\t${LDs.g02}\t${LDs.g12}\t${LDs.g22}")
               nextProcessor.process(r)
+            }
           }
         }
       } else if (lRows.nonEmpty && rRows.nonEmpty) {
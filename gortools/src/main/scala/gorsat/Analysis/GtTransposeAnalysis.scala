@@ -1,10 +1,11 @@
 package gorsat.Analysis
 
 import java.lang
+import java.util.concurrent.{Callable, ExecutorService, Executors, Future}
 
 import gorsat.Commands.Analysis
 import org.gorpipe.exceptions.GorParsingException
-import org.gorpipe.gor.model.Row
+import org.gorpipe.gor.model.{Row, RowBase}
 import org.gorpipe.model.gor.RowObj
 
 abstract class GtTransposeAnalysis(pns: Array[String], bucketToPnIdxList: Map[String, (Array[Int], Array[Int])],
@@ -13,24 +14,22 @@ abstract class GtTransposeAnalysis(pns: Array[String], bucketToPnIdxList: Map[St
 
   val markerCount: Int = markerToIdxMap.size
   val pnCount: Int = pns.length
+  val markerIndex: GtMarkerIndex = GtMarkerIndex(markerToIdxMap)
 
   def handleGenotypes(values: CharSequence, pnAbsIds: Array[Int], pnRelIds: Array[Int], markerIdx: Int): Unit
 
   override def process(r: Row): Unit = {
-    val markerId = r.selectedColumns(colIndices)
-    markerToIdxMap.get(markerId) match {
-      case Some(markerIdx) => {
-        val bucket = r.colAsString(bCol).toString
-        bucketToPnIdxList.get(bucket) match {
-          case Some((pnAbsIds, pnRelIds)) => {
-            val values = r.colAsString(vCol)
-            handleGenotypes(values, pnAbsIds, pnRelIds, markerIdx)
-          }
-          case None => //Unused bucket
+    val markerIdx = markerIndex.indexOf(r, colIndices)
+    if (markerIdx >= 0) {
+      val bucket = r.colAsString(bCol).toString
+      bucketToPnIdxList.get(bucket) match {
+        case Some((pnAbsIds, pnRelIds)) => {
+          val values = r.colAsString(vCol)
+          handleGenotypes(values, pnAbsIds, pnRelIds, markerIdx)
         }
+        case None => //Unused bucket
       }
-      case None => //Marker that we are not interested in
-    }
+    } //Otherwise a marker that we are not interested in
   }
 
   def writeGtsToBuilder(pnIdx: Int, builder: java.lang.StringBuilder): Unit = {
@@ -45,18 +44,193 @@ abstract class GtTransposeAnalysis(pns: Array[String], bucketToPnIdxList: Map[St
 
   def writeNoSepGtsToBuilder(pnIdx: Int, builder: java.lang.StringBuilder): Unit
 
-  override def finish(): Unit = {
-    var idx = 0
-    while (idx < pns.length) {
-      val pn = pns(idx)
-      val builder = new java.lang.StringBuilder("chrA\t1\t" + pn)
-      writeGtsToBuilder(idx, builder)
-      super.process(RowObj(builder))
+  /**
+    * The length of the genotype columns of the output row for the given pn, including the leading tab.
+    */
+  def gtsLength(pnIdx: Int): Int
+
+  def createRow(pnIdx: Int): Row = {
+    val pn = pns(pnIdx)
+    val builder = new java.lang.StringBuilder(7 + pn.length + gtsLength(pnIdx))
+    builder.append("chrA\t1\t").append(pn)
+    writeGtsToBuilder(pnIdx, builder)
+    RowObj(builder)
+  }
+
+  def createRows(fromPnIdx: Int, toPnIdx: Int): Array[Row] = {
+    val rows = new Array[Row](toPnIdx - fromPnIdx)
+    var idx = fromPnIdx
+    while (idx < toPnIdx) {
+      rows(idx - fromPnIdx) = createRow(idx)
       idx += 1
     }
+    rows
+  }
+
+  override def finish(): Unit = {
+    if (GtTransposeAnalysis.THREADS <= 1 || pnCount <= GtTransposeAnalysis.CHUNK_SIZE) {
+      var idx = 0
+      while (idx < pnCount && !wantsNoMore) {
+        super.process(createRow(idx))
+        idx += 1
+      }
+    } else {
+      finishInParallel()
+    }
+  }
+
+  /**
+    * Creates the output rows in chunks of pns on a thread pool, keeping a bounded number of chunks in flight,
+    * and sends them on in pn order.
+    */
+  private def finishInParallel(): Unit = {
+    val chunkCount = (pnCount + GtTransposeAnalysis.CHUNK_SIZE - 1) / GtTransposeAnalysis.CHUNK_SIZE
+    val pending = new java.util.ArrayDeque[Future[Array[Row]]]()
+    var submitted = 0
+    try {
+      while ((submitted < chunkCount || !pending.isEmpty) && !wantsNoMore) {
+        while (submitted < chunkCount && pending.size < GtTransposeAnalysis.MAX_PENDING) {
+          val from = submitted * GtTransposeAnalysis.CHUNK_SIZE
+          val to = math.min(from + GtTransposeAnalysis.CHUNK_SIZE, pnCount)
+          pending.add(GtTransposeAnalysis.pool.submit(new Callable[Array[Row]] {
+            override def call(): Array[Row] = createRows(from, to)
+          }))
+          submitted += 1
+        }
+        val rows = GtTransposeAnalysis.await(pending.poll())
+        var i = 0
+        while (i < rows.length && !wantsNoMore) {
+          super.process(rows(i))
+          i += 1
+        }
+      }
+    } finally {
+      while (!pending.isEmpty) pending.poll().cancel(true)
+    }
+  }
+}
+
+object GtTransposeAnalysis {
+  val THREADS: Int = Integer.getInteger("gor.gttranspose.threads", math.min(8, Runtime.getRuntime.availableProcessors()))
+  val CHUNK_SIZE: Int = 1024
+  val MAX_PENDING: Int = 2 * THREADS
+
+  lazy val pool: ExecutorService = Executors.newFixedThreadPool(THREADS, r => {
+    val t = new Thread(r, "gttranspose")
+    t.setDaemon(true)
+    t
+  })
+
+  def await[T](future: Future[T]): T = {
+    try {
+      future.get()
+    } catch {
+      case e: java.util.concurrent.ExecutionException => throw e.getCause
+    }
   }
 }
 
+/**
+  * Open addressing hash index from marker to marker index. Rows are looked up on the selected columns directly,
+  * without building the tab separated marker string.
+  */
+class GtMarkerIndex(markers: Array[String], indices: Array[Int]) {
+  private val mask = Integer.highestOneBit(math.max(markers.length, 1) * 2) * 2 - 1
+  private val slotKeys = new Array[String](mask + 1)
+  private val slotValues = new Array[Int](mask + 1)
+
+  {
+    var i = 0
+    while (i < markers.length) {
+      var slot = GtMarkerIndex.spread(markers(i).hashCode) & mask
+      while (slotKeys(slot) != null && slotKeys(slot) != markers(i)) slot = (slot + 1) & mask
+      slotKeys(slot) = markers(i)
+      slotValues(slot) = indices(i)
+      i += 1
+    }
+  }
+
+  /**
+    * @return the index of the marker given by the columns of the row, or -1 if it is not in the index
+    */
+  def indexOf(r: Row, columns: Array[Int]): Int = {
+    r match {
+      case rb: RowBase if rb.getAllCols != null => indexOf(rb.getAllCols, rb, columns)
+      case _ => indexOf(r.selectedColumns(columns))
+    }
+  }
+
+  def indexOf(marker: String): Int = {
+    var slot = GtMarkerIndex.spread(marker.hashCode) & mask
+    while (slotKeys(slot) != null) {
+      if (slotKeys(slot) == marker) return slotValues(slot)
+      slot = (slot + 1) & mask
+    }
+    -1
+  }
+
+  private def indexOf(text: CharSequence, r: Row, columns: Array[Int]): Int = {
+    // Same hash as String.hashCode of the tab separated columns
+    var hash = 0
+    var length = 0
+    var c = 0
+    while (c < columns.length) {
+      if (c > 0) {
+        hash = 31 * hash + '\t'
+        length += 1
+      }
+      val col = columns(c)
+      val end = r.sa(col)
+      var i = columnStart(r, col)
+      length += end - i
+      while (i < end) {
+        hash = 31 * hash + text.charAt(i)
+        i += 1
+      }
+      c += 1
+    }
+    var slot = GtMarkerIndex.spread(hash) & mask
+    while (slotKeys(slot) != null) {
+      val key = slotKeys(slot)
+      if (key.length == length && key.hashCode == hash && matches(key, text, r, columns)) return slotValues(slot)
+      slot = (slot + 1) & mask
+    }
+    -1
+  }
+
+  private def matches(key: String, text: CharSequence, r: Row, columns: Array[Int]): Boolean = {
+    var k = 0
+    var c = 0
+    while (c < columns.length) {
+      if (c > 0) {
+        if (key.charAt(k) != '\t') return false
+        k += 1
+      }
+      val col = columns(c)
+      val end = r.sa(col)
+      var i = columnStart(r, col)
+      while (i < end) {
+        if (key.charAt(k) != text.charAt(i)) return false
+        k += 1
+        i += 1
+      }
+      c += 1
+    }
+    true
+  }
+
+  private def columnStart(r: Row, col: Int): Int = if (col == 0) 0 else r.sa(col - 1) + 1
+}
+
+object GtMarkerIndex {
+  def apply(markerToIdxMap: Map[String, Int]): GtMarkerIndex = {
+    val (markers, indices) = markerToIdxMap.toArray.unzip
+    new GtMarkerIndex(markers, indices)
+  }
+
+  private def spread(hash: Int): Int = hash ^ (hash >>> 16)
+}
+
 case class FixedWidthGtTransposeAnalysis(pns: Array[String], bucketToPnIdxList: Map[String, (Array[Int], Array[Int])],
                                          markerToIdxMap: Map[String, Int],
                                          bCol: Int, vCol: Int, colIndices: Array[Int],
@@ -80,6 +254,8 @@ case class FixedWidthGtTransposeAnalysis(pns: Array[String], bucketToPnIdxList:
     }
   }
 
+  override def gtsLength(pnIdx: Int): Int = if (cols) markerCount * (width + 1) else 1 + markerCount * width
+
   override def writeSepGtsToBuilder(pnIdx: Int, builder: lang.StringBuilder): Unit = {
     val gts = pnIdxToGtArray(pnIdx)
     var idx = 0
@@ -128,6 +304,17 @@ case class SepGtTransposeAnalysis(pns: Array[String], bucketToPnIdxList: Map[Str
     }
   }
 
+  override def gtsLength(pnIdx: Int): Int = {
+    val gts = pnIdxToGtArray(pnIdx)
+    var length = markerCount
+    var idx = 0
+    while (idx < markerCount) {
+      length += gts(idx).length
+      idx += 1
+    }
+    length
+  }
+
   override def writeSepGtsToBuilder(pnIdx: Int, builder: java.lang.StringBuilder): Unit = {
     val gts = pnIdxToGtArray(pnIdx)
     var idx = 0
@@ -30,33 +30,18 @@ import org.gorpipe.model.gor.RowObj
 class LinearRegressionAnalysis(lookUpSignature: String, session: GorSession, valCol: Int, sepVal: Option[String], imputed: Boolean, phenoFile: String, covarFile: Option[String])
   extends RegressionAnalysis[Double](lookUpSignature, session, valCol, sepVal, imputed, phenoFile, covarFile) {
 
-  var linRegObjects: Array[LinearRegression] =_
+  type Model = LinearRegression
 
-  override def setup(): Unit = {
-    super.setup()
-    linRegObjects = Array.tabulate(ri.phenoNames.length)(_ => new LinearRegression(ri.size, ri.betaLength - 1))
-  }
-
-  override def process(r: Row): Unit = {
-    val values = r.colAsString(valCol).toString
-    r.removeColumn(valCol)
-    val baseColumnsAsString = r.toString
-
-    val genoType = ri.genos
-    val filter = ri.genoFilter
-
-    setGenotypesAndFilter(values, genoType, filter)
+  override protected def createModel(): LinearRegression = new LinearRegression(ri.size, ri.betaLength - 1)
 
-    ri.phenoTable.zipWithIndex.map({ case (phenos, idx) =>
-      val (x, y, numberOfSamples) = setupRegressionData(genoType, filter, phenos, idx)
-
-      val linRegObj = linRegObjects(idx)
-      linRegObj.setData(x, numberOfSamples)
-      linRegObj.runRegression(y)
-
-      val baseAndPhenoColumns = baseColumnsAsString + "\t" + ri.phenoNames(idx)
-      writeOut(baseAndPhenoColumns, linRegObj)
-    }).foreach(outRows => outRows.foreach(outRow => nextProcessor.process(outRow)))
+  override protected def fitGroup(ws: RegressionWorkspace, numberOfSamples: Int, group: Array[Int], baseColumns: String, out: Array[Iterable[Row]]): Unit = {
+    val linRegObj = ws.model
+    linRegObj.setData(ws.x, numberOfSamples)
+    group.foreach(idx => {
+      setupPhenotypes(ws, idx)
+      linRegObj.runRegression(ws.y)
+      out(idx) = writeOut(baseColumns + "\t" + ri.phenoNames(idx), linRegObj)
+    })
   }
 
   private def writeOut(baseAndPhenoColumns: String, linRegObj: LinearRegression): Iterable[Row] = {
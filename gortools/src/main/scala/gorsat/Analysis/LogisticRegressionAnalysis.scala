@@ -31,32 +31,18 @@ class LogisticRegressionAnalysis(lookUpSignature: String, session: GorSession, v
   extends RegressionAnalysis[Boolean](lookUpSignature, session, valCol, sepVal, imputed, phenoFile, covarFile) {
   val maxIter = 20
   val tol = 1e-5
-  var logRegObjects: Array[LogisticRegression] =_
 
-  override def setup(): Unit = {
-    super.setup()
-    logRegObjects = Array.tabulate(ri.phenoNames.length)(_ => LogisticRegression.getGorLogisticRegressionObject(ri.betaLength - 1, ri.size))
-  }
-
-  override def process(r: Row): Unit = {
-    val values = r.colAsString(valCol).toString
-    r.removeColumn(valCol)
-    val baseColumnsAsString = r.toString
-
-    val genoType = ri.genos
-    val filter = ri.genoFilter
+  type Model = LogisticRegression
 
-    setGenotypesAndFilter(values, genoType, filter)
+  override protected def createModel(): LogisticRegression = LogisticRegression.getGorLogisticRegressionObject(ri.betaLength - 1, ri.size)
 
-    ri.phenoTable.zipWithIndex.map({ case (phenos, idx) =>
-      val (x, y, numberOfSamples) = setupRegressionData(genoType, filter, phenos, idx)
-
-      val logRegObj = logRegObjects(idx)
-      val converged = logRegObj.runRegression(x, y, numberOfSamples, tol, maxIter)
-
-      val baseAndPhenoColumns = baseColumnsAsString + "\t" + ri.phenoNames(idx)
-      writeOut(baseAndPhenoColumns, logRegObj, converged)
-    }).foreach(outRows => outRows.foreach(outRow => nextProcessor.process(outRow)))
+  override protected def fitGroup(ws: RegressionWorkspace, numberOfSamples: Int, group: Array[Int], baseColumns: String, out: Array[Iterable[Row]]): Unit = {
+    val logRegObj = ws.model
+    group.foreach(idx => {
+      setupPhenotypes(ws, idx)
+      val converged = logRegObj.runRegression(ws.x, ws.y, numberOfSamples, tol, maxIter)
+      out(idx) = writeOut(baseColumns + "\t" + ri.phenoNames(idx), logRegObj, converged)
+    })
   }
 
   private def writeOut(baseAndPhenoColumns: String, logRegObj: LogisticRegression, converged: Boolean): Iterable[Row] = {
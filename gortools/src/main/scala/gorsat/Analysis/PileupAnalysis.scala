@@ -65,60 +65,90 @@ object GorPileup {
 
   val epsilonArray: Array[Double] = Range(0, 255).map(qual => scala.math.pow(10.0, (qual - 33) / (-10.0))).toArray
 
-  // Count depth for each base type in pileup analysis
-  case class pooledPileupState(session: GorSession, grCols: List[Int], pa: Parameters, refSeq: RefSeq) extends BinState {
+  /** Number of count fields kept per group: A, C, G, T, Dels and Ins */
+  val COUNT_FIELDS = 6
+
+  def formatDouble(d: Double): String = "%1.1f".format(d).replace(',', '.')
+
+  def formatDouble4(d: Double): String = "%1.4f".format(d).replace(',', '.')
+
+  /**
+    * Stable descending order of counts(offset until offset + n), written as indices into order.
+    */
+  private def sortDescending(counts: Array[Int], offset: Int, n: Int, order: Array[Int]): Unit = {
+    var i = 0
+    while (i < n) {
+      var j = i
+      while (j > 0 && counts(offset + i) > counts(offset + order(j - 1))) {
+        order(j) = order(j - 1); j -= 1
+      }
+      order(j) = i
+      i += 1
+    }
+  }
 
-    case class StatHolder() {
-      var As: Int = 0
-      var Cs: Int = 0
-      var Gs: Int = 0
-      var Ts: Int = 0
-      var Dels: Int = 0
-      var Ins: Int = 0
-      var likelihoods: Array[Double] = new Array[Double](iupacArray.length)
-      var count = 0
+  private def sortDescending(values: Array[Double], order: Array[Int]): Unit = {
+    var i = 0
+    while (i < values.length) {
+      var j = i
+      while (j > 0 && values(i) > values(order(j - 1))) {
+        order(j) = order(j - 1); j -= 1
+      }
+      order(j) = i
+      i += 1
     }
+  }
+
+  // Count depth for each base type in pileup analysis
+  case class pooledPileupState(session: GorSession, grCols: List[Int], pa: Parameters, refSeq: RefSeq) extends BinState {
 
     val nonReferenceProb: Double = pa.nonReferenceProb
     val numGTs: Int = pa.numGTs
     val callSnps: Boolean = pa.callSnps
     val depthOnly: Boolean = pa.depthOnly
 
-    var groupStates = new scala.collection.mutable.ArrayBuffer[StatHolder]
-    var groupIDs = new scala.collection.mutable.ArrayBuffer[String]
-    var totGroups: Int = -1
+    // Per group state in flat arrays, indexed by groupN: COUNT_FIELDS counts and iupacArray.length likelihoods each
+    var counts = new Array[Int](COUNT_FIELDS)
+    var likelihoods = new Array[Double](iupacArray.length)
+    var likelihoodCounts = new Array[Int](1)
+    var groupIDs = new Array[String](1)
+    var numGroups = 0
     val useGroup: Boolean = if (grCols.nonEmpty) true else false
-    var singleStatHolder = StatHolder()
     val notUsedYet = "#"
     var theRefBase: Char = '?'
     val priors = new Array[Double](10)
 
     var thePos = 0
 
-    def formatDouble(d: Double): String = "%1.1f".format(d).replace(',', '.')
-
-    def formatDouble4(d: Double): String = "%1.4f".format(d).replace(',', '.')
-
-    def formatDoubleScientific2(d: Double): String = "%1.2e".format(d).replace(',', '.')
-
-    def phredScore(d: Double): String = "%1.2e".format(d).replace(',', '.')
-
-    //def PhredScore(d : Double) = (java.lang.Math.log10(1.0-d)*(-1000.0)).toInt.min(99999)
+    // Ids of the groups seen by this state and their indices sorted by id. A group id keeps its index, so the order
+    // only changes when a new group is seen.
+    var knownIDs = new Array[String](1)
+    var numKnown = 0
+    var sortedGroups = new Array[Int](0)
+
+    // Reused when formatting the output rows
+    val lineBuilder = new java.lang.StringBuilder(128)
+    val order = new Array[Int](iupacArray.length)
+    val pCond = new Array[Double](iupacArray.length)
+
+    def initGroup(g: Int): Unit = {
+      java.util.Arrays.fill(counts, g * COUNT_FIELDS, (g + 1) * COUNT_FIELDS, 0)
+      System.arraycopy(priors, 0, likelihoods, g * iupacArray.length, iupacArray.length)
+      likelihoodCounts(g) = 0
+      groupIDs(g) = notUsedYet
+    }
 
-    def initStatHolder(sh: StatHolder): Unit = {
-      sh.As = 0
-      if (!depthOnly) {
-        sh.Cs = 0
-        sh.Gs = 0
-        sh.Ts = 0
-        sh.Dels = 0
-        sh.Ins = 0
-        var i = 0
-        while (i < iupacArray.length) {
-          sh.likelihoods(i) = priors(i)
-          i += 1
-        }
-        sh.count = 0
+    def ensureGroups(n: Int): Unit = {
+      if (n > groupIDs.length) {
+        val capacity = Math.max(n, 2 * groupIDs.length)
+        counts = java.util.Arrays.copyOf(counts, capacity * COUNT_FIELDS)
+        likelihoods = java.util.Arrays.copyOf(likelihoods, capacity * iupacArray.length)
+        likelihoodCounts = java.util.Arrays.copyOf(likelihoodCounts, capacity)
+        groupIDs = java.util.Arrays.copyOf(groupIDs, capacity)
+      }
+      while (numGroups < n) {
+        initGroup(numGroups)
+        numGroups += 1
       }
     }
 
@@ -137,155 +167,188 @@ object GorPileup {
         case 'T' => priors(3) = 1.0 - nonReferenceProb
         case _ => /* do nothing since the priors are already set to be all equal */
       }
-      if (useGroup) {
-        groupStates = new scala.collection.mutable.ArrayBuffer[StatHolder]
-        groupIDs = new scala.collection.mutable.ArrayBuffer[String]
-        totGroups = -1
-      } else initStatHolder(singleStatHolder)
+      numGroups = 0
+      if (!useGroup) ensureGroups(1)
     }
 
     def process(r: Row): Unit = {
-      var sh: StatHolder = null
       val baseHolder = r.bH.asInstanceOf[baseHolder]
       val base = baseHolder.code
       val qual = baseHolder.qual
 
+      var g = 0
       if (useGroup) {
-        val groupN = baseHolder.groupN
-        if (groupN > totGroups) {
-          totGroups = groupN
-          while (groupStates.length < totGroups + 1) {
-            val tsh = StatHolder()
-            initStatHolder(tsh)
-            groupStates += tsh
-          }
-          sh = groupStates(groupN)
-          while (groupIDs.length < totGroups + 1) groupIDs += notUsedYet
-          groupIDs(groupN) = baseHolder.groupID
-        } else {
-          sh = groupStates(groupN)
-          groupIDs(groupN) = baseHolder.groupID
+        g = baseHolder.groupN
+        ensureGroups(g + 1)
+        groupIDs(g) = baseHolder.groupID
+        if (g >= knownIDs.length) knownIDs = java.util.Arrays.copyOf(knownIDs, Math.max(g + 1, 2 * knownIDs.length))
+        if (knownIDs(g) == null) {
+          knownIDs(g) = baseHolder.groupID
+          numKnown += 1
         }
-      } else sh = singleStatHolder
+      }
 
+      val c = g * COUNT_FIELDS
       if (depthOnly) {
-        if (base != 'I') sh.As += 1
+        if (base != 'I') counts(c) += 1
       } else {
-        if (base == 'A') sh.As += 1
-        else if (base == 'C') sh.Cs += 1
-        else if (base == 'G') sh.Gs += 1
-        else if (base == 'T') sh.Ts += 1
-        else if (base == 'D') sh.Dels += 1 else if (base == 'I') sh.Ins += 1
+        if (base == 'A') counts(c) += 1
+        else if (base == 'C') counts(c + 1) += 1
+        else if (base == 'G') counts(c + 2) += 1
+        else if (base == 'T') counts(c + 3) += 1
+        else if (base == 'D') counts(c + 4) += 1 else if (base == 'I') counts(c + 5) += 1
       }
 
       if (callSnps) {
-
+        val l = g * iupacArray.length
         if (!(base == 'I' || base == 'D')) {
           val epsilon = epsilonArray(qual)
-          var g = 0
-          while (g < numGTs) {
+          var gt = 0
+          while (gt < numGTs) {
             var p: Double = 0.0
-            if (g < 4) { // Homozygous genotypes
-              p = if (base == iupacGTArray(g)(0)) 1.0 - epsilon else epsilon / 3
+            if (gt < 4) { // Homozygous genotypes
+              p = if (base == iupacGTArray(gt)(0)) 1.0 - epsilon else epsilon / 3
             } else { // Heterozygous genotypes
-              p = if (base == iupacGTArray(g)(0)) 1.0 - epsilon else epsilon / 3
-              p = (p + (if (base == iupacGTArray(g)(1)) 1.0 - epsilon else epsilon / 3)) / 2
+              p = if (base == iupacGTArray(gt)(0)) 1.0 - epsilon else epsilon / 3
+              p = (p + (if (base == iupacGTArray(gt)(1)) 1.0 - epsilon else epsilon / 3)) / 2
             }
-            sh.likelihoods(g) *= p
-            g += 1
+            likelihoods(l + gt) *= p
+            gt += 1
           }
         }
-        sh.count += 1
-        if (sh.count == 20) {
-          val sum = sh.likelihoods.sum
+        likelihoodCounts(g) += 1
+        if (likelihoodCounts(g) == 20) {
+          var sum = 0.0
           var i = 0
-          while (i < sh.likelihoods.length) {
-            sh.likelihoods(i) /= sum; i += 1
+          while (i < iupacArray.length) {
+            sum += likelihoods(l + i); i += 1
+          }
+          i = 0
+          while (i < iupacArray.length) {
+            likelihoods(l + i) /= sum; i += 1
           }
-          sh.count = 0
+          likelihoodCounts(g) = 0
         }
 
       } // callSnps
     }
 
     def sendToNextProcessor(bi: BinInfo, nextProcessor: Processor): Unit = {
-      val allKeys = if (useGroup) groupIDs.zipWithIndex.toList.sortWith((x, y) => x._1 < y._1) else List(("theOnlyGroup", 0))
-      for (key <- allKeys; if key._1 != notUsedYet) {
-        var sh: StatHolder = null
-        if (useGroup) sh = groupStates(key._2) else sh = singleStatHolder
-        val lineBuilder = new StringBuilder
-        lineBuilder.append(bi.chr)
-        lineBuilder.append('\t')
-        lineBuilder.append(bi.sto)
-        lineBuilder.append('\t')
-        if (useGroup) {
-          lineBuilder.append(key._1)
-          lineBuilder.append('\t')
+      if (useGroup) {
+        if (sortedGroups.length != numKnown) {
+          val known = new Array[Integer](numKnown)
+          var n = 0
+          var g = 0
+          while (g < knownIDs.length) {
+            if (knownIDs(g) != null) {
+              known(n) = g; n += 1
+            }
+            g += 1
+          }
+          java.util.Arrays.sort(known, (x: Integer, y: Integer) => knownIDs(x).compareTo(knownIDs(y)))
+          sortedGroups = known.map(_.intValue())
+        }
+        var i = 0
+        while (i < sortedGroups.length) {
+          val g = sortedGroups(i)
+          if (g < numGroups && groupIDs(g) != notUsedYet) nextProcessor.process(formatGroup(bi, g))
+          i += 1
         }
-        lineBuilder.append(theRefBase)
+      } else {
+        nextProcessor.process(formatGroup(bi, 0))
+      }
+    }
+
+    /**
+      * Format the output row of a group at the current position.
+      */
+    def formatGroup(bi: BinInfo, g: Int): Row = {
+      val c = g * COUNT_FIELDS
+      val as = counts(c)
+      lineBuilder.setLength(0)
+      lineBuilder.append(bi.chr)
+      lineBuilder.append('\t')
+      lineBuilder.append(bi.sto)
+      lineBuilder.append('\t')
+      if (useGroup) {
+        lineBuilder.append(groupIDs(g))
         lineBuilder.append('\t')
+      }
+      lineBuilder.append(theRefBase)
+      lineBuilder.append('\t')
 
-        if (depthOnly) {
-          lineBuilder.append(sh.As)
-        } else {
-          var majorAllele = "?"
-          var minorAllele = "?"
-          var chiSquare = 0.0
-          if (sh.As + sh.Cs + sh.Gs + sh.Ts > 0) {
-            val ordAlleles = List(("A", sh.As), ("C", sh.Cs), ("G", sh.Gs), ("T", sh.Ts)).sortWith((x, y) => x._2 > y._2)
-            val topAlleles = ordAlleles.filter(x => x._2 > 0).slice(0, 2)
-            majorAllele = topAlleles.head._1
-            minorAllele = if (topAlleles.length > 1) topAlleles.tail.head._1 else majorAllele
-            val lowAlleleCounts = ordAlleles.tail.map(x => x._2)
-            val lowAlleleSum = lowAlleleCounts.sum
-            val lowAlleleSquare = lowAlleleCounts.foldLeft(0.0) ((x, y) => {
-              x + (y - lowAlleleSum / 3.0) * (y - lowAlleleSum / 3.0)
-            })
-            chiSquare = if (majorAllele == minorAllele) 0.0 else lowAlleleSquare / (lowAlleleSum / 3.0)
+      if (depthOnly) {
+        lineBuilder.append(as)
+      } else {
+        val cs = counts(c + 1)
+        val gs = counts(c + 2)
+        val ts = counts(c + 3)
+        val dels = counts(c + 4)
+        var majorAllele = '?'
+        var minorAllele = '?'
+        var chiSquare = 0.0
+        if (as + cs + gs + ts > 0) {
+          sortDescending(counts, c, 4, order)
+          majorAllele = iupacArray(order(0))
+          minorAllele = if (counts(c + order(1)) > 0) iupacArray(order(1)) else majorAllele
+          val lowAlleleSum = counts(c + order(1)) + counts(c + order(2)) + counts(c + order(3))
+          var lowAlleleSquare = 0.0
+          var i = 1
+          while (i < 4) {
+            val y = counts(c + order(i))
+            lowAlleleSquare = lowAlleleSquare + (y - lowAlleleSum / 3.0) * (y - lowAlleleSum / 3.0)
+            i += 1
           }
-          lineBuilder.append(majorAllele)
-          lineBuilder.append('\t')
-          lineBuilder.append(minorAllele)
-          lineBuilder.append('\t')
-          lineBuilder.append(formatDouble(scala.math.sqrt(chiSquare)))
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.As + sh.Cs + sh.Gs + sh.Ts + sh.Dels)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.As)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.Cs)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.Gs)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.Ts)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.Dels)
-          lineBuilder.append('\t')
-          lineBuilder.append(sh.Ins)
+          chiSquare = if (majorAllele == minorAllele) 0.0 else lowAlleleSquare / (lowAlleleSum / 3.0)
         }
-        if (callSnps) {
-          val pTot = sh.likelihoods.sum
-          val pCond = sh.likelihoods.map(p => p / pTot)
-          val pOrd = iupacArray.zip(pCond).toList.sortWith((x, y) => x._2 > y._2).toArray
-
-          lineBuilder.append('\t')
-          lineBuilder.append(pOrd(0)._1)
-          lineBuilder.append('\t')
-          lineBuilder.append(formatDouble4(pOrd(0)._2))
-          val lod = java.lang.Math.log10(pOrd(0)._2 / pOrd(1)._2)
-          lineBuilder.append('\t')
-          lineBuilder.append(formatDouble(lod))
-          lineBuilder.append('\t')
-          lineBuilder.append(pOrd(1)._1)
-          if (theRefBase.toUpper != pOrd(0)._1) {
-            lineBuilder.append("\t1")
-          } else lineBuilder.append("\t0")
-
-        } // callSnps
-
-        nextProcessor.process(RowObj(lineBuilder.toString))
-
+        lineBuilder.append(majorAllele)
+        lineBuilder.append('\t')
+        lineBuilder.append(minorAllele)
+        lineBuilder.append('\t')
+        lineBuilder.append(formatDouble(scala.math.sqrt(chiSquare)))
+        lineBuilder.append('\t')
+        lineBuilder.append(as + cs + gs + ts + dels)
+        lineBuilder.append('\t')
+        lineBuilder.append(as)
+        lineBuilder.append('\t')
+        lineBuilder.append(cs)
+        lineBuilder.append('\t')
+        lineBuilder.append(gs)
+        lineBuilder.append('\t')
+        lineBuilder.append(ts)
+        lineBuilder.append('\t')
+        lineBuilder.append(dels)
+        lineBuilder.append('\t')
+        lineBuilder.append(counts(c + 5))
       }
+      if (callSnps) {
+        val l = g * iupacArray.length
+        var pTot = 0.0
+        var i = 0
+        while (i < pCond.length) {
+          pTot += likelihoods(l + i); i += 1
+        }
+        i = 0
+        while (i < pCond.length) {
+          pCond(i) = likelihoods(l + i) / pTot; i += 1
+        }
+        sortDescending(pCond, order)
+
+        lineBuilder.append('\t')
+        lineBuilder.append(iupacArray(order(0)))
+        lineBuilder.append('\t')
+        lineBuilder.append(formatDouble4(pCond(order(0))))
+        val lod = java.lang.Math.log10(pCond(order(0)) / pCond(order(1)))
+        lineBuilder.append('\t')
+        lineBuilder.append(formatDouble(lod))
+        lineBuilder.append('\t')
+        lineBuilder.append(iupacArray(order(1)))
+        if (theRefBase.toUpper != iupacArray(order(0))) {
+          lineBuilder.append("\t1")
+        } else lineBuilder.append("\t0")
+      } // callSnps
+
+      RowObj(lineBuilder.toString)
     }
   }
 
@@ -317,12 +380,16 @@ object GorPileup {
     var r1 = RowObj("chr1", 0, "")
     var totGroups: Int = -1
     val useGroup: Boolean = if (grCols.nonEmpty) true else false
-    var groupMap = Map.empty[String, Int]
+    val groupMap = scala.collection.mutable.HashMap.empty[String, Int]
     var baseQualSeq : CharSequence = ""
     var minBaseQualChar: Char = (33 + minBaseQual).toChar
     val grColsArray: Array[Int] = grCols.toArray
 
-    def parseCigar(s: CharSequence, p: Int): (Int, Char, Int) = {
+    // Length and operation of the last cigar element read by parseCigar
+    var cigarNum = 0
+    var cigarOp: Char = 'E'
+
+    def parseCigar(s: CharSequence, p: Int): Int = {
       var num = 0
       var control: Char = 'E'
       var pos = p
@@ -335,7 +402,9 @@ object GorPileup {
       if (control == 'E') {
         throw new GorDataException("cigar error in " + s)
       }
-      (num, control, pos + 1)
+      cigarNum = num
+      cigarOp = control
+      pos + 1
     }
 
     def abs(x: Int): Int = if (x < 0) -x else x
@@ -366,7 +435,7 @@ object GorPileup {
             case None =>
               totGroups += 1
               groupN = totGroups
-              groupMap += (groupID -> groupN)
+              groupMap.put(groupID, groupN)
           }
           base.groupN = groupN
           base.groupID = groupID
@@ -379,8 +448,9 @@ object GorPileup {
         var refShift = 0
         var ci = 0
         while (ci < cigar.length) {
-          val (numBases, cigarControl, nextCi) = parseCigar(cigar, ci)
-          ci = nextCi
+          ci = parseCigar(cigar, ci)
+          val numBases = cigarNum
+          val cigarControl = cigarOp
 
           cigarControl match {
             case 'M' | 'X' | '=' =>
@@ -406,12 +476,15 @@ object GorPileup {
               /* readShift += numBases; refShift += numBases */
             case 'D' =>
               var i = 0
+              var binID = binIDgen.ID(r.pos + refShift)
+              var (sta, sto) = binIDgen.StartAndStop(binID)
               while (i < numBases) {
-                val binID = binIDgen.ID(r.pos + refShift + i)
-                val (sta, sto) = binIDgen.StartAndStop(binID)
                 base.code = 'D'
                 r1.pos = r.pos + refShift + i
                 if (notSingleOverlapCount || r.chr != mrnm || mpos < r.pos || r.pos + refShift + i < mpos ) BA.update(r1, binID, r.chr, sta, sto)
+                binID += 1
+                sta += 1
+                sto += 1
                 i += 1
               }
               refShift += numBases
@@ -106,7 +106,7 @@ object PrGtGenAnalysis {
             throw e
         }
       }
-      val pbt = PnBucketParsing.parse(l)
+      val pbt = PnBucketParsing.parseCached(l)
       TagInfo(pbt)
     }).asInstanceOf[PnBucketTable]
     val ti: TagInfo = (if(!pbtable.isInstanceOf[TagInfo]) context.getSession.getCache.getObjectHashMap.compute(lookupSignature, (_, _) => {
@@ -25,11 +25,15 @@ package gorsat.Analysis
 import gorsat.Commands._
 import org.gorpipe.gor.model.Row
 import org.gorpipe.gor.session.GorSession
+import org.gorpipe.gor.util.StringUtil
 
-import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable
 
 object RankAnalysis {
 
+  private val InitialCapacity = 1024
+  private val SortRun = 32
+
   case class Parameters() {
     var asc = false
     var useZ = false
@@ -39,172 +43,289 @@ object RankAnalysis {
     var maxRank: Int = Int.MaxValue
   }
 
-  // Aggregate the columns per bin in the stream
+  // Aggregate the columns per bin in the stream. The rows of a bin are kept in primitive arrays, each group is
+  // sorted as an index range and the rank results are stored per row.
   case class RankState(binSize: Int, rankCol: Int, grCols: List[Int], pa: Parameters) extends BinState {
 
-    case class StatHolder() {
-      var fList: List[(Int, Double)] = _
-    }
-
-    case class RankInfoHolder() {
-      var rank: Int = -1
-      var cum: Int = 0
-      var freq: Int = 0
-      var count: Int = 0
-      var z: Double = 0.0
-      var rOne: Int = -1
-    }
-
     val useGroup: Boolean = if (grCols.nonEmpty) true else false
 
-    var groupMap = Map.empty[String, StatHolder]
+    val groupMap = new mutable.HashMap[String, Int]
     val grColsArray: Array[Int] = grCols.toArray
 
     var rownum = 0
-    var allRows = new ArrayBuffer[(Row, RankInfoHolder)]
-
-    def formatDouble(d: Double): String = ("%1.4f".format(d)).replace(',', '.')
-
-    def initStatHolder(sh: StatHolder): Unit = {
-      sh.fList = Nil
-    }
+    var hasNaN = false
+    var rows = new Array[Row](InitialCapacity)
+    var values = new Array[Double](InitialCapacity)
+    var groups = new Array[Int](InitialCapacity)
+
+    // Per group sizes and the row indices of the bin ordered by group and then by rank value
+    var groupSize = new Array[Int](InitialCapacity)
+    var order = new Array[Int](InitialCapacity)
+    var scratch = new Array[Int](InitialCapacity)
+
+    var rank = new Array[Int](InitialCapacity)
+    var count = new Array[Int](InitialCapacity)
+    var rankHist = new Array[Int](InitialCapacity)
+    var cum: Array[Int] = if (pa.useDistr) new Array[Int](InitialCapacity) else null
+    var freq: Array[Int] = if (pa.useDistr) new Array[Int](InitialCapacity) else null
+    var rankCumHist: Array[Int] = if (pa.useDistr) new Array[Int](InitialCapacity) else null
+    var z: Array[Double] = if (pa.useZ) new Array[Double](InitialCapacity) else null
+    var rOne: Array[Int] = if (pa.useRankOne) new Array[Int](InitialCapacity) else null
+
+    val sBuilder = new java.lang.StringBuilder
 
     def initialize(binInfo: BinInfo): Unit = {
-      groupMap = Map.empty[String, StatHolder]
+      groupMap.clear()
       rownum = 0
-      allRows = new ArrayBuffer[(Row, RankInfoHolder)]
+      hasNaN = false
     }
 
     def process(r: Row): Unit = {
-      var sh: StatHolder = null
-
-      val groupID = if (useGroup) r.selectedColumns(grColsArray) else ""
+      if (rownum == rows.length) grow()
 
-      groupMap.get(groupID) match {
-        case Some(x) => sh = x
-        case None =>
-          sh = StatHolder()
-          initStatHolder(sh)
-          groupMap += (groupID -> sh)
-      }
+      val group = if (useGroup) {
+        val groupID = r.selectedColumns(grColsArray)
+        groupMap.getOrElseUpdate(groupID, groupMap.size)
+      } else 0
 
-      val xx = (r, RankInfoHolder())
-      allRows += xx
       val theValue = r.colAsDouble(rankCol)
-      sh.fList ::= (rownum, theValue)
+      if (theValue.isNaN) hasNaN = true
+      rows(rownum) = r
+      values(rownum) = theValue
+      groups(rownum) = group
       rownum += 1
     }
 
-    def sendToNextProcessor(bi: BinInfo, nextProcessor: Processor): Unit = {
-      for (key <- groupMap.keys.toList) {
-        val sh = groupMap(key)
-
-        val oArr = if (pa.asc) {
-          sh.fList.toArray.sortWith((x, y) => x._2 < y._2)
-        } else {
-          sh.fList.toArray.sortWith((x, y) => x._2 > y._2)
-        }
+    private def grow(): Unit = {
+      val newSize = rows.length * 2
+      rows = java.util.Arrays.copyOf(rows, newSize)
+      values = java.util.Arrays.copyOf(values, newSize)
+      groups = java.util.Arrays.copyOf(groups, newSize)
+      groupSize = new Array[Int](newSize)
+      order = new Array[Int](newSize)
+      scratch = new Array[Int](newSize)
+      rank = new Array[Int](newSize)
+      count = new Array[Int](newSize)
+      rankHist = new Array[Int](newSize)
+      if (pa.useDistr) {
+        cum = new Array[Int](newSize)
+        freq = new Array[Int](newSize)
+        rankCumHist = new Array[Int](newSize)
+      }
+      if (pa.useZ) z = new Array[Double](newSize)
+      if (pa.useRankOne) rOne = new Array[Int](newSize)
+    }
 
-        var i = 0
-        var maxRank = 1
-        val rankHist = new ArrayBuffer[Int]
-        while (i < oArr.length) {
-          if (i == 0) {
-            rankHist += 0
-          } else if (i > 0 && oArr(i - 1)._2 != oArr(i)._2) {
-            rankHist += 0
-            maxRank += 1
-          }
-          allRows(oArr(i)._1)._2.rank = maxRank
-          allRows(oArr(i)._1)._2.count = oArr.length
-          rankHist(maxRank - 1) += 1
-          i += 1
-        }
-        if (pa.useDistr) {
-          val rankCumHist = new Array[Int](maxRank)
-          var sum = 0
-          var i = 0
-          while (i < maxRank) {
-            sum += rankHist(i)
-            rankCumHist(i) = sum
-            i += 1
-          }
+    private def before(a: Int, b: Int): Boolean = {
+      if (pa.asc) values(a) < values(b) else values(a) > values(b)
+    }
 
-          i = 0
-          while (i < oArr.length) {
-            allRows(oArr(i)._1)._2.cum = rankCumHist(allRows(oArr(i)._1)._2.rank - 1)
-            allRows(oArr(i)._1)._2.freq = rankHist(allRows(oArr(i)._1)._2.rank - 1)
-            i += 1
-          }
-        }
-        if (pa.useZ) {
-          var sq_sum = 0.0
-          var r_sum = 0.0
-          var allEqual = true
-          var i = 0
-          while (i < oArr.length) {
-            val v = oArr(i)._2
-            sq_sum += v * v
-            r_sum += v
-            if (i > 0) if (oArr(i)._2 != oArr(i - 1)._2) allEqual = false
-            i += 1
-          }
-          val mean = r_sum / oArr.length
-          val variance = if (oArr.length == 1) 1.0 else (sq_sum - oArr.length * mean * mean) / (oArr.length - 1)
-          val stdev = scala.math.sqrt(variance)
-          i = 0
-          while (i < oArr.length) {
-            if (allEqual) allRows(oArr(i)._1)._2.z = 0.0 else allRows(oArr(i)._1)._2.z = (oArr(i)._2 - mean) / stdev
-            i += 1
-          }
-        }
-        if (pa.useRankOne) {
-          i = 0
-          while (i < oArr.length) {
-            allRows(oArr(i)._1)._2.rOne = oArr(0)._1
-            i += 1
-          }
-        }
-      } // groups
+    def sendToNextProcessor(bi: BinInfo, nextProcessor: Processor): Unit = {
+      val numGroups = if (useGroup) groupMap.size else if (rownum > 0) 1 else 0
 
+      // Each group range lists its rows last first, which decides the order of ties and the rank1 row
+      java.util.Arrays.fill(groupSize, 0, numGroups, 0)
       var i = 0
-      while (i < allRows.size) {
-        val x = allRows(i)
-        if (x._2.rank <= pa.maxRank) {
-          val sBuilder = new StringBuilder
-          sBuilder.append(x._2.rank)
+      while (i < rownum) {
+        groupSize(groups(i)) += 1
+        i += 1
+      }
+      var g = 0
+      var start = 0
+      while (g < numGroups) {
+        val size = groupSize(g)
+        groupSize(g) = start
+        start += size
+        g += 1
+      }
+      // Placing the rows moves each group start to the end of the group
+      i = rownum - 1
+      while (i >= 0) {
+        order(groupSize(groups(i))) = i
+        groupSize(groups(i)) += 1
+        i -= 1
+      }
+
+      var from = 0
+      g = 0
+      while (g < numGroups) {
+        val to = groupSize(g)
+        sortRange(from, to)
+        rankRange(from, to)
+        from = to
+        g += 1
+      }
+
+      i = 0
+      while (i < rownum) {
+        if (rank(i) <= pa.maxRank) {
+          sBuilder.setLength(0)
+          sBuilder.append(rank(i))
           if (pa.useDistr) {
             sBuilder.append('\t')
-            sBuilder.append(formatDouble((x._2.cum + 0.0) / x._2.count))
+            StringUtil.appendFixed(sBuilder, (cum(i) + 0.0) / count(i), 4)
             sBuilder.append('\t')
-            sBuilder.append(formatDouble((x._2.freq + 0.0) / x._2.count))
+            StringUtil.appendFixed(sBuilder, (freq(i) + 0.0) / count(i), 4)
           }
           if (pa.useZ) {
             sBuilder.append('\t')
-            sBuilder.append(formatDouble(x._2.z))
+            StringUtil.appendFixed(sBuilder, z(i), 4)
           }
           if (pa.useCount) {
             sBuilder.append('\t')
-            sBuilder.append(x._2.count)
+            sBuilder.append(count(i))
           }
           if (pa.useRankOne) {
             sBuilder.append('\t')
-            sBuilder.append(allRows(x._2.rOne)._1.colAsString(rankCol))
+            sBuilder.append(rows(rOne(i)).colAsString(rankCol))
           }
 
-          nextProcessor.process(x._1.rowWithAddedColumn(sBuilder.toString))
+          nextProcessor.process(rows(i).rowWithAddedColumn(sBuilder.toString))
         }
-        allRows(i) = null
         i += 1
       }
 
-      allRows = null
+      java.util.Arrays.fill(rows.asInstanceOf[Array[AnyRef]], 0, rownum, null)
+      rownum = 0
+    }
 
+    private def sortRange(from: Int, to: Int): Unit = {
+      if (hasNaN) sortBoxed(from, to) else mergeSort(from, to)
     }
 
-    groupMap = null
-  }
+    // NaN values are not ordered by the comparison, so they are sorted with the same comparison sort as before to
+    // keep their positions
+    private def sortBoxed(from: Int, to: Int): Unit = {
+      val boxed = new Array[Integer](to - from)
+      var k = 0
+      while (k < boxed.length) {
+        boxed(k) = order(from + k)
+        k += 1
+      }
+      java.util.Arrays.sort(boxed, Ordering.fromLessThan[Integer]((x, y) => before(x, y)))
+      k = 0
+      while (k < boxed.length) {
+        order(from + k) = boxed(k)
+        k += 1
+      }
+    }
+
+    // Stable sort of order(from until to) on the rank values. Insertion sorted runs are merged bottom up
+    // through the scratch array.
+    private def mergeSort(from: Int, to: Int): Unit = {
+      var runStart = from
+      while (runStart < to) {
+        val runEnd = math.min(runStart + SortRun, to)
+        var k = runStart + 1
+        while (k < runEnd) {
+          val x = order(k)
+          var j = k - 1
+          while (j >= runStart && before(x, order(j))) {
+            order(j + 1) = order(j)
+            j -= 1
+          }
+          order(j + 1) = x
+          k += 1
+        }
+        runStart = runEnd
+      }
 
+      var src = order
+      var dst = scratch
+      var width = SortRun
+      while (width < to - from) {
+        var lo = from
+        while (lo < to) {
+          val mid = math.min(lo + width, to)
+          val hi = math.min(lo + 2 * width, to)
+          var l = lo
+          var r = mid
+          var k = lo
+          while (k < hi) {
+            if (r < hi && (l >= mid || before(src(r), src(l)))) {
+              dst(k) = src(r)
+              r += 1
+            } else {
+              dst(k) = src(l)
+              l += 1
+            }
+            k += 1
+          }
+          lo = hi
+        }
+        val t = src
+        src = dst
+        dst = t
+        width *= 2
+      }
+      if (src ne order) System.arraycopy(src, from, order, from, to - from)
+    }
+
+    private def rankRange(from: Int, to: Int): Unit = {
+      val n = to - from
+      var i = 0
+      var maxRank = 1
+      while (i < n) {
+        val row = order(from + i)
+        if (i == 0) {
+          rankHist(0) = 0
+        } else if (values(order(from + i - 1)) != values(row)) {
+          rankHist(maxRank) = 0
+          maxRank += 1
+        }
+        rank(row) = maxRank
+        count(row) = n
+        rankHist(maxRank - 1) += 1
+        i += 1
+      }
+      if (pa.useDistr) {
+        var sum = 0
+        i = 0
+        while (i < maxRank) {
+          sum += rankHist(i)
+          rankCumHist(i) = sum
+          i += 1
+        }
+
+        i = 0
+        while (i < n) {
+          val row = order(from + i)
+          cum(row) = rankCumHist(rank(row) - 1)
+          freq(row) = rankHist(rank(row) - 1)
+          i += 1
+        }
+      }
+      if (pa.useZ) {
+        var sq_sum = 0.0
+        var r_sum = 0.0
+        var allEqual = true
+        i = 0
+        while (i < n) {
+          val v = values(order(from + i))
+          sq_sum += v * v
+          r_sum += v
+          if (i > 0) if (v != values(order(from + i - 1))) allEqual = false
+          i += 1
+        }
+        val mean = r_sum / n
+        val variance = if (n == 1) 1.0 else (sq_sum - n * mean * mean) / (n - 1)
+        val stdev = scala.math.sqrt(variance)
+        i = 0
+        while (i < n) {
+          val row = order(from + i)
+          if (allEqual) z(row) = 0.0 else z(row) = (values(row) - mean) / stdev
+          i += 1
+        }
+      }
+      if (pa.useRankOne) {
+        i = 0
+        while (i < n) {
+          rOne(order(from + i)) = order(from)
+          i += 1
+        }
+      }
+    }
+  }
 
   case class RankFactory(binSize: Int, rc: Int, grCols: List[Int], pa: Parameters) extends BinFactory {
     def create: BinState =
@@ -26,12 +26,88 @@ import gorsat.Commands.Analysis
 import gorsat.gorsatGorIterator.MapAndListUtilities
 import gorsat.process.GorJavaUtilities
 import org.gorpipe.exceptions.GorDataException
+import org.gorpipe.gor.model.Row
 import org.gorpipe.gor.session.GorSession
 
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.stream.IntStream
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Base class for the regression analyses.
+ *
+ * The rows are fitted in blocks of gor.regression.blocksize rows. The rows of a block are fitted in parallel, each
+ * with its own workspace, and the results are written out in input order. Phenotypes with the same missing values
+ * share the design matrix, so it is set up, and for linear regression factorised, once per row and group.
+ */
 abstract class RegressionAnalysis[T: Manifest](lookUpSignature: String, session: GorSession, valCol: Int, sepVal: Option[String], imputed: Boolean, phenoFile: String, covarFile: Option[String]) extends Analysis {
 
+  type Model
+
   var ri: RegressionInfo =_
 
+  val blockSize: Int = System.getProperty("gor.regression.blocksize", "256").toInt.max(1)
+  private val block = ArrayBuffer.empty[(String, String)]
+  private val workspaces = new ConcurrentLinkedQueue[RegressionWorkspace]()
+
+  class RegressionWorkspace {
+    val genos: Array[Double] = Array.ofDim(ri.size)
+    val genoFilter: Array[Boolean] = Array.ofDim(ri.size)
+    val x: Array[Array[Double]] = Array.ofDim(ri.betaLength - 1, ri.size)
+    val y: Array[T] = Array.ofDim[T](ri.size)
+    val model: Model = createModel()
+  }
+
+  protected def createModel(): Model
+
+  /**
+   * Fits the phenotypes in {@code group} to the design matrix in the workspace and stores the output rows of each
+   * phenotype at its index in {@code out}.
+   */
+  protected def fitGroup(ws: RegressionWorkspace, numberOfSamples: Int, group: Array[Int], baseColumns: String, out: Array[Iterable[Row]]): Unit
+
+  override def process(r: Row): Unit = {
+    val values = r.colAsString(valCol).toString
+    r.removeColumn(valCol)
+    block += ((values, r.toString))
+    if (block.length >= blockSize) processBlock()
+  }
+
+  override def finish(): Unit = {
+    if (!isInErrorState) processBlock()
+    workspaces.clear()
+  }
+
+  private def processBlock(): Unit = {
+    val rows = block.toArray
+    block.clear()
+    if (rows.nonEmpty && !wantsNoMore) {
+      val results = new Array[Array[Iterable[Row]]](rows.length)
+      if (rows.length == 1) {
+        results(0) = regress(rows(0)._1, rows(0)._2)
+      } else {
+        IntStream.range(0, rows.length).parallel().forEach(i => results(i) = regress(rows(i)._1, rows(i)._2))
+      }
+      results.foreach(_.foreach(_.foreach(nextProcessor.process)))
+    }
+  }
+
+  private def regress(values: String, baseColumns: String): Array[Iterable[Row]] = {
+    var ws = workspaces.poll()
+    if (ws == null) ws = new RegressionWorkspace
+    try {
+      setGenotypesAndFilter(values, ws.genos, ws.genoFilter)
+      val out = new Array[Iterable[Row]](ri.phenoNames.length)
+      for (group <- ri.phenoGroups) {
+        val numberOfSamples = setupDesignMatrix(ws, group(0))
+        fitGroup(ws, numberOfSamples, group, baseColumns, out)
+      }
+      out
+    } finally {
+      workspaces.offer(ws)
+    }
+  }
+
   override def setup(): Unit = {
     ri = session.getCache.getObjectHashMap.computeIfAbsent(lookUpSignature, _ => {
       val phenoFileTrav = MapAndListUtilities.getStringTraversable(phenoFile, session)
@@ -150,16 +226,17 @@ abstract class RegressionAnalysis[T: Manifest](lookUpSignature: String, session:
       }
     }
 
-  protected def setupRegressionData(genoType: Array[Double], filter: Array[Boolean], phenos: Array[T], idx: Int): (Array[Array[Double]], Array[T], Int) = {
-    val x = ri.xs(idx)
-    val y = ri.ys(idx)
+  protected def setupDesignMatrix(ws: RegressionWorkspace, idx: Int): Int = {
     val phenoFilter = ri.phenoFilter(idx)
-    val numberOfSamples = doubleFilter(genoType, filter, phenoFilter, x.head)
-    x.tail zip ri.covars foreach { case (xc, cc) =>
-      doubleFilter(cc, filter, phenoFilter, xc)
+    val numberOfSamples = doubleFilter(ws.genos, ws.genoFilter, phenoFilter, ws.x.head)
+    ws.x.tail zip ri.covars foreach { case (xc, cc) =>
+      doubleFilter(cc, ws.genoFilter, phenoFilter, xc)
     }
-    doubleFilter(phenos, filter, phenoFilter, y)
-    (x, y, numberOfSamples)
+    numberOfSamples
+  }
+
+  protected def setupPhenotypes(ws: RegressionWorkspace, idx: Int): Unit = {
+    doubleFilter(ri.phenoTable(idx), ws.genoFilter, ri.phenoFilter(idx), ws.y)
   }
 
   case class RegressionInfo(
@@ -176,9 +253,16 @@ abstract class RegressionAnalysis[T: Manifest](lookUpSignature: String, session:
     betaNames(1) = "Genotype"
     if (covarNames.length > 0) System.arraycopy(covarNames, 0, betaNames, 2, covarNames.length)
 
-    val xs: Array[Array[Array[Double]]] = Array.ofDim(phenoNames.length, betaLength - 1, size)
-    val ys: Array[Array[T]] = Array.ofDim[T](phenoNames.length, size)
-    val genoFilter: Array[Boolean] = Array.ofDim(size)
-    val genos: Array[Double] = Array.ofDim(size)
+    /* Indices of phenotypes with identical missing values, in order of first occurrence */
+    val phenoGroups: Array[Array[Int]] = {
+      val groups = ArrayBuffer.empty[ArrayBuffer[Int]]
+      phenoFilter.indices.foreach(idx => {
+        groups.find(g => java.util.Arrays.equals(phenoFilter(g.head), phenoFilter(idx))) match {
+          case Some(g) => g += idx
+          case None => groups += ArrayBuffer(idx)
+        }
+      })
+      groups.map(_.toArray).toArray
+    }
   }
 }
@@ -29,7 +29,8 @@ import gorsat.Outputs.OutFile
 import gorsat.process.{GenericGorRunner, GenericSessionFactory}
 import org.gorpipe.exceptions.custom.GorWriteQuotaExceededException
 import org.gorpipe.gor.driver.meta.DataType
-import org.gorpipe.gor.model.{GenomicIterator, Row}
+import org.gorpipe.gor.model.{CancellableIterator, GenomicIterator, Row}
+import org.gorpipe.gor.monitor.CancellationToken
 import org.gorpipe.gor.session.GorSession
 
 case class SortGenome(header: String, session: GorSession, sortInfo: Array[Row.SortInfo], div: Int = 1) extends Analysis {
@@ -45,6 +46,7 @@ case class SortGenome(header: String, session: GorSession, sortInfo: Array[Row.S
   // If no quota is set we default to 0 and do not deal with write quotas
   private val writeQuota: Long = System.getProperty("gor.querylimits.writequota.mb", "0").toLong * 1024 * 1024
   private var writeQuotaUsed = 0L
+  private val cancellationToken = if (session != null) session.getCancellationToken else CancellationToken.none()
 
   override def isTypeInformationMaintained: Boolean = true
 
@@ -68,6 +70,7 @@ case class SortGenome(header: String, session: GorSession, sortInfo: Array[Row.S
   }
 
   private def flushToDisk(): Unit = {
+    cancellationToken.throwIfCancelled()
     ensureSorted()
     val outputArray = inputArray.take(lines)
     resetBuffer()
@@ -80,7 +83,7 @@ case class SortGenome(header: String, session: GorSession, sortInfo: Array[Row.S
 
     val runner = new GenericGorRunner
     val sortFileReader = session.getProjectContext.getSystemFileReader
-    runner.run(RowArrayIterator(outputArray, outputArray.length), OutFile.driver(outputFile, sortFileReader, header, skipHeader = false, OutputOptions(writeMeta = false)))
+    runner.run(new CancellableIterator(RowArrayIterator(outputArray, outputArray.length), cancellationToken), OutFile.driver(outputFile, sortFileReader, header, skipHeader = false, OutputOptions(writeMeta = false)))
   }
 
   private def ensureSorted(): Unit = {
@@ -112,7 +115,7 @@ case class SortGenome(header: String, session: GorSession, sortInfo: Array[Row.S
         if (lines > 0) flushToDisk()
         val gorString = ordFileList.mkString(" ")
         val sessionFactory = new GenericSessionFactory()
-        rSource = new MultiFileSource(gorString.split(' ').toList, null, "", sortInfo, sessionFactory.create().getGorContext)
+        rSource = new CancellableIterator(new MultiFileSource(gorString.split(' ').toList, null, "", sortInfo, sessionFactory.create().getGorContext), cancellationToken)
         rSource.seek("", 0)
 
         while (rSource.hasNext) super.process(rSource.next())
@@ -29,14 +29,22 @@ import org.gorpipe.gor.session.GorSession
 import org.gorpipe.model.gor.RowObj
 import org.gorpipe.model.gor.iterators.RefSeq
 
-import scala.collection.mutable.{ArrayBuffer, Map}
+import java.util
 
 case class VarNormAnalysis(refCol: Int, alleleCol: Int, vcfForm: Boolean, seg: Boolean, header: String, leftnormalize: Boolean, mergeSpan: Int, session: GorSession) extends Analysis {
   private val rangeChrStart = GorConstants.FIRST_POSSIBLE_CHROMOSOME_VALUE
   var rangeChr: String = rangeChrStart
   var rangeStopPos: Int = -1
   var rangeStartPos: Int = -1
-  var allRows = new ArrayBuffer[Row]
+  // Rows of the current range and their normalized start positions, kept in position order after each flush
+  var bufRows = new Array[Row](64)
+  var bufPos = new Array[Int](64)
+  // True if the buffered row was created by the normalisation and is therefore already in normalized form
+  var bufNormalized = new Array[Boolean](64)
+  var bufSize = 0
+  // Normalized variants of the current chromosome, rows kept between flushes are normalized again from here
+  val normVarMap = new util.HashMap[NormKey, (String, Int, String)]
+  var normVarChr: String = _
   var minStartPos: Int = 0
   val hCols: Int = header.split("\t").length
   val maxCols: Int = refCol.max(alleleCol) + 1
@@ -157,32 +165,31 @@ case class VarNormAnalysis(refCol: Int, alleleCol: Int, vcfForm: Boolean, seg: B
     (newRef, newStartPos, newAlleles)
   }
 
-  def outputModifiedRows(flushPosition: Int): Unit = {
-    val posRowMap = Map.empty[Int, ArrayBuffer[Row]]
-    var normVarMap = Map.empty[String, (String, Int, String)]
-
-    allRows.foreach(rr => {
-      val alleles = rr.colAsString(alleleCol).toString
-      val rrRef = rr.colAsString(refCol).toString
-      var newAlleles = ""
+  def normalized(chrom: String, pos: Int, ref: String, alleles: String): (String, Int, String) = {
+    if (chrom != normVarChr || normVarMap.size > VarNormAnalysis.MAX_CACHED_VARIANTS) {
+      normVarMap.clear()
+      normVarChr = chrom
+    }
+    val lookup = NormKey(ref, pos, alleles)
+    var normVar = normVarMap.get(lookup)
+    if (normVar == null) {
+      normVar = normalizeVariant(chrom, pos, ref, alleles, leftnormalize)
+      normVarMap.put(lookup, normVar)
+    }
+    normVar
+  }
 
-      var l: String = null
-      var theNewStartPos = -1
+  def normalizeRow(i: Int): Unit = {
+    val rr = bufRows(i)
+    val alleles = rr.colAsString(alleleCol).toString
+    val rrRef = rr.colAsString(refCol).toString
 
-      if (!(rrRef.length == 1 && alleles.length == 1 || rrRef == alleles)) {
-        /* modify alleles */
-        val (nRefseq, nRangeStartPos, nNewAlleles) = {
-          val lookup = s"$rrRef\t${rr.pos}\t$alleles"
-          normVarMap.get(lookup) match {
-            case Some(normVar) => normVar
-            case None =>
-              newAlleles = alleles
-              val normVar = if (leftnormalize) normalizeVariant(rr.chr, rr.pos, rrRef, newAlleles, leftnormalize = true) else normalizeVariant(rr.chr, rr.pos, rrRef, newAlleles, leftnormalize = false)
-              normVarMap += (lookup -> normVar)
-              normVar
-          }
-        }
-        l = s"${rr.colAsString(0)}\t$nRangeStartPos"
+    if (!(rrRef.length == 1 && alleles.length == 1 || rrRef == alleles)) {
+      /* modify alleles */
+      val (nRefseq, nRangeStartPos, nNewAlleles) = normalized(rr.chr, rr.pos, rrRef, alleles)
+      // A row we created from the same normalized variant would be rebuilt into the same text
+      if (!bufNormalized(i) || nRangeStartPos != rr.pos || nRefseq != rrRef || nNewAlleles != alleles) {
+        var l = s"${rr.colAsString(0)}\t$nRangeStartPos"
         var c = 2
         if (seg) {
           l += s"\t${(nRangeStartPos + nRefseq.length)}"
@@ -195,32 +202,68 @@ case class VarNormAnalysis(refCol: Int, alleleCol: Int, vcfForm: Boolean, seg: B
           c += 1
         }
         if (hCols > maxCols) l += s"\t${rr.selectedColumns(colArray)}"
-        theNewStartPos = nRangeStartPos
-      } else {
-        theNewStartPos = rr.pos
-        l = rr.toString
+        bufRows(i) = RowObj(l)
+        bufNormalized(i) = true
       }
+      bufPos(i) = nRangeStartPos
+    } else {
+      bufPos(i) = rr.pos
+    }
+  }
+
+  def outputModifiedRows(flushPosition: Int): Unit = {
+    var i = 0
+    while (i < bufSize) {
+      normalizeRow(i)
+      i += 1
+    }
 
-      posRowMap.get(theNewStartPos) match {
-        case Some(ab: ArrayBuffer[Row]) =>
-          ab += RowObj(l)
-        case None =>
-          val ab = new ArrayBuffer[Row]
-          ab += RowObj(l)
-          //posRowMap += (theNewStartPos -> ab)  // Changed because of a bug in scala  2.9 (https://issues.scala-lang.org/browse/SI-5681)
-          posRowMap(theNewStartPos) = ab
+    // Stable insertion sort on the normalized positions, the rows are close to ordered already
+    i = 1
+    while (i < bufSize) {
+      val r = bufRows(i)
+      val p = bufPos(i)
+      val n = bufNormalized(i)
+      var j = i - 1
+      while (j >= 0 && bufPos(j) > p) {
+        bufRows(j + 1) = bufRows(j)
+        bufPos(j + 1) = bufPos(j)
+        bufNormalized(j + 1) = bufNormalized(j)
+        j -= 1
       }
+      bufRows(j + 1) = r
+      bufPos(j + 1) = p
+      bufNormalized(j + 1) = n
+      i += 1
+    }
 
-    })
-    var newAllRows = new ArrayBuffer[Row]
-    for (key <- posRowMap.keys.toList.sorted) {
-      posRowMap(key).foreach(r => if (flushPosition == -1 || r.pos < flushPosition) super.process(r) else {
-        newAllRows += r; minStartPos = minStartPos.min(r.pos)
-      })
+    var kept = 0
+    i = 0
+    while (i < bufSize) {
+      val r = bufRows(i)
+      if (flushPosition == -1 || bufPos(i) < flushPosition) super.process(r) else {
+        bufRows(kept) = r
+        bufPos(kept) = bufPos(i)
+        bufNormalized(kept) = bufNormalized(i)
+        kept += 1
+        minStartPos = minStartPos.min(bufPos(i))
+      }
+      i += 1
     }
-    allRows = newAllRows
+    util.Arrays.fill(bufRows.asInstanceOf[Array[AnyRef]], kept, bufSize, null)
+    bufSize = kept
   }
 
+  def addRow(r: Row): Unit = {
+    if (bufSize == bufRows.length) {
+      bufRows = util.Arrays.copyOf(bufRows, bufSize * 2)
+      bufPos = util.Arrays.copyOf(bufPos, bufSize * 2)
+      bufNormalized = util.Arrays.copyOf(bufNormalized, bufSize * 2)
+    }
+    bufRows(bufSize) = r
+    bufNormalized(bufSize) = false
+    bufSize += 1
+  }
 
   override def process(r: Row): Unit = {
     val aRefseq = r.colAsString(refCol)
@@ -241,9 +284,8 @@ case class VarNormAnalysis(refCol: Int, alleleCol: Int, vcfForm: Boolean, seg: B
         rangeChr = r.chr
         rangeStartPos = r.pos
         rangeStopPos = stopPos
-        allRows = new ArrayBuffer[Row]
       }
-      allRows += r
+      addRow(r)
 
       if (r.pos > rangeStartPos + mergeSpan * 2) {
         minStartPos = r.pos
@@ -264,3 +306,9 @@ case class VarNormAnalysis(refCol: Int, alleleCol: Int, vcfForm: Boolean, seg: B
     }
   }
 }
+
+case class NormKey(ref: String, pos: Int, alleles: String)
+
+object VarNormAnalysis {
+  val MAX_CACHED_VARIANTS: Int = 1 << 16
+}
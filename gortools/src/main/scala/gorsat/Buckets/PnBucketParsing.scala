@@ -1,10 +1,47 @@
 package gorsat.Buckets
 
+import com.google.common.cache.{Cache, CacheBuilder}
+
 import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
 
 object PnBucketParsing {
 
+  /*
+   * Parsed bucket tables are shared by all genotype commands and sessions in the process, keyed on the content of the
+   * bucket file so a modified file is parsed again. The cache is bounded by the total number of pns in the cached
+   * tables and the values are soft so they can be reclaimed under memory pressure.
+   */
+  private val maxCachedPns: Long = System.getProperty("gor.buckets.cache.maxpns", "20000000").toLong
+
+  private val tableCache: Cache[TableKey, PnBucketTable] = CacheBuilder.newBuilder()
+    .maximumWeight(maxCachedPns)
+    .weigher[TableKey, PnBucketTable]((_: TableKey, table: PnBucketTable) => table.numberOfPns.max(1))
+    .softValues()
+    .build[TableKey, PnBucketTable]()
+
+  private class TableKey(val lines: Array[String]) {
+    private val hash = java.util.Arrays.hashCode(lines.asInstanceOf[Array[AnyRef]])
+
+    override def hashCode(): Int = hash
+
+    override def equals(other: Any): Boolean = other match {
+      case that: TableKey => that.hash == hash && java.util.Arrays.equals(lines.asInstanceOf[Array[AnyRef]], that.lines.asInstanceOf[Array[AnyRef]])
+      case _ => false
+    }
+  }
+
+  /**
+   * Returns the parsed table for the given bucket file lines, sharing the table with other users of the same lines.
+   * The returned table must not be modified.
+   */
+  def parseCached(lines: Array[String]): PnBucketTable = {
+    if (maxCachedPns <= 0) parse(lines)
+    else tableCache.get(new TableKey(lines), () => parse(lines))
+  }
+
+  def invalidateCache(): Unit = tableCache.invalidateAll()
+
   def parse(tbSource: Iterable[String]): PnBucketTable = {
     val bucketToIdx = mutable.Map.empty[String, Int]
     val bucketIdxToName = ArrayBuffer.empty[String]
@@ -119,7 +119,7 @@ class GtTranspose extends CommandInfo("GTTRANSPOSE",
   }
 
   def getBucketToPnIdxList(btArray: Array[String], pns: Array[String]): Map[String, (Array[Int], Array[Int])] = {
-    val pbt = PnBucketParsing.parse(btArray).indexByBucket().filter(pns)
+    val pbt = PnBucketParsing.parseCached(btArray).indexByBucket().filter(pns)
     val bucketToIdxLists = Array.tabulate(pbt.numberOfBuckets)(_ => (ArrayBuffer.empty[Int], ArrayBuffer.empty[Int]))
     var pnAbsIdx = 0
     while (pnAbsIdx < pbt.numberOfPns) {
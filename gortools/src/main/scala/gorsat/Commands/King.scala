@@ -35,7 +35,7 @@ class King extends CommandInfo("KING",
   CommandArguments("-sym", "-gc -vs -s -pi0thr -phithr -thetathr -maxvars", 3),
   CommandOptions(gorCommand = true, cancelCommand = true))
 {
-  override def processArguments(context: GorContext, argString: String, iargs: Array[String], args: Array[String], executeNor: Boolean, forcedInputHeader: String): CommandParsingResult = {
+  override def processArguments(context: GorContext, argString: String, iargs: Array[String], args: Array[String], executeNor: Boolean, forcedInputHeader: String, commandRuntime: CommandRuntime): CommandParsingResult = {
     if(!(hasOption(args, "-s") || hasOption(args, "-vs"))) {
       throw new GorParsingException("Either a separator (-s) or a fixed value size (-vs) must be specified")
     }
@@ -136,7 +136,8 @@ class King extends CommandInfo("KING",
       }
 
 
-      val pipeStep = KingAnalysis(rightFile1, iteratorCommand1, dsource1, rightFile2, iteratorCommand2, dsource2, rightFile3, iteratorCommand3, dsource3, buckCol, valCol, gcCols, afCol, sepVal, valSize, uv, context.getSession) | KingAggregate(pi0thr,phithr,thetathr,t_pi0,t_phi,t_theta,max_variants,symmetric_PNlists,context.getSession.getSystemContext.getMonitor)
+      val pipeStep = KingAnalysis(rightFile1, iteratorCommand1, dsource1, rightFile2, iteratorCommand2, dsource2, rightFile3, iteratorCommand3, dsource3, buckCol, valCol, gcCols, afCol, sepVal, valSize, uv, context.getSession,
+        if (commandRuntime != null) commandRuntime.inputSignature() else null) | KingAggregate(pi0thr,phithr,thetathr,t_pi0,t_phi,t_theta,max_variants,symmetric_PNlists,context.getSession.getSystemContext.getMonitor)
 
       val combinedHeader = validHeader("Chrom\tPos\tPN1\tPN2\tIBS0\tXX\ttpq\tkpq\tNhet\tNhom\tNAai\tNAaj\tcount\tpi0\tphi\ttheta")
       CommandParsingResult(pipeStep, combinedHeader)
@@ -35,7 +35,7 @@ class King2 extends CommandInfo("KING2",
   CommandArguments("", "-gc -vs -s -pi0thr -phithr -thetathr", 2),
   CommandOptions(gorCommand = true, cancelCommand = true))
 {
-  override def processArguments(context: GorContext, argString: String, iargs: Array[String], args: Array[String], executeNor: Boolean, forcedInputHeader: String): CommandParsingResult = {
+  override def processArguments(context: GorContext, argString: String, iargs: Array[String], args: Array[String], executeNor: Boolean, forcedInputHeader: String, commandRuntime: CommandRuntime): CommandParsingResult = {
     if(!(hasOption(args, "-s") || hasOption(args, "-vs"))) {
       throw new GorParsingException("Either a separator (-s) or a fixed value size (-vs) must be specified")
     }
@@ -112,7 +112,8 @@ class King2 extends CommandInfo("KING2",
         throw new GorParsingException(s"The tagfile must have two columns with all the PN/tag pairs to test, e.g. (PN1,PN2).\n\\nCurrent header is: $rightHeader2")
       }
 
-      val pipeStep = KingAnalysis(rightFile1, iteratorCommand1, dsource1, rightFile2, iteratorCommand2, dsource2, buckCol, valCol, gcCols, afCol, sepVal, valSize, uv, context.getSession) | KingAggregate(pi0thr,phithr,thetathr,t_pi0,t_phi,t_theta,context.getSession.getSystemContext.getMonitor)
+      val pipeStep = KingAnalysis(rightFile1, iteratorCommand1, dsource1, rightFile2, iteratorCommand2, dsource2, buckCol, valCol, gcCols, afCol, sepVal, valSize, uv, context.getSession,
+        if (commandRuntime != null) commandRuntime.inputSignature() else null) | KingAggregate(pi0thr,phithr,thetathr,t_pi0,t_phi,t_theta,context.getSession.getSystemContext.getMonitor)
 
       val combinedHeader = validHeader("Chrom\tPos\tPN1\tPN2\tIBS0\tXX\ttpq\tkpq\tNhet\tNhom\tNAai\tNAaj\tcount\tpi0\tphi\ttheta")
       CommandParsingResult(pipeStep, combinedHeader)
@@ -28,6 +28,7 @@ import gorsat.DynIterator
 import gorsat.DynIterator.{DynamicNorGorSource, DynamicNorSource}
 import gorsat.Iterators.{NoValidateNorInputSource, NorInputSource, ServerGorSource, ServerNorGorSource}
 import gorsat.Utilities.{AnalysisUtilities, Utilities}
+import gorsat.columnar.ColumnarNorSource
 import gorsat.process.{NordIterator, PipeOptions}
 import org.gorpipe.gor.model.{GenomicIterator, GorOptions}
 import org.gorpipe.gor.session.GorContext
@@ -38,11 +39,15 @@ import java.nio.file.{Files, Path}
 
 object Nor
 {
-  private val norOptions: List[String] = List("-h", "-asdict", "-r", "-i", "-m", "-nl", "-fs", "-nv")
-  private val norValueOptions: List[String] = List("-f", "-ff", "-s", "-d", "-c")
+  private val norOptions: List[String] = List("-h", "-asdict", "-r", "-i", "-m", "-nl", "-fs", "-nv", "-unordered")
+  private val norValueOptions: List[String] = List("-f", "-ff", "-s", "-d", "-c", "-workers")
   private val norifValueOptions: List[String] = norValueOptions ::: List("-dh")
   private val gornorOptions: List[String] = norOptions.filter(element => element != "nv")
 
+  private val plainNorReadOptions: List[String] = List("-h", "-asdict", "-r", "-i", "-m", "-nl", "-nv")
+
+  private def isPlainNorRead(args: Array[String]): Boolean = !plainNorReadOptions.exists(hasOption(args, _))
+
   def processNorArguments(context: GorContext, argString: String, iargs: Array[String],
                           args: Array[String]): InputSourceParsingResult = {
 
@@ -156,7 +161,14 @@ object Nor
               inputFile = inputParams + "/" + GorOptions.DEFAULT_FOLDER_DICTIONARY_NAME
             }
           }
-          inputSource = if (noValidation) {
+          val fileReader = context.getSession.getProjectContext.getFileReader
+          // The sidecar reproduces the rows of a plain nor read, any option changing how the text is read falls back to it
+          val columnarSource = if (ColumnarNorSource.isEnabled && isPlainNorRead(args) && !DataUtil.isAnyCsv(inputFile) && !DataUtil.isMeta(inputFile)) {
+            ColumnarNorSource.open(CommandParseUtilities.replaceSingleQuotes(inputFile), fileReader)
+          } else null
+          inputSource = if (columnarSource != null) {
+            columnarSource
+          } else if (noValidation) {
             new NoValidateNorInputSource(inputFile, context.getSession.getProjectContext.getFileReader, false, forceReadHeader, maxWalkDepth, followLinks, !hideModificationDate, ignoreEmptyLines)
           } else {
             inputFile = CommandParseUtilities.replaceSingleQuotes(inputFile)
@@ -222,6 +234,7 @@ object Nor
     val sourceColumnName = CommandParseUtilities.stringValueOfOptionWithDefault(args, "-s", "")
     val norDict = new NorDictionaryTable(fileName, context.getSession().getProjectContext().getFileReader())
     val iterator =  new NordIterator(norDict,  if (hasFilter || hasFileFilter) tags else null, sourceColumnName, ignoreMissing, hasOption(args, "-h"))
+    setNordParallelism(iterator, args)
     iterator.init(context.getSession)
     iterator
   }
@@ -236,7 +249,15 @@ object Nor
       nordDict.insert(fileName);
     }
     val iterator = new NordIterator(nordDict, null, sourceColumnName, ignoreMissing, hasOption(args, "-h"))
+    setNordParallelism(iterator, args)
     iterator.init(context.getSession)
     iterator
   }
+
+  private def setNordParallelism(iterator: NordIterator, args: Array[String]): Unit = {
+    val unordered = hasOption(args, "-unordered")
+    val defaultWorkers = if (unordered) Runtime.getRuntime.availableProcessors() else System.getProperty("gor.nor.dictionary.parallel", "1").toInt
+    val workers = CommandParseUtilities.intValueOfOptionWithDefault(args, "-workers", defaultWorkers)
+    iterator.setParallelism(workers, !unordered)
+  }
 }
@@ -115,4 +115,15 @@ class FastGorSource(inOptions: String, gorRoot: String, context: GorContext, exe
     if (theSource == null) openSource()
     theSource.pushdownFilter(gorwhere)
   }
+
+  override def pushdownSelect(colList: Array[String]): Boolean = {
+    if (theSource == null) openSource()
+    val pushed = theSource.pushdownSelect(colList)
+    if (pushed) {
+      val header = theSource.getHeader
+      setHeader(header)
+      headerLength = header.split("\t").length
+    }
+    pushed
+  }
 }
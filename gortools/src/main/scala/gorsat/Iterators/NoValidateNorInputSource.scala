@@ -22,10 +22,10 @@
 
 package gorsat.Iterators
 
-import org.gorpipe.gor.model.{FileReader, NoValidateRowBase, QuoteSafeRowBase, Row}
+import org.gorpipe.gor.model.{FileReader, NoValidateRowBase, Row}
 
 class NoValidateNorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolean, forceReadHeader: Boolean, maxWalkDepth: Int, followLinks: Boolean, showModificationDate: Boolean, ignoreEmptyLines: Boolean) extends NorInputSource(fileName, fileReader, readStdin, forceReadHeader, maxWalkDepth, followLinks, showModificationDate, ignoreEmptyLines) {
-  override def next(): Row = {
-    new NoValidateRowBase("chrN\t0\t" + nextLine(), myHeaderLength)
+  override protected def createRow(line: String): Row = {
+    new NoValidateRowBase("chrN\t0\t" + line, myHeaderLength)
   }
 }
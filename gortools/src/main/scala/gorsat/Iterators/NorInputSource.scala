@@ -23,6 +23,7 @@
 package gorsat.Iterators
 
 import gorsat.Commands.CommandParseUtilities
+import gorsat.ParallelChunkReader
 import org.gorpipe.exceptions.{GorParsingException, GorSystemException}
 import org.gorpipe.gor.model.{FileReader, GenomicIteratorBase, QuoteSafeRowBase, Row}
 import org.gorpipe.gor.util.DataUtil
@@ -46,13 +47,22 @@ class NorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolea
   val filter: String => Boolean = (s: String) => !s.startsWith("##")
 
 
-  private val norRowSource: stream.Stream[String] = if (!readStdin) {
+  // Large local files are parsed in parallel chunks after the first line, other files are read line by line.
+  private val parallelFirstLine: ParallelChunkReader.FirstLine = if (readStdin) null
+    else ParallelChunkReader.scanFirstLine(fileName, fileReader, (s: String) => !filter(s))
+  private var parallelRows: ParallelChunkReader[Row] = _
+
+  private val norRowSource: stream.Stream[String] = if (parallelFirstLine != null) {
+    null
+  } else if (!readStdin) {
     fileReader.iterateFile(fileName, maxWalkDepth, followLinks, showModificationDate)
   } else {
     throw new GorParsingException("Stdin not supported in NOR context.")
   }
 
-  private val norRowIterator: util.Iterator[String] = if (DataUtil.isMeta(fileName))
+  private val norRowIterator: util.Iterator[String] = if (norRowSource == null)
+    null
+  else if (DataUtil.isMeta(fileName))
     norRowSource.iterator()
   else
     norRowSource.filter(filter(_)).iterator()
@@ -62,6 +72,12 @@ class NorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolea
       getHeader
     }
     if (!mustReCheck) return myHasNext
+    if (parallelFirstLine != null) {
+      if (parallelRows == null) {
+        parallelRows = new ParallelChunkReader[Row](fileName, fileReader, parallelFirstLine.end, parallelFirstLine.length, (line: String) => parseLine(line))
+      }
+      return parallelRows.hasNext
+    }
     if (readStdin) {
       myNext = StdIn.readLine()
     } else {
@@ -83,19 +99,40 @@ class NorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolea
   def nextLine(): String = {
     if (hasNext) {
       mustReCheck = true
-      if (useCSV) {
-        val nextSplit = CommandParseUtilities.quoteSafeSplit(myNext, ',')
-        nextSplit.mkString("\t")
-      } else {
-        myNext
-      }
+      formatLine(myNext)
     } else {
       throw new GorSystemException("NorInputSource.hasNext: getRow call on false hasNext!", null)
     }
   }
 
+  private def formatLine(line: String): String = {
+    if (useCSV) {
+      val nextSplit = CommandParseUtilities.quoteSafeSplit(line, ',')
+      nextSplit.mkString("\t")
+    } else {
+      line
+    }
+  }
+
+  /**
+   * Parse a line read by the parallel reader, applying the same rules as the sequential path.  Called concurrently.
+   */
+  private def parseLine(line: String): Row = {
+    if (!filter(line) || (ignoreEmptyLines && line.isEmpty)) null
+    else createRow(formatLine(line))
+  }
+
+  protected def createRow(line: String): Row = {
+    new QuoteSafeRowBase("chrN\t0\t" + line, myHeaderLength)
+  }
+
   override def next(): Row = {
-    new QuoteSafeRowBase("chrN\t0\t" + nextLine(), myHeaderLength)
+    if (parallelFirstLine != null && mustReCheck) {
+      if (!hasNext) throw new GorSystemException("NorInputSource.hasNext: getRow call on false hasNext!", null)
+      parallelRows.next()
+    } else {
+      createRow(nextLine())
+    }
   }
 
   override def seek(seekChr: String, seekPos: Int): Boolean = {
@@ -106,6 +143,7 @@ class NorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolea
   // def close = { allNORrows = Nil }
   def close(): Unit = {
     if (norRowSource != null) norRowSource.close()
+    if (parallelRows != null) parallelRows.close()
   }
 
   private def createNewHeader(): String = {
@@ -125,7 +163,9 @@ class NorInputSource(fileName: String, fileReader: FileReader, readStdin: Boolea
 
   override def getHeader: String = {
     if (haveReadHeader) return myHeader
-    myHeader = if (readStdin) StdIn.readLine() else if (norRowIterator.hasNext) norRowIterator.next() else null
+    myHeader = if (readStdin) StdIn.readLine()
+      else if (parallelFirstLine != null) parallelFirstLine.line
+      else if (norRowIterator.hasNext) norRowIterator.next() else null
     if (myHeader == null) {
       myHasNext = false
       mustReCheck = false
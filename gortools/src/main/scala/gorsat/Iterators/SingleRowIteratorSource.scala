@@ -78,4 +78,6 @@ class SingleRowIteratorSource(theIterator: GenomicIterator) extends GenomicItera
   override def pushdownFilter(gorwhere: String): Boolean = theIterator.pushdownFilter(gorwhere)
 
   override def pushdownTop(limit: Int): Boolean = theIterator.pushdownTop(limit)
+
+  override def pushdownSelect(colList: Array[String]): Boolean = theIterator.pushdownSelect(colList)
 }
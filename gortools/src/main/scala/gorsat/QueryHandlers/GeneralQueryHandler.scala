@@ -22,7 +22,7 @@
 
 package gorsat.QueryHandlers
 
-import gorsat.Analysis.CheckOrder
+import gorsat.Analysis.{CheckOrder, ColumnarNorCapture}
 
 import java.lang
 import java.nio.file.{Files, Path, Paths}
@@ -166,7 +166,7 @@ class GeneralQueryHandler(context: GorContext, header: Boolean) extends GorParal
 
 
   def parallelExecution(commands: Array[() => Unit]): Unit = {
-    val pe = new ParallelExecutor(context.getSession.getSystemContext.getWorkers, commands)
+    val pe = new ParallelExecutor(context.getSession.getSystemContext.getWorkers, commands, context.getSession.getCancellationToken)
     try
       pe.parallelExecute()
     catch {
@@ -242,13 +242,14 @@ object GeneralQueryHandler {
     } else null
     try {
       val nor = theSource.isNor
+      val capture = ColumnarNorCapture.create(outfile, theHeader, nor)
       var newName: String = null
       // TODO: Get a gor config instance somehow into gorpipeSession or gorContext?
       if (useMd5) {
         val runner = context.getSession.getSystemContext.getRunnerFactory.create()
         val ps: Processor = if(outfile!=null) {
           val out = OutFile(temp_cacheFile, fileReader, theHeader, skipHeader = false, columnCompress = false, nor = nor, useMd5, md5File = true, infer = false, GorIndexType.NONE)
-          if(nor) out else CheckOrder() | out
+          if (nor) { if (capture != null) capture | out else out } else CheckOrder() | out
         } else null
         runner.run(theSource, ps)
         val md5File = s"$oldName.md5"
@@ -281,7 +282,7 @@ object GeneralQueryHandler {
         val runner = context.getSession.getSystemContext.getRunnerFactory.create()
         val ps: Processor = if(outfile!=null) {
           val out = OutFile(temp_cacheFile, fileReader, theHeader, skipHeader = false, nor = nor, md5 = useMd5, command = commandToExecute)
-          if (nor) out else CheckOrder() | out
+          if (nor) { if (capture != null) capture | out else out } else CheckOrder() | out
         } else null
         runner.run(theSource, ps)
         if(outfile!=null) {
@@ -301,6 +302,7 @@ object GeneralQueryHandler {
 
           fileReader.move(oldMetaName, DataUtil.toFile(s"$parent/$name", DataType.META))
         }
+        if (capture != null) ColumnarNorCapture.writeSidecar(fileReader, newName, capture)
         newName
       } else ""
     } catch {
@@ -0,0 +1,171 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.parser
+
+/** A set of comma separated list elements. Lookups are done with the element in place in the list value, so
+  * checking a list against the set does not split the list or create strings for ASCII elements.
+  *
+  * A case insensitive set holds the upper case form of its elements, and list elements are compared by their
+  * String.toUpperCase form. ASCII letters are upper cased while the element is hashed, other elements fall back
+  * to toUpperCase on the element.
+  *
+  * Instances keep per lookup state and are meant to be used by a single function instance.
+  *
+  * @param keys The distinct elements of the set, upper case if the set is case insensitive
+  * @param multiplicity The number of times each key occurred in the elements the set was built from
+  * @param caseInsensitive True if elements are compared by their upper case form
+  */
+class ListElementSet private(keys: Array[String], multiplicity: Array[Int], caseInsensitive: Boolean) {
+  private val index = new java.util.HashMap[String, Integer]()
+  private val table: Array[Int] = {
+    var size = 2
+    while (size < keys.length * 2) size <<= 1
+    new Array[Int](size)
+  }
+  private val mask = table.length - 1
+  private val seen = new Array[Int](keys.length)
+  private var stamp = 0
+  private val asciiUpperCase = !caseInsensitive || ListElementSet.ASCII_UPPER_CASE
+
+  keys.indices.foreach(i => {
+    index.put(keys(i), i)
+    var slot = ListElementSet.spread(keys(i).hashCode) & mask
+    while (table(slot) != 0) slot = (slot + 1) & mask
+    table(slot) = i + 1
+  })
+
+  /** Returns true if any of the elements of the list, as split(",", -1) returns them, is in the set. */
+  def containsAny(list: String): Boolean = {
+    var begin = 0
+    while (true) {
+      var end = list.indexOf(',', begin)
+      if (end < 0) end = list.length
+      if (indexOf(list, begin, end) >= 0) return true
+      if (end == list.length) return false
+      begin = end + 1
+    }
+    false
+  }
+
+  /** Returns the number of elements the set was built from, counted with duplicates, found in the list. */
+  def countFound(list: String): Int = {
+    stamp += 1
+    if (stamp == 0) {
+      java.util.Arrays.fill(seen, 0)
+      stamp = 1
+    }
+    var count = 0
+    var begin = 0
+    var done = false
+    while (!done) {
+      var end = list.indexOf(',', begin)
+      if (end < 0) end = list.length
+      val i = indexOf(list, begin, end)
+      if (i >= 0 && seen(i) != stamp) {
+        seen(i) = stamp
+        count += multiplicity(i)
+      }
+      done = end == list.length
+      begin = end + 1
+    }
+    count
+  }
+
+  /** Returns the key index of the element list[begin, end), or -1 if it is not in the set. */
+  def indexOf(list: String, begin: Int, end: Int): Int = {
+    var h = 0
+    var i = begin
+    while (i < end) {
+      var c = list.charAt(i)
+      if (caseInsensitive) {
+        if (c >= 128 || !asciiUpperCase) return fallbackIndexOf(list, begin, end)
+        if (c >= 'a' && c <= 'z') c = (c - 32).toChar
+      }
+      h = 31 * h + c
+      i += 1
+    }
+    var slot = ListElementSet.spread(h) & mask
+    while (table(slot) != 0) {
+      val k = table(slot) - 1
+      if (matches(keys(k), list, begin, end)) return k
+      slot = (slot + 1) & mask
+    }
+    -1
+  }
+
+  private def matches(key: String, list: String, begin: Int, end: Int): Boolean = {
+    if (key.length != end - begin) return false
+    var i = 0
+    while (i < key.length) {
+      var c = list.charAt(begin + i)
+      if (caseInsensitive && c >= 'a' && c <= 'z') c = (c - 32).toChar
+      if (key.charAt(i) != c) return false
+      i += 1
+    }
+    true
+  }
+
+  private def fallbackIndexOf(list: String, begin: Int, end: Int): Int = {
+    val element = list.substring(begin, end)
+    val i = index.get(if (caseInsensitive) element.toUpperCase else element)
+    if (i == null) -1 else i
+  }
+}
+
+object ListElementSet {
+  // Upper casing ASCII letters in place is only the same as toUpperCase if the default locale does not map them
+  // differently, as for example the Turkish locale does for 'i'
+  private val ASCII_UPPER_CASE = "abcdefghijklmnopqrstuvwxyz".toUpperCase == "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+
+  def apply(elements: Iterable[String], caseInsensitive: Boolean): ListElementSet = {
+    val counts = new java.util.LinkedHashMap[String, Integer]()
+    elements.foreach(e => {
+      val key = if (caseInsensitive) e.toUpperCase else e
+      counts.merge(key, 1, (a: Integer, b: Integer) => a + b)
+    })
+    val keys = new Array[String](counts.size)
+    val multiplicity = new Array[Int](counts.size)
+    var i = 0
+    counts.forEach((k, c) => {
+      keys(i) = k
+      multiplicity(i) = c
+      i += 1
+    })
+    new ListElementSet(keys, multiplicity, caseInsensitive)
+  }
+
+  def apply(elements: Array[String], caseInsensitive: Boolean): ListElementSet = apply(elements.toSeq, caseInsensitive)
+
+  /** Same as value.toUpperCase, without creating a new string if the value has no lower case ASCII letters. */
+  def upperCase(value: String): String = {
+    var i = 0
+    while (i < value.length) {
+      val c = value.charAt(i)
+      if (c >= 128 || (c >= 'a' && c <= 'z')) return value.toUpperCase
+      i += 1
+    }
+    value
+  }
+
+  private def spread(h: Int): Int = h ^ (h >>> 16)
+}
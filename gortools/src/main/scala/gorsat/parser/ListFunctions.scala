@@ -163,83 +163,81 @@ object ListFunctions {
   }
 
   def listHasCount(ex1: sFun, ex2: List[String]): iFun = {
-    cvp => {
-      val tmp = ex1(cvp).split(",", -1).map(b => b.toUpperCase)
-      ex2.map(x => x.toUpperCase).count(x => tmp.contains(x))
-    }
+    val w = ListElementSet(ex2, caseInsensitive = true)
+    cvp => w.countFound(ex1(cvp))
   }
 
   def csListHasCount(ex1: sFun, ex2: List[String]): iFun = {
-    cvp => {
-      val tmp = ex1(cvp).split(",", -1)
-      ex2.count(x => tmp.contains(x))
-    }
+    val w = ListElementSet(ex2, caseInsensitive = false)
+    cvp => w.countFound(ex1(cvp))
   }
 
   def csContainsAny(ex1: sFun, ex2: List[String]): bFun = {
+    val w = ex2.toArray
     cvp => {
-      ex2.exists(ex1(cvp).contains(_))
+      val value = ex1(cvp)
+      w.exists(value.contains(_))
     }
   }
 
   def containsAny(ex1: sFun, ex2: List[String]): bFun = {
-    val w = ex2.map(x => x.toUpperCase)
+    val w = ex2.map(x => x.toUpperCase).toArray
     cvp => {
-      w.exists(ex1(cvp).toUpperCase.contains(_))
+      val value = ListElementSet.upperCase(ex1(cvp))
+      w.exists(value.contains(_))
     }
   }
 
   def csContains(ex1: sFun, ex2: List[String]): bFun = {
+    val w = ex2.toArray
     cvp => {
-      ex2.forall(ex1(cvp).contains(_))
+      val value = ex1(cvp)
+      w.forall(value.contains(_))
     }
   }
 
   def contains(ex1: sFun, ex2: List[String]): bFun = {
-    val w = ex2.map(x => x.toUpperCase)
+    val w = ex2.map(x => x.toUpperCase).toArray
     cvp => {
-      w.forall(ex1(cvp).toUpperCase.contains(_))
+      val value = ListElementSet.upperCase(ex1(cvp))
+      w.forall(value.contains(_))
     }
   }
 
   def containsCount(ex1: sFun, ex2: List[String]): iFun = {
-    val w = ex2.map(x => x.toUpperCase)
+    val w = ex2.map(x => x.toUpperCase).toArray
     cvp => {
-      w.count(ex1(cvp).toUpperCase.contains(_))
+      val value = ListElementSet.upperCase(ex1(cvp))
+      w.count(value.contains(_))
     }
   }
 
   def csContainsCount(ex1: sFun, ex2: List[String]): iFun = {
+    val w = ex2.toArray
     cvp => {
-      ex2.count(ex1(cvp).contains(_))
+      val value = ex1(cvp)
+      w.count(value.contains(_))
     }
   }
 
   def csListHasAny(ex1: sFun, ex2: sFun): bFun = {
-    cvp => {
-      val tmp = ex2(cvp).split(",", -1)
-      ex1(cvp).split(",", -1).exists(tmp.contains(_))
-    }
+    val w = new LastListElementSet(caseInsensitive = false)
+    cvp => w(ex2(cvp)).containsAny(ex1(cvp))
   }
 
   def csListHasAnyWithStringLiterals(ex1: sFun, ex2: List[String]): bFun = {
-    cvp => {
-      ex1(cvp).split(",", -1).exists(ex2.contains(_))
-    }
+    val w = ListElementSet(ex2, caseInsensitive = false)
+    cvp => w.containsAny(ex1(cvp))
   }
 
   def listHasAny(ex1: sFun, ex2: sFun): bFun = {
-    cvp => {
-      val tmp = ex2(cvp).split(",", -1).map(x => x.toUpperCase)
-      ex1(cvp).split(",", -1).map(b => b.toUpperCase).exists(tmp.contains(_))
-    }
+    val w = new LastListElementSet(caseInsensitive = true)
+    cvp => w(ex2(cvp)).containsAny(ex1(cvp))
   }
 
   def listHasAnyWithStringLiterals(ex1: sFun, ex2: List[String]): bFun = {
-    val w = ex2.map(x => x.toUpperCase)
-    cvp => {
-      ex1(cvp).split(",", -1).map(b => b.toUpperCase).exists(w.contains(_))
-    }
+    val w = ListElementSet(ex2, caseInsensitive = true)
+    cvp => w.containsAny(ex1(cvp))
   }
 
 
@@ -830,42 +828,67 @@ object ListFunctions {
   }
 
   def listNumMax(ex: sFun): dFun = {
-    cvp => {
-      val x = ex(cvp).split(',').map(_.toDouble)
-      var m = x.head
-      x.tail.foreach(y => if (y > m) m = y)
+    val numbers = new NumberList
+    cvp => {
+      val n = numbers.parse(ex(cvp))
+      if (n == 0) throw new NoSuchElementException("head of empty array")
+      val x = numbers.values
+      var m = x(0)
+      var i = 1
+      while (i < n) {
+        if (x(i) > m) m = x(i)
+        i += 1
+      }
       m
     }
   }
 
   def listNumMin(ex: sFun): dFun = {
-    cvp => {
-      val x = ex(cvp).split(',').map(_.toDouble)
-      var m = x.head
-      x.tail.foreach(y => if (y < m) m = y)
+    val numbers = new NumberList
+    cvp => {
+      val n = numbers.parse(ex(cvp))
+      if (n == 0) throw new NoSuchElementException("head of empty array")
+      val x = numbers.values
+      var m = x(0)
+      var i = 1
+      while (i < n) {
+        if (x(i) < m) m = x(i)
+        i += 1
+      }
       m
     }
   }
 
   def listNumSum(ex: sFun): dFun = {
+    val numbers = new NumberList
     cvp => {
-      ex(cvp).split(',').map(_.toDouble).sum
+      val n = numbers.parse(ex(cvp))
+      numbers.sum(n)
     }
   }
 
   def listNumStd(ex: sFun): dFun = {
+    val numbers = new NumberList
     cvp => {
-      val x = ex(cvp).split(',').map(_.toDouble)
-      val m = x.sum / x.length
-      val sq = x.map(y => (y - m) * (y - m)).sum
-      if (x.length < 1) Double.NaN else if (x.length == 1) 0.0 else math.sqrt(sq / (x.length - 1))
+      val n = numbers.parse(ex(cvp))
+      val x = numbers.values
+      val m = numbers.sum(n) / n
+      var sq = 0.0
+      var i = 0
+      while (i < n) {
+        val d = (x(i) - m) * (x(i) - m)
+        sq = if (i == 0) d else sq + d
+        i += 1
+      }
+      if (n < 1) Double.NaN else if (n == 1) 0.0 else math.sqrt(sq / (n - 1))
     }
   }
 
   def listNumAvg(ex: sFun): dFun = {
+    val numbers = new NumberList
     cvp => {
-      val x = ex(cvp).split(',').map(_.toDouble)
-      if (x.length == 0) Double.NaN else x.sum / x.length
+      val n = numbers.parse(ex(cvp))
+      if (n == 0) Double.NaN else numbers.sum(n) / n
     }
   }
 
@@ -933,4 +956,57 @@ object ListFunctions {
     }
   }
 
+  /**
+    * Values of a comma separated list of numbers, parsed in place. The elements are the ones split(',') returns,
+    * i.e. trailing empty elements are dropped.
+    */
+  private class NumberList {
+    var values = new Array[Double](16)
+
+    def parse(list: String): Int = {
+      // "".split(',') is a single empty element, which is not a number
+      if (list.isEmpty) values(0) = java.lang.Double.parseDouble(list)
+      var end = list.length
+      while (end > 0 && list.charAt(end - 1) == ',') end -= 1
+      var n = 0
+      var begin = 0
+      while (begin < end) {
+        var i = list.indexOf(',', begin)
+        if (i < 0 || i > end) i = end
+        if (n == values.length) values = java.util.Arrays.copyOf(values, n * 2)
+        values(n) = java.lang.Double.parseDouble(list.substring(begin, i))
+        n += 1
+        begin = i + 1
+      }
+      n
+    }
+
+    // Summed left to right from the first value, like sum on a non empty array
+    def sum(n: Int): Double = {
+      if (n == 0) return 0.0
+      var s = values(0)
+      var i = 1
+      while (i < n) {
+        s += values(i)
+        i += 1
+      }
+      s
+    }
+  }
+
+  /**
+    * Element set built from the last list value seen, so a list that stays the same between rows is only split once.
+    */
+  private class LastListElementSet(caseInsensitive: Boolean) {
+    private var lastList: String = _
+    private var set: ListElementSet = _
+
+    def apply(list: String): ListElementSet = {
+      if (set == null || !((list eq lastList) || list == lastList)) {
+        set = ListElementSet(list.split(",", -1), caseInsensitive)
+        lastList = list
+      }
+      set
+    }
+  }
 }
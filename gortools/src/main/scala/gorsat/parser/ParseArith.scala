@@ -23,6 +23,7 @@
 package gorsat.parser
 
 import java.util
+import java.util.regex.Pattern
 
 import gorsat.Analysis.DagMapAnalysis
 import gorsat.Commands.RowHeader
@@ -604,22 +605,23 @@ class ParseArith(rs: GenomicIterator = null) extends JavaTokenParsers with Seria
     stringComparison |
     (sexpr ~ "LIKE".ignoreCase ~ myStringLiteral) ^^ {
       case l ~ _ ~ r =>
-        val patt = r.replace("*", ".*").replace("?", ".")
+        val patt = Pattern.compile(r.replace("*", ".*").replace("?", "."))
         (line: ColumnValueProvider) => {
-          l(line).matches(patt)
+          patt.matcher(l(line)).matches()
         }
     } |
     (sexpr ~ "RLIKE".ignoreCase ~ myStringLiteral) ^^ {
       case l ~ _ ~ r =>
+        val patt = Pattern.compile(r)
         (line: ColumnValueProvider) => {
-          l(line).matches(r)
+          patt.matcher(l(line)).matches()
         }
     } |
     (sexpr ~ "~" ~ myStringLiteral) ^^ {
       case l ~ _ ~ r =>
-        val patt = r.toUpperCase().replace("*", ".*").replace("?", ".")
+        val patt = Pattern.compile(r.toUpperCase().replace("*", ".*").replace("?", "."))
         (line: ColumnValueProvider) => {
-          l(line).toUpperCase().matches(patt)
+          patt.matcher(l(line).toUpperCase()).matches()
         }
     } |
     (sexpr ~ "IN".ignoreCase ~ ("(" ~> stringLiteralList <~ ")")) ^^ {
@@ -1011,7 +1013,7 @@ class ParseArith(rs: GenomicIterator = null) extends JavaTokenParsers with Seria
     }
 
   def svalue: Parser[sFun] =
-    myStringLiteral ^^ (x => (_: ColumnValueProvider) => x) |
+    myStringLiteral ^^ (x => ConstantStringFun(x)) |
     StringVariableName ^^ (x => {StringVariableHandler(x)})
 
   def name: Parser[String] {
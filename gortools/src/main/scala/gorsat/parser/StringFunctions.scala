@@ -22,9 +22,12 @@
 
 package gorsat.parser
 
+import java.util.regex.Pattern
+
 import gorsat.parser.FunctionSignature._
 import gorsat.parser.FunctionTypes.{bFun, iFun, sFun}
 import gorsat.parser.ParseUtilities.string2wordString
+import org.gorpipe.gor.model.ColumnValueProvider
 
 object StringFunctions {
   def register(functions: FunctionRegistry): Unit = {
@@ -64,15 +67,22 @@ object StringFunctions {
   }
 
   def regsel(ex1: sFun, ex2: sFun): sFun = {
-    cvp => {
-      val r = ex2(cvp).r
-      var x = ""
-      try {
-        val r(m) = ex1(cvp); x = m
-      } catch {
-        case _: Exception => /* */
-      }
-      x
+    ex2 match {
+      case ConstantStringFun(regex) =>
+        val pattern = Pattern.compile(regex)
+        cvp => regselGroup(pattern, ex1, cvp)
+      case _ =>
+        val patterns = new PatternCache
+        cvp => regselGroup(patterns.get(ex2(cvp)), ex1, cvp)
+    }
+  }
+
+  private def regselGroup(pattern: Pattern, ex1: sFun, cvp: ColumnValueProvider): String = {
+    try {
+      val m = pattern.matcher(ex1(cvp))
+      if (m.matches() && m.groupCount == 1) m.group(1) else ""
+    } catch {
+      case _: Exception => ""
     }
   }
 
@@ -31,6 +31,10 @@ import org.gorpipe.gor.RequestStats
 import org.gorpipe.gor.driver.meta.DataType
 import org.gorpipe.gor.util.DataUtil
 import org.gorpipe.gor.model.{RowRotatingColorize, RowTypeColorize}
+import org.apache.commons.io.FileUtils
+
+import java.io.File
+import java.nio.charset.Charset
 
 /**
   * Execution engine for GOR running as command line. This class takes as input the command line options, construct a
@@ -81,6 +85,12 @@ class CLIGorExecutionEngine(pipeOptions: PipeOptions, whitelistedCmdFiles:String
       val rs = session.getEventLogger.asInstanceOf[RequestStats]
       rs.saveToJson()
     }
+    if (pipeOptions.profile && session.getGorContext.getProfile != null) {
+      val profile = session.getGorContext.getProfile
+      val fileName = "gor-profile-" + session.getRequestId
+      FileUtils.writeStringToFile(new File(fileName + ".json"), profile.toJson, Charset.defaultCharset())
+      FileUtils.writeStringToFile(new File(fileName + ".folded"), profile.toFolded, Charset.defaultCharset())
+    }
   }
 
   private def createStdOut(isNor: Boolean, color: String, iterator: PipeInstance): OutStream = {
@@ -28,6 +28,7 @@ import org.gorpipe.gor._
 import org.gorpipe.gor.clients.LocalFileCacheClient
 import org.gorpipe.gor.model._
 import org.gorpipe.gor.session.{EventLogger, GorSession, ProjectContext, SystemContext}
+import org.gorpipe.gor.stats.QueryProfile
 import org.gorpipe.gor.table.util.PathUtils
 
 /**
@@ -89,6 +90,10 @@ class CLISessionFactory(pipeOptions: PipeOptions, securityContext: String = null
 
     session.init(projectContext, systemContext, cache, eventLogger)
 
+    if (pipeOptions.profile && session.getGorContext.getProfile == null) {
+      session.getGorContext.setProfile(QueryProfile.root(session.getGorContext.getName, pipeOptions.query))
+    }
+
     session
   }
 
@@ -31,7 +31,7 @@ import gorsat.Commands.CommandParseUtilities.{hasOption, rangeOfOption, stringVa
 import gorsat.Commands.{Analysis, _}
 import gorsat.DynIterator.DynamicRowSource
 import gorsat.Iterators.StdInputSourceIterator
-import gorsat.Monitors.{CancelMonitor, MemoryMonitor, TimeoutMonitor}
+import gorsat.Monitors.{CancelMonitor, MemoryMonitor, ProfileMonitor, TimeoutMonitor}
 import gorsat.Script.{ScriptEngineFactory, ScriptExecutionEngine, ScriptParsers}
 import gorsat.Utilities.IteratorUtilities.validHeader
 import gorsat._
@@ -39,9 +39,10 @@ import gorsatGorIterator.{MemoryMonitorUtil, gorsatGorIterator}
 import process.GorJavaUtilities.CmdParams
 import process.GorPipe.brsConfig
 import org.gorpipe.exceptions.{GorParsingException, GorResourceException, GorSystemException, GorUserException}
-import org.gorpipe.gor.model.{DriverBackedFileReader, FileReader, GenomicIterator}
-import org.gorpipe.gor.monitor.GorMonitor
+import org.gorpipe.gor.model.{DriverBackedFileReader, FileReader, GenomicIterator, ProfiledIterator}
+import org.gorpipe.gor.monitor.{CancellationToken, GorMonitor}
 import org.gorpipe.gor.session.{GorContext, GorSession, ProjectContext}
+import org.gorpipe.gor.stats.QueryProfile
 import org.gorpipe.gor.util.{CommandSubstitutions, StringUtil}
 import org.slf4j.LoggerFactory
 
@@ -53,6 +54,9 @@ object PipeInstance {
 
   val DEFAULT_REQUEST_ID: String = ""
 
+  // Query timeout, also enforced by the TimeoutMonitor step. 0 means no timeout
+  private def timeoutMillis: Long = math.max(System.getProperty("gor.querylimits.timeout.seconds", "0").toInt, 0).toLong * 1000
+
   // Set the dyniterator iterator create function
   DynIterator.createGorIterator = (context: GorContext) => createGorIterator(context)
 
@@ -132,6 +136,7 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
   private val session = context.getSession
   private var combinedHeader : String = _
   private var isClosed: Boolean = false
+  private var profile: QueryProfile = _
 
   var thePipeStep : Analysis = _
   var theInputSource: GenomicIterator = _
@@ -200,6 +205,7 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
       theIterator = null
       if (thePipeStep != null) thePipeStep.reportWantsNoMore()
     }
+    if (profile != null) profile.end()
     if (context != null && context.getSession != null) context.getSession.close()
     isClosed = true
   }
@@ -255,6 +261,10 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
 
     DynIterator.createGorIterator = (ctx: GorContext) => PipeInstance.createGorIterator(ctx)
 
+    // Started before the create statements run so they share the deadline, the session ends it when closed
+    val cancellationToken = context.getSession.getCancellationToken
+    cancellationToken.startTimeout(PipeInstance.timeoutMillis)
+
     isNorContext = context.getSession.getNorContext
     thePipeStep = PlaceHolder()
 
@@ -286,8 +296,16 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
       gorString = fixGorString(gorString)
     }
 
-    val inputSourceCommand: String = prepareInputSource(argString, gorString, useStdin)
-    val inputHeader: String = preparePipeStep(argString, gorString, forcedInputHeader, inputSourceCommand)
+    profile = QueryProfile.query(context.getProfile, argString)
+    val outerProfile = if (profile != null) QueryProfile.activate(profile) else null
+    val outerToken = CancellationToken.attach(cancellationToken)
+    val (inputSourceCommand, inputHeader) = try {
+      val inputSourceCommand: String = prepareInputSource(argString, gorString, useStdin)
+      (inputSourceCommand, preparePipeStep(argString, gorString, forcedInputHeader, inputSourceCommand))
+    } finally {
+      CancellationToken.restore(outerToken)
+      if (profile != null) QueryProfile.restore(outerProfile)
+    }
 
     if (inputHeader == null || inputHeader.isEmpty) {
       throw new GorResourceException("Input source contains no header", theInputSource.getSourceName)
@@ -297,7 +315,13 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
     val rowHeader = if (types!=null) RowHeader(inputHeader, types) else RowHeader(inputHeader)
     thePipeStep.setRowHeader(rowHeader)
 
-    theIterator = new BatchedPipeStepIteratorAdaptor(theInputSource, thePipeStep, combinedHeader, brsConfig)
+    if (profile != null) {
+      theInputSource = new ProfiledIterator(theInputSource, profile.source(inputSourceCommand))
+    }
+
+    val batchedIterator = new BatchedPipeStepIteratorAdaptor(theInputSource, thePipeStep, combinedHeader, brsConfig)
+    batchedIterator.setCancellationToken(cancellationToken)
+    theIterator = batchedIterator
 
     theInputSource
   }
@@ -307,6 +331,7 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
     var inputHeader = ""
     try {
       var pushdown: Boolean = true
+      var pushedDownSteps = 0
       for (i <- firstCommand until pipeSteps.length) {
         // This is an embarrassing for-loop
         var aPipeStep: Analysis = null
@@ -326,10 +351,14 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
             pushdown = pushdownWrite(fullCommand.substring(6).trim)
           } else if (command.equals("CMD")) {
             pushdown = pushdownCmd(fullCommand.substring(4).trim)
+          } else if (command.equals("SELECT") || command.equals("HIDE")) {
+            pushdown = theInputSource.pushdownGor(fullCommand) || pushdownSelect(command, fullCommand)
           } else {
             pushdown = theInputSource.pushdownGor(fullCommand)
           }
 
+          if (pushdown) pushedDownSteps += 1
+
           // Fetch inputSource header only after all pushable predicates have been pushed down
           if (!pushdown) inputHeader = checkHeader(forcedInputHeader, inputSourceCommand, firstCommand, gorString)
         }
@@ -342,16 +371,22 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
             context.getSession.getSystemContext.getCommandWhitelist.asInstanceOf[util.Map[String, CmdParams]]
           }
 
+          // Only the first remaining step reads the rows of the input source unchanged
+          val signature: () => String = if (i == firstCommand + pushedDownSteps) () => inputSignature(i) else () => null
           val (pstep, fc, isrc) = parseCommand(command, argString, i, pipeSteps, firstCommand, theInputSource,
-            isNorContext, cacheDir, whiteListCmdSet)
+            isNorContext, cacheDir, whiteListCmdSet, signature)
           aPipeStep = pstep
           firstCommand = fc
           theInputSource = isrc
 
           if (aPipeStep != null) {
-            if (!nowithin && range.chromosome != "" && range.stop >= 0 && i == firstCommand) {
+            // Steps pushed down to the input source are skipped, so the range is applied to the first remaining step
+            if (!nowithin && range.chromosome != "" && range.stop >= 0 && i == firstCommand + pushedDownSteps) {
               aPipeStep = WithIn(range.chromosome, range.start, range.stop) | aPipeStep
             }
+            if (profile != null) {
+              aPipeStep = ProfileMonitor(profile.step(command)) | aPipeStep
+            }
             if (i == firstCommand) {
               thePipeStep = aPipeStep
             } else {
@@ -367,7 +402,7 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
 
       if (pushdown) inputHeader = checkHeader(forcedInputHeader, inputSourceCommand, firstCommand, gorString)
 
-      if (!nowithin && range.chromosome != "" && range.stop >= 0 && pipeSteps.length == firstCommand) {
+      if (!nowithin && range.chromosome != "" && range.stop >= 0 && pipeSteps.length == firstCommand + pushedDownSteps) {
         thePipeStep = WithIn(range.chromosome, range.start, range.stop) | thePipeStep
       }
 
@@ -387,6 +422,11 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
     // Add timeout monitor
     thePipeStep = thePipeStep | TimeoutMonitor()
 
+    // Add profile monitor for the output
+    if (profile != null) {
+      thePipeStep = thePipeStep | ProfileMonitor(profile.step("OUTPUT"))
+    }
+
     // Add cancel monitor
     if (context.getSession.getSystemContext.getMonitor != null) {
       thePipeStep = CancelMonitor(context.getSession.getSystemContext.getMonitor) | thePipeStep | CancelMonitor(context.getSession.getSystemContext.getMonitor)
@@ -395,6 +435,26 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
     inputHeader
   }
 
+  /**
+    * Signature of the rows reaching pipe step i unchanged from the input source: the query up to the step, the range
+    * and the identity of the files read. Returns null if the rows can not be identified from these, e.g. when the
+    * source uses nested queries, virtual relations, tag files or random values, or no files are read.
+    */
+  private def inputSignature(step: Int): String = {
+    val source = pipeSteps.slice(0, step).mkString(" | ")
+    if (usedFiles.isEmpty || source.contains("<(") || source.contains("[") || source.contains("-ff ") ||
+      source.toLowerCase.contains("random")) {
+      null
+    } else {
+      try {
+        val fileReader = context.getSession.getProjectContext.getFileReader
+        (source :: range.toString :: usedFiles.distinct.sorted.map(f => fileReader.getFileSignature(f))).mkString("#")
+      } catch {
+        case _: Exception => null
+      }
+    }
+  }
+
   def prepareInputSource(argString: String, gorString: String, useStdin: Boolean): String = {
 
     val inputSourceCommand = commandFromPipeStep(gorString)
@@ -520,6 +580,38 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
     theInputSource.pushdownCmd(filename)
   }
 
+  /**
+    * Pushes a plain column selection down to the input source, so sources that support projection
+    * can avoid reading or decoding the unused columns. Only selections that keep the first two columns
+    * and the column order of the source are pushed down, anything else is left to the SELECT/HIDE step.
+    */
+  def pushdownSelect(command: String, fullCommand: String): Boolean = {
+    val arguments = CommandParseUtilities.quoteSafeSplitAndTrim(fullCommand, ' ').drop(1)
+    if (arguments.exists(a => a.startsWith("-") && a != "-t")) return false
+    val header = theInputSource.getHeader
+    if (header == null || header.isEmpty) return false
+
+    try {
+      val (iargs, _) = CommandParseUtilities.validateInputArguments(arguments, "-t", "", 1, -1, ignoreIllegalArguments = true)
+      if (iargs.isEmpty) return false
+      val ignoreNonExisting = arguments.contains("-t")
+      val columnNames = header.split("\t", -1)
+      val fixedCols = if (isNorContext) List(0, 1) else Nil
+      val listedCols = fixedCols ::: CommandParseUtilities.columnsFromHeader(iargs.mkString(","), header, isNorContext, ignoreNonExisting)
+      val useCols = if (command.equals("HIDE")) {
+        val hidden = listedCols.toSet
+        List(0, 1) ::: Range(2, columnNames.length).toList.filterNot(hidden.contains)
+      } else {
+        listedCols
+      }
+      val inOrder = useCols.length >= 2 && useCols.head == 0 && useCols(1) == 1 &&
+        useCols.zip(useCols.tail).forall(p => p._1 < p._2) && useCols.last < columnNames.length
+      inOrder && theInputSource.pushdownSelect(useCols.map(c => columnNames(c)).toArray)
+    } catch {
+      case _: GorParsingException => false
+    }
+  }
+
   def fixGorString(gorString: String): String = {
     val command = commandFromPipeStep(gorString)
 
@@ -673,7 +765,8 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
 
   def parseCommand(command: String, argString: String, i: Int, pipeSteps: Array[String], firstCmd: Int,
                    inputSource: GenomicIterator, executeNor: Boolean, cacheDir: String,
-                   whiteListCmdSet: java.util.Map[String, CmdParams]): (Analysis, Int, GenomicIterator) = {
+                   whiteListCmdSet: java.util.Map[String, CmdParams],
+                   inputSignature: () => String = () => null): (Analysis, Int, GenomicIterator) = {
 
     // Handle if there is an empty command
     if (command.trim.isEmpty) {
@@ -707,7 +800,7 @@ class PipeInstance(context: GorContext, outputValidateOrder: Boolean = false) ex
         if (!commandInfo.isPlaceholder) {
 
           //If the parsing needs access to the current
-          val commandRuntime = CommandRuntime(thePipeStep, cacheDir, inputSource)
+          val commandRuntime = CommandRuntime(thePipeStep, cacheDir, inputSource, inputSignature)
 
           val args = expandGetValue(commandArgs)
           val result = commandInfo.init(context, executeNor, combinedHeader, argString, args, commandRuntime)
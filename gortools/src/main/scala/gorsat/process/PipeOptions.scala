@@ -90,6 +90,7 @@ object PipeOptions {
     "-gorroot",
     "-requestid",
     "-stats",
+    "-profile",
     "-color")
 }
 
@@ -134,6 +135,8 @@ class PipeOptions {
   var requestId:String = _
   // Enable request stats?
   var stats: Boolean = false
+  // Enable query profiling?
+  var profile: Boolean = false
   // Colored output for stdout
   var color: String = _
 
@@ -152,6 +155,7 @@ class PipeOptions {
     this.showStackTrace = CommandParseUtilities.hasOption(args, "-stacktrace")
     this.version = CommandParseUtilities.hasOption(args, "-version")
     this.stats = CommandParseUtilities.hasOption(args, "-stats")
+    this.profile = CommandParseUtilities.hasOption(args, "-profile")
     this.color = CommandParseUtilities.stringValueOfOptionWithDefault(args, "-color", "none")
 
     // Following options should not be part of the documentation
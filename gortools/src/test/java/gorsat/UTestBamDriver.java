@@ -60,6 +60,12 @@ public class UTestBamDriver {
         TestUtils.assertTwoGorpipeResults("gor -p chr1 ../tests/data/external/samtools/index_test.bam | top 1 | validatecolumns 0", "gor ../tests/data/external/samtools/index_test.bam | top 1");
     }
 
+    @Test
+    public void testBamColumnsDecodedOnAccess() {
+        TestUtils.assertTwoGorpipeResults("gor ../tests/data/external/samtools/serialization_test.bam | where flag >= 0 and len(qual) >= 0 | calc x seq | hide x",
+                "gor ../tests/data/external/samtools/serialization_test.bam");
+    }
+
     @Test
     public void testBamWithMinusPOnDictionary3() throws IOException {
         TestUtils.assertTwoGorpipeResults("gor -p chr1 ../tests/data/external/samtools/serialization_test.bam | top 1 | validatecolumns 0", "gor ../tests/data/external/samtools/serialization_test.bam  | top 1");
@@ -0,0 +1,131 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat;
+
+import gorsat.process.GorPipe;
+import org.gorpipe.exceptions.custom.GorTimeoutException;
+import org.gorpipe.gor.model.GenomicIteratorBase;
+import org.gorpipe.gor.model.Row;
+import org.gorpipe.gor.monitor.CancellationToken;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class UTestCancellation {
+
+    /**
+     * Source that blocks waiting for data until it is closed or interrupted.
+     */
+    static class StalledSource extends GenomicIteratorBase {
+        final CountDownLatch released = new CountDownLatch(1);
+        volatile boolean interrupted = false;
+
+        StalledSource() {
+            setHeader("chrom\tpos");
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        public Row next() {
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public boolean seek(String chr, int pos) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            released.countDown();
+        }
+    }
+
+    @Test
+    public void cancelStalledSource() {
+        StalledSource source = new StalledSource();
+        CancellationToken token = new CancellationToken();
+        BatchedPipeStepIteratorAdaptor iterator = new BatchedPipeStepIteratorAdaptor(source, null, "chrom\tpos", GorPipe.brsConfig());
+        iterator.setCancellationToken(token);
+
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            token.cancel();
+        });
+        canceller.start();
+
+        long start = System.currentTimeMillis();
+        assertFalse(iterator.hasNext());
+        iterator.close();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("Cancel took " + elapsed + "ms", elapsed < 10000);
+        assertTrue(source.interrupted);
+    }
+
+    @Test
+    public void timeoutStalledSource() {
+        StalledSource source = new StalledSource();
+        CancellationToken token = new CancellationToken();
+        BatchedPipeStepIteratorAdaptor iterator = new BatchedPipeStepIteratorAdaptor(source, null, "chrom\tpos", GorPipe.brsConfig());
+        iterator.setCancellationToken(token);
+        token.startTimeout(200);
+
+        assertThrows(GorTimeoutException.class, iterator::hasNext);
+        iterator.close();
+        assertTrue(source.interrupted);
+    }
+
+    @Test
+    public void cancelledSessionEndsQuery() {
+        try (var pipe = TestUtils.createPipeInstance(false)) {
+            pipe.init("gorrows -p chr1:1-100000000", null);
+            assertTrue(pipe.hasNext());
+            pipe.getSession().getCancellationToken().cancel();
+
+            int count = 0;
+            while (pipe.hasNext()) {
+                pipe.next();
+                count++;
+            }
+            assertTrue(count < 99999999);
+        }
+    }
+}
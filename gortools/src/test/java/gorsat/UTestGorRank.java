@@ -195,6 +195,21 @@ public class UTestGorRank {
         }
     }
 
+    @Test
+    public void testGorRankTiesAndFormattedColumns() {
+        String query = "gorrows -p chr1:1-7 | calc v if(pos = 4, '1.0', if(pos = 5, '1.25', if(pos = 6, '1.50', '1.5'))) " +
+                "| rank 1000 v -q -z -c -b";
+        String expected = "chrom\tpos\tv\trank_v\tlowOReqRank\teqRank\tz_v\tbinCount\trank1_v\n" +
+                "chr1\t1\t1.5\t1\t0.6667\t0.6667\t0.5976\t6\t1.50\n" +
+                "chr1\t2\t1.5\t1\t0.6667\t0.6667\t0.5976\t6\t1.50\n" +
+                "chr1\t3\t1.5\t1\t0.6667\t0.6667\t0.5976\t6\t1.50\n" +
+                "chr1\t4\t1.0\t3\t1.0000\t0.1667\t-1.7928\t6\t1.50\n" +
+                "chr1\t5\t1.25\t2\t0.8333\t0.1667\t-0.5976\t6\t1.50\n" +
+                "chr1\t6\t1.50\t1\t0.6667\t0.6667\t0.5976\t6\t1.50\n";
+
+        TestUtils.assertGorpipeResults(expected, query);
+    }
+
     @Test
     public void testGorRankWithNorContextWithError() {
         String query = "nor -h ../tests/config/build37split.txt | rank 1000 POS";
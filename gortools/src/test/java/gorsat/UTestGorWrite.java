@@ -494,6 +494,39 @@ public class UTestGorWrite {
         Assert.assertTrue(Files.exists(workDirPath.resolve("data_0.gorz")));
     }
 
+    @Test
+    public void testForkWriteManyRowsPerFork() {
+        final String outputPath = workDirPath.toAbsolutePath().toString();
+        TestUtils.runGorPipe(String.format("gorrows -p chr1:1-200000 | calc fork mod(pos,7) | write -f fork -r %s/data_#{fork}.gor", outputPath));
+        for (int fork = 0; fork < 7; fork++) {
+            TestUtils.assertTwoGorpipeResults("gorrows -p chr1:1-200000 | calc fork mod(pos,7) | where fork = " + fork + " | hide fork",
+                    String.format("gor %s/data_%d.gor", outputPath, fork));
+        }
+    }
+
+    @Test
+    public void testForkWriteReopensEvictedFiles() throws IOException {
+        final String outputPath = workDirPath.toAbsolutePath().toString();
+        String old = System.setProperty("gor.write.fork.maxopenfiles", "2");
+        try {
+            TestUtils.runGorPipe(String.format("gorrows -p chr1:0-20000 | calc fork mod(pos,5) | write -f fork -r %s/data_#{fork}.gor", outputPath));
+        } finally {
+            if (old == null) System.clearProperty("gor.write.fork.maxopenfiles");
+            else System.setProperty("gor.write.fork.maxopenfiles", old);
+        }
+        for (int fork = 0; fork < 5; fork++) {
+            List<String> lines = Files.readAllLines(workDirPath.resolve("data_" + fork + ".gor"));
+            // One header and every row in input order, although the file was closed and reopened several times
+            Assert.assertTrue(lines.get(0).startsWith("#"));
+            Assert.assertEquals(4001, lines.size());
+            for (int i = 1; i < lines.size(); i++) {
+                Assert.assertEquals("chr1\t" + (fork + 5 * (i - 1)), lines.get(i));
+            }
+            TestUtils.assertTwoGorpipeResults("gorrows -p chr1:0-20000 | calc fork mod(pos,5) | where fork = " + fork + " | hide fork",
+                    String.format("gor %s/data_%d.gor", outputPath, fork));
+        }
+    }
+
     @Test
     public void testForkWriteWithCreate() {
         String query = "create xxx = gorrows -p chr1:1-10 | signature -timeres 1 | rownum | replace rownum mod(rownum,2) | write -t '0' -f rownum -r data_#{fork}.gorz; gor data_0.gorz | top 1";
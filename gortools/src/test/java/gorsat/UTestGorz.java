@@ -97,6 +97,27 @@ public class UTestGorz {
         }
     }
 
+    @Test
+    public void testSelectPushdownGivesSameResult() throws IOException {
+        final Path tmpDir = Files.createTempDirectory("testSelectPushdown");
+        try {
+            final File file = new File(tmpDir.toAbsolutePath() + "/genes.gorz");
+            final File file2 = new File(tmpDir.toAbsolutePath() + "/genes_compressed.gorz");
+            TestUtils.runGorPipe("gor ../tests/data/gor/genes.gor | write " + file.getAbsolutePath());
+            TestUtils.runGorPipe("gor ../tests/data/gor/genes.gor | write -c " + file2.getAbsolutePath());
+
+            final String[] queries = {"select 1,2,gene_symbol", "select 1-3", "hide gene_end", "select 1,2 | where gene_start > 1000000",
+                    "select 1,2,4 | calc x gene_symbol", "select gene_symbol,1,2"};
+            for (String query : queries) {
+                final String expected = TestUtils.runGorPipe("gor -p chr1 ../tests/data/gor/genes.gor | " + query);
+                Assert.assertEquals(query, expected, TestUtils.runGorPipe("gor -p chr1 " + file.getAbsolutePath() + " | " + query));
+                Assert.assertEquals(query, expected, TestUtils.runGorPipe("gor -p chr1 " + file2.getAbsolutePath() + " | " + query));
+            }
+        } finally {
+            FileUtils.deleteDirectory(tmpDir.toFile());
+        }
+    }
+
     private void assertCompressedFileSmaller(File sourceFile, File compressedFile) {
         Assert.assertTrue("Compressed file:" + compressedFile + " size:" + compressedFile.length() +
                         " should be smaller than source file:" + sourceFile + " size: " + sourceFile.length() +
@@ -412,4 +412,31 @@ public class UTestNor {
 
         return tempFile.getAbsolutePath();
     }
+
+    @Test
+    public void testNorParallelChunkedRead() throws IOException {
+        StringBuilder content = new StringBuilder("##meta\n#a\tb\tc\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append(i).append("\tx\"y\"").append(i % 7).append('\t').append("val").append(i % 13);
+            content.append(i % 11 == 0 ? "\r\n" : "\n");
+            if (i % 97 == 0) content.append('\n');
+            if (i % 101 == 0) content.append("##skip\n");
+        }
+        File tsv = FileTestUtils.createTempFile(projectDir.getRoot(), "parallel.tsv", content.toString());
+        File csv = FileTestUtils.createTempFile(projectDir.getRoot(), "parallel.csv", content.toString().replace('\t', ','));
+
+        for (String query : new String[]{"nor " + tsv.getCanonicalPath(), "nor -i " + tsv.getCanonicalPath(), "nor " + csv.getCanonicalPath()}) {
+            String sequential = TestUtils.runGorPipe(query);
+            try {
+                System.setProperty("gor.nor.parallel.minsize", "0");
+                System.setProperty("gor.nor.parallel.chunksize", "1000");
+                System.setProperty("gor.nor.parallel.threads", "4");
+                Assert.assertEquals(query, sequential, TestUtils.runGorPipe(query));
+            } finally {
+                System.clearProperty("gor.nor.parallel.minsize");
+                System.clearProperty("gor.nor.parallel.chunksize");
+                System.clearProperty("gor.nor.parallel.threads");
+            }
+        }
+    }
 }
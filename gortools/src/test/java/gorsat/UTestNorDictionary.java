@@ -43,6 +43,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
 /**
@@ -215,6 +216,42 @@ public class UTestNorDictionary {
         Assert.assertEquals(numDictFiles * numDictFileLines, count);
     }
 
+    @Test
+    public void testNordDictionaryParallelOrdered() throws IOException {
+        int numDictFiles = 50;
+        int numDictFileLines = 1000;
+        String path = createTestFiles(numDictFiles, numDictFileLines, true);
+
+        String sequential = TestUtils.runGorPipe(String.format("nor %1$s/test.nord", path));
+        String parallel = TestUtils.runGorPipe(String.format("nor -workers 4 %1$s/test.nord", path));
+
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testNordDictionaryParallelUnordered() throws IOException {
+        int numDictFiles = 50;
+        int numDictFileLines = 1000;
+        String path = createTestFiles(numDictFiles, numDictFileLines, true);
+
+        String[] sequential = TestUtils.runGorPipeLines(String.format("nor %1$s/test.nord", path));
+        String[] parallel = TestUtils.runGorPipeLines(String.format("nor -workers 4 -unordered %1$s/test.nord", path));
+        Arrays.sort(sequential);
+        Arrays.sort(parallel);
+
+        Assert.assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testNordDictionaryParallelHeaderMismatch() throws IOException {
+        FileTestUtils.createTempFile(workDir.getRoot(), "a.tsv", "#pheno\tn_cases\nCAT\t500");
+        FileTestUtils.createTempFile(workDir.getRoot(), "b.tsv", "#pheno\tn_cases\nCAT\t300");
+        FileTestUtils.createTempFile(workDir.getRoot(), "c.tsv", "#phento\tsex\nCAT\tfemale");
+        File fileX = FileTestUtils.createTempFile(workDir.getRoot(), "x.nord", "a.tsv\tAA\nb.tsv\tBB\nc.tsv\tCC");
+
+        Assert.assertThrows(GorDataException.class, () -> TestUtils.runGorPipe("nor -workers 2 " + fileX.getAbsolutePath()));
+    }
+
     @Test
     public void testNordDictionaryWithFirstFileEmptyNoHeader() throws IOException {
         int numDictFiles = 10;
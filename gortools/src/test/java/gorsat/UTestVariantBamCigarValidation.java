@@ -25,6 +25,11 @@ package gorsat;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 /**
  * Created by sigmar on 10/12/15.
  */
@@ -52,4 +57,39 @@ public class UTestVariantBamCigarValidation {
         String[] args = new String[]{"gor ../tests/data/external/samtools/bam.gorz | where qname = 'LH00430:208:22CMM2LT4:1:1194:15833:24435' | pileup -soc -q 0 -bq 0 -depth | where depth = 1", "-config", "../tests/config/gor_unittests_config.txt"};
         Assert.assertEquals(246, TestUtils.runGorPipeCount(args));
     }
+
+    @Test
+    public void testPileupOutputMatchesBaseline() throws IOException {
+        Path reads = Files.createTempFile("pileupreads", ".gor");
+        reads.toFile().deleteOnExit();
+        Files.write(reads, Arrays.asList(
+                "Chrom\tPos\tQName\tFlag\tMapQ\tCigar\tMRNM\tMPos\tISize\tSeq\tQual",
+                "chrQ\t10\tq1\t0\t60\t4M\t*\t0\t0\tACGT\tIIII",
+                "chrQ\t11\tq2\t0\t60\t1M1D2M\t*\t0\t0\tCAT\tIII",
+                "chrQ\t12\tq3\t0\t60\t1M1I1M\t*\t0\t0\tGTT\tIII"));
+
+        // Expected output of the pileup before the primitive per position state, chrQ has no reference so RefBase is N
+        String expected = "Chrom\tPos\tRefBase\tMajorAllele\tSecondAllele\tChi\tDepth\tAdepth\tCdepth\tGdepth\tTdepth\tDels\tIns\tGT\tpGT\tLOD\tGT2\tSNP\n" +
+                "chrQ\t10\tN\tA\tA\t0.0\t1\t1\t0\t0\t0\t0\t0\tA\t0.4000\t0.3\tM\t1\n" +
+                "chrQ\t11\tN\tC\tC\t0.0\t2\t0\t2\t0\t0\t0\t0\tC\t0.5714\t0.6\tM\t1\n" +
+                "chrQ\t12\tN\tG\tG\t0.0\t3\t0\t0\t2\t0\t1\t0\tG\t0.5714\t0.6\tR\t1\n" +
+                "chrQ\t13\tN\tT\tA\t1.4\t3\t1\t0\t0\t2\t0\t1\tW\t0.9996\t3.6\tT\t1\n" +
+                "chrQ\t14\tN\tT\tT\t0.0\t1\t0\t0\t0\t1\t0\t0\tT\t0.4000\t0.3\tW\t1\n";
+        String[] args = new String[]{"gor " + reads + " | pileup -p chrQ -gt", "-config", "../tests/config/gor_unittests_config.txt"};
+        Assert.assertEquals(expected, TestUtils.runGorPipe(args));
+
+        String expectedGrouped = "Chrom\tPos\tQName\tRefBase\tDepth\n" +
+                "chrQ\t10\tq1\tN\t1\n" +
+                "chrQ\t11\tq1\tN\t1\n" +
+                "chrQ\t11\tq2\tN\t1\n" +
+                "chrQ\t12\tq1\tN\t1\n" +
+                "chrQ\t12\tq2\tN\t1\n" +
+                "chrQ\t12\tq3\tN\t1\n" +
+                "chrQ\t13\tq1\tN\t1\n" +
+                "chrQ\t13\tq2\tN\t1\n" +
+                "chrQ\t13\tq3\tN\t1\n" +
+                "chrQ\t14\tq2\tN\t1\n";
+        args = new String[]{"gor " + reads + " | pileup -p chrQ -depth -gc QName", "-config", "../tests/config/gor_unittests_config.txt"};
+        Assert.assertEquals(expectedGrouped, TestUtils.runGorPipe(args));
+    }
 }
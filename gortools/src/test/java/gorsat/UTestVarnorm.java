@@ -23,15 +23,112 @@
 package gorsat;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Created by sigmar on 04/12/2016.
  */
 public class UTestVarnorm {
+    // chr1:33-44 is a CA repeat and chr1:11-22 an A run
+    private static final String REFERENCE = "GCTAGCTAGC" + "AAAAAAAAAAAA" + "GTCAGTCAGT" + "CACACACACACA" + "GATTACAGGTCCTTGA";
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
     @Test
     public void testVarnorm() {
         String query = "gor -p chr2 ../tests/data/gor/dbsnp_test.gorz | calc oldpos pos | calc oldref #3 | calc oldalt #4 | varnorm #3 #4 -right | calc oldpos pos | calc oldref #3 | calc oldalt #4 | varnorm #3 #4 -left | where gtshare(chrom,pos,#3,#4,oldpos,oldref,oldalt) = 0 or gtshare(chrom,oldpos,oldref,oldalt,oldposx,oldrefx,oldaltx)=0 or gtshare(chrom,pos,#3,#4,oldposx,oldrefx,oldaltx)=0 | rownum | throwif rownum = 1";
         Assert.assertEquals(0, TestUtils.runGorPipeCount(query));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testVarnormIndelMovesBackPastFlush() throws IOException {
+        // With -span 4 the rows before 34 are flushed when 39 is read, the deletion at 42 then moves back to 32
+        String input = "chr1\t14\tA\tG\ts1\n" +
+                "chr1\t18\tA\tAA\ti1\n" +
+                "chr1\t24\tT\tC\ts2\n" +
+                "chr1\t30\tA\tG\ts3\n" +
+                "chr1\t35\tC\tT\ts4\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t42\tACA\tA\td1\n" +
+                "chr1\t44\tA\tT\ts6\n" +
+                "chr1\t47\tT\tTG\ti2\n" +
+                "chr1\t52\tG\tGG\ti3\n";
+        String expected = "chr1\t10\tC\tCA\ti1\n" +
+                "chr1\t14\tA\tG\ts1\n" +
+                "chr1\t24\tT\tC\ts2\n" +
+                "chr1\t30\tA\tG\ts3\n" +
+                "chr1\t32\tTCA\tT\td1\n" +
+                "chr1\t35\tC\tT\ts4\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t44\tA\tT\ts6\n" +
+                "chr1\t47\tT\tTG\ti2\n" +
+                "chr1\t51\tA\tAG\ti3\n";
+        Assert.assertEquals(expected, runVarnorm(input, false));
+        Assert.assertEquals(toSeg(expected), runVarnorm(toSeg(input), true));
+    }
+
+    @Test
+    public void testVarnormDuplicatedVariants() throws IOException {
+        String input = "chr1\t30\tA\tG\ts3\n" +
+                "chr1\t35\tC\tT\ts4\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t42\tACA\tA\td1\n" +
+                "chr1\t42\tACA\tA\td1\n" +
+                "chr1\t42\tACA\tA\td2\n" +
+                "chr1\t44\tA\tT\ts6\n" +
+                "chr1\t47\tT\tTG\ti2\n" +
+                "chr1\t52\tG\tGG\ti3\n" +
+                "chr1\t52\tG\tGG\ti3\n";
+        String expected = "chr1\t30\tA\tG\ts3\n" +
+                "chr1\t32\tTCA\tT\td1\n" +
+                "chr1\t32\tTCA\tT\td1\n" +
+                "chr1\t32\tTCA\tT\td2\n" +
+                "chr1\t35\tC\tT\ts4\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t39\tC\tG\ts5\n" +
+                "chr1\t44\tA\tT\ts6\n" +
+                "chr1\t47\tT\tTG\ti2\n" +
+                "chr1\t51\tA\tAG\ti3\n" +
+                "chr1\t51\tA\tAG\ti3\n";
+        Assert.assertEquals(expected, runVarnorm(input, false));
+        Assert.assertEquals(toSeg(expected), runVarnorm(toSeg(input), true));
+    }
+
+    /**
+     * Add the end position column, pos + length of the reference, used by varnorm -seg.
+     */
+    private static String toSeg(String rows) {
+        StringBuilder sb = new StringBuilder();
+        for (String row : rows.split("\n")) {
+            String[] cols = row.split("\t", 3);
+            int end = Integer.parseInt(cols[1]) + cols[2].indexOf('\t');
+            sb.append(cols[0]).append('\t').append(cols[1]).append('\t').append(end).append('\t').append(cols[2]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String runVarnorm(String rows, boolean seg) throws IOException {
+        Path chromSeq = workDir.getRoot().toPath().resolve("chromSeq");
+        Files.createDirectories(chromSeq);
+        Files.writeString(chromSeq.resolve("chr1.txt"), REFERENCE);
+        Path config = workDir.getRoot().toPath().resolve("gor_config.txt");
+        Files.writeString(config, "buildPath\t" + chromSeq.toAbsolutePath() + "\n");
+
+        Path input = workDir.getRoot().toPath().resolve(seg ? "variants_seg.gor" : "variants.gor");
+        String header = seg ? "#Chrom\tPos\tEnd\tRef\tAlt\tId\n" : "#Chrom\tPos\tRef\tAlt\tId\n";
+        Files.writeString(input, header + rows);
+
+        String query = "gor " + input.toAbsolutePath() + " | varnorm -span 4 " + (seg ? "-seg #4 #5" : "#3 #4");
+        String[] args = new String[]{query, "-config", config.toAbsolutePath().toString()};
+        String result = TestUtils.runGorPipe(args);
+        return result.substring(result.indexOf('\n') + 1);
+    }
+}
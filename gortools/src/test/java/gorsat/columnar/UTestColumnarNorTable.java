@@ -0,0 +1,168 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.columnar;
+
+import gorsat.TestUtils;
+import org.gorpipe.gor.model.DriverBackedFileReader;
+import org.gorpipe.gor.model.QuoteSafeRowBase;
+import org.gorpipe.gor.model.Row;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class UTestColumnarNorTable {
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private static ColumnarNorTable.Reader roundTrip(ColumnarNorTable table, String signature) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        table.write(bos, signature);
+        return ColumnarNorTable.read(new ByteArrayInputStream(bos.toByteArray()), signature);
+    }
+
+    @Test
+    public void test_typesAndExactRows() throws IOException {
+        String[] lines = {
+                "1\tabc\t0.5\t3000000000\t007",
+                "-2\tabc\t1.0E-5\t4\t7",
+                "2147483647\tdef\t-3.25\t-9\t-0",
+        };
+        ColumnarNorTable.Builder builder = new ColumnarNorTable.Builder(new String[]{"a", "b", "c", "d", "e"}, Long.MAX_VALUE);
+        for (String line : lines) {
+            Assert.assertTrue(builder.add(line));
+        }
+        ColumnarNorTable.Reader reader = roundTrip(builder.build(), "sig");
+        Assert.assertNotNull(reader);
+        Assert.assertArrayEquals(new String[]{"S", "I", "I", "S", "D", "L", "S"}, reader.types());
+        Assert.assertEquals("ChromNOR\tPosNOR\ta\tb\tc\td\te", reader.header());
+
+        ColumnarNorSource source = new ColumnarNorSource(reader);
+        for (String line : lines) {
+            Assert.assertTrue(source.hasNext());
+            Row row = source.next();
+            Row expected = new QuoteSafeRowBase("chrN\t0\t" + line, 7);
+            Assert.assertEquals(expected.toString(), row.toString());
+            for (int i = 0; i < 7; i++) {
+                Assert.assertEquals(expected.colAsString(i).toString(), row.colAsString(i).toString());
+            }
+        }
+        Assert.assertFalse(source.hasNext());
+    }
+
+    @Test
+    public void test_mixedNumbersFallBackToString() throws IOException {
+        ColumnarNorTable.Builder builder = new ColumnarNorTable.Builder(new String[]{"x"}, Long.MAX_VALUE);
+        builder.add("1");
+        builder.add("2.5");
+        builder.add("1e5");
+        ColumnarNorTable.Reader reader = roundTrip(builder.build(), "sig");
+        Assert.assertArrayEquals(new String[]{"S", "I", "S"}, reader.types());
+        ColumnarNorSource source = new ColumnarNorSource(reader);
+        Assert.assertEquals("1", source.next().otherCols());
+        Assert.assertEquals("2.5", source.next().otherCols());
+        Assert.assertEquals("1e5", source.next().otherCols());
+    }
+
+    @Test
+    public void test_abandonedOnUnreproducibleInput() {
+        Assert.assertFalse(new ColumnarNorTable.Builder(new String[]{"a", "b"}, Long.MAX_VALUE).add("1"));
+        Assert.assertFalse(new ColumnarNorTable.Builder(new String[]{"a"}, Long.MAX_VALUE).add("\"q\""));
+        Assert.assertFalse(new ColumnarNorTable.Builder(new String[]{"a"}, Long.MAX_VALUE).add("##x"));
+        Assert.assertFalse(new ColumnarNorTable.Builder(new String[]{"a"}, Long.MAX_VALUE).add(""));
+        Assert.assertTrue(new ColumnarNorTable.Builder(new String[]{"#a"}, Long.MAX_VALUE).isAbandoned());
+
+        ColumnarNorTable.Builder small = new ColumnarNorTable.Builder(new String[]{"a"}, 1024);
+        boolean added = true;
+        for (int i = 0; i < 1000 && added; i++) {
+            added = small.add(Integer.toString(i));
+        }
+        Assert.assertFalse(added);
+        Assert.assertNull(small.build());
+    }
+
+    @Test
+    public void test_signatureMismatch() throws IOException {
+        ColumnarNorTable.Builder builder = new ColumnarNorTable.Builder(new String[]{"a"}, Long.MAX_VALUE);
+        builder.add("1");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        builder.build().write(bos, "old");
+        Assert.assertNull(ColumnarNorTable.read(new ByteArrayInputStream(bos.toByteArray()), "new"));
+    }
+
+    @Test
+    public void test_streamsRowsInBlocks() throws IOException {
+        int rows = 2 * ColumnarNorTable.BLOCK_ROWS + 17;
+        ColumnarNorTable.Builder builder = new ColumnarNorTable.Builder(new String[]{"i", "s", "d"}, Long.MAX_VALUE);
+        for (int r = 0; r < rows; r++) {
+            Assert.assertTrue(builder.add(r + "\tv" + (r % 7) + "\t" + (r + 0.5)));
+        }
+        ColumnarNorTable.Reader reader = roundTrip(builder.build(), "sig");
+        Assert.assertArrayEquals(new String[]{"S", "I", "I", "S", "D"}, reader.types());
+
+        ColumnarNorSource source = new ColumnarNorSource(reader);
+        for (int r = 0; r < rows; r++) {
+            Assert.assertTrue(source.hasNext());
+            Assert.assertEquals(r + "\tv" + (r % 7) + "\t" + (r + 0.5), source.next().otherCols());
+            Assert.assertTrue(reader.blockRows() <= ColumnarNorTable.BLOCK_ROWS);
+        }
+        Assert.assertFalse(source.hasNext());
+        source.close();
+    }
+
+    @Test
+    public void test_sidecarOnlyUsedForPlainReads() throws IOException {
+        Path file = workDir.getRoot().toPath().resolve("data.tsv");
+        Files.writeString(file, "#a\tb\n1\tx\n2\ty\n");
+
+        // A sidecar with different rows than the text file shows which of the two was read
+        ColumnarNorTable.Builder builder = new ColumnarNorTable.Builder(new String[]{"a", "b"}, Long.MAX_VALUE);
+        builder.add("3\tsidecar");
+        String signature = new DriverBackedFileReader("").getFileSignature(file.toString());
+        try (OutputStream os = Files.newOutputStream(Path.of(file + ColumnarNorTable.SIDECAR_SUFFIX))) {
+            builder.build().write(os, signature);
+        }
+
+        String text = TestUtils.runGorPipe("nor " + file);
+        Assert.assertEquals("ChromNOR\tPosNOR\ta\tb\nchrN\t0\t1\tx\nchrN\t0\t2\ty\n", text);
+
+        String old = System.setProperty("gor.nor.columnar", "true");
+        try {
+            Assert.assertEquals("ChromNOR\tPosNOR\ta\tb\nchrN\t0\t3\tsidecar\n", TestUtils.runGorPipe("nor " + file));
+            for (String option : new String[]{"-h", "-i", "-m", "-nl", "-nv", "-r", "-h -i"}) {
+                Assert.assertEquals(option, text, TestUtils.runGorPipe("nor " + option + " " + file));
+            }
+        } finally {
+            if (old == null) System.clearProperty("gor.nor.columnar");
+            else System.setProperty("gor.nor.columnar", old);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UTestGenotypeBlockCache {
+
+    private static final String[] ROWS = {"0,1,2", "1,1,0", "2,,3", "0,0,0"};
+    private static final int[] POSITIONS = {10, 20, 110, 120};
+
+    @Test
+    public void test_decode() {
+        Assert.assertArrayEquals(new byte[]{'0', '1', 0, '3'}, decode("0,1,,3", ',', -1));
+        Assert.assertArrayEquals(new byte[]{'1', '2'}, decode("0/1;1/2", ';', -1));
+        Assert.assertArrayEquals(new byte[]{'0', '1', '2'}, decode("012", ',', 1));
+        Assert.assertArrayEquals(new byte[]{'1', '3'}, decode("x1y3", ',', 2));
+        Assert.assertNull(decode("0,\u00e9", ',', -1));
+
+        // A reused buffer is overwritten, empty values included
+        final byte[] buffer = {'9', '9', '9'};
+        Assert.assertTrue(GenotypeBlockCursor.decode(",1,", ',', -1, buffer));
+        Assert.assertArrayEquals(new byte[]{0, '1', 0}, buffer);
+    }
+
+    @Test
+    public void test_secondReadIsServedFromCache() {
+        final GenotypeBlockCache cache = new GenotypeBlockCache(1 << 20, 100);
+        final GenotypeBlockCursor first = new GenotypeBlockCursor(cache, "gor genotypes.gorz", ',', -1);
+        assertRows(first, "b1");
+        Assert.assertEquals(0, first.hits());
+        // Only the first window is complete, the last one may have been cut short
+        Assert.assertEquals(1, cache.size());
+
+        final GenotypeBlockCursor second = new GenotypeBlockCursor(cache, "gor genotypes.gorz", ',', -1);
+        assertRows(second, "b1");
+        Assert.assertEquals(2, second.hits());
+
+        final GenotypeBlockCursor otherBucket = new GenotypeBlockCursor(cache, "gor genotypes.gorz", ',', -1);
+        assertRows(otherBucket, "b2");
+        Assert.assertEquals(0, otherBucket.hits());
+
+        final GenotypeBlockCursor otherSource = new GenotypeBlockCursor(cache, "gor other.gorz", ',', -1);
+        assertRows(otherSource, "b1");
+        Assert.assertEquals(0, otherSource.hits());
+    }
+
+    @Test
+    public void test_differentRowsAreReadByTheCaller() {
+        final GenotypeBlockCache cache = new GenotypeBlockCache(1 << 20, 100);
+        assertRows(new GenotypeBlockCursor(cache, "src", ',', -1), "b1");
+
+        final GenotypeBlockCursor cursor = new GenotypeBlockCursor(cache, "src", ',', -1);
+        assertRow(cursor, "b1", 10, ROWS[0]);
+        Assert.assertFalse(cursor.next("b1", "chr1", 15, "2,2,2"));
+        Assert.assertFalse(cursor.next("b1", "chr1", 20, ROWS[1]));
+        // The next window is not cached and is added again
+        assertRow(cursor, "b1", 110, ROWS[2]);
+        Assert.assertEquals(1, cursor.hits());
+    }
+
+    @Test
+    public void test_rowsStayValid() {
+        final GenotypeBlockCache cache = new GenotypeBlockCache(1 << 20, 1000);
+        final GenotypeBlockCursor cursor = new GenotypeBlockCursor(cache, "src", ',', -1);
+        final byte[][] values = new byte[ROWS.length][];
+        final int[] offsets = new int[ROWS.length];
+        for (int i = 0; i < ROWS.length; i++) {
+            Assert.assertTrue(cursor.next("b1", "chr1", POSITIONS[i], ROWS[i]));
+            values[i] = cursor.values();
+            offsets[i] = cursor.offset();
+        }
+        for (int i = 0; i < ROWS.length; i++) {
+            final byte[] expected = decode(ROWS[i], ',', -1);
+            for (int j = 0; j < expected.length; j++) {
+                Assert.assertEquals(expected[j], values[i][offsets[i] + j]);
+            }
+        }
+    }
+
+    @Test
+    public void test_blockLargerThanCacheIsDropped() {
+        final GenotypeBlockCache cache = new GenotypeBlockCache(200, 1000);
+        final GenotypeBlockCursor cursor = new GenotypeBlockCursor(cache, "src", ',', -1);
+        final String row = "0,1,2,0,1,2,0,1,2,0";
+        int served = 0;
+        for (int pos = 1; pos < 100; pos++) {
+            if (cursor.next("b1", "chr1", pos, row)) served++;
+        }
+        Assert.assertTrue(served > 0 && served < 99);
+        // Moving to the next window does not add the dropped block
+        cursor.next("b1", "chr1", 1000, row);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_disabled() {
+        final GenotypeBlockCache cache = new GenotypeBlockCache(1 << 20, 100);
+        Assert.assertFalse(new GenotypeBlockCursor(cache, null, ',', -1).isEnabled());
+
+        final GenotypeBlockCache noCache = new GenotypeBlockCache(0, 100);
+        final GenotypeBlockCursor cursor = new GenotypeBlockCursor(noCache, "src", ',', -1);
+        Assert.assertFalse(cursor.isEnabled());
+        for (int i = 0; i < ROWS.length; i++) {
+            Assert.assertFalse(cursor.next("b1", "chr1", POSITIONS[i], ROWS[i]));
+        }
+        Assert.assertEquals(0, noCache.size());
+    }
+
+    private static void assertRows(GenotypeBlockCursor cursor, String bucket) {
+        for (int i = 0; i < ROWS.length; i++) {
+            assertRow(cursor, bucket, POSITIONS[i], ROWS[i]);
+        }
+    }
+
+    private static void assertRow(GenotypeBlockCursor cursor, String bucket, int pos, String row) {
+        Assert.assertTrue(cursor.next(bucket, "chr1", pos, row));
+        final byte[] expected = decode(row, ',', -1);
+        Assert.assertEquals(expected.length, cursor.width());
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], cursor.values()[cursor.offset() + i]);
+        }
+    }
+
+    private static byte[] decode(String row, char separator, int valueSize) {
+        final byte[] decoded = new byte[GenotypeBlockCursor.count(row, separator, valueSize)];
+        return GenotypeBlockCursor.decode(row, separator, valueSize, decoded) ? decoded : null;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.genotypes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class UTestGenotypeKernels {
+
+    private static String randomValues(Random r, int length, double missing) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(r.nextDouble() < missing ? '3' : (char) ('0' + r.nextInt(3)));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void test_packAndGet() {
+        final String values = "0123012301230123012301230123012301230123012301230123012301230123012";
+        final PackedGenotypes packed = PackedGenotypes.pack(values);
+        Assert.assertEquals(values.length(), packed.capacity());
+        Assert.assertEquals(2, packed.words());
+        for (int i = 0; i < values.length(); i++) {
+            Assert.assertEquals(values.charAt(i), packed.get(i));
+        }
+        packed.set(1, '2');
+        packed.set(2, '0');
+        Assert.assertEquals('2', packed.get(1));
+        Assert.assertEquals('0', packed.get(2));
+        Assert.assertEquals('3', PackedGenotypes.pack("x").get(0));
+    }
+
+    @Test
+    public void test_ldCounts() {
+        final Random r = new Random(17);
+        for (int length : new int[]{1, 63, 64, 65, 200}) {
+            final String a = randomValues(r, length, 0.1);
+            final String b = randomValues(r, length, 0.1);
+            final int[] expected = new int[9];
+            for (int i = 0; i < length; i++) {
+                final int x = a.charAt(i) - '0';
+                final int y = b.charAt(i) - '0';
+                if (x < 3 && y < 3) expected[x + 3 * y]++;
+            }
+            final LdKernel kernel = new LdKernel();
+            kernel.apply(PackedGenotypes.pack(a), PackedGenotypes.pack(b), length);
+            Assert.assertArrayEquals(expected, kernel.counts);
+        }
+    }
+
+    @Test
+    public void test_kinshipCounts() {
+        final Random r = new Random(7);
+        final int markers = 300;
+        final float[] tpqc = new float[markers];
+        final float[] kpqc = new float[markers];
+        for (int i = 0; i < markers; i++) {
+            final float af = r.nextFloat();
+            tpqc[i] = 2.0f * af * af * (1.0f - af) * (1.0f - af);
+            kpqc[i] = 2.0f * af * (1.0f - af);
+        }
+        final KinshipKernel kernel = new KinshipKernel(tpqc, kpqc, markers);
+        for (double missing : new double[]{0.0, 0.01, 0.2}) {
+            final String a = randomValues(r, markers, missing);
+            final String b = randomValues(r, markers, missing);
+
+            int ibs0 = 0, xx = 0, nhet = 0, nhom = 0, naai = 0, naaj = 0, count = 0;
+            double tpq = 0.0, kpq = 0.0;
+            for (int i = 0; i < markers; i++) {
+                final char gt1 = a.charAt(i);
+                final char gt2 = b.charAt(i);
+                if (gt1 != '3' && gt2 != '3') {
+                    count++;
+                    tpq += tpqc[i];
+                    kpq += kpqc[i];
+                    if (gt1 == '0' && gt2 == '2' || gt1 == '2' && gt2 == '0') {
+                        ibs0++;
+                        xx += 4;
+                        nhom++;
+                    } else if (gt1 != gt2) {
+                        xx++;
+                    }
+                    if (gt1 == '1' && gt2 == '1') nhet++;
+                    if (gt1 == '1') naai++;
+                    if (gt2 == '1') naaj++;
+                }
+            }
+
+            kernel.reset();
+            kernel.apply(PackedGenotypes.pack(a), PackedGenotypes.pack(b), markers);
+            Assert.assertEquals(count, kernel.count);
+            Assert.assertEquals(ibs0, kernel.ibs0);
+            Assert.assertEquals(xx, kernel.xx);
+            Assert.assertEquals(nhet, kernel.nhet);
+            Assert.assertEquals(nhom, kernel.nhom);
+            Assert.assertEquals(naai, kernel.naai);
+            Assert.assertEquals(naaj, kernel.naaj);
+            Assert.assertEquals(tpq, kernel.tpq, 0.0);
+            Assert.assertEquals(kpq, kernel.kpq, 0.0);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package gorsat.monitors;
+
+import gorsat.process.PipeInstance;
+import org.gorpipe.gor.stats.QueryProfile;
+import org.junit.Test;
+
+import java.util.List;
+
+import static gorsat.TestUtils.createPipeInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProfileMonitorTest {
+
+    @Test
+    public void testStepAndSourceRowCounts() {
+        QueryProfile root = QueryProfile.root("test", null);
+        int count = 0;
+        try (PipeInstance pipe = createPipeInstance(false)) {
+            pipe.getSession().getGorContext().setProfile(root);
+            pipe.init("gorrows -p chr1:1-1001 | rownum | where rownum <= 100 | calc a 'abc'", null);
+
+            while (pipe.hasNext()) {
+                pipe.next();
+                count++;
+            }
+        }
+        assertEquals(100, count);
+
+        QueryProfile query = root.getChildren().get(0);
+        List<QueryProfile> steps = query.getSteps();
+        assertEquals(4, steps.size());
+        assertEquals("ROWNUM", steps.get(0).getName());
+        assertEquals(1000, steps.get(0).getRows());
+        assertEquals("WHERE", steps.get(1).getName());
+        assertEquals(1000, steps.get(1).getRows());
+        assertEquals("CALC", steps.get(2).getName());
+        assertEquals(100, steps.get(2).getRows());
+        assertEquals("OUTPUT", steps.get(3).getName());
+        assertEquals(100, steps.get(3).getRows());
+
+        QueryProfile source = query.getChildren().get(0);
+        assertEquals(QueryProfile.Kind.SOURCE, source.getKind());
+        assertEquals(1000, source.getRows());
+    }
+
+    @Test
+    public void testNotProfiledByDefault() {
+        try (PipeInstance pipe = createPipeInstance(false)) {
+            assertNull(pipe.getSession().getGorContext().getProfile());
+        }
+    }
+}
@@ -197,6 +197,13 @@ public class UTestBooleanFunctions {
         TestUtils.assertCalculated("if('abcdef' rlike '...', 'true', 'false')", "false");
     }
 
+    @Test
+    public void testRLikeAndRegselWithColumnPattern() {
+        String result = TestUtils.runGorPipe("gorrows -p chr1:1-5 | calc p if(mod(pos,2)=0, 'a(b).', 'x(y).') | calc s 'abc' " +
+                "| calc r regsel(s, p) | where s rlike p | select pos,r");
+        Assert.assertEquals("chrom\tpos\tr\nchr1\t2\tb\nchr1\t4\tb\n", result);
+    }
+
     @Test
     public void testTilde() {
         TestUtils.assertCalculated("if('' ~ '', 'true', 'false')", "true");
@@ -462,6 +469,17 @@ public class UTestBooleanFunctions {
         TestUtils.assertCalculated("listhascount('A,B,C,D,E,F,A,B,C,A,B', 'a','b','c')", 3);
     }
 
+    @Test
+    public void testListHasWithEmptyElementsAndDuplicates() {
+        TestUtils.assertCalculated("listhascount('a,,B', 'b', 'B', '', 'c')", 3);
+        TestUtils.assertCalculated("cslisthascount('a,,B', 'b', 'B', '')", 2);
+        TestUtils.assertCalculated("if(listhasany('x,', ''), 'true', 'false')", "true");
+        TestUtils.assertCalculated("if(cslisthasany('x,y', ''), 'true', 'false')", "false");
+        TestUtils.assertCalculated("if(listhasany('æ,b', 'Æ'), 'true', 'false')", "true");
+        TestUtils.assertCalculated("listnumsum('1,2,,')", 3.0);
+        TestUtils.assertCalculated("listnumavg('1,2,3')", 2.0);
+    }
+
     @Test
     public void testMatchLenWithStringLiterals() {
         TestUtils.assertCalculated("matchlen('ACCTTG', 'A')", 1);
@@ -0,0 +1,81 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.process;
+
+import gorsat.TestUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UTestProcessLineReader {
+
+    private static List<String> readAll(String text, int bufferSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (ProcessLineReader reader = new ProcessLineReader(new ByteArrayInputStream(text.getBytes(Charset.defaultCharset())), bufferSize)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException {
+        List<String> expected = List.of("a", "", "bb", "ccc", "", "d");
+        for (int bufferSize : new int[] {1, 2, 3, 1024}) {
+            Assert.assertEquals(expected, readAll("a\n\nbb\r\nccc\r\rd", bufferSize));
+            Assert.assertEquals(expected, readAll("a\n\nbb\r\nccc\r\rd\n", bufferSize));
+        }
+        Assert.assertEquals(List.of(), readAll("", 4));
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws IOException {
+        String longLine = "chr1\t1\t" + "x".repeat(100);
+        Assert.assertEquals(List.of(longLine, "chr1\t2\t\u00e6"), readAll(longLine + "\nchr1\t2\t\u00e6\n", 8));
+    }
+
+    @Test
+    public void testCmdStreamsAllRows() {
+        Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
+
+        int count = TestUtils.runGorPipeCount("gorrows -p chr1:1-100001 | calc x 'abc' | cmd {cat}");
+        Assert.assertEquals(100000, count);
+    }
+
+    @Test
+    public void testCmdStopsFeedingWhenProcessExits() {
+        Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
+
+        int count = TestUtils.runGorPipeCount("gorrows -p chr1:1-10000001 | cmd {head -n 11}");
+        Assert.assertEquals(10, count);
+    }
+}
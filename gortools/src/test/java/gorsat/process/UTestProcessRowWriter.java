@@ -0,0 +1,58 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package gorsat.process;
+
+import org.gorpipe.model.gor.RowObj;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+public class UTestProcessRowWriter {
+
+    private static String write(boolean nor, int bufferSize, String... rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ProcessRowWriter writer = new ProcessRowWriter(out, bufferSize)) {
+            for (String row : rows) {
+                writer.writeRow(RowObj.StoR(row), nor);
+            }
+        }
+        return out.toString(Charset.defaultCharset());
+    }
+
+    @Test
+    public void testWriteRows() throws IOException {
+        for (int bufferSize : new int[] {4, 16, 1024}) {
+            Assert.assertEquals("chr1\t1\ta\tb\nchr1\t2\t\u00e6\n", write(false, bufferSize, "chr1\t1\ta\tb", "chr1\t2\t\u00e6"));
+        }
+    }
+
+    @Test
+    public void testWriteNorRows() throws IOException {
+        for (int bufferSize : new int[] {4, 16, 1024}) {
+            Assert.assertEquals("a\tb\n\u00e6\n\n", write(true, bufferSize, "chrN\t0\ta\tb", "chrN\t0\t\u00e6", "chrN\t0"));
+        }
+    }
+}
@@ -311,6 +311,27 @@ public class UTestStatisticalAdjustment {
         }
     }
 
+    @Test
+    public void test_sortOrder() {
+        final Random r = new Random(17);
+        for (int len : new int[]{0, 1, 2, 10, 1000, 100_000}) {
+            final double[] values = new double[len + 5];
+            for (int i = 0; i < len; ++i) {
+                values[i] = r.nextInt(len / 3 + 1) / 7.0;
+            }
+            final double[] sorted = new double[len];
+            final int[] order = sortOrder(values, len, sorted);
+
+            final Integer[] expected = new Integer[len];
+            for (int i = 0; i < len; ++i) expected[i] = i;
+            Arrays.sort(expected, (a, b) -> Double.compare(values[a], values[b]));
+            for (int k = 0; k < len; ++k) {
+                Assert.assertEquals(expected[k].intValue(), order[k]);
+                Assert.assertEquals(values[order[k]], sorted[k], 0);
+            }
+        }
+    }
+
     private void validateInverse(int[] p, int[] inv) {
         for (int i = 0; i < inv.length; ++i) {
             Assert.assertEquals(i, p[inv[i]]);
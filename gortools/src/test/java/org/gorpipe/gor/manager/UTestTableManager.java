@@ -0,0 +1,110 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.gorpipe.gor.table.dictionary.DictionaryTable;
+import org.gorpipe.gor.table.dictionary.gor.GorDictionaryEntry;
+import org.gorpipe.gor.table.dictionary.gor.GorDictionaryTable;
+import org.gorpipe.gor.table.lock.TableTransaction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class UTestTableManager {
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+    private Path workDirPath;
+    private Path gordFile;
+
+    @Before
+    public void setUp() throws Exception {
+        workDirPath = workDir.getRoot().toPath();
+        for (int i = 1; i < 4; i++) {
+            Files.createFile(workDirPath.resolve(String.format("filepath%d.gor", i)));
+        }
+        gordFile = workDirPath.resolve("batched.gord");
+        FileUtils.write(gordFile.toFile(), "filepath1.gor\tA\n", (String) null);
+        new GorDictionaryTable.Builder<>(gordFile).build().save();
+    }
+
+    @Test
+    public void testBatchedInsertIsVisibleToEveryCaller() throws Exception {
+        TableManager tm = new TableManager();
+        DictionaryTable leaderTable = tm.initTable(gordFile);
+        DictionaryTable followerTable = tm.initTable(gordFile);
+        Assert.assertEquals(List.of("A"), aliases(leaderTable));
+        Assert.assertEquals(List.of("A"), aliases(followerTable));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader;
+            Future<?> follower;
+            // Hold the table lock so the leader waits while the follower joins its batch.
+            DictionaryTable lockTable = tm.initTable(gordFile);
+            try (TableTransaction trans = TableTransaction.openWriteTransaction(tm.getLockType(), lockTable,
+                    lockTable.getName(), tm.getLockTimeout())) {
+                leader = executor.submit(() -> tm.insertBatched(leaderTable, entry("filepath2.gor", "B")));
+                waitForCallers(leaderTable, 1);
+                follower = executor.submit(() -> tm.insertBatched(followerTable, entry("filepath3.gor", "C")));
+                waitForCallers(leaderTable, 2);
+            }
+            leader.get(1, TimeUnit.MINUTES);
+            follower.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(leaderTable));
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(followerTable));
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(tm.initTable(gordFile)));
+    }
+
+    private GorDictionaryEntry entry(String file, String alias) {
+        return (GorDictionaryEntry) new GorDictionaryEntry.Builder(file, workDirPath.toString()).alias(alias).build();
+    }
+
+    private static void waitForCallers(DictionaryTable table, int callers) throws InterruptedException {
+        long end = System.currentTimeMillis() + 60000;
+        while (TableManager.pendingInsertCallers(table) < callers) {
+            Assert.assertTrue("Timed out waiting for batched insert callers", System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> aliases(DictionaryTable table) {
+        return table.getEntries().stream().map(e -> ((GorDictionaryEntry) e).getAlias()).sorted().collect(Collectors.toList());
+    }
+}
@@ -296,6 +296,36 @@ class UTestGtTransposeAnalysis extends AnyFunSuite with BeforeAndAfter {
     }
   }
 
+  test("sep - many pns") {
+    val numberOfBuckets = 30
+    val numberInBucket = 100
+    val pns = Range(0, numberOfBuckets * numberInBucket).map(i => s"PN$i").toArray
+    val bucketToPnIdxList = Range(0, numberOfBuckets).map(j =>
+      s"BUCKET${j + 1}" -> (Range(0, numberInBucket).map(j * numberInBucket + _).toArray, Range(0, numberInBucket).toArray)).toMap
+    val markerMap = Range(0, 3).map(i => s"RS${i + 1}").zipWithIndex.toMap
+    val gtTrans = SepGtTransposeAnalysis(pns, bucketToPnIdxList, markerMap, bCol = 3, vCol = 4, Array(2), cols = false, sep = ',')
+
+    val wantedRows = for (j <- 0 until numberOfBuckets; k <- 0 until numberInBucket)
+      yield s"chrA\t1\tPN${j * numberInBucket + k}\t" + Range(0, 3).map(i => s"${i}_${j}_$k").mkString(",")
+    val results = processRows(gtTrans, 3, numberOfBuckets, numberInBucket, (i, j, k) => s"${i}_${j}_$k", sep = ",")
+
+    assert(wantedRows.length == results.length)
+    results zip wantedRows foreach {
+      case (actualLine, wantedLine) => assert(actualLine.toString == wantedLine)
+    }
+  }
+
+  test("marker index") {
+    val index = GtMarkerIndex(Range(0, 100).map(i => s"chr1\t${i + 1}\tA\tC" -> i).toMap)
+    val columns = Array(0, 1, 3, 4)
+
+    assert(index.indexOf(RowObj("chr1\t1\tBUCKET1\tA\tC\t00"), columns) == 0)
+    assert(index.indexOf(RowObj("chr1\t100\tBUCKET1\tA\tC\t00"), columns) == 99)
+    assert(index.indexOf(RowObj("chr1\t101\tBUCKET1\tA\tC\t00"), columns) == -1)
+    assert(index.indexOf(RowObj("chr1\t1\tBUCKET1\tA\tCT\t00"), columns) == -1)
+    assert(index.indexOf("chr1\t50\tA\tC") == 49)
+  }
+
   def writeFile(name: String, content: Traversable[String], header: String = ""): String = {
     val file = new File(dir, name)
     val writer = new BufferedWriter(new FileWriter(file))
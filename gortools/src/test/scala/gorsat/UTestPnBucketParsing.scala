@@ -122,4 +122,18 @@ class UTestPnBucketParsing extends AnyFunSuite {
       assert(pnIdx == pnBucketTable.getBucketPos(pnIdx))
     }
   }
+
+  test("test parse cached") {
+    val tbSource = Range(0, 100).map(i => s"PN${i+1}\tBUCKET${i%10 + 1}").toArray
+    val pnBucketTable = PnBucketParsing.parseCached(tbSource)
+    assert(pnBucketTable eq PnBucketParsing.parseCached(tbSource.clone()))
+    assert(100 == pnBucketTable.numberOfPns)
+    assert(10 == pnBucketTable.numberOfBuckets)
+
+    val changed = tbSource.clone()
+    changed(0) = "PN1\tBUCKET2"
+    val changedTable = PnBucketParsing.parseCached(changed)
+    assert(changedTable ne pnBucketTable)
+    assert("BUCKET2" == changedTable.getBucketNameFromPn("PN1"))
+  }
 }
@@ -76,7 +76,13 @@ class UTestRegression extends AnyFunSuite {
     }
   }
 
-  def testWithUnknownsLogistic(numberOfSamples: Int, numberOfPhenoTypes: Int, missingProbs: Double, numberOfCovs: Int =  0, numberOfVariants: Int = 1): Unit = {
+  test("test regression - phenotypes with shared missing values over several blocks") {
+    testWithUnknownsLinear(100, 4, 0.1, 2, 300, sharedPhenoMissing = true)
+    testWithUnknownsLogistic(100, 4, 0.1, 2, 300, sharedPhenoMissing = true)
+  }
+
+  def testWithUnknownsLogistic(numberOfSamples: Int, numberOfPhenoTypes: Int, missingProbs: Double, numberOfCovs: Int =  0, numberOfVariants: Int = 1,
+                                sharedPhenoMissing: Boolean = false): Unit = {
     //Probabilities
     val probs = Array.tabulate(numberOfVariants)(_ => getRandomProbabilities(numberOfSamples))
     val charEncodedDosages = probs.map(_.map(pr => pr.tail.map(x => (Math.round((1 - x) * 93) + 33).toByte)))
@@ -92,7 +98,7 @@ class UTestRegression extends AnyFunSuite {
     val xs = dosages.map(x => x +: covs)
     val ys = betas.map(getPhenoTypes(_, covs, numberOfSamples))
 
-    val phenoFilters = Array.tabulate(numberOfPhenoTypes)(_=> Array.tabulate(numberOfSamples)(_=> Math.random() > missingProbs))
+    val phenoFilters = getPhenoFilters(numberOfPhenoTypes, numberOfSamples, missingProbs, sharedPhenoMissing)
 
     val func: (Boolean, Boolean) => String = (p, f) => {
       if (f) {
@@ -138,7 +144,8 @@ class UTestRegression extends AnyFunSuite {
     compare(results, wantedResults, validate)
   }
 
-  def testWithUnknownsLinear(numberOfSamples: Int, numberOfPhenoTypes: Int, missingProbs: Double, numberOfCovs: Int =  0, numberOfVariants: Int = 1): Unit = {
+  def testWithUnknownsLinear(numberOfSamples: Int, numberOfPhenoTypes: Int, missingProbs: Double, numberOfCovs: Int =  0, numberOfVariants: Int = 1,
+                              sharedPhenoMissing: Boolean = false): Unit = {
     //Probabilities
     val probs = Array.tabulate(numberOfVariants)(_ => getRandomProbabilities(numberOfSamples))
     val charEncodedDosages = probs.map(_.map(pr => pr.tail.map(x => (Math.round((1 - x) * 93) + 33).toByte)))
@@ -153,7 +160,7 @@ class UTestRegression extends AnyFunSuite {
     val xs = dosages.map(x => x +: covs)
     val ys = Array.tabulate(numberOfPhenoTypes)(_ => getRandomVector(numberOfSamples, 0, 10))
 
-    val phenoFilters = Array.tabulate(numberOfPhenoTypes)(_=> Array.tabulate(numberOfSamples)(_=> Math.random() > missingProbs))
+    val phenoFilters = getPhenoFilters(numberOfPhenoTypes, numberOfSamples, missingProbs, sharedPhenoMissing)
 
     val run = (x: Array[Array[Double]], y: Array[Double], r: LinearRegression) => {
       r.setData(x, y.length)
@@ -313,6 +320,17 @@ class UTestRegression extends AnyFunSuite {
     })
   }
 
+  /**
+    * With shared missing values all phenotypes but the last one have the same missing pattern.
+    */
+  def getPhenoFilters(numberOfPhenoTypes: Int, numberOfSamples: Int, missingProbs: Double, shared: Boolean): Array[Array[Boolean]] = {
+    val sharedFilter = Array.tabulate(numberOfSamples)(_=> Math.random() > missingProbs)
+    Array.tabulate(numberOfPhenoTypes)(i => {
+      if (shared && i < numberOfPhenoTypes - 1) sharedFilter.clone()
+      else Array.tabulate(numberOfSamples)(_=> Math.random() > missingProbs)
+    })
+  }
+
   def getRandomVector(len: Int, a: Double, b: Double): Array[Double] = {
     Array.tabulate(len)(_ => a + b * Math.random())
   }
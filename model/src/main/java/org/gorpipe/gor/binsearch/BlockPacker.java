@@ -95,6 +95,21 @@ public class BlockPacker {
      * @return The number of bytes written into the destination buffer
      */
     public static int decode(final byte[] src, int off, byte[] dest, int destOffset, Map<Integer, Map<Integer, byte[]>> mapExternalTables) {
+        return decode(src, off, dest, destOffset, mapExternalTables, null);
+    }
+
+    /**
+     * Decode the selected columns of a block previously encoded by format defined by this class
+     *
+     * @param src               The source byte buffer containing the block
+     * @param off               The position in buffer where the block starts
+     * @param dest              The destination byte buffer for the decoded block
+     * @param destOffset        The position in the destination buffer to start writing
+     * @param mapExternalTables External lookup table content, used to get values from
+     * @param selectedColumns   The columns to write into the destination buffer, or null for all columns
+     * @return The number of bytes written into the destination buffer
+     */
+    public static int decode(final byte[] src, int off, byte[] dest, int destOffset, Map<Integer, Map<Integer, byte[]>> mapExternalTables, boolean[] selectedColumns) {
         // Read the rowcnt
         final int rowcnt = ByteArray.readUnsignedShortBigEndian(src, off);
 
@@ -111,16 +126,20 @@ public class BlockPacker {
             log.trace("{} rows : column encoding: {}", rowcnt, toEncodeTypes(types));
         }
 
+        // Columns that are not selected are skipped over and never decoded
         final RowDecoder[] decoders = new RowDecoder[types.size()];
+        int colcnt = 0;
         for (int i = 0; i < types.size(); i++) {
             final int type = types.get(i);
-            decoders[i] = getDecoder(src, pos, type, rowcnt, mapExternalTables.get(i));
-            pos += decoders[i].getReadLen();
+            final RowDecoder decoder = getDecoder(src, pos, type, rowcnt, mapExternalTables.get(i));
+            pos += decoder.getReadLen();
+            if (selectedColumns == null || (i < selectedColumns.length && selectedColumns[i])) {
+                decoders[colcnt++] = decoder;
+            }
         }
 
         // Write the decoded block into the destination buffer
         int dp = destOffset;
-        final int colcnt = decoders.length;
         if (colcnt != 0) {
             for (int i = 0; i < rowcnt; i++) {
                 dp += decoders[0].decodeNext(dest, dp);
@@ -41,10 +41,15 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.Deflater;
 
 /**
@@ -58,6 +63,16 @@ public class GorZipLexOutputStream extends OutputStream {
     static final int DEFAULT_CHUNK = 1024 * 32; //The default unzipped size of blocks to be zipped.
     private static final int DEF_CHR_COL = 0;
     private static final int DEF_POS_COL = 1;
+    private static final int WRITE_THREADS = Integer.getInteger("gor.gorz.write.threads", Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_PENDING = 2 * WRITE_THREADS;
+    private static final ExecutorService WRITE_POOL = Executors.newFixedThreadPool(Math.max(1, WRITE_THREADS), r -> {
+        Thread t = new Thread(r, "gorz-write");
+        t.setDaemon(true);
+        return t;
+    });
+    // Deflaters are reused per compression thread, a new one is created if the compression level changes
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> DEFLATER_LEVELS = new ThreadLocal<>();
 
     private final OutputStream target;
     private final GorIndexFile idx;
@@ -68,8 +83,13 @@ public class GorZipLexOutputStream extends OutputStream {
     private final Map<Integer, Map<String, Integer>> extLookupMap = new LinkedHashMap<>();
     private final boolean useColumnEncodingZip;
     private final boolean useZStd = Boolean.parseBoolean(System.getProperty("gor.compression.useZStd", "false"));
+    // Blocks prepared before the header is written, the external lookup map can only grow while these are encoded
     private final BufferInfo[] cachedOutput = new BufferInfo[16];
     private int cachedOutputIdx = 0;
+    // Blocks being compressed, in file order
+    private final ArrayDeque<Future<BufferInfo>> pendingOutput = new ArrayDeque<>();
+    private final ArrayDeque<BufferInfo> freeBuffers = new ArrayDeque<>();
+    private boolean parallel = WRITE_THREADS > 1;
     private final byte byteToWrite;
 
     private final int compressionLevel;
@@ -80,28 +100,36 @@ public class GorZipLexOutputStream extends OutputStream {
     private int lastPos = 0;
 
     static class BufferInfo {
-        byte[] keyInBytes; //the chr and pos fields of the last line in block as byte array.
+        byte[] keyInBytes = new byte[64]; //the chr and pos fields of the last line in block as byte array.
+        int keyLen;
         byte[] block; //Buffer to write data block to.
         int blockLen; //End of block data in block.
         byte[] zipBuffer; //Buffer to write zipped output to.
+        byte[] encodeBuffer; //Buffer to write column encoded block to.
+        boolean encode; //True if the block still needs to be column encoded.
 
         BufferInfo() {
             this.zipBuffer = new byte[DEFAULT_CHUNK];
         }
 
-        void updateVariables(byte[] keyInBytes, byte[] block, int blockLen) {
-            this.keyInBytes = keyInBytes.clone();
+        void updateVariables(byte[] buffer, int keyBegin, int keyEnd, int blockLen) {
+            this.keyLen = keyEnd - keyBegin;
+            if (this.keyInBytes.length < this.keyLen) {
+                this.keyInBytes = new byte[this.keyLen];
+            }
+            System.arraycopy(buffer, keyBegin, this.keyInBytes, 0, this.keyLen);
             this.blockLen = blockLen;
-            if (this.block == null) {
-                int len = 1;
-                while ((len <<= 1) < this.blockLen);
-                this.block = new byte[len];
-            } else if (this.block.length < this.blockLen) {
-                int len = this.block.length;
-                while ((len <<= 1) < this.blockLen);
-                this.block = new byte[len];
+            this.block = ensureCapacity(this.block, blockLen);
+            System.arraycopy(buffer, 0, this.block, 0, blockLen);
+        }
+
+        static byte[] ensureCapacity(byte[] buffer, int minLen) {
+            if (buffer == null || buffer.length < minLen) {
+                int len = buffer == null ? 1 : buffer.length;
+                while ((len <<= 1) < minLen);
+                return new byte[len];
             }
-            System.arraycopy(block, 0, this.block, 0, blockLen);
+            return buffer;
         }
     }
 
@@ -177,6 +205,14 @@ public class GorZipLexOutputStream extends OutputStream {
         this.base64 = base64;
     }
 
+    /**
+     * Compress blocks on the shared gorz write pool (the default when gor.gorz.write.threads is more than one),
+     * or on the calling thread. The output is the same either way.
+     */
+    void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     public String getMd5() {
         if(target instanceof  Md5CalculatingOutputStream) return ((Md5CalculatingOutputStream)target).md5();
         return null;
@@ -281,6 +317,7 @@ public class GorZipLexOutputStream extends OutputStream {
         if (this.cachedOutputIdx != 0) {
             writeCachedData();
         }
+        writePendingData();
         this.target.flush();
     }
 
@@ -308,30 +345,33 @@ public class GorZipLexOutputStream extends OutputStream {
         while (buffer[endOfLastLineIdx++] != '\t'); //Run over chromosome key.
         //Now we are at the first byte of the position key.
         while (buffer[endOfLastLineIdx] != '\t' && buffer[endOfLastLineIdx] != '\n') ++endOfLastLineIdx; //Run over position.
-        if (this.useColumnEncodingZip) {
-            final byte[] dest = new byte[1024 + bufferLen];
-            final int extMapSize = 32 * 1024 - (this.headerToWrite.length() + 1 + 1); // Total - header - zero - newline
-            final int len = BlockPacker.encode(buffer, bufferLen, dest, this.extLookupMap, !this.isHeaderWritten, extMapSize);
-            final byte[] it = new byte[len];
-            System.arraycopy(dest, 0, it, 0, len);
-            writeBlock(Arrays.copyOfRange(buffer, this.beginOfLastLine, endOfLastLineIdx), it, it.length);
+        final BufferInfo bi = this.freeBuffers.isEmpty() ? new BufferInfo() : this.freeBuffers.poll();
+        bi.updateVariables(buffer, this.beginOfLastLine, endOfLastLineIdx, bufferLen);
+        if (this.isHeaderWritten) {
+            bi.encode = this.useColumnEncodingZip;
+            submitBlock(bi);
         } else {
-            writeBlock(Arrays.copyOfRange(buffer, this.beginOfLastLine, endOfLastLineIdx), buffer, bufferLen);
+            if (this.useColumnEncodingZip) {
+                encodeBlock(bi, true);
+            }
+            // Cache prepared blocks and do not write to file so that an external table can be better
+            this.cachedOutput[this.cachedOutputIdx++] = bi;
+            if (this.cachedOutputIdx == this.cachedOutput.length) {
+                writeCachedData(); // Have reached the cache limit, force data into file
+            }
         }
         this.byteOutput.reset();
     }
 
-    private void writeBlock(byte[] keyInBytes, byte[] block, int blockLen) throws IOException {
-        // Cache prepared blocks and do not write to file so that an external table can be better
-        if (this.cachedOutput[this.cachedOutputIdx] == null) {
-            this.cachedOutput[this.cachedOutputIdx] = new BufferInfo();
-        }
-        final BufferInfo bi = this.cachedOutput[this.cachedOutputIdx];
-        this.cachedOutputIdx += 1;
-        bi.updateVariables(keyInBytes, block, blockLen);
-        if (this.cachedOutputIdx == this.cachedOutput.length) {
-            writeCachedData(); // Have reached the cache limit, force data into file
-        }
+    private void encodeBlock(BufferInfo bi, boolean allowAddExtTable) {
+        final int extMapSize = 32 * 1024 - (this.headerToWrite.length() + 1 + 1); // Total - header - zero - newline
+        bi.encodeBuffer = BufferInfo.ensureCapacity(bi.encodeBuffer, 1024 + bi.blockLen);
+        final int len = BlockPacker.encode(bi.block, bi.blockLen, bi.encodeBuffer, this.extLookupMap, allowAddExtTable, extMapSize);
+        final byte[] encoded = bi.encodeBuffer;
+        bi.encodeBuffer = bi.block;
+        bi.block = encoded;
+        bi.blockLen = len;
+        bi.encode = false;
     }
 
     private int base128Length(int len) {
@@ -385,43 +425,86 @@ public class GorZipLexOutputStream extends OutputStream {
 
     private void writeCachedData() throws IOException {
         writeHeader();
-        Arrays.stream(this.cachedOutput, 0, this.cachedOutputIdx).parallel().forEach(bufferInfo -> {
-            int len = this.useZStd ? zipItZStd(bufferInfo, compressionLevel) : zipItZLib(bufferInfo, compressionLevel);
-            byte[] buffer = bufferInfo.block;
-            byte[] zipBuffer = bufferInfo.zipBuffer;
-            int siz = base64 ? base64Length(len, true) : base128Length(len);
-            if( buffer.length < siz ) {
-                int newLen = buffer.length;
-                while ((newLen <<= 1) < siz);
-                buffer = new byte[newLen];
-                bufferInfo.block = buffer;
-            }
-            if( base64 ) {
-                siz = Base64.getEncoder().encode(Arrays.copyOfRange(zipBuffer,0,len), buffer);
-            } else ByteArray.to7Bit(zipBuffer, len, buffer);
-            bufferInfo.blockLen = siz;
-        });
-
-        BufferInfo bufferInfo;
         for (int i = 0; i < this.cachedOutputIdx; ++i) {
-            bufferInfo = this.cachedOutput[i];
-            final byte[] keyInBytes = bufferInfo.keyInBytes;
-            this.target.write(keyInBytes);
-            this.target.write('\t');
-            this.target.write(this.byteToWrite);
-            this.target.write(bufferInfo.block, 0, bufferInfo.blockLen);
-            this.target.write('\n');
-
-            if (this.idx != null) {
-                this.start += 3 + keyInBytes.length + bufferInfo.blockLen;
-                String key = new String(keyInBytes);
-                String[] components = key.split("\t");
-                this.idx.putFilePosition(components[0], Integer.parseInt(components[1]), this.start);
-            }
+            submitBlock(this.cachedOutput[i]);
+            this.cachedOutput[i] = null;
         }
         this.cachedOutputIdx = 0;
     }
 
+    /**
+     * Compress the block on the write pool, or directly if writing is not parallel. At most
+     * {@code MAX_PENDING} blocks are in flight, the oldest one is written out when the limit is reached.
+     */
+    private void submitBlock(BufferInfo bi) throws IOException {
+        if (!this.parallel) {
+            compressBlock(bi);
+            writeBlock(bi);
+            return;
+        }
+        if (this.pendingOutput.size() >= MAX_PENDING) {
+            writeBlock(waitFor(this.pendingOutput.poll()));
+        }
+        this.pendingOutput.add(WRITE_POOL.submit(() -> {
+            compressBlock(bi);
+            return bi;
+        }));
+    }
+
+    private void writePendingData() throws IOException {
+        while (!this.pendingOutput.isEmpty()) {
+            writeBlock(waitFor(this.pendingOutput.poll()));
+        }
+    }
+
+    private static BufferInfo waitFor(Future<BufferInfo> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GorSystemException("Interrupted while writing gorz", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GorSystemException("Unable to compress gorz block", e.getCause());
+        }
+    }
+
+    private void compressBlock(BufferInfo bufferInfo) {
+        if (bufferInfo.encode) {
+            // The external lookup map is no longer modified once the header is written
+            encodeBlock(bufferInfo, false);
+        }
+        int len = this.useZStd ? zipItZStd(bufferInfo, compressionLevel) : zipItZLib(bufferInfo, compressionLevel);
+        byte[] zipBuffer = bufferInfo.zipBuffer;
+        int siz = base64 ? base64Length(len, true) : base128Length(len);
+        byte[] buffer = BufferInfo.ensureCapacity(bufferInfo.block, siz);
+        bufferInfo.block = buffer;
+        if( base64 ) {
+            siz = Base64.getEncoder().encode(Arrays.copyOfRange(zipBuffer,0,len), buffer);
+        } else ByteArray.to7Bit(zipBuffer, len, buffer);
+        bufferInfo.blockLen = siz;
+    }
+
+    private void writeBlock(BufferInfo bufferInfo) throws IOException {
+        final byte[] keyInBytes = bufferInfo.keyInBytes;
+        final int keyLen = bufferInfo.keyLen;
+        this.target.write(keyInBytes, 0, keyLen);
+        this.target.write('\t');
+        this.target.write(this.byteToWrite);
+        this.target.write(bufferInfo.block, 0, bufferInfo.blockLen);
+        this.target.write('\n');
+
+        if (this.idx != null) {
+            this.start += 3 + keyLen + bufferInfo.blockLen;
+            int tab = 0;
+            while (keyInBytes[tab] != '\t') ++tab;
+            this.idx.putFilePosition(new String(keyInBytes, 0, tab), Integer.parseInt(new String(keyInBytes, tab + 1, keyLen - tab - 1)), this.start);
+        }
+        this.freeBuffers.add(bufferInfo);
+    }
+
     private static byte[] zipItZLib(byte[] buffer, int compressionLevel) {
         final Deflater deflater = new Deflater(compressionLevel);
         deflater.setInput(buffer);
@@ -454,7 +537,15 @@ public class GorZipLexOutputStream extends OutputStream {
     }
 
     private static int zipItZLib(BufferInfo bufferInfo, int compressionLevel) {
-        final Deflater deflater = new Deflater(compressionLevel);
+        Deflater deflater = DEFLATERS.get();
+        if (deflater == null || DEFLATER_LEVELS.get() != compressionLevel) {
+            if (deflater != null) deflater.end();
+            deflater = new Deflater(compressionLevel);
+            DEFLATERS.set(deflater);
+            DEFLATER_LEVELS.set(compressionLevel);
+        } else {
+            deflater.reset();
+        }
         deflater.setInput(bufferInfo.block, 0, bufferInfo.blockLen);
         deflater.finish();
         int len = 0;
@@ -467,7 +558,6 @@ public class GorZipLexOutputStream extends OutputStream {
                 System.arraycopy(oldZipBuffer, 0, bufferInfo.zipBuffer, 0, len);
             }
         } while (true);
-        deflater.end();
         return len;
     }
 
@@ -51,8 +51,9 @@ public class GorzSeekableIterator extends GenomicIteratorBase {
 
     private final SeekableIterator seekableIterator; //The iterator on the underlying file.
     private final String filePath;
-    private final GorHeader header;
+    private GorHeader header;
     private int columnCount = -1;
+    private boolean[] selectedColumns; //Columns to keep when a column selection has been pushed down, null if all columns are kept.
     private final Unzipper unzipper;
     private byte[] buffer;
     private final BufferIterator bufferIterator = new BufferIterator(SeekableIterator.DEFAULT_COMPARATOR); //An iterator to iterate a block once unzipped.
@@ -91,6 +92,48 @@ public class GorzSeekableIterator extends GenomicIteratorBase {
         return String.join("\t", this.header.getColumns());
     }
 
+    /**
+     * Projects the rows of the file onto the given columns. The chromosome and position columns must be kept and
+     * the columns must be in the same order as in the file, other selections are left to the pipeline.
+     */
+    @Override
+    public boolean pushdownSelect(String[] colList) {
+        if (this.selectedColumns != null) {
+            return false;
+        }
+        final String[] columns = this.header.getColumns();
+        final int[] cols = new int[colList.length];
+        int lastCol = -1;
+        for (int i = 0; i < colList.length; i++) {
+            int col = lastCol + 1;
+            while (col < columns.length && !columns[col].equalsIgnoreCase(colList[i])) col++;
+            if (col == columns.length) {
+                return false;
+            }
+            cols[i] = col;
+            lastCol = col;
+        }
+        if (cols.length < 2 || cols[0] != 0 || cols[1] != 1) {
+            return false;
+        }
+        if (cols.length < columns.length) {
+            final boolean[] selected = new boolean[columns.length];
+            for (int col : cols) {
+                selected[col] = true;
+            }
+            this.selectedColumns = selected;
+            this.header = this.header.select(cols);
+            this.columnCount = -1;
+            if (this.bufferIterator.hasNext()) {
+                // Project the remaining lines of the block already loaded, e.g. after a seek
+                final int from = this.bufferIterator.getBufferIdx();
+                final int upTo = selectColumns(this.buffer, from, this.bufferIterator.getUpperBound(), selected);
+                this.bufferIterator.update(this.buffer, from, upTo, true, true);
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean seek(String chr, int pos) {
         if (isClosed) {
@@ -185,11 +228,48 @@ public class GorzSeekableIterator extends GenomicIteratorBase {
                     filePath, new String(Arrays.copyOfRange(in, 0, Math.min(len, 50)))));
         }
 
-        final int unzippedLen = unzipBlock(in, blockIdx, len - blockIdx);
+        int unzippedLen = unzipBlock(in, blockIdx, len - blockIdx);
+        if (this.selectedColumns != null && !(this.unzipper instanceof ColumnCompressedUnzipper)) {
+            unzippedLen = selectColumns(this.buffer, 0, unzippedLen, this.selectedColumns);
+        }
         this.bufferIterator.update(this.buffer, 0, unzippedLen, true, true);
     }
 
 
+    /**
+     * Removes the columns not marked in selected from the lines in buffer between offset and upTo, in place.
+     *
+     * @return The end of the projected lines in the buffer
+     */
+    static int selectColumns(byte[] buffer, int offset, int upTo, boolean[] selected) {
+        int dp = offset;
+        int col = 0;
+        boolean firstInLine = true;
+        int sp = offset;
+        while (sp < upTo) {
+            int end = sp;
+            byte b;
+            while (end < upTo && (b = buffer[end]) != '\t' && b != '\n') end++;
+            if (col < selected.length && selected[col]) {
+                if (!firstInLine) {
+                    buffer[dp++] = '\t';
+                }
+                System.arraycopy(buffer, sp, buffer, dp, end - sp);
+                dp += end - sp;
+                firstInLine = false;
+            }
+            if (end < upTo && buffer[end] == '\n') {
+                buffer[dp++] = '\n';
+                col = 0;
+                firstInLine = true;
+            } else {
+                col++;
+            }
+            sp = end + 1;
+        }
+        return dp;
+    }
+
     private int getBeginningOfBlock(byte[] in) {
         int idx = 0;
         while (idx < in.length && in[idx++] != '\t');
@@ -289,7 +369,7 @@ public class GorzSeekableIterator extends GenomicIteratorBase {
                 return 0;
             } else {
                 super.decompress(this.buffer, 0, this.buffer.length);
-                return BlockPacker.decode(this.buffer, 0, out, offset, this.mapExtTable);
+                return BlockPacker.decode(this.buffer, 0, out, offset, this.mapExtTable, selectedColumns);
             }
         }
     }
@@ -0,0 +1,132 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.adapters;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Seekable stream that serves the start of a file from memory.
+ * <p>
+ * With a cached prefix, reads within the prefix never touch the underlying stream. Without one, the bytes read
+ * contiguously from the start of the file are recorded (up to a limit) so they can be cached once the reader has
+ * consumed the file header.
+ */
+class PrefixCachingSeekableStream extends SeekableStream {
+    private final SeekableStream delegate;
+    private final byte[] prefix;
+    private final int maxRecorded;
+    private ByteArrayOutputStream recorded;
+    private long position;
+    private boolean delegatePositioned = true;
+
+    PrefixCachingSeekableStream(SeekableStream delegate, byte[] prefix, int maxRecorded) {
+        this.delegate = delegate;
+        this.prefix = prefix;
+        this.maxRecorded = maxRecorded;
+        this.recorded = prefix == null ? new ByteArrayOutputStream() : null;
+    }
+
+    /**
+     * Stop recording and return the bytes read from the start of the file, or null if nothing usable was recorded.
+     */
+    byte[] takeRecordedPrefix() {
+        ByteArrayOutputStream bytes = recorded;
+        recorded = null;
+        return bytes != null && bytes.size() > 0 ? bytes.toByteArray() : null;
+    }
+
+    @Override
+    public long length() {
+        return delegate.length();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void seek(long position) {
+        this.position = position;
+        delegatePositioned = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == 1 ? b[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (prefix != null && position < prefix.length) {
+            int n = (int) Math.min(length, prefix.length - position);
+            System.arraycopy(prefix, (int) position, buffer, offset, n);
+            position += n;
+            delegatePositioned = false;
+            return n;
+        }
+        if (!delegatePositioned) {
+            delegate.seek(position);
+            delegatePositioned = true;
+        }
+        int n = delegate.read(buffer, offset, length);
+        if (n > 0) {
+            record(buffer, offset, n);
+            position += n;
+        }
+        return n;
+    }
+
+    private void record(byte[] buffer, int offset, int n) {
+        if (recorded == null) return;
+        long size = recorded.size();
+        long end = position + n;
+        if (position <= size && end > size) {
+            if (end > maxRecorded) {
+                recorded = null;
+            } else {
+                recorded.write(buffer, offset + (int) (size - position), (int) (end - size));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public boolean eof() throws IOException {
+        return position >= length();
+    }
+
+    @Override
+    public String getSource() {
+        return delegate.getSource();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.adapters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import htsjdk.samtools.seekablestream.SeekableMemoryStream;
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Process wide cache of BAM/CRAM index files and file header bytes, keyed by the unique id of the source.
+ * <p>
+ * A pgor query over many alignment files opens each file once per partition. Without the cache every open fetches the
+ * whole index and the header blocks again. Index files are cached in full and handed to htsjdk as memory streams,
+ * headers as the prefix of the data file the reader consumed on open. Concurrent opens of an uncached index share
+ * one load. The cache is bounded by {@code gor.driver.sam.cache.size} bytes (0 disables it).
+ */
+public class SamSourceCache {
+    private static final Logger log = LoggerFactory.getLogger(SamSourceCache.class);
+
+    private static final long MAX_SIZE = Long.getLong("gor.driver.sam.cache.size", 256L * 1024 * 1024);
+    // Larger entries than this are streamed from the source and not cached
+    private static final long MAX_ENTRY_SIZE = MAX_SIZE / 16;
+
+    private static final Cache<String, byte[]> cache = Caffeine.newBuilder()
+            .maximumWeight(Math.max(MAX_SIZE, 1))
+            .weigher((String key, byte[] value) -> value.length)
+            .build();
+
+    private SamSourceCache() {}
+
+    /**
+     * Seekable stream of an index file, served from memory when it can be cached.
+     */
+    public static SeekableStream indexStream(StreamSource index) {
+        String id = uniqueId(index);
+        if (id != null) {
+            try {
+                Long length = index.getSourceMetadata().getLength();
+                if (length != null && length > 0 && length <= MAX_ENTRY_SIZE) {
+                    byte[] bytes = cache.get("index:" + id, key -> readFully(index));
+                    return new SeekableMemoryStream(bytes, index.getName());
+                }
+            } catch (UncheckedIOException e) {
+                log.debug("Not caching index {}", index.getName(), e);
+            }
+        }
+        return new StreamSourceSeekableStream(index);
+    }
+
+    /**
+     * Seekable stream of a BAM/CRAM data file. If the header bytes of the file are cached they are served from memory,
+     * otherwise they are recorded and cached by {@link #headerRead(StreamSource, SeekableStream)}.
+     */
+    public static SeekableStream dataStream(StreamSource source) {
+        SeekableStream stream = new StreamSourceSeekableStream(source);
+        String id = uniqueId(source);
+        if (id == null) return stream;
+        return new PrefixCachingSeekableStream(stream, cache.getIfPresent("header:" + id), (int) Math.min(MAX_ENTRY_SIZE, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Called once the reader on a stream from {@link #dataStream(StreamSource)} has read the file header.
+     */
+    public static void headerRead(StreamSource source, SeekableStream stream) {
+        if (stream instanceof PrefixCachingSeekableStream prefixStream) {
+            byte[] prefix = prefixStream.takeRecordedPrefix();
+            String id = uniqueId(source);
+            if (prefix != null && id != null) {
+                cache.asMap().putIfAbsent("header:" + id, prefix);
+            }
+        }
+    }
+
+    static void clear() {
+        cache.invalidateAll();
+    }
+
+    private static String uniqueId(StreamSource source) {
+        if (MAX_SIZE <= 0) return null;
+        try {
+            return source.getSourceMetadata().getUniqueId();
+        } catch (RuntimeException e) {
+            // Let the reader report problems with the source
+            return null;
+        }
+    }
+
+    private static byte[] readFully(StreamSource source) {
+        try (InputStream is = source.open()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
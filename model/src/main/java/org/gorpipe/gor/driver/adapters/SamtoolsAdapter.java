@@ -51,12 +51,14 @@ public class SamtoolsAdapter {
     public static SamReader createReader(StreamSource source, StreamSource index, File ref) {
         SamReaderFactory srf = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT);
         if (ref != null) srf.referenceSource(new ReferenceSource(ref));
-        SeekableStream bamStream = new StreamSourceSeekableStream(source);
+        SeekableStream bamStream = SamSourceCache.dataStream(source);
         SamInputResource sir = SamInputResource.of(bamStream);
         if (index != null) {
-            SeekableStream indexStream = new StreamSourceSeekableStream(index);
+            SeekableStream indexStream = SamSourceCache.indexStream(index);
             sir.index(indexStream);
         }
-        return srf.open(sir);
+        SamReader reader = srf.open(sir);
+        SamSourceCache.headerRead(source, bamStream);
+        return reader;
     }
 }
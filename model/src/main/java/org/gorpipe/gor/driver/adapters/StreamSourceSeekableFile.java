@@ -25,12 +25,16 @@ package org.gorpipe.gor.driver.adapters;
 import org.gorpipe.gor.driver.providers.stream.StreamUtils;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSourceMetadata;
+import org.gorpipe.gor.driver.providers.stream.sources.file.FileSource;
+import org.gorpipe.gor.driver.providers.stream.sources.file.MappedFileReader;
+import org.gorpipe.gor.driver.providers.stream.sources.wrappers.WrappedStreamSource;
 import org.gorpipe.gor.model.SeekableFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
 /**
  * SeekableFile implementation using a StreamSource.
@@ -46,6 +50,9 @@ public class StreamSourceSeekableFile extends SeekableFile {
 
     long position = 0;
     private StreamSourceMetadata meta;
+    // Memory mapping of local files, null if the source is not mapped (yet)
+    private MappedFileReader mapped;
+    private boolean mappedChecked;
 
     public StreamSourceSeekableFile(StreamSource source) {
         this.source = source;
@@ -68,6 +75,17 @@ public class StreamSourceSeekableFile extends SeekableFile {
     }
 
     public int read() throws IOException {
+        MappedFileReader reader = mappedReader();
+        if (reader != null) {
+            byte[] b = new byte[1];
+            try {
+                int value = reader.read(position, b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+                position++;
+                return value;
+            } catch (MappedFileReader.MapFailedException e) {
+                disableMapping(e);
+            }
+        }
         try (InputStream stream = source.open(position++)) {
             return stream.read();
         }
@@ -81,6 +99,18 @@ public class StreamSourceSeekableFile extends SeekableFile {
             // Safe to cast because length-position can only be less than len.
             len = (int) (length() - position);
         }
+        MappedFileReader reader = mappedReader();
+        if (reader != null) {
+            try {
+                int read = reader.read(position, b, off, len);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            } catch (MappedFileReader.MapFailedException e) {
+                disableMapping(e);
+            }
+        }
         // Individual operations are retried automatically with our retry wrapper, but we
         // may get errors, such as stale file handle, that we can recover from by
         // reopening the file before attempting the read operation again.
@@ -109,6 +139,8 @@ public class StreamSourceSeekableFile extends SeekableFile {
 
     @Override
     public void write(byte[] b) throws IOException {
+        closeMapped();
+        mappedChecked = true;
         try(var os = source.getOutputStream(position)) {
             os.write(b);
             position += b.length;
@@ -117,9 +149,50 @@ public class StreamSourceSeekableFile extends SeekableFile {
 
     @Override
     public void close() throws IOException {
+        closeMapped();
         source.close();
     }
 
+    /**
+     * Returns a memory mapped reader if the underlying source is a large enough local file, otherwise null.
+     */
+    private MappedFileReader mappedReader() throws IOException {
+        if (!mappedChecked) {
+            mappedChecked = true;
+            StreamSource unwrapped = source;
+            while (unwrapped instanceof WrappedStreamSource) {
+                unwrapped = ((WrappedStreamSource) unwrapped).getWrapped();
+            }
+            if (MappedFileReader.ENABLED && unwrapped instanceof FileSource && length() >= MappedFileReader.MIN_SIZE) {
+                try {
+                    mapped = createMappedReader(((FileSource) unwrapped).getPath(), length());
+                } catch (IOException | UnsupportedOperationException e) {
+                    log.debug("Unable to memory map {}, using regular reads", ((FileSource) unwrapped).getPath(), e);
+                }
+            }
+        }
+        return mapped;
+    }
+
+    protected MappedFileReader createMappedReader(Path path, long length) throws IOException {
+        return new MappedFileReader(path, length);
+    }
+
+    /**
+     * Turns memory mapping off for this file after a failed mapping, the following reads use the source streams.
+     */
+    private void disableMapping(MappedFileReader.MapFailedException e) throws IOException {
+        log.debug("Unable to memory map {}, using regular reads", getMeta().getNamedUrl(), e);
+        closeMapped();
+    }
+
+    private void closeMapped() throws IOException {
+        if (mapped != null) {
+            mapped.close();
+            mapped = null;
+        }
+    }
+
     public StreamSourceMetadata getMeta() throws IOException {
         if (meta == null) {
             meta = source.getSourceMetadata();
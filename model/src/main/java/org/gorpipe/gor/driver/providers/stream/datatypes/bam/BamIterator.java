@@ -36,6 +36,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 import java.util.function.ToIntFunction;
 
@@ -164,7 +165,7 @@ public class BamIterator extends GenomicIteratorBase {
             else if (i == 8) defaultReverseStringMap[k] = SAMRecord::getMateReferenceName;
             else if (i == 9) defaultReverseStringMap[k] = (record) -> Integer.toString(record.getMateAlignmentStart());
             else if (i == 10) defaultReverseStringMap[k] = (record) -> Integer.toString(record.getInferredInsertSize());
-            else if (i == 11) defaultReverseStringMap[k] = (record) -> new String(record.getReadBases());
+            else if (i == 11) defaultReverseStringMap[k] = (record) -> new String(record.getReadBases(), StandardCharsets.ISO_8859_1);
             else if (i == 12) defaultReverseStringMap[k] = (record) -> getBaseQualities(record);
             else if (i == 13) defaultReverseStringMap[k] = (record) -> getAttributes(record);
         }
@@ -297,11 +298,13 @@ public class BamIterator extends GenomicIteratorBase {
     }
 
     public String getBaseQualities(SAMRecord record) {
-        ByteTextBuilder btb = new ByteTextBuilder(10);
-        //        btb.append(record.getBaseQualities());
         // The Picard library brakes the contract in the SAM format specification. Thus we must add 33 to the quality values to be compliant to the specifications
-        prepareBaseQualities(record, btb);
-        return btb.toString();
+        byte[] baseQuals = record.getBaseQualities();
+        byte[] phred = new byte[baseQuals.length];
+        for (int i = 0; i < baseQuals.length; i++) {
+            phred[i] = (byte) (33 + baseQuals[i]);
+        }
+        return new String(phred, StandardCharsets.ISO_8859_1);
     }
 
     public String getAttributes(SAMRecord record) {
@@ -374,10 +377,16 @@ public class BamIterator extends GenomicIteratorBase {
         }
     }
 
+    /**
+     * Row backed by a SAMRecord. Columns are decoded from the record the first time they are accessed and then kept,
+     * so rows dropped by a filter on e.g. flag or mapq never build the SEQ, QUAL or TAG_VALUES strings.
+     */
     public class SAMRecordRow extends Row {
         public SAMRecord record;
         Function<SAMRecord, String>[] reverseStringMap;
         ToIntFunction<SAMRecord>[] reverseIntMap;
+        private String[] decoded;
+        private String allCols;
 
         SAMRecordRow(SAMRecord record, Function<SAMRecord, String>[] reverseStringMap, ToIntFunction<SAMRecord>[] reverseIntMap) {
             super();
@@ -415,17 +424,28 @@ public class BamIterator extends GenomicIteratorBase {
 
         @Override
         public String colAsString(int colNum) {
-            return reverseStringMap[colNum].apply(record);
+            if (decoded == null) decoded = new String[reverseStringMap.length];
+            String value = decoded[colNum];
+            if (value == null) {
+                value = reverseStringMap[colNum].apply(record);
+                decoded[colNum] = value;
+            }
+            return value;
+        }
+
+        private void columnsChanged() {
+            decoded = null;
+            allCols = null;
         }
 
         @Override
         public boolean colStartsWith(int colNum, CharSequence colStr) {
-            return reverseStringMap[colNum].apply(record).startsWith(colStr.toString());
+            return colAsString(colNum).startsWith(colStr.toString());
         }
 
         @Override
         public String stringValue(int col) {
-            return reverseStringMap[col].apply(record);
+            return colAsString(col);
         }
 
         @Override
@@ -460,22 +480,25 @@ public class BamIterator extends GenomicIteratorBase {
         }
 
         private void otherCols(StringBuilder sb) {
-            if (numCols() > 2) sb.append(reverseStringMap[2].apply(record));
+            if (numCols() > 2) sb.append(colAsString(2));
             for (int i = 3; i < numCols(); i++) {
                 sb.append('\t');
-                sb.append(reverseStringMap[i].apply(record));
+                sb.append(colAsString(i));
             }
         }
 
         @Override
         public CharSequence getAllCols() {
-            StringBuilder sb = new StringBuilder();
-            sb.append(chr);
-            sb.append('\t');
-            sb.append(pos);
-            sb.append('\t');
-            otherCols(sb);
-            return sb;
+            if (allCols == null) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(chr);
+                sb.append('\t');
+                sb.append(pos);
+                sb.append('\t');
+                otherCols(sb);
+                allCols = sb.toString();
+            }
+            return allCols;
         }
 
         @Override
@@ -490,7 +513,7 @@ public class BamIterator extends GenomicIteratorBase {
 
         private void appendColumn(StringBuilder sb, int i) {
             if (i == 0) sb.append(chr);
-            else sb.append(reverseStringMap[i].apply(record));
+            else sb.append(colAsString(i));
         }
 
         @Override
@@ -508,7 +531,7 @@ public class BamIterator extends GenomicIteratorBase {
         public int otherColsLength() {
             int total = numCols() - 3;
             for (int i = 2; i < numCols(); i++) {
-                total += reverseStringMap[i].apply(record).length();
+                total += colAsString(i).length();
             }
             return total;
         }
@@ -534,6 +557,7 @@ public class BamIterator extends GenomicIteratorBase {
             }
             reverseStringMap = revStringMap;
             reverseIntMap = revIntMap;
+            columnsChanged();
             return this;
         }
 
@@ -561,6 +585,7 @@ public class BamIterator extends GenomicIteratorBase {
             }
             reverseStringMap = revStringMap;
             reverseIntMap = revIntMap;
+            columnsChanged();
         }
 
         @Override
@@ -573,6 +598,7 @@ public class BamIterator extends GenomicIteratorBase {
             int idx = i + 2;
             reverseStringMap[idx] = (sr) -> val;
             reverseIntMap[idx] = (sr) -> Integer.parseInt(val);
+            columnsChanged();
         }
 
         @Override
@@ -602,7 +628,7 @@ public class BamIterator extends GenomicIteratorBase {
             outputStream.write(String.valueOf(pos).getBytes());
             for (int i = 2; i < this.reverseStringMap.length; ++i) {
                 outputStream.write('\t');
-                outputStream.write(this.reverseStringMap[i].apply(record).getBytes());
+                outputStream.write(colAsString(i).getBytes());
             }
         }
 
@@ -610,7 +636,7 @@ public class BamIterator extends GenomicIteratorBase {
         public void writeNorRowToStream(OutputStream outputStream) throws IOException {
             for (int i = 0; i < this.reverseStringMap.length; ++i) {
                 outputStream.write('\t');
-                outputStream.write(this.reverseStringMap[i].apply(record).getBytes());
+                outputStream.write(colAsString(i).getBytes());
             }
         }
     }
@@ -27,6 +27,8 @@ import htsjdk.samtools.cram.ref.CRAMReferenceSource;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
 import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
 import htsjdk.samtools.seekablestream.SeekableBufferedStream;
+import htsjdk.samtools.seekablestream.SeekableMemoryStream;
+import htsjdk.samtools.seekablestream.SeekableStream;
 import htsjdk.samtools.util.SequenceUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -36,7 +38,7 @@ import org.gorpipe.gor.driver.meta.DataType;
 import org.gorpipe.gor.driver.providers.stream.datatypes.bam.BamIterator;
 import org.gorpipe.gor.model.ChromoLookup;
 import org.gorpipe.gor.session.GorSession;
-import org.gorpipe.gor.driver.adapters.StreamSourceSeekableStream;
+import org.gorpipe.gor.driver.adapters.SamSourceCache;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
 import org.gorpipe.gor.table.util.PathUtils;
 import org.gorpipe.gor.util.DataUtil;
@@ -180,17 +182,22 @@ public class CramIterator extends BamIterator {
 
             referenceSource = createReferenceSource(getInitialReferenceFile(), session.getProjectContext().getRealProjectRoot());
 
-            SeekableBufferedStream cramStream = new SeekableBufferedStream(new StreamSourceSeekableStream(cramFile.getFileSource()));
+            SeekableStream cramSourceStream = SamSourceCache.dataStream(cramFile.getFileSource());
+            SeekableBufferedStream cramStream = new SeekableBufferedStream(cramSourceStream);
 
-            SeekableBufferedStream cramIndexStream = null;
+            SeekableStream cramIndexStream = null;
 
             if (cramFile.getIndexSource() != null) {
-                cramIndexStream = new SeekableBufferedStream(new StreamSourceSeekableStream(cramFile.getIndexSource()), 10000);
+                cramIndexStream = SamSourceCache.indexStream(cramFile.getIndexSource());
+                if (!(cramIndexStream instanceof SeekableMemoryStream)) {
+                    cramIndexStream = new SeekableBufferedStream(cramIndexStream, 10000);
+                }
             }
 
             SamInputResource sir = SamInputResource.of(cramStream);
             try {
                 cramFileReader = new CRAMFileReader(cramStream, cramIndexStream, referenceSource, ValidationStringency.DEFAULT_STRINGENCY);
+                SamSourceCache.headerRead(cramFile.getFileSource(), cramSourceStream);
             } catch (IOException ioe) {
                 throw new GorResourceException("Failed to create cram iterator.", fileName, ioe);
             }
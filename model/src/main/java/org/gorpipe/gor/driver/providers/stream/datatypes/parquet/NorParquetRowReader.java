@@ -33,6 +33,10 @@ public class NorParquetRowReader extends ParquetRowReader {
         super(reader, (Group grp) -> new NorParquetLine(grp, sortCols), part);
     }
 
+    NorParquetRowReader(GroupReader reader, int[] sortCols, String part) {
+        super(reader, (Group grp) -> new NorParquetLine(grp, sortCols), part);
+    }
+
     @Override
     public Row next() {
         return RowObj.apply("chrN", 0, row.toString());
@@ -32,7 +32,6 @@ import org.apache.parquet.filter2.predicate.Operators;
 import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.api.ReadSupport;
-import org.apache.parquet.hadoop.example.GroupReadSupport;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.hadoop.util.HadoopInputFile;
 import org.apache.parquet.io.InputFile;
@@ -68,7 +67,7 @@ public class ParquetFileIterator extends GenomicIteratorBase {
     private String resultPath;
     private int[] sortCols;
     private final Configuration configuration = new Configuration(true);
-    private final GroupReadSupport readSupport = new GroupReadSupport();
+    private final PrimitiveGroupReadSupport readSupport = new PrimitiveGroupReadSupport();
     private MessageType schema;
     private FilterPredicate filterPredicate;
     private FilterPredicate seekfilterPredicate;
@@ -179,13 +178,22 @@ public class ParquetFileIterator extends GenomicIteratorBase {
     }
 
     private ParquetRowReader initParquetReader(Path parquetFilePath) throws IOException {
-        ParquetReader.Builder<Group> parquetBuilder = ParquetReader.builder(readSupport, parquetFilePath).withConf(configuration);
-        if(filter!=null) parquetBuilder.withFilter(filter);
-        ParquetReader<Group> reader = parquetBuilder.build();
+        return initParquetReader(parquetFilePath, false);
+    }
 
+    private ParquetRowReader initParquetReader(Path parquetFilePath, boolean parallelRowGroups) throws IOException {
         String[] partCol = extractPartCol(parquetFilePath.toString());
         String part = partCol != null ? partCol[1] : null;
 
+        if (parallelRowGroups && ParquetRowGroupReader.isEnabled()) {
+            ParquetRowGroupReader reader = new ParquetRowGroupReader(parquetFilePath, configuration, filter);
+            return nor ? new NorParquetRowReader(reader, sortCols, part) : new ParquetRowReader(reader, lookup, part);
+        }
+
+        ParquetReader.Builder<Group> parquetBuilder = ParquetReader.builder(readSupport, parquetFilePath).withConf(configuration);
+        if(filter!=null) parquetBuilder.withFilter(filter);
+        ParquetReader<Group> reader = parquetBuilder.build();
+
         return nor ? new NorParquetRowReader(reader, sortCols, part) : new ParquetRowReader(reader, lookup, part);
     }
 
@@ -210,9 +218,13 @@ public class ParquetFileIterator extends GenomicIteratorBase {
     private void subInit() throws IOException {
         if( nor && (sortCols == null || sortCols.length == 1) ) {
             if( parquetPaths.size() > 0 ) {
-                ParquetRowReader parquetRowReader = initParquetReader(parquetPaths.remove(0));
+                // Files are read one at a time here, so decode the row groups of each file in parallel
+                ParquetRowReader parquetRowReader = initParquetReader(parquetPaths.remove(0), true);
                 if (parquetRowReader.row != null) mergeParquet.add(parquetRowReader);
             }
+        } else if (parquetPaths.size() == 1) {
+            ParquetRowReader parquetRowReader = initParquetReader(parquetPaths.remove(0), true);
+            if (parquetRowReader.row != null) mergeParquet.add(parquetRowReader);
         } else {
             Path2ParquetReader path2ParquetReader = new Path2ParquetReader();
             // Use takeWhile(Objects::nonNull) before collect when compiling with jdk9+
@@ -231,7 +243,6 @@ public class ParquetFileIterator extends GenomicIteratorBase {
             schema = readFooter.getFileMetaData().getSchema();
             String parquetHeader = schema.getFields().stream().map(this::getTypeName).collect(Collectors.joining("\t"));
             setHeader(parquetHeader);
-            readSupport.init(configuration, null, schema);
         }
 
         if(partCol!=null) {
@@ -417,7 +428,8 @@ public class ParquetFileIterator extends GenomicIteratorBase {
                     boolean eq = (comp == '<' || comp == '>') && comp2 == '=';
                     String valStr = filterStr.substring(col.length() + (eq ? 2 : 1), filterStr.length() - 1);
 
-                    PrimitiveType.PrimitiveTypeName primName = schema.getColumns().get(i).getPrimitiveType().getPrimitiveTypeName();
+                    int schemaIdx = schema.containsField(col) ? schema.getFieldIndex(col) : i;
+                    PrimitiveType.PrimitiveTypeName primName = schema.getColumns().get(schemaIdx).getPrimitiveType().getPrimitiveTypeName();
                     FilterPredicate newFilterPredicate = getFilterPredicate(primName, filterStr, valStr, col, comp, comp2, eq);
 
                     if (newFilterPredicate != null) {
@@ -430,6 +442,35 @@ public class ParquetFileIterator extends GenomicIteratorBase {
         return false;
     }
 
+    /**
+     * Requests a projected read schema so only the selected columns are read from the parquet files.
+     * The header must map directly onto the parquet schema, i.e. not in nor context or with a
+     * partitioning column, and the chromosome and position columns must be kept.
+     */
+    @Override
+    public boolean pushdownSelect(String[] colList) {
+        init();
+        if (nor || (partitioningCol != null && !partColPresent) || !mergeParquet.isEmpty()
+                || configuration.get(ReadSupport.PARQUET_READ_SCHEMA) != null) {
+            return false;
+        }
+        final String[] header = getHeader().split("\t");
+        final int[] cols = new int[colList.length];
+        for (int i = 0; i < colList.length; i++) {
+            int col = 0;
+            while (col < header.length && !header[col].equalsIgnoreCase(colList[i])) col++;
+            if (col == header.length) {
+                return false;
+            }
+            cols[i] = col;
+        }
+        if (cols.length < 2 || cols[0] != 0 || cols[1] != 1) {
+            return false;
+        }
+        select(cols);
+        return true;
+    }
+
     protected void selectHeader(int[] cols) {
         if (getHeader() != null && !getHeader().equals("")) {
             final String[] headerCols = getHeader().split("\t");
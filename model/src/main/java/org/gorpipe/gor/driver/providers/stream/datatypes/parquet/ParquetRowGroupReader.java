@@ -0,0 +1,228 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.datatypes.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.HadoopReadOptions;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.gorpipe.exceptions.GorSystemException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the records of a single parquet file with the row groups decoded in parallel.
+ * <p>
+ * Row groups are submitted in file order, at most {@code gor.parquet.read.threads} at a time, and their records are
+ * returned in file order, so the output is the same as reading the file sequentially. Each decode task opens its own
+ * file reader, as the page buffers of a shared reader are released when it moves to the next row group.
+ * <p>
+ * A decoded row group is held in memory until it has been read, so the row groups decoded ahead are limited to
+ * {@code gor.parquet.read.aheadrows} rows in total. A row group with more rows than that is read sequentially, one
+ * record at a time, by the calling thread.
+ */
+class ParquetRowGroupReader implements ParquetRowReader.GroupReader {
+    static final int THREADS = Integer.getInteger("gor.parquet.read.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    static final long MAX_READ_AHEAD_ROWS = Long.getLong("gor.parquet.read.aheadrows", 1_000_000L);
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Math.max(1, THREADS), r -> {
+        Thread t = new Thread(r, "parquet-rowgroup-reader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final InputFile inputFile;
+    private final ParquetReadOptions options;
+    private final FilterCompat.Filter filter;
+    // The requested schema, the file schema projected onto the selected columns
+    private final MessageType schema;
+    private final String createdBy;
+    private final int rowGroups;
+    // Row count of each row group, before the record filter is applied
+    private final long[] rowCounts;
+    private final long maxReadAheadRows;
+    private int nextRowGroup;
+    private final ArrayDeque<PendingRowGroup> pending = new ArrayDeque<>();
+    private long pendingRows;
+    private Iterator<Group> current = Collections.emptyIterator();
+    // Open while a row group is read sequentially
+    private ParquetFileReader sequentialReader;
+
+    private record PendingRowGroup(Future<List<Group>> groups, long rows) {}
+
+    ParquetRowGroupReader(Path path, Configuration configuration, FilterCompat.Filter filter) throws IOException {
+        this(path, configuration, filter, MAX_READ_AHEAD_ROWS);
+    }
+
+    ParquetRowGroupReader(Path path, Configuration configuration, FilterCompat.Filter filter, long maxReadAheadRows) throws IOException {
+        this.maxReadAheadRows = maxReadAheadRows;
+        this.inputFile = HadoopInputFile.fromPath(path, configuration);
+        this.filter = filter != null ? filter : FilterCompat.NOOP;
+        HadoopReadOptions.Builder builder = HadoopReadOptions.builder(configuration);
+        if (filter != null) builder.withRecordFilter(filter);
+        this.options = builder.build();
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile, options)) {
+            schema = PrimitiveGroupReadSupport.requestedSchema(configuration, reader.getFileMetaData().getSchema());
+            createdBy = reader.getFileMetaData().getCreatedBy();
+            rowGroups = reader.getRowGroups().size();
+            rowCounts = reader.getRowGroups().stream().mapToLong(b -> b.getRowCount()).toArray();
+        }
+        submitRowGroups();
+    }
+
+    static boolean isEnabled() {
+        return THREADS > 1;
+    }
+
+    @Override
+    public Group read() throws IOException {
+        while (!current.hasNext()) {
+            closeSequentialReader();
+            PendingRowGroup next = pending.poll();
+            if (next != null) {
+                pendingRows -= next.rows();
+                current = waitFor(next.groups()).iterator();
+            } else if (nextRowGroup < rowGroups) {
+                // Too large to decode ahead
+                current = readSequentially(nextRowGroup++);
+            } else {
+                return null;
+            }
+            submitRowGroups();
+        }
+        return current.next();
+    }
+
+    private void submitRowGroups() {
+        while (pending.size() < THREADS && nextRowGroup < rowGroups
+                && pendingRows + rowCounts[nextRowGroup] <= maxReadAheadRows) {
+            int rowGroup = nextRowGroup++;
+            pendingRows += rowCounts[rowGroup];
+            pending.add(new PendingRowGroup(EXECUTOR.submit(() -> decodeRowGroup(rowGroup)), rowCounts[rowGroup]));
+        }
+    }
+
+    private List<Group> waitFor(Future<List<Group>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GorSystemException("Interrupted while reading parquet row group", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) throw ioe;
+            throw new GorSystemException("Error decoding parquet row group", e.getCause());
+        }
+    }
+
+    private List<Group> decodeRowGroup(int rowGroup) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile, options)) {
+            Iterator<Group> records = openRowGroup(reader, rowGroup);
+            List<Group> groups = new ArrayList<>((int) Math.min(rowCounts[rowGroup], Integer.MAX_VALUE - 8));
+            records.forEachRemaining(groups::add);
+            return groups;
+        }
+    }
+
+    private Iterator<Group> readSequentially(int rowGroup) throws IOException {
+        sequentialReader = ParquetFileReader.open(inputFile, options);
+        return openRowGroup(sequentialReader, rowGroup);
+    }
+
+    private Iterator<Group> openRowGroup(ParquetFileReader reader, int rowGroup) throws IOException {
+        reader.setRequestedSchema(schema);
+        PageReadStore pages = reader.readFilteredRowGroup(rowGroup);
+        if (pages == null) return Collections.emptyIterator();
+        MessageColumnIO columnIO = new ColumnIOFactory(createdBy).getColumnIO(schema);
+        RecordReader<Group> recordReader = columnIO.getRecordReader(pages, PrimitiveGroupReadSupport.materializer(schema), filter);
+        return new RecordIterator(recordReader, pages.getRowCount());
+    }
+
+    private void closeSequentialReader() throws IOException {
+        if (sequentialReader != null) {
+            ParquetFileReader reader = sequentialReader;
+            sequentialReader = null;
+            reader.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.forEach(p -> p.groups().cancel(true));
+        pending.clear();
+        pendingRows = 0;
+        current = Collections.emptyIterator();
+        closeSequentialReader();
+    }
+
+    /**
+     * The records of a row group that pass the record filter.
+     */
+    private static class RecordIterator implements Iterator<Group> {
+        private final RecordReader<Group> recordReader;
+        private long remaining;
+        private Group next;
+
+        RecordIterator(RecordReader<Group> recordReader, long rowCount) {
+            this.recordReader = recordReader;
+            this.remaining = rowCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && remaining > 0) {
+                remaining--;
+                Group group = recordReader.read();
+                if (group != null && !recordReader.shouldSkipCurrentRecord()) next = group;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Group next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Group group = next;
+            next = null;
+            return group;
+        }
+    }
+}
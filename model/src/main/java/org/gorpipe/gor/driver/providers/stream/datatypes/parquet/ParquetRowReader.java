@@ -36,17 +36,45 @@ import java.util.function.Function;
 
 public class ParquetRowReader implements Comparable<ParquetRowReader>, Iterator<Row>, AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(ParquetRowReader.class);
-    ParquetReader<Group> reader;
+    GroupReader reader;
     Row row;
     String part;
 
     Function<Group, ParquetLine> lineProvider;
 
+    /**
+     * Source of parquet records, either a parquet-hadoop reader or a {@link ParquetRowGroupReader}.
+     */
+    interface GroupReader extends AutoCloseable {
+        Group read() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
     public ParquetRowReader(ParquetReader<Group> reader, ChromoLookup lookup, String part) {
         this(reader, (Group group) -> new ParquetLine(group, lookup), part);
     }
 
     public ParquetRowReader(ParquetReader<Group> reader, Function<Group, ParquetLine> lineProvider, String part) {
+        this(new GroupReader() {
+            @Override
+            public Group read() throws IOException {
+                return reader.read();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        }, lineProvider, part);
+    }
+
+    ParquetRowReader(GroupReader reader, ChromoLookup lookup, String part) {
+        this(reader, (Group group) -> new ParquetLine(group, lookup), part);
+    }
+
+    ParquetRowReader(GroupReader reader, Function<Group, ParquetLine> lineProvider, String part) {
         this.reader = reader;
         this.lineProvider = lineProvider;
         this.part = part;
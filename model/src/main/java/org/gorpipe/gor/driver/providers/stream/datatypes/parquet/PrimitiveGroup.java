@@ -0,0 +1,263 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.datatypes.parquet;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.NanoTime;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+/**
+ * Group for flat parquet records holding the column values in primitive arrays.
+ * <p>
+ * Unlike SimpleGroup it does not box values or keep a list per field, so the typed row accessors read the decoded
+ * values directly. Integral and boolean columns share a long array, float and double columns a double array.
+ */
+final class PrimitiveGroup extends Group {
+    private final Layout layout;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Binary[] binaries;
+    private final boolean[] present;
+
+    /**
+     * Column types of a flat schema, shared by all groups read with that schema.
+     */
+    static final class Layout {
+        final GroupType schema;
+        final PrimitiveType.PrimitiveTypeName[] types;
+        final boolean hasLongs;
+        final boolean hasDoubles;
+        final boolean hasBinaries;
+
+        private Layout(GroupType schema) {
+            this.schema = schema;
+            types = new PrimitiveType.PrimitiveTypeName[schema.getFieldCount()];
+            boolean longs = false, doubles = false, binaries = false;
+            for (int i = 0; i < types.length; i++) {
+                types[i] = schema.getType(i).asPrimitiveType().getPrimitiveTypeName();
+                switch (types[i]) {
+                    case INT32, INT64, BOOLEAN -> longs = true;
+                    case FLOAT, DOUBLE -> doubles = true;
+                    default -> binaries = true;
+                }
+            }
+            hasLongs = longs;
+            hasDoubles = doubles;
+            hasBinaries = binaries;
+        }
+
+        /**
+         * @return layout for the schema or null if the schema is not flat, i.e. has nested or repeated fields or
+         * column types that need special formatting (INT96 timestamps, fixed length decimals).
+         */
+        static Layout of(GroupType schema) {
+            for (Type type : schema.getFields()) {
+                if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) return null;
+                switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+                    case INT32, INT64, BOOLEAN, FLOAT, DOUBLE, BINARY -> { }
+                    default -> { return null; }
+                }
+            }
+            return new Layout(schema);
+        }
+    }
+
+    PrimitiveGroup(Layout layout) {
+        this.layout = layout;
+        int n = layout.types.length;
+        longs = layout.hasLongs ? new long[n] : null;
+        doubles = layout.hasDoubles ? new double[n] : null;
+        binaries = layout.hasBinaries ? new Binary[n] : null;
+        present = new boolean[n];
+    }
+
+    private void checkPresent(int fieldIndex, int index) {
+        if (index != 0 || !present[fieldIndex]) {
+            throw new RuntimeException("not found " + fieldIndex + "(" + layout.schema.getFieldName(fieldIndex) + ") element number " + index + " in group");
+        }
+    }
+
+    @Override
+    public void add(int fieldIndex, int value) {
+        longs[fieldIndex] = value;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, long value) {
+        longs[fieldIndex] = value;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, String value) {
+        add(fieldIndex, Binary.fromString(value));
+    }
+
+    @Override
+    public void add(int fieldIndex, boolean value) {
+        longs[fieldIndex] = value ? 1 : 0;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, NanoTime value) {
+        throw new UnsupportedOperationException("INT96 values are not supported in primitive groups");
+    }
+
+    @Override
+    public void add(int fieldIndex, Binary value) {
+        binaries[fieldIndex] = value;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, float value) {
+        doubles[fieldIndex] = value;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, double value) {
+        doubles[fieldIndex] = value;
+        present[fieldIndex] = true;
+    }
+
+    @Override
+    public void add(int fieldIndex, Group value) {
+        throw new UnsupportedOperationException("Nested groups are not supported in primitive groups");
+    }
+
+    @Override
+    public Group addGroup(int fieldIndex) {
+        throw new UnsupportedOperationException("Nested groups are not supported in primitive groups");
+    }
+
+    @Override
+    public Group getGroup(int fieldIndex, int index) {
+        throw new UnsupportedOperationException("Nested groups are not supported in primitive groups");
+    }
+
+    @Override
+    public int getFieldRepetitionCount(int fieldIndex) {
+        return present[fieldIndex] ? 1 : 0;
+    }
+
+    @Override
+    public String getValueToString(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return switch (layout.types[fieldIndex]) {
+            case INT32 -> String.valueOf((int) longs[fieldIndex]);
+            case INT64 -> String.valueOf(longs[fieldIndex]);
+            case BOOLEAN -> String.valueOf(longs[fieldIndex] != 0);
+            case FLOAT -> String.valueOf((float) doubles[fieldIndex]);
+            case DOUBLE -> String.valueOf(doubles[fieldIndex]);
+            default -> binaries[fieldIndex].toStringUsingUTF8();
+        };
+    }
+
+    @Override
+    public String getString(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return binaries[fieldIndex].toStringUsingUTF8();
+    }
+
+    @Override
+    public int getInteger(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return (int) longs[fieldIndex];
+    }
+
+    @Override
+    public long getLong(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return longs[fieldIndex];
+    }
+
+    @Override
+    public double getDouble(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return isIntegral(fieldIndex) ? longs[fieldIndex] : doubles[fieldIndex];
+    }
+
+    @Override
+    public float getFloat(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return (float) doubles[fieldIndex];
+    }
+
+    @Override
+    public boolean getBoolean(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return longs[fieldIndex] != 0;
+    }
+
+    @Override
+    public Binary getBinary(int fieldIndex, int index) {
+        checkPresent(fieldIndex, index);
+        return binaries[fieldIndex];
+    }
+
+    @Override
+    public Binary getInt96(int fieldIndex, int index) {
+        throw new UnsupportedOperationException("INT96 values are not supported in primitive groups");
+    }
+
+    @Override
+    public GroupType getType() {
+        return layout.schema;
+    }
+
+    @Override
+    public void writeValue(int field, int index, RecordConsumer recordConsumer) {
+        checkPresent(field, index);
+        switch (layout.types[field]) {
+            case INT32 -> recordConsumer.addInteger((int) longs[field]);
+            case INT64 -> recordConsumer.addLong(longs[field]);
+            case BOOLEAN -> recordConsumer.addBoolean(longs[field] != 0);
+            case FLOAT -> recordConsumer.addFloat((float) doubles[field]);
+            case DOUBLE -> recordConsumer.addDouble(doubles[field]);
+            default -> recordConsumer.addBinary(binaries[field]);
+        }
+    }
+
+    private boolean isIntegral(int fieldIndex) {
+        PrimitiveType.PrimitiveTypeName type = layout.types[fieldIndex];
+        return type == PrimitiveType.PrimitiveTypeName.INT32 || type == PrimitiveType.PrimitiveTypeName.INT64;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < present.length; i++) {
+            if (present[i]) {
+                sb.append(layout.schema.getFieldName(i)).append(": ").append(getValueToString(i, 0)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.datatypes.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+
+import java.util.Map;
+
+/**
+ * Read support that materializes flat parquet records straight into {@link PrimitiveGroup}s. Schemas with nested,
+ * repeated or specially formatted columns fall back to the example SimpleGroup converters.
+ */
+public class PrimitiveGroupReadSupport extends ReadSupport<Group> {
+
+    @Override
+    public ReadContext init(InitContext context) {
+        return new ReadContext(requestedSchema(context.getConfiguration(), context.getFileSchema()));
+    }
+
+    /**
+     * The file schema projected onto the columns requested with {@link ReadSupport#PARQUET_READ_SCHEMA}, if any.
+     */
+    static MessageType requestedSchema(Configuration configuration, MessageType fileSchema) {
+        return getSchemaForRead(fileSchema, configuration.get(ReadSupport.PARQUET_READ_SCHEMA));
+    }
+
+    @Override
+    public RecordMaterializer<Group> prepareForRead(Configuration configuration, Map<String, String> keyValueMetaData,
+                                                    MessageType fileSchema, ReadContext readContext) {
+        return materializer(readContext.getRequestedSchema());
+    }
+
+    static RecordMaterializer<Group> materializer(MessageType schema) {
+        PrimitiveGroup.Layout layout = PrimitiveGroup.Layout.of(schema);
+        return layout != null ? new PrimitiveGroupMaterializer(layout) : new GroupRecordConverter(schema);
+    }
+
+    private static class PrimitiveGroupMaterializer extends RecordMaterializer<Group> {
+        private final PrimitiveGroupConverter root;
+
+        PrimitiveGroupMaterializer(PrimitiveGroup.Layout layout) {
+            root = new PrimitiveGroupConverter(layout);
+        }
+
+        @Override
+        public Group getCurrentRecord() {
+            return root.current;
+        }
+
+        @Override
+        public GroupConverter getRootConverter() {
+            return root;
+        }
+    }
+
+    private static class PrimitiveGroupConverter extends GroupConverter {
+        private final PrimitiveGroup.Layout layout;
+        private final Converter[] converters;
+        private PrimitiveGroup current;
+
+        PrimitiveGroupConverter(PrimitiveGroup.Layout layout) {
+            this.layout = layout;
+            converters = new Converter[layout.types.length];
+            for (int i = 0; i < converters.length; i++) {
+                converters[i] = new ColumnConverter(i);
+            }
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return converters[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+            current = new PrimitiveGroup(layout);
+        }
+
+        @Override
+        public void end() {
+            // Nothing to finish, the values are stored as they are converted
+        }
+
+        private class ColumnConverter extends PrimitiveConverter {
+            private final int index;
+
+            ColumnConverter(int index) {
+                this.index = index;
+            }
+
+            @Override
+            public void addBinary(Binary value) {
+                // Copy as the value may be backed by a page buffer that is reused
+                current.add(index, value.copy());
+            }
+
+            @Override
+            public void addBoolean(boolean value) {
+                current.add(index, value);
+            }
+
+            @Override
+            public void addDouble(double value) {
+                current.add(index, value);
+            }
+
+            @Override
+            public void addFloat(float value) {
+                current.add(index, value);
+            }
+
+            @Override
+            public void addInt(int value) {
+                current.add(index, value);
+            }
+
+            @Override
+            public void addLong(long value) {
+                current.add(index, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.sources.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access reads from a memory mapped local file.
+ * <p>
+ * The file is mapped lazily in windows of {@code gor.driver.file.mmap.window} bytes (1GB by default), so files larger
+ * than 2GB can be read and only the regions that are accessed get mapped. Reads copy straight from the mapped pages,
+ * which saves the seek and read system calls per buffer fill in seek heavy access patterns.
+ * <p>
+ * A window that can not be mapped fails the read with a {@link MapFailedException}, callers can then fall back to
+ * regular reads.
+ */
+public class MappedFileReader implements AutoCloseable {
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("gor.driver.file.mmap", "true"));
+    // Smaller files are read with plain reads, mapping them costs more than it saves
+    public static final long MIN_SIZE = Long.getLong("gor.driver.file.mmap.minsize", 1024 * 1024);
+    private static final long WINDOW_SIZE = Long.getLong("gor.driver.file.mmap.window", 1L << 30);
+
+    private final FileChannel channel;
+    private final long length;
+    private final long windowSize;
+    private final MappedByteBuffer[] windows;
+
+    public MappedFileReader(Path path, long length) throws IOException {
+        this(path, length, WINDOW_SIZE);
+    }
+
+    MappedFileReader(Path path, long length, long windowSize) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid mmap window size " + windowSize);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.length = length;
+        this.windowSize = windowSize;
+        this.windows = new MappedByteBuffer[(int) ((length + windowSize - 1) / windowSize)];
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Read up to len bytes at position into b.
+     *
+     * @return number of bytes read, or -1 if position is at or beyond the end of the file
+     * @throws MapFailedException if the window containing position could not be mapped
+     */
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position >= length) return -1;
+        len = (int) Math.min(len, length - position);
+        int read = 0;
+        while (read < len) {
+            int windowIdx = (int) (position / windowSize);
+            int windowOffset = (int) (position - windowIdx * windowSize);
+            MappedByteBuffer window = window(windowIdx);
+            int n = Math.min(len - read, window.capacity() - windowOffset);
+            window.get(windowOffset, b, off + read, n);
+            read += n;
+            position += n;
+        }
+        return read;
+    }
+
+    private MappedByteBuffer window(int windowIdx) throws IOException {
+        MappedByteBuffer window = windows[windowIdx];
+        if (window == null) {
+            long start = windowIdx * windowSize;
+            try {
+                window = map(start, Math.min(windowSize, length - start));
+            } catch (IOException | UnsupportedOperationException e) {
+                throw new MapFailedException("Unable to map " + start + " of length " + length, e);
+            }
+            windows[windowIdx] = window;
+        }
+        return window;
+    }
+
+    MappedByteBuffer map(long start, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mappings are released when the buffers are garbage collected
+        channel.close();
+    }
+
+    /**
+     * Thrown when a window of the file can not be mapped, e.g. when the address space or the map count is exhausted.
+     */
+    public static class MapFailedException extends IOException {
+        public MapFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
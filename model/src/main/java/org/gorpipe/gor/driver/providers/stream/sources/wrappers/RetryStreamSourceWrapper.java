@@ -28,6 +28,7 @@ import org.gorpipe.gor.driver.providers.stream.StreamUtils;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSourceMetadata;
 import org.gorpipe.gor.driver.utils.RetryHandlerBase;
+import org.gorpipe.gor.monitor.CancellationToken;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -46,6 +47,9 @@ import java.util.stream.Stream;
  * In this case - we need to track the position in the underlying stream
  * On retry  - close/discard the underlying stream and reopen at the last successfully read position
  * <p>
+ * Streams opened while a query is running observe the query cancellation token. Cancelling the query closes the
+ * underlying stream to abort blocking reads, and failed reads of a cancelled query are not retried.
+ * <p>
  *
  * Note:
  * 1. The open calls do not use the defaultOnRetryOp (which skips retries for FileNotFound).  Is that because we
@@ -157,11 +161,14 @@ public class RetryStreamSourceWrapper extends WrappedStreamSource {
         // Holds the initial start/length values.
         private final long start;
         private final Long length;
+        private final CancellationToken cancellationToken = CancellationToken.current();
+        private final CancellationToken.Registration cancelRegistration;
 
         protected RetryInputStream(InputStream in, long start, Long length) {
             super(in);
             this.start = start;
             this.length = length;
+            this.cancelRegistration = cancellationToken.onCancel(this::abort);
         }
 
         @Override
@@ -170,6 +177,7 @@ public class RetryStreamSourceWrapper extends WrappedStreamSource {
                             try {
                                 return super.read(b, off, len);
                             } catch (IOException e) {
+                                cancellationToken.throwIfCancelled();
                                 throw GorResourceException.fromIOException(e, getPath()).retry();
                             }
                         }, this::reopen);
@@ -181,6 +189,7 @@ public class RetryStreamSourceWrapper extends WrappedStreamSource {
                 try {
                     return super.skip(n);
                 } catch (IOException e) {
+                    cancellationToken.throwIfCancelled();
                     throw GorResourceException.fromIOException(e, getPath()).retry();
                 }
             }, this::reopen);
@@ -190,6 +199,7 @@ public class RetryStreamSourceWrapper extends WrappedStreamSource {
          * NB: If reopening the stream fails - it is not retried.
          */
         private void reopen() {
+            cancellationToken.throwIfCancelled();
             StreamUtils.tryClose(in);
             // Need to open it using the outer super class open (and be careful NOT to warp it again)
             if (length == null) {
@@ -199,6 +209,20 @@ public class RetryStreamSourceWrapper extends WrappedStreamSource {
             }
         }
 
+        /**
+         * Closes the underlying stream, called from another thread when the query is cancelled so that a read blocked
+         * on the network fails instead of waiting for data.
+         */
+        private void abort() {
+            StreamUtils.tryClose(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            cancelRegistration.close();
+            super.close();
+        }
+
         /**
          * Supporting mark/reset is complicated - because the mark might have been set on the previousloy wrapped stream that is now closed.
          * We can add that later if really needed but a simpler method would be to wrap with BufferedInputStream (although possibly slower).
@@ -3,6 +3,7 @@ package org.gorpipe.gor.driver.utils;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.gorpipe.exceptions.GorException;
 import org.gorpipe.exceptions.GorSystemException;
+import org.gorpipe.gor.monitor.CancellationToken;
 import java.util.concurrent.ExecutionException;
 
 import static java.lang.Thread.sleep;
@@ -30,11 +31,15 @@ public abstract class RetryHandlerBase {
     }
 
     protected void threadSleep(long sleepMs, int tries, Throwable orginalException) {
+        // Don't wait to retry if the query was cancelled
+        CancellationToken cancellationToken = CancellationToken.current();
+        cancellationToken.throwIfCancelled();
         try {
             Thread.sleep(sleepMs);
         } catch (InterruptedException e) {
             // If interrupted waiting to retry, throw original exception
             Thread.currentThread().interrupt();
+            cancellationToken.throwIfCancelled();
             throw new GorSystemException("Retry thread interrupted after " + tries + " retries", e);
         }
     }
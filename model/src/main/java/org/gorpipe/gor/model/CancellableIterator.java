@@ -0,0 +1,67 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.model;
+
+import org.gorpipe.gor.monitor.CancellationToken;
+
+/**
+ * Wraps an iterator so that reading it stops with an exception when the query is cancelled. The token is
+ * polled once every 1024 rows.
+ */
+public class CancellableIterator extends GenomicIteratorAdapterBase {
+
+    private static final int CHECK_MASK = 1023;
+
+    private final CancellationToken token;
+    private int count = 0;
+
+    public CancellableIterator(GenomicIterator it, CancellationToken token) {
+        super(it);
+        this.token = token;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ((++count & CHECK_MASK) == 0) {
+            token.throwIfCancelled();
+        }
+        return iterator.hasNext();
+    }
+
+    @Override
+    public boolean seek(String chr, int pos) {
+        token.throwIfCancelled();
+        return iterator.seek(chr, pos);
+    }
+
+    @Override
+    public boolean seek(String chr, int pos, int end) {
+        token.throwIfCancelled();
+        return iterator.seek(chr, pos, end);
+    }
+
+    @Override
+    public String[] getTypes() {
+        return iterator.getTypes();
+    }
+}
@@ -47,6 +47,12 @@ class FilteredIterator extends GenomicIteratorAdapterBase {
         return seekSuccess && this.hasNext();
     }
 
+    @Override
+    public boolean pushdownSelect(String[] colList) {
+        // The filter may depend on columns that would be removed
+        return false;
+    }
+
     @Override
     public Row next() {
         final Row toReturn = this.myNext;
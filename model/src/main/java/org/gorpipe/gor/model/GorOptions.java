@@ -809,7 +809,8 @@ public class GorOptions {
         isNoLineFilter = isNoLineFilter || !table.getLineFilter();
         this.hasLocalDictonaryFile = hasLocalDictonaryFile || !gord.getValidTags().isEmpty() /*!table.getAllActiveTags().isEmpty()*/;  // Does not count as dictionary if no tags
 
-        final Dictionary.DictionaryLine[] fileList = gord.getSources(this.columnTags, allowBucketAccess, isSilentTagFilter);
+        // Lines outside the query range are pruned here using the dictionary index, they would be filtered out in getIterators anyway.
+        final Dictionary.DictionaryLine[] fileList = gord.getSources(this.columnTags, allowBucketAccess, isSilentTagFilter, chrname, begin, end);
         this.isDictionaryWithBuckets = gord.isDictionaryWithBuckets; //Arrays.stream(fileList).anyMatch(file -> file.sourceInserted);
         final boolean hasTags = !(this.columnTags == null || this.columnTags.isEmpty());
         if (!hasTags && gord.getAnyBucketHasDeletedFile()) {
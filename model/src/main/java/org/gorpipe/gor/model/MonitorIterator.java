@@ -44,6 +44,11 @@ public class MonitorIterator extends GenomicIteratorBase {
         return iterator.getHeader();
     }
 
+    @Override
+    public boolean pushdownSelect(String[] colList) {
+        return iterator.pushdownSelect(colList);
+    }
+
     @Override
     public boolean seek(String chr, int pos) {
         return iterator.seek(chr, pos);
@@ -0,0 +1,95 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.model;
+
+import org.gorpipe.gor.stats.QueryProfile;
+
+/**
+ * Wraps the input source of a profiled pipeline, recording the rows and bytes read and the time spent
+ * waiting for the source in the source profile node.
+ */
+public class ProfiledIterator extends GenomicIteratorAdapterBase {
+
+    private final QueryProfile profile;
+
+    public ProfiledIterator(GenomicIterator it, QueryProfile profile) {
+        super(it);
+        this.profile = profile;
+    }
+
+    @Override
+    public boolean hasNext() {
+        long start = System.nanoTime();
+        try {
+            return iterator.hasNext();
+        } finally {
+            profile.blocked(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Row next() {
+        long start = System.nanoTime();
+        Row row = iterator.next();
+        profile.blocked(System.nanoTime() - start);
+        profile.read(row.length());
+        return row;
+    }
+
+    @Override
+    public boolean seek(String chr, int pos) {
+        long start = System.nanoTime();
+        try {
+            return iterator.seek(chr, pos);
+        } finally {
+            profile.blocked(System.nanoTime() - start);
+            profile.seeked();
+        }
+    }
+
+    @Override
+    public boolean seek(String chr, int pos, int end) {
+        long start = System.nanoTime();
+        try {
+            return iterator.seek(chr, pos, end);
+        } finally {
+            profile.blocked(System.nanoTime() - start);
+            profile.seeked();
+        }
+    }
+
+    @Override
+    public String[] getTypes() {
+        return iterator.getTypes();
+    }
+
+    @Override
+    public String[] getAdditionalInfo() {
+        return iterator.getAdditionalInfo();
+    }
+
+    @Override
+    public boolean isBuffered() {
+        return iterator.isBuffered();
+    }
+}
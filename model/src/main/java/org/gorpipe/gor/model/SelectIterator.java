@@ -41,6 +41,11 @@ public class SelectIterator extends GenomicIteratorAdapterBase {
         return this.iterator.next().rowWithSelectedColumns(this.cols);
     }
 
+    @Override
+    public boolean pushdownSelect(String[] colList) {
+        return false;
+    }
+
     @Override
     public String getHeader() {
         return selectHeader;
@@ -24,6 +24,8 @@ package org.gorpipe.gor.monitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * @author gfj
  * @version $Id$
@@ -34,7 +36,9 @@ public class CancelMonitor {
     /**
      * set this to true to request gor to cancel loading
      */
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
+
+    private final CopyOnWriteArrayList<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
 
     public boolean isCancelled() {
         return cancelled;
@@ -45,5 +49,19 @@ public class CancelMonitor {
             log.debug("Cancel flag set", new RuntimeException("Stack trace for setting cancel flag"));
         }
         cancelled = c;
+        if (c) {
+            cancelListeners.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Adds a listener that is run when the cancel flag is set, adding the same listener again has no effect.
+     */
+    public void addCancelListener(Runnable listener) {
+        cancelListeners.addIfAbsent(listener);
+    }
+
+    public void removeCancelListener(Runnable listener) {
+        cancelListeners.remove(listener);
     }
 }
@@ -0,0 +1,281 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.monitor;
+
+import org.gorpipe.exceptions.GorCancelledException;
+import org.gorpipe.exceptions.custom.GorTimeoutException;
+import org.gorpipe.util.collection.extract.Extract;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation of a running query.
+ * <p>
+ * The token is cancelled when the linked {@link CancelMonitor} is cancelled, when {@link #cancel()} is called or when
+ * the query timeout expires. Long running loops poll {@link #isCancelled()}, which only reads volatile fields, or call
+ * {@link #throwIfCancelled()}. Code blocked in I/O registers an action with {@link #onCancel(Runnable)} that aborts
+ * the blocking operation, e.g. by closing the stream or interrupting the reading thread.
+ * <p>
+ * The token of the query executing on a thread is available with {@link #current()} for code that has no access
+ * to the session, such as stream sources.
+ */
+public class CancellationToken {
+    private static final Logger log = LoggerFactory.getLogger(CancellationToken.class);
+
+    private static final CancellationToken NONE = new CancellationToken(false);
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final boolean cancellable;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable cancelAction = this::cancel;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean timedOut = false;
+    private volatile CancelMonitor monitor;
+    private volatile long deadline = 0;
+    private long timeoutMillis = 0;
+    private ScheduledFuture<?> deadlineTask;
+    private int queries = 0;
+
+    public CancellationToken() {
+        this(true);
+    }
+
+    private CancellationToken(boolean cancellable) {
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * Returns a token that is never cancelled.
+     */
+    public static CancellationToken none() {
+        return NONE;
+    }
+
+    /**
+     * Returns the token attached to the current thread, or a token that is never cancelled.
+     */
+    public static CancellationToken current() {
+        CancellationToken token = CURRENT.get();
+        return token != null ? token : NONE;
+    }
+
+    /**
+     * Attaches the token to the current thread.
+     *
+     * @return the previously attached token, to be passed to {@link #restore(CancellationToken)}
+     */
+    public static CancellationToken attach(CancellationToken token) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(token);
+        return previous;
+    }
+
+    public static void restore(CancellationToken previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Links the token to a cancel monitor, so that cancelling the monitor cancels the token.
+     */
+    public void link(CancelMonitor cancelMonitor) {
+        if (!cancellable || cancelMonitor == monitor) {
+            return;
+        }
+        CancelMonitor previous = monitor;
+        if (previous != null) {
+            previous.removeCancelListener(cancelAction);
+        }
+        monitor = cancelMonitor;
+        if (cancelMonitor != null) {
+            cancelMonitor.addCancelListener(cancelAction);
+        }
+    }
+
+    /**
+     * Starts the query timeout. Only the first call has effect, so nested queries share the deadline of the
+     * outermost query. Each call must be matched by a call to {@link #close()} when the query ends.
+     */
+    public synchronized void startTimeout(long millis) {
+        if (!cancellable) {
+            return;
+        }
+        queries++;
+        if (millis <= 0 || deadline != 0 || cancelled) {
+            return;
+        }
+        timeoutMillis = millis;
+        deadline = Math.max(1, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+        deadlineTask = Timer.EXECUTOR.schedule(this::isCancelled, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends a query started with {@link #startTimeout(long)}. Once the outermost query has ended the pending timeout
+     * is cleared and cancel actions that were never closed are dropped, so the token does not fire after the query
+     * has finished. Calls without a matching {@link #startTimeout(long)} are ignored.
+     */
+    public void close() {
+        if (!cancellable) {
+            return;
+        }
+        synchronized (this) {
+            if (queries == 0 || --queries > 0) {
+                return;
+            }
+            clearTimeout();
+        }
+        listeners.clear();
+    }
+
+    private synchronized void clearTimeout() {
+        if (deadlineTask != null) {
+            deadlineTask.cancel(false);
+            deadlineTask = null;
+        }
+        if (!cancelled) {
+            deadline = 0;
+            timeoutMillis = 0;
+        }
+    }
+
+    public boolean isCancelled() {
+        if (cancelled) {
+            return true;
+        }
+        CancelMonitor m = monitor;
+        if (m != null && m.isCancelled()) {
+            cancel();
+            return true;
+        }
+        long d = deadline;
+        if (d != 0 && System.nanoTime() - d >= 0) {
+            trigger(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the token was cancelled because the query timeout expired.
+     */
+    public boolean isTimedOut() {
+        return isCancelled() && timedOut;
+    }
+
+    public void cancel() {
+        trigger(false);
+    }
+
+    /**
+     * Throws {@link GorTimeoutException} if the query timed out or {@link GorCancelledException} if it was cancelled.
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            if (timedOut) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - deadline) + timeoutMillis;
+                throw new GorTimeoutException(String.format("Execution time: %s exceeded timeout: %s",
+                        Extract.durationString(elapsed),
+                        Extract.durationString(timeoutMillis)));
+            }
+            throw new GorCancelledException("Query cancelled", null);
+        }
+    }
+
+    /**
+     * Registers an action to run when the token is cancelled. The action runs immediately if the token is already
+     * cancelled. Actions may run more than once if registered while the token is being cancelled and must not block.
+     *
+     * @return registration to close when the action is no longer needed
+     */
+    public Registration onCancel(Runnable action) {
+        if (!cancellable) {
+            return () -> {};
+        }
+        listeners.add(action);
+        if (cancelled) {
+            run(action);
+        }
+        return () -> listeners.remove(action);
+    }
+
+    private void trigger(boolean timeout) {
+        if (!cancellable) {
+            return;
+        }
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            timedOut = timeout;
+            cancelled = true;
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+                deadlineTask = null;
+            }
+        }
+        log.debug(timeout ? "Query timed out" : "Query cancelled");
+        for (Runnable listener : listeners) {
+            run(listener);
+        }
+    }
+
+    private static void run(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.warn("Cancel action failed", e);
+        }
+    }
+
+    /**
+     * Registration of a cancel action.
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Timer {
+        static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "gor-query-timeout");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
@@ -22,6 +22,7 @@
 
 package org.gorpipe.gor.session;
 
+import org.gorpipe.gor.stats.QueryProfile;
 import org.gorpipe.gor.stats.StatsCollector;
 
 import java.io.Serializable;
@@ -37,6 +38,7 @@ public class GorContext implements Serializable {
 
     transient private Optional<String> sortCols = Optional.empty();
     private StatsCollector stats = null;
+    transient private QueryProfile profile;
 
     private long startedAt = System.currentTimeMillis();
     private long endedAt = 0;
@@ -60,6 +62,11 @@ public class GorContext implements Serializable {
         this.signature = signature;
         this.command = cmd;
         this.name = name;
+        if (outer == null) {
+            this.profile = QueryProfile.ENABLED ? QueryProfile.root(name, cmd) : null;
+        } else {
+            this.profile = outer.profile != null ? outer.profile.nested(name, cmd) : null;
+        }
     }
 
     public Optional<String> getSortCols() {
@@ -97,6 +104,7 @@ public class GorContext implements Serializable {
 
     public void end() {
         endedAt = System.currentTimeMillis();
+        if (profile != null) profile.end();
         session.getEventLogger().commandEnded(name);
     }
 
@@ -119,6 +127,17 @@ public class GorContext implements Serializable {
         return stats;
     }
 
+    /**
+     * Returns the query profile of this context, null if the context is not profiled.
+     */
+    public QueryProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(QueryProfile profile) {
+        this.profile = profile;
+    }
+
     public String getCommand() {
         return command;
     }
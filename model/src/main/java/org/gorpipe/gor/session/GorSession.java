@@ -23,6 +23,7 @@
 package org.gorpipe.gor.session;
 
 import org.gorpipe.gor.model.DefaultEventLogger;
+import org.gorpipe.gor.monitor.CancellationToken;
 
 /**
  * Gor session object. Stores project context, system context and the session cache.
@@ -85,6 +86,13 @@ public class GorSession implements AutoCloseable {
         return this.systemContext;
     }
 
+    /**
+     * Returns the cancellation token of the session, a token that is never cancelled if the session has no system context.
+     */
+    public CancellationToken getCancellationToken() {
+        return systemContext != null ? systemContext.getCancellationToken() : CancellationToken.none();
+    }
+
     public GorSessionCache getCache() {
         return this.cache;
     }
@@ -101,5 +109,6 @@ public class GorSession implements AutoCloseable {
         if (eventLogger != null) {
             eventLogger.endSession();
         }
+        getCancellationToken().close();
     }
 }
@@ -22,6 +22,7 @@
 
 package org.gorpipe.gor.session;
 
+import org.gorpipe.gor.monitor.CancellationToken;
 import org.gorpipe.gor.monitor.GorMonitor;
 
 /**
@@ -36,6 +37,7 @@ public class SystemContext {
     private GorMonitor monitor;
     private GorRunnerFactory runnerFactory;
     private Object commandWhitelist;
+    private final CancellationToken cancellationToken = new CancellationToken();
 
     public static class Builder {
         private int workers = 0;
@@ -83,7 +85,7 @@ public class SystemContext {
 
         public SystemContext build() {
             SystemContext systemContext = new SystemContext();
-            systemContext.monitor = this.monitor;
+            systemContext.setMonitor(this.monitor);
             systemContext.reportBuilder = this.reportBuilder;
             systemContext.runnerFactory = this.runnerFactory;
             systemContext.server = this.server;
@@ -122,6 +124,14 @@ public class SystemContext {
     }
     public void setMonitor(GorMonitor monitor) {
         this.monitor = monitor;
+        cancellationToken.link(monitor);
+    }
+
+    /**
+     * Returns the token used to cancel the queries of the session, cancelled with the monitor or on timeout.
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
     }
 
     public GorRunnerFactory getRunnerFactory() {
@@ -0,0 +1,398 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.stats;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Opt-in profile of a query execution, organized as a tree of nodes.
+ * <p>
+ * Query nodes represent a pipeline (or a context running several pipelines), step nodes represent
+ * the analysis steps of a pipeline in order and source nodes represent the input source of a pipeline.
+ * <p>
+ * Step timing is exclusive: the pipeline keeps track of which step is currently executing and charges the
+ * elapsed wall time to that step whenever control passes between steps. Cpu time is sampled every
+ * {@code gor.profile.cpu.interval} transitions and distributed on the steps in proportion to their wall time.
+ * Source nodes record the time spent blocked waiting for rows from the source, the number of rows and the text
+ * size of the rows read.
+ * <p>
+ * Profiling is enabled for all queries with the {@code gor.profile} system property, or for a single context
+ * by setting a profile on it.  When disabled no profile nodes are created and no monitors are added.
+ */
+public class QueryProfile {
+
+    public static final boolean ENABLED = Boolean.getBoolean("gor.profile");
+
+    private static final int CPU_SAMPLE_INTERVAL = Math.max(1, Integer.getInteger("gor.profile.cpu.interval", 128));
+    private static final int MAX_FRAME_LENGTH = 100;
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_SUPPORTED = THREAD_BEAN.isCurrentThreadCpuTimeSupported();
+    private static final ThreadLocal<QueryProfile> CURRENT = new ThreadLocal<>();
+
+    public enum Kind {
+        QUERY, STEP, SOURCE
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String detail;
+    private final QueryProfile pipeline;
+    private final List<QueryProfile> steps = new CopyOnWriteArrayList<>();
+    private final List<QueryProfile> children = new CopyOnWriteArrayList<>();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = 0;
+
+    // Counters, only updated from the thread executing the pipeline or reading the source
+    private long rows;
+    private long bytes;
+    private long seeks;
+    private long nanos;
+    private long cpuNanos;
+    private long sampleNanos;
+
+    // Pipeline clock state, only used on query nodes
+    private QueryProfile current;
+    private long lastTick;
+    private int ticks;
+    private Thread cpuThread;
+    private long lastCpu;
+
+    private QueryProfile(Kind kind, String name, String detail, QueryProfile pipeline) {
+        this.kind = kind;
+        this.name = name;
+        this.detail = detail;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Creates a root profile for a query context.
+     */
+    public static QueryProfile root(String name, String query) {
+        return new QueryProfile(Kind.QUERY, name, query, null);
+    }
+
+    /**
+     * Creates a query node for a pipeline executed within a context with the given profile. Pipelines created
+     * while another pipeline is being prepared on the same thread are nested under that pipeline.
+     *
+     * @return the query node or null if the context is not profiled
+     */
+    public static QueryProfile query(QueryProfile contextProfile, String query) {
+        if (contextProfile == null) {
+            return null;
+        }
+        QueryProfile outer = CURRENT.get();
+        return (outer != null ? outer : contextProfile).nested(frameName(query), query);
+    }
+
+    /**
+     * Makes the given query node the current one on this thread.
+     *
+     * @return the previously current query node, to be passed to {@link #restore(QueryProfile)}
+     */
+    public static QueryProfile activate(QueryProfile query) {
+        QueryProfile previous = CURRENT.get();
+        CURRENT.set(query);
+        return previous;
+    }
+
+    public static void restore(QueryProfile previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public QueryProfile nested(String name, String query) {
+        QueryProfile nested = new QueryProfile(Kind.QUERY, name, query, null);
+        children.add(nested);
+        return nested;
+    }
+
+    public QueryProfile step(String name) {
+        QueryProfile step = new QueryProfile(Kind.STEP, name, null, this);
+        steps.add(step);
+        return step;
+    }
+
+    public QueryProfile source(String name) {
+        QueryProfile source = new QueryProfile(Kind.SOURCE, name, null, this);
+        children.add(source);
+        return source;
+    }
+
+    public void end() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Exclusive wall time of a step or time blocked on a source, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public List<QueryProfile> getSteps() {
+        return steps;
+    }
+
+    public List<QueryProfile> getChildren() {
+        return children;
+    }
+
+    /**
+     * Called on a step node when a row enters the step.
+     *
+     * @return the step that was executing before, to be passed to {@link #exit(QueryProfile)}
+     */
+    public QueryProfile enter() {
+        QueryProfile q = pipeline;
+        q.tick(System.nanoTime());
+        QueryProfile previous = q.current;
+        q.current = this;
+        rows++;
+        return previous;
+    }
+
+    /**
+     * Called on a step node when the step has processed a row.
+     */
+    public void exit(QueryProfile previous) {
+        QueryProfile q = pipeline;
+        q.tick(System.nanoTime());
+        q.current = previous;
+    }
+
+    /**
+     * Called on a step node when the step is about to finish. Rows emitted while finishing are charged to the
+     * steps that process them, the rest of the time until the next step finishes is charged to this step.
+     * Finishing of the output following the last step is not charged.
+     */
+    public void finishing() {
+        QueryProfile q = pipeline;
+        q.tick(System.nanoTime());
+        q.sampleCpu();
+        q.current = q.steps.get(q.steps.size() - 1) == this ? null : this;
+    }
+
+    /**
+     * Called on a source node with the time spent waiting for the source.
+     */
+    public void blocked(long elapsedNanos) {
+        nanos += elapsedNanos;
+    }
+
+    /**
+     * Called on a source node for each row read from the source.
+     */
+    public void read(int length) {
+        rows++;
+        bytes += length;
+    }
+
+    public void seeked() {
+        seeks++;
+    }
+
+    private void tick(long now) {
+        QueryProfile step = current;
+        if (step != null) {
+            long elapsed = now - lastTick;
+            step.nanos += elapsed;
+            step.sampleNanos += elapsed;
+        }
+        lastTick = now;
+        if (++ticks >= CPU_SAMPLE_INTERVAL || cpuThread != Thread.currentThread()) {
+            sampleCpu();
+        }
+    }
+
+    private void sampleCpu() {
+        ticks = 0;
+        if (!CPU_SUPPORTED) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long cpu = THREAD_BEAN.getCurrentThreadCpuTime();
+        long sampled = 0;
+        for (QueryProfile step : steps) {
+            sampled += step.sampleNanos;
+        }
+        // Cpu time can only be attributed when it was measured on the same thread
+        if (thread == cpuThread && sampled > 0) {
+            double cpuPerNano = (double) (cpu - lastCpu) / sampled;
+            for (QueryProfile step : steps) {
+                step.cpuNanos += (long) (step.sampleNanos * cpuPerNano);
+            }
+        }
+        for (QueryProfile step : steps) {
+            step.sampleNanos = 0;
+        }
+        cpuThread = thread;
+        lastCpu = cpu;
+    }
+
+    private long wallNanos() {
+        if (endNanos > 0) {
+            return endNanos - startNanos;
+        }
+        long end = 0;
+        for (QueryProfile child : children) {
+            if (child.kind == Kind.QUERY) {
+                end = Math.max(end, child.startNanos + child.wallNanos());
+            }
+        }
+        return end > 0 ? end - startNanos : 0;
+    }
+
+    /**
+     * Returns the profile tree as a map of plain values, suitable for serialization.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("kind", kind.name().toLowerCase());
+        map.put("name", name);
+        if (kind == Kind.QUERY) {
+            if (detail != null) map.put("query", detail);
+            map.put("startedAt", startedAt);
+            map.put("wallMs", millis(wallNanos()));
+            long cpu = 0;
+            for (QueryProfile step : steps) {
+                cpu += step.cpuNanos;
+            }
+            map.put("cpuMs", millis(cpu));
+            List<Map<String, Object>> stepMaps = new ArrayList<>();
+            for (int i = 0; i < steps.size(); i++) {
+                QueryProfile step = steps.get(i);
+                Map<String, Object> stepMap = new LinkedHashMap<>();
+                stepMap.put("kind", "step");
+                stepMap.put("name", step.name);
+                stepMap.put("index", i);
+                stepMap.put("wallMs", millis(step.nanos));
+                stepMap.put("cpuMs", millis(step.cpuNanos));
+                stepMap.put("rowsIn", step.rows);
+                stepMap.put("rowsOut", i + 1 < steps.size() ? steps.get(i + 1).rows : step.rows);
+                stepMaps.add(stepMap);
+            }
+            map.put("steps", stepMaps);
+            List<Map<String, Object>> childMaps = new ArrayList<>();
+            for (QueryProfile child : children) {
+                childMaps.add(child.toMap());
+            }
+            map.put("children", childMaps);
+        } else if (kind == Kind.SOURCE) {
+            map.put("rows", rows);
+            map.put("bytes", bytes);
+            map.put("seeks", seeks);
+            map.put("blockedMs", millis(nanos));
+        }
+        return map;
+    }
+
+    public String toJson() {
+        try {
+            return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(toMap());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize query profile", e);
+        }
+    }
+
+    /**
+     * Returns the profile in the folded stack format used by flame graph tools, one line per stack with the
+     * exclusive time in microseconds. Source frames hold the time blocked on the source.
+     */
+    public String toFolded() {
+        StringBuilder sb = new StringBuilder();
+        appendFolded(sb, "");
+        return sb.toString();
+    }
+
+    private void appendFolded(StringBuilder sb, String prefix) {
+        String frame = kind == Kind.SOURCE ? "source:" + frameName(name) : frameName(name);
+        String stack = prefix.isEmpty() ? frame : prefix + ";" + frame;
+        if (kind == Kind.SOURCE) {
+            appendLine(sb, stack, nanos);
+            return;
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            QueryProfile step = steps.get(i);
+            appendLine(sb, stack + ";" + i + ":" + frameName(step.name), step.nanos);
+        }
+        for (QueryProfile child : children) {
+            child.appendFolded(sb, stack);
+        }
+    }
+
+    private static void appendLine(StringBuilder sb, String stack, long nanos) {
+        long micros = nanos / 1000;
+        if (micros > 0) {
+            sb.append(stack).append(' ').append(micros).append('\n');
+        }
+    }
+
+    private static String frameName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String frame = name.replace(';', ',').replaceAll("\\s+", " ").trim();
+        return frame.length() > MAX_FRAME_LENGTH ? frame.substring(0, MAX_FRAME_LENGTH) : frame;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000 / 1000.0;
+    }
+}
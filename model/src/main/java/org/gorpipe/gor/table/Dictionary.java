@@ -32,6 +32,7 @@ import org.gorpipe.exceptions.GorException;
 import org.gorpipe.exceptions.GorResourceException;
 import org.gorpipe.exceptions.GorSystemException;
 import org.gorpipe.gor.model.FileReader;
+import org.gorpipe.gor.table.dictionary.DictionaryTableReader;
 import org.gorpipe.gor.table.util.PathUtils;
 import org.gorpipe.gor.util.StringUtil;
 import org.gorpipe.gor.util.Util;
@@ -132,12 +133,17 @@ public class Dictionary {
     private final boolean useCache;
 
     private final Map<String, DictionaryLine[]> tagsToListCache;
+    private volatile DictionaryIndex index;  // Range and tag index over the active lines, built on first use.
 
     private static String dictCacheKeyFromPathAndRoot(String path, String commonRoot) {
         return PathUtils.resolve(commonRoot, path);
     }
 
     public synchronized static Dictionary getDictionary(TableInfo table, boolean useCache) {
+        if (hasDeltaLog(table)) {
+            // The dictionary file alone is not up to date, use the table entries which include the delta log.
+            return getDictionaryFromTable((DictionaryTableReader<?>) table, useCache);
+        }
         if (useCache) {
             return getDictionaryFromCache(table.getPath(), table.getFileReader(), table.getFileReader().getCommonRoot(), table.getId());
         } else {
@@ -145,6 +151,33 @@ public class Dictionary {
         }
     }
 
+    private static boolean hasDeltaLog(TableInfo table) {
+        return table instanceof DictionaryTableReader
+                && ((DictionaryTableReader<?>) table).getDeltaLog() != null
+                && ((DictionaryTableReader<?>) table).getDeltaLog().exists();
+    }
+
+    private static Dictionary getDictionaryFromTable(DictionaryTableReader<?> table, boolean useCache) {
+        String path = table.getPath();
+        String commonRoot = table.getFileReader().getCommonRoot();
+        String uniqueID = useCache ? table.getId() : "";
+        var key = dictCacheKeyFromPathAndRoot(path, commonRoot);
+        if (useCache) {
+            Dictionary dictFromCache = dictCache.getIfPresent(key);
+            if (dictFromCache != null && dictFromCache.fileSignature.equals(uniqueID)) {
+                return dictFromCache;
+            }
+        }
+        Dictionary newDict;
+        try (Stream<String> lines = table.getLines()) {
+            newDict = processDictionaryLines(path, lines, uniqueID, commonRoot, useCache);
+        }
+        if (useCache) {
+            dictCache.put(key, newDict);
+        }
+        return newDict;
+    }
+
     public synchronized static Dictionary getDictionary(String path, FileReader fileReader, String commonRoot, boolean useCache) throws IOException {
         if (useCache) {
             String uniqueID = fileReader.getFileSignature(path);
@@ -193,17 +226,31 @@ public class Dictionary {
     }
 
     public DictionaryLine[] getSources(Set<String> tags, boolean allowBucketAccess, boolean isSilentTagFilter) {
+        return getSources(tags, allowBucketAccess, isSilentTagFilter, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the sources for the given tags, restricted to lines overlapping the given range.  Lines without range are
+     * always included.
+     *
+     * @param chr   chromosome of the range, null for no range restriction.
+     * @param begin start of the range.
+     * @param end   end of the range.
+     */
+    public DictionaryLine[] getSources(Set<String> tags, boolean allowBucketAccess, boolean isSilentTagFilter, String chr, int begin, int end) {
         final DictionaryLine[] toReturn;
         final Set<String> badTags = new HashSet<>();
-        if (this.useCache) {
+        final boolean hasRange = chr != null && !chr.isEmpty();
+        if (this.useCache && !hasRange) {
+            // Ranged lookups are not cached, they are served from the index and would flood the cache for split queries.
             final String inputKey = orderTags(tags) + ":" + allowBucketAccess;
-            toReturn = tagsToListCache.compute(inputKey, (key, list) -> list == null ? generateList(tags, allowBucketAccess, badTags) : list);
+            toReturn = tagsToListCache.compute(inputKey, (key, list) -> list == null ? generateList(tags, allowBucketAccess, badTags, null, 0, 0) : list);
             // Removing the entry from cache due to invalid tags should be separate from throwing the data exception
             if (badTags.size() > 0) {
                 tagsToListCache.remove(inputKey);
             }
         } else {
-            toReturn = generateList(tags, allowBucketAccess, badTags);
+            toReturn = generateList(tags, allowBucketAccess, badTags, hasRange ? chr : null, begin, end);
         }
         final boolean hasInvalidTags = badTags.size() > 0;
 
@@ -223,45 +270,59 @@ public class Dictionary {
         }
     }
 
-    private DictionaryLine[] generateList(Set<String> tags, boolean allowBucketAccess, Set<String> badTags) {
+    private DictionaryIndex getIndex() {
+        DictionaryIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new DictionaryIndex(this.activeDictionaryLines, this.tagsToActiveLines);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private DictionaryLine[] generateList(Set<String> tags, boolean allowBucketAccess, Set<String> badTags, String chr, int begin, int end) {
         final int[] filesToOptimize;
-        final IntArray bucketUsedCounts = new IntArray();
-        final IntArray bucketTotalCount = new IntArray();
-        final List<String> resetBucketNames = new ArrayList<>();
         final Map<String, Integer> newBucketToIdx;
         final int[] bucketUsedCountsArray;
         final int[] bucketTotalCountArray;
         final String[] resetBucketNamesArray;
         final Set<String>[] bucketTagsArray;
         int numberOfFilesWithoutBucket = 0;
-        final List<Set<String>> bucketTagsList = new ArrayList<>();
 
-        if (tags != null && tags.size() > 0) {
-            Set<Integer> filesToOptimizeTmp = new LinkedHashSet<>();
-            newBucketToIdx = new HashMap<>();
-            for (String tag : tags) {
-                if (this.validTags.contains(tag)) {
-                    for (int i : this.tagsToActiveLines.get(tag)) {
-                        filesToOptimizeTmp.add(i);
-                        final String bucket = this.activeDictionaryLines[i].bucket;
-                        if (bucket == null) numberOfFilesWithoutBucket++;
-                        else {
-                            final int bucketIdx = newBucketToIdx.computeIfAbsent(bucket, bucketbucket -> {
-                                bucketUsedCounts.add(0);
-                                final int idx = this.mapBucketIndex.get(bucketbucket);
-                                bucketTotalCount.add(this.bucketTotalCount[idx]);
-                                resetBucketNames.add(this.bucketResetNames[idx]);
-                                bucketTagsList.add(this.bucketTags[idx]);
-                                return newBucketToIdx.size();
-                            });
-                            bucketUsedCounts.increment(bucketIdx);
-                        }
-                    }
-                } else badTags.add(tag);
+        final boolean hasTags = tags != null && tags.size() > 0;
+        if (hasTags || chr != null) {
+            final BitSet selected = hasTags ? getIndex().selectTags(tags, badTags) : getIndex().selectAll();
+            if (chr != null) {
+                selected.and(getIndex().selectRange(chr, begin, end));
             }
-            filesToOptimize = new int[filesToOptimizeTmp.size()];
+
+            final IntArray bucketUsedCounts = new IntArray();
+            final IntArray bucketTotalCount = new IntArray();
+            final List<String> resetBucketNames = new ArrayList<>();
+            final List<Set<String>> bucketTagsList = new ArrayList<>();
+            newBucketToIdx = new HashMap<>();
+            filesToOptimize = new int[selected.cardinality()];
             int idx = 0;
-            for (int i : filesToOptimizeTmp) filesToOptimize[idx++] = i;
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                filesToOptimize[idx++] = i;
+                final String bucket = this.activeDictionaryLines[i].bucket;
+                if (bucket == null) numberOfFilesWithoutBucket++;
+                else {
+                    final int bucketIdx = newBucketToIdx.computeIfAbsent(bucket, bucketbucket -> {
+                        bucketUsedCounts.add(0);
+                        final int bidx = this.mapBucketIndex.get(bucketbucket);
+                        bucketTotalCount.add(this.bucketTotalCount[bidx]);
+                        resetBucketNames.add(this.bucketResetNames[bidx]);
+                        bucketTagsList.add(this.bucketTags[bidx]);
+                        return newBucketToIdx.size();
+                    });
+                    bucketUsedCounts.increment(bucketIdx);
+                }
+            }
             bucketUsedCountsArray = bucketUsedCounts.toArray();
             bucketTotalCountArray = bucketTotalCount.toArray();
             resetBucketNamesArray = resetBucketNames.toArray(new String[0]);
@@ -327,6 +388,16 @@ public class Dictionary {
      * @return Cache object with all important info about the dictionary.
      */
     private static Dictionary processDictionary(String path, FileReader fileReader, String uniqueId, String commonRoot, boolean useCache) {
+        try (InputStream is = fileReader.getInputStream(path);
+             BufferedReader br = new BufferedReader(new InputStreamReader(is));
+             final Stream<String> stream = br.lines()) {
+            return processDictionaryLines(path, stream, uniqueId, commonRoot, useCache);
+        } catch (IOException ex) {
+            throw new GorResourceException("Error Initializing Query. Can not open file", path, ex);
+        }
+    }
+
+    private static Dictionary processDictionaryLines(String path, Stream<String> stream, String uniqueId, String commonRoot, boolean useCache) {
         final List<Set<String>> bucketTagsList = new ArrayList<>();
         final List<String> resetBucketNames = new ArrayList<>();
         final IntArray bucketTotalCounts = new IntArray();
@@ -338,24 +409,16 @@ public class Dictionary {
         final Map<String, IntArray> tagsToLines = new LinkedHashMap<>();
         final Set<String> validTags = new HashSet<>();
         final Multimap<String, String> bucketHasDeletedFile = ArrayListMultimap.create(); //This is changed if we find a deleted line with bucket.
-        try {
-            try (InputStream is = fileReader.getInputStream(path);
-                 BufferedReader br = new BufferedReader(new InputStreamReader(is));
-                 final Stream<String> stream = br.lines()) {
-                stream.filter(line -> !(line.isEmpty() || line.charAt(0) == '#'))
-                        .map(line -> parseDictionaryLine(line, dictFileParent, path))
-                        .filter(Objects::nonNull)
-                        .forEach(dictLine -> processLine(bucketTagsList, resetBucketNames, bucketTotalCounts, bucketActiveCount, bucketToIdx, bucketsParent, activeDictionaryLines, tagsToLines, validTags, bucketHasDeletedFile, dictLine)
-                        );
-            }
-            final Map<String, int[]> newTagsToLines = new HashMap<>();
-            tagsToLines.forEach((tag, arr) -> newTagsToLines.put(tag, arr.toArray()));
-            return new Dictionary(path, uniqueId, newTagsToLines, activeDictionaryLines.toArray(new DictionaryLine[0]), bucketToIdx,
-                    bucketTotalCounts.toArray(), bucketActiveCount.toArray(), resetBucketNames.toArray(new String[0]),
-                    bucketTagsList.toArray(new Set[0]), bucketHasDeletedFile, validTags, useCache);
-        } catch (IOException ex) {
-            throw new GorResourceException("Error Initializing Query. Can not open file", path, ex);
-        }
+        stream.filter(line -> !(line.isEmpty() || line.charAt(0) == '#'))
+                .map(line -> parseDictionaryLine(line, dictFileParent, path))
+                .filter(Objects::nonNull)
+                .forEach(dictLine -> processLine(bucketTagsList, resetBucketNames, bucketTotalCounts, bucketActiveCount, bucketToIdx, bucketsParent, activeDictionaryLines, tagsToLines, validTags, bucketHasDeletedFile, dictLine)
+                );
+        final Map<String, int[]> newTagsToLines = new HashMap<>();
+        tagsToLines.forEach((tag, arr) -> newTagsToLines.put(tag, arr.toArray()));
+        return new Dictionary(path, uniqueId, newTagsToLines, activeDictionaryLines.toArray(new DictionaryLine[0]), bucketToIdx,
+                bucketTotalCounts.toArray(), bucketActiveCount.toArray(), resetBucketNames.toArray(new String[0]),
+                bucketTagsList.toArray(new Set[0]), bucketHasDeletedFile, validTags, useCache);
     }
 
     private static void processLine(List<Set<String>> bucketTagsList, List<String> resetBucketNames, IntArray bucketTotalCounts, IntArray bucketActiveCount,
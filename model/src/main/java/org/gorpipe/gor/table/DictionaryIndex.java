@@ -0,0 +1,193 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.table;
+
+import org.gorpipe.util.collection.IntArray;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index over the active lines of a {@link Dictionary}, used to select the lines matching a set of tags and a genomic
+ * range without walking all the lines.
+ * <p>
+ * Ranges are kept in an interval tree per chromosome (an augmented binary tree stored implicitly in arrays sorted by
+ * start position) and tags are kept as bitsets over the line indices, so tag and range filters are combined with
+ * bitset operations.
+ */
+final class DictionaryIndex {
+
+    private final int lineCount;
+    private final Map<String, BitSet> tagBits = new HashMap<>();
+    private final Map<String, ChromosomeTree> chromosomeTrees = new HashMap<>();
+    private final BitSet unranged = new BitSet();           // Lines that match any range.
+    private final int[] spanningLines;                      // Lines whose range covers more than one chromosome.
+    private final Dictionary.DictionaryLine[] lines;
+
+    DictionaryIndex(Dictionary.DictionaryLine[] lines, Map<String, int[]> tagsToLines) {
+        this.lines = lines;
+        this.lineCount = lines.length;
+
+        tagsToLines.forEach((tag, lineIndices) -> {
+            BitSet bits = new BitSet(lineCount);
+            for (int i : lineIndices) {
+                bits.set(i);
+            }
+            tagBits.put(tag, bits);
+        });
+
+        Map<String, IntArray> perChromosome = new HashMap<>();
+        IntArray spanning = new IntArray();
+        for (int i = 0; i < lineCount; i++) {
+            Dictionary.DictionaryLine line = lines[i];
+            if ((line.startChr == null && line.stopChr == null) || line.alias == null || line.alias.isEmpty()) {
+                // Lines without alias are never pruned as the source names of such lines depend on all the other
+                // sources in the query.
+                unranged.set(i);
+            } else if (line.startChr != null && line.startChr.equals(line.stopChr)) {
+                perChromosome.computeIfAbsent(line.startChr, chr -> new IntArray()).add(i);
+            } else {
+                spanning.add(i);
+            }
+        }
+        perChromosome.forEach((chr, lineIndices) -> chromosomeTrees.put(chr, new ChromosomeTree(lines, lineIndices.toArray())));
+        this.spanningLines = spanning.toArray();
+    }
+
+    /**
+     * Select lines with any of the given tags.
+     *
+     * @param tags    tags to select.
+     * @param badTags tags that are not in the dictionary are added to this set.
+     * @return bitset over the line indices.
+     */
+    BitSet selectTags(Set<String> tags, Set<String> badTags) {
+        BitSet result = new BitSet(lineCount);
+        for (String tag : tags) {
+            BitSet bits = tagBits.get(tag);
+            if (bits != null) {
+                result.or(bits);
+            } else {
+                badTags.add(tag);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Select lines overlapping the given range.  Uses the same rules as {@code SourceRef.isInRange}.
+     *
+     * @return bitset over the line indices.
+     */
+    BitSet selectRange(String chr, int begin, int end) {
+        BitSet result = (BitSet) unranged.clone();
+        ChromosomeTree tree = chromosomeTrees.get(chr);
+        if (tree != null) {
+            tree.query(begin, end, result);
+        }
+        for (int i : spanningLines) {
+            if (isInRange(lines[i], chr, begin, end)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    BitSet selectAll() {
+        BitSet result = new BitSet(lineCount);
+        result.set(0, lineCount);
+        return result;
+    }
+
+    static boolean isInRange(Dictionary.DictionaryLine line, String chr, int begin, int end) {
+        if (line.stopChr != null && (line.stopChr.compareTo(chr) < 0 || (line.stopChr.equals(chr) && line.stopPos < begin))) {
+            return false;
+        }
+        return line.startChr == null || (line.startChr.compareTo(chr) <= 0 && (!line.startChr.equals(chr) || line.startPos <= end));
+    }
+
+    /**
+     * Interval tree for lines within one chromosome.  The intervals are sorted by start and the tree is implicit, the
+     * root of the subtree covering [lo, hi) is at the middle index.  Each node stores the max stop of its subtree.
+     */
+    private static final class ChromosomeTree {
+        private final int[] starts;
+        private final int[] stops;
+        private final int[] lineIndices;
+        private final int[] maxStops;
+
+        ChromosomeTree(Dictionary.DictionaryLine[] lines, int[] indices) {
+            Integer[] order = new Integer[indices.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(lines[indices[a]].startPos, lines[indices[b]].startPos));
+
+            int n = indices.length;
+            this.starts = new int[n];
+            this.stops = new int[n];
+            this.lineIndices = new int[n];
+            this.maxStops = new int[n];
+            for (int i = 0; i < n; i++) {
+                Dictionary.DictionaryLine line = lines[indices[order[i]]];
+                starts[i] = line.startPos;
+                stops[i] = line.stopPos;
+                lineIndices[i] = indices[order[i]];
+            }
+            buildMaxStops(0, n);
+        }
+
+        private int buildMaxStops(int lo, int hi) {
+            if (lo >= hi) {
+                return Integer.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            maxStops[mid] = Math.max(stops[mid], Math.max(buildMaxStops(lo, mid), buildMaxStops(mid + 1, hi)));
+            return maxStops[mid];
+        }
+
+        void query(int begin, int end, BitSet result) {
+            query(0, starts.length, begin, end, result);
+        }
+
+        private void query(int lo, int hi, int begin, int end, BitSet result) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxStops[mid] < begin) {
+                    return;
+                }
+                query(lo, mid, begin, end, result);
+                if (starts[mid] > end) {
+                    return;
+                }
+                if (stops[mid] >= begin) {
+                    result.set(lineIndices[mid]);
+                }
+                lo = mid + 1;
+            }
+        }
+    }
+}
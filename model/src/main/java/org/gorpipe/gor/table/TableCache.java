@@ -3,6 +3,7 @@ package org.gorpipe.gor.table;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.gorpipe.gor.model.FileReader;
+import org.gorpipe.gor.table.dictionary.DictionaryTableReader;
 import org.gorpipe.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +59,11 @@ public abstract class TableCache<T extends Table> {
             } else {
                 T dictFromCache = dictCache.getIfPresent(key);
                 if (dictFromCache == null || !dictFromCache.getId().equals(uniqueID)) {
+                    if (dictFromCache instanceof DictionaryTableReader && dict instanceof DictionaryTableReader) {
+                        // If only the delta log has changed the new table starts from the entries of the cached one.
+                        // The cached table is left as is, as other queries may still be using it.
+                        ((DictionaryTableReader) dict).refreshFromDeltaLog((DictionaryTableReader) dictFromCache);
+                    }
                     dictCache.put(key, dict);
                     return dict;
                 } else {
@@ -0,0 +1,203 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.table.dictionary;
+
+import org.gorpipe.gor.driver.meta.SourceMetadata;
+import org.gorpipe.gor.driver.providers.stream.sources.StreamSourceMetadata;
+import org.gorpipe.gor.model.FileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only log of the entries inserted into and deleted from a dictionary since it was last saved in full.
+ * <p>
+ * The log is stored next to the dictionary file ({@code <path>.delta}) with one record per line:
+ * {@code <serial>\t<action>\t<entry>}.  Records are tagged with the serial of the dictionary file they apply to, so
+ * records left behind if a compaction is interrupted are ignored.  The log keeps track of how far it has been read, so
+ * refreshing a loaded table only replays the new records.
+ */
+public class DictionaryDeltaLog {
+
+    private static final Logger log = LoggerFactory.getLogger(DictionaryDeltaLog.class);
+
+    public static final String DELTA_SUFFIX = ".delta";
+
+    public enum Action {
+        INSERT,
+        DELETE
+    }
+
+    public record Record(Action action, String line) {
+    }
+
+    private final String path;
+    private final FileReader fileReader;
+    private long offset = 0;        // Bytes of the log that have been read or written by us.
+    private int recordCount = 0;    // Number of records for the current serial that have been read or written by us.
+
+    public DictionaryDeltaLog(String tablePath, FileReader fileReader) {
+        this.path = tablePath + DELTA_SUFFIX;
+        this.fileReader = fileReader;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("gor.table.deltalog", "false"));
+    }
+
+    /**
+     * @return number of records the log can hold before the table is compacted, that is saved in full.
+     */
+    public static int getCompactionThreshold() {
+        return Integer.parseInt(System.getProperty("gor.table.deltalog.compact_records", "10000"));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return fileReader.exists(path);
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return string identifying the current state of the log, empty if there is no log.
+     */
+    public String getStateId() {
+        try {
+            if (!exists()) {
+                return "";
+            }
+            SourceMetadata meta = fileReader.resolveUrl(path).getSourceMetadata();
+            if (meta instanceof StreamSourceMetadata && ((StreamSourceMetadata) meta).getLength() != null) {
+                return "+" + ((StreamSourceMetadata) meta).getLength();
+            }
+            return "+" + meta.getUniqueId();
+        } catch (Exception e) {
+            log.debug("Could not get state of delta log {}", path, e);
+            return "";
+        }
+    }
+
+    /**
+     * Read the records appended since the last read.  Incomplete trailing records (being written) are left for the
+     * next read.
+     *
+     * @param serial serial of the dictionary file, records for other serials are skipped.
+     * @return the new records, or null if the log has been rewritten since the last read and the table must be
+     * loaded in full.
+     */
+    public synchronized List<Record> readNew(String serial) throws IOException {
+        if (!exists()) {
+            boolean rewritten = offset > 0;
+            reset();
+            return rewritten ? null : Collections.emptyList();
+        }
+
+        byte[] bytes;
+        try (InputStream is = fileReader.getInputStream(path)) {
+            is.skipNBytes(offset);
+            bytes = is.readAllBytes();
+        } catch (EOFException e) {
+            reset();
+            return null;
+        }
+
+        List<Record> records = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                Record record = parse(new String(bytes, start, i - start, StandardCharsets.UTF_8), serial);
+                if (record != null) {
+                    records.add(record);
+                }
+                start = i + 1;
+            }
+        }
+        offset += start;
+        recordCount += records.size();
+        return records;
+    }
+
+    private static Record parse(String line, String serial) {
+        int firstTab = line.indexOf('\t');
+        int secondTab = firstTab >= 0 ? line.indexOf('\t', firstTab + 1) : -1;
+        if (secondTab < 0 || !line.substring(0, firstTab).equals(serial)) {
+            return null;
+        }
+        return new Record(Action.valueOf(line.substring(firstTab + 1, secondTab)), line.substring(secondTab + 1));
+    }
+
+    /**
+     * Append records in a single write.  The caller must hold the table write lock and have read all previous records.
+     */
+    public synchronized void append(String serial, List<Record> records) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Record record : records) {
+            sb.append(serial).append('\t').append(record.action()).append('\t').append(record.line()).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (OutputStream os = fileReader.getOutputStream(path, true)) {
+            os.write(bytes);
+        }
+        offset += bytes.length;
+        recordCount += records.size();
+    }
+
+    /**
+     * Continue reading from where another log for the same table is.
+     */
+    synchronized void copyPosition(DictionaryDeltaLog other) {
+        synchronized (other) {
+            offset = other.offset;
+            recordCount = other.recordCount;
+        }
+    }
+
+    public synchronized void reset() {
+        offset = 0;
+        recordCount = 0;
+    }
+
+    /**
+     * Remove the log, done after the table has been saved in full.
+     */
+    public synchronized void delete() throws IOException {
+        if (exists()) {
+            fileReader.delete(path);
+        }
+        reset();
+    }
+}
@@ -57,6 +57,8 @@ public class DictionaryEntries<T extends DictionaryEntry> implements IDictionary
     private boolean dataLoaded = false;
     private boolean tagHashLoaded = false;
 
+    private final DictionaryDeltaLog deltaLog;  // Null if delta logging is not used.
+
     /**
      * Construct new dict file from the given path and chromosome cache.
      * <p>
@@ -64,8 +66,16 @@ public class DictionaryEntries<T extends DictionaryEntry> implements IDictionary
      * Another option would be using google TypeToken, but we had problem getting that working.
      */
     public DictionaryEntries(TableInfo table, IDictionaryEntryFactory<T> factory) {
+        this(table, factory, null);
+    }
+
+    /**
+     * Construct entries that also replay the given delta log on top of the dictionary file.
+     */
+    public DictionaryEntries(TableInfo table, IDictionaryEntryFactory<T> factory, DictionaryDeltaLog deltaLog) {
         this.table = table;
         this.factory = factory;
+        this.deltaLog = deltaLog;
     }
 
     @Override
@@ -121,6 +131,80 @@ public class DictionaryEntries<T extends DictionaryEntry> implements IDictionary
         this.rawLines = null;
         clearContentMap();
         clearTagMap();
+        if (deltaLog != null) {
+            deltaLog.reset();
+        }
+    }
+
+    /**
+     * Apply records appended to the delta log since the entries were loaded or last refreshed.  Does nothing if
+     * the entries have not been loaded, as the full load replays the log.
+     */
+    @Override
+    synchronized public void refresh() {
+        if (deltaLog != null && dataLoaded && !replayDeltaLog()) {
+            clear();
+        }
+    }
+
+    /**
+     * Load the entries by copying them from entries of an older version of the same dictionary file, and replay
+     * the delta log records they have not seen.  The other entries are not changed.
+     *
+     * @return false if the other entries are not loaded or the log has been rewritten, the entries are then
+     * loaded from the file when needed.
+     */
+    synchronized boolean copyFrom(DictionaryEntries<T> other) {
+        if (deltaLog == null || other.deltaLog == null) {
+            return false;
+        }
+        synchronized (other) {
+            if (!other.dataLoaded) {
+                return false;
+            }
+            this.rawLines = new ArrayList<>(other.rawLines);
+            deltaLog.copyPosition(other.deltaLog);
+        }
+        clearTagMap();
+        clearContentMap();
+        updateContentMap();
+        dataLoaded = true;
+        if (!replayDeltaLog()) {
+            clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the log was rewritten since it was last read and the entries must be loaded again.
+     */
+    private boolean replayDeltaLog() {
+        List<DictionaryDeltaLog.Record> records;
+        try {
+            records = deltaLog.readNew(table.getProperty(TableHeader.HEADER_SERIAL_KEY));
+        } catch (IOException e) {
+            throw new GorResourceException("Error reading dictionary delta log " + deltaLog.getPath(), deltaLog.getPath(), e);
+        }
+        if (records == null) {
+            return false;
+        }
+        if (records.isEmpty()) {
+            return true;
+        }
+        boolean hasUniqueTags = table instanceof DictionaryTableReader
+                ? ((DictionaryTableReader<?>) table).isHasUniqueTags()
+                : Boolean.parseBoolean(table.getProperty(DictionaryTableMeta.HEADER_UNIQUE_TAGS_KEY));
+        for (DictionaryDeltaLog.Record record : records) {
+            T entry = factory.parseEntry(record.line(), table.getRootPath(), false);
+            if (record.action() == DictionaryDeltaLog.Action.INSERT) {
+                insert(entry, hasUniqueTags);
+            } else {
+                delete(entry, true);
+            }
+        }
+        log.debug("Replayed {} delta log records for table {}", records.size(), table.getName());
+        return true;
     }
 
     @Override
@@ -295,6 +379,10 @@ public class DictionaryEntries<T extends DictionaryEntry> implements IDictionary
             }
         }
         dataLoaded = true;
+        if (deltaLog != null) {
+            deltaLog.reset();
+            replayDeltaLog();
+        }
         log.trace("Loaded {} entries into table {}", this.rawLines.size(), table.getName());
     }
 
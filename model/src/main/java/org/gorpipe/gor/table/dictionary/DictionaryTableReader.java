@@ -59,6 +59,10 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
 
     protected IDictionaryEntryFactory<T> factory;
 
+    private DictionaryDeltaLog deltaLog;
+
+    private String deltaLogStateId = null;  // State of the delta log the entries reflect, part of the table id.
+
     public DictionaryTableReader(String path, FileReader fileReader, TableHeader header,  IDictionaryEntryFactory<T> factory) {
         super(path, fileReader, header);
         this.factory = factory;
@@ -225,6 +229,10 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
             fingerPrintString.append(getPath());
             fingerPrintString.append((byte) '&');
             fingerPrintString.append(getLastModifiedTime(getPath(), getSecurityContext(), commonRoot));
+            if (getDeltaLog() != null && getDeltaLog().exists()) {
+                fingerPrintString.append((byte) '&');
+                fingerPrintString.append(getDeltaLog().getStateId());
+            }
         }
 
         return fingerPrintString.md5();
@@ -255,6 +263,9 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
             }
         } else {
             lastModified = Math.max(lastModified, getLastModifiedTime(getPath().toString(), getSecurityContext(), commonRoot));
+            if (getDeltaLog() != null && getDeltaLog().exists()) {
+                lastModified = Math.max(lastModified, getLastModifiedTime(getDeltaLog().getPath(), getSecurityContext(), commonRoot));
+            }
         }
 
         return lastModified;
@@ -281,6 +292,7 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
         // Loading is split into this method and getRawlines (but we can have update in between) will that affect us?? Do we need lock (and update metadata here)
         // but we definitely need it for getRawLines.
         super.reload();
+        resetDeltaLogState();
 
         if (this.tableEntries == null) this.tableEntries = createTableEntries();
 
@@ -288,11 +300,67 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
         // when we need the data.
         if (prevSerial == null || TableHeader.NO_SERIAL.equals(prevSerial) || !this.header.getProperty(TableHeader.HEADER_SERIAL_KEY).equals(prevSerial)) {
             tableEntries.clear();
+        } else {
+            // Same dictionary file, only pick up what has been appended to the delta log.
+            tableEntries.refresh();
         }
 
         tableAccessOptimizer = null;
     }
 
+    /**
+     * @return the delta log of the table, or null if delta logging is not enabled.
+     */
+    public DictionaryDeltaLog getDeltaLog() {
+        if (deltaLog == null && DictionaryDeltaLog.isEnabled()) {
+            deltaLog = new DictionaryDeltaLog(getPath(), getFileReader());
+        }
+        return deltaLog;
+    }
+
+    @Override
+    public String getId() {
+        String baseId = super.getId();
+        if (getDeltaLog() == null) {
+            return baseId;
+        }
+        if (deltaLogStateId == null) {
+            deltaLogStateId = getDeltaLog().getStateId();
+        }
+        return baseId + deltaLogStateId;
+    }
+
+    /**
+     * Forget the delta log state the entries reflect, so the next {@link #getId()} reads it again.  Called whenever
+     * the table is reloaded or the delta log is written.
+     */
+    void resetDeltaLogState() {
+        deltaLogStateId = null;
+    }
+
+    /**
+     * Take over the entries of an already loaded version of this table and replay the delta log records appended
+     * since.  The loaded table is only read, so it can stay in use by other queries while this table is brought up
+     * to date.
+     *
+     * @param loaded older version of this table.
+     * @return true if the entries were taken over, false if the dictionary file itself has changed or the loaded
+     * table has not read its entries, in which case this table loads them itself.
+     */
+    public boolean refreshFromDeltaLog(DictionaryTableReader<T> loaded) {
+        if (getDeltaLog() == null || !super.getId().equals(loaded.getBaseId())) {
+            return false;
+        }
+        if (!(tableEntries instanceof DictionaryEntries) || !(loaded.tableEntries instanceof DictionaryEntries)) {
+            return false;
+        }
+        return ((DictionaryEntries<T>) tableEntries).copyFrom((DictionaryEntries<T>) loaded.tableEntries);
+    }
+
+    private String getBaseId() {
+        return super.getId();
+    }
+
     /**
      * Reload from file.
      */
@@ -303,7 +371,7 @@ public class DictionaryTableReader<T extends DictionaryEntry> extends TableInfoB
     }
 
     protected IDictionaryEntries<T> createTableEntries() {
-        return new DictionaryEntries<T>(this, factory);
+        return new DictionaryEntries<T>(this, factory, getDeltaLog());
         // Leave this in here for easy try out.
         //return new TableEntries<>(path, DictionaryRawEntry.class);
     }
@@ -1,25 +1,122 @@
 package org.gorpipe.gor.table.dictionary;
 
 import org.gorpipe.exceptions.GorSystemException;
+import org.gorpipe.gor.table.TableHeader;
 import org.gorpipe.gor.table.livecycle.TableTwoPhaseCommitSupport;
+import org.gorpipe.gor.table.util.TableLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 public class DictionaryTwoPhaseCommitSupport<T extends DictionaryEntry> extends TableTwoPhaseCommitSupport {
 
     DictionaryTable<T> table;
 
     private static final Logger log = LoggerFactory.getLogger(DictionaryTwoPhaseCommitSupport.class);
+    // Changes since the table was last saved, that can be appended to the delta log instead of saving the whole table.
+    private final List<DictionaryDeltaLog.Record> pendingDeltaRecords = new ArrayList<>();
+    private boolean needsFullSave = false;
+    private String savedHeader = null;  // The header as stored, captured when the meta data is loaded.
+
     public DictionaryTwoPhaseCommitSupport(DictionaryTable<T> table) {
         super(table);
         this.table = table;
     }
 
+    @Override
+    public void loadMeta() {
+        savedHeader = table.formatHeader();
+        super.loadMeta();
+    }
+
+    @Override
+    public void logAfter(TableLog.LogAction action, String argument, String... lines) {
+        super.logAfter(action, argument, lines);
+        if (table.getDeltaLog() == null) {
+            return;
+        }
+        boolean plainChange = (action == TableLog.LogAction.INSERT || action == TableLog.LogAction.DELETE)
+                && (argument == null || argument.isEmpty());
+        if (plainChange) {
+            DictionaryDeltaLog.Action deltaAction = action == TableLog.LogAction.INSERT
+                    ? DictionaryDeltaLog.Action.INSERT : DictionaryDeltaLog.Action.DELETE;
+            for (String line : lines) {
+                pendingDeltaRecords.add(new DictionaryDeltaLog.Record(deltaAction, line));
+            }
+        } else {
+            // Bucket changes are not replayable from the log.
+            needsFullSave = true;
+        }
+    }
+
+    /**
+     * Save the table.  If only entries have been inserted or deleted since the table was loaded, the changes are
+     * appended to the delta log in a single write, otherwise the whole table is rewritten and the log is compacted
+     * into it.
+     */
+    @Override
+    public void save() {
+        if (canAppendToDeltaLog()) {
+            appendToDeltaLog();
+        } else {
+            super.save();
+        }
+    }
+
+    @Override
+    public void commit() {
+        super.commit();
+
+        // The table file now contains all the changes.
+        pendingDeltaRecords.clear();
+        needsFullSave = false;
+        savedHeader = table.formatHeader();
+        if (table.getDeltaLog() != null) {
+            try {
+                table.getDeltaLog().delete();
+            } catch (IOException e) {
+                // Records in the log are for the old serial, so they will not be replayed.
+                log.warn("Could not delete delta log {}", table.getDeltaLog().getPath(), e);
+            }
+            table.resetDeltaLogState();
+        }
+    }
+
+    private boolean canAppendToDeltaLog() {
+        DictionaryDeltaLog deltaLog = table.getDeltaLog();
+        if (deltaLog == null || needsFullSave || pendingDeltaRecords.isEmpty()) {
+            return false;
+        }
+        String serial = table.getProperty(TableHeader.HEADER_SERIAL_KEY);
+        return serial != null && !TableHeader.NO_SERIAL.equals(serial)
+                && table.tableEntries.isLoaded()
+                && table.formatHeader().equals(savedHeader)
+                && table.getFileReader().exists(table.getPath())
+                && deltaLog.getRecordCount() + pendingDeltaRecords.size() <= DictionaryDeltaLog.getCompactionThreshold();
+    }
+
+    private void appendToDeltaLog() {
+        log.debug("Appending {} changes to the delta log of table {}", pendingDeltaRecords.size(), table.getName());
+        try {
+            table.getDeltaLog().append(table.getProperty(TableHeader.HEADER_SERIAL_KEY), pendingDeltaRecords);
+        } catch (IOException e) {
+            throw new GorSystemException("Could not append to delta log for " + table.getPath(), e);
+        }
+        pendingDeltaRecords.clear();
+        table.resetDeltaLogState();
+
+        if (table.isUseHistory()) {
+            tableLog.commit(table.getFileReader());
+        }
+        explicitlySetHeaderProbs.clear();
+    }
+
     @Override
     protected void saveTempMainFile() {
         log.debug("Saving {} entries for table {}", table.tableEntries.size(), table.getName());
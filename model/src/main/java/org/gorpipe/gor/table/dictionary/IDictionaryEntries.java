@@ -52,6 +52,12 @@ public interface IDictionaryEntries<T extends DictionaryEntry> {
      */
     void clear();
 
+    /**
+     * Pick up changes made to the table since the entries were loaded, if the entries support that.
+     */
+    default void refresh() {
+    }
+
     /**
      * Get all the entries.  Includes deleted entries.
      * @return all the entries.
@@ -25,12 +25,22 @@ package org.gorpipe.gor.util;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * A collection of static string utility routines
  */
 public class StringUtil {
 
+    private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+    // Largest scaled value formatted without String.format, well within the exact range of doubles
+    private static final double FIXED_SCALED_LIMIT = 1e9;
+    // Scaled fractions this close to a rounding tie are left to String.format
+    private static final double FIXED_TIE_MARGIN = 1e-4;
+
+    private static volatile Locale fixedLocale;
+    private static volatile boolean fixedAsciiDigits;
+
     private StringUtil() {
         throw new IllegalStateException("Utility class");
     }
@@ -270,4 +280,50 @@ public class StringUtil {
 
         return text.trim();
     }
+
+    /**
+     * Append a double with a fixed number of decimals, giving the same text as
+     * {@code String.format("%1.<decimals>f", d).replace(',', '.')} without allocating in the common case.
+     * Values close to a rounding tie, large values, NaN, infinities and locales without ascii digits are
+     * formatted with String.format.
+     *
+     * @param sb       The builder to append to
+     * @param d        The value to format
+     * @param decimals The number of decimals
+     * @return The builder
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double d, int decimals) {
+        if (decimals >= 0 && decimals < POW10.length && hasAsciiDigits()) {
+            final long unit = POW10[decimals];
+            final double scaled = Math.abs(d) * unit;
+            if (scaled < FIXED_SCALED_LIMIT) {
+                long units = (long) scaled;
+                final double fraction = scaled - units;
+                if (Math.abs(fraction - 0.5) > FIXED_TIE_MARGIN) {
+                    if (fraction > 0.5) units++;
+                    // String.format keeps the sign of negative zero and of values rounding to zero
+                    if (Double.compare(d, 0.0) < 0) sb.append('-');
+                    sb.append(units / unit);
+                    if (decimals > 0) {
+                        sb.append('.');
+                        final long rest = units % unit;
+                        for (long p = unit / 10; p > 0; p /= 10) {
+                            sb.append((char) ('0' + rest / p % 10));
+                        }
+                    }
+                    return sb;
+                }
+            }
+        }
+        return sb.append(String.format("%1." + decimals + "f", d).replace(',', '.'));
+    }
+
+    private static boolean hasAsciiDigits() {
+        final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if (!locale.equals(fixedLocale)) {
+            fixedAsciiDigits = String.format(locale, "%1.1f", 1.5).replace(',', '.').equals("1.5");
+            fixedLocale = locale;
+        }
+        return fixedAsciiDigits;
+    }
 }
@@ -82,6 +82,10 @@ case class CommandInfo(name: String,
   protected def processArguments(context: GorContext, argString: String, inputArguments: Array[String], options : Array[String], executeNor : Boolean, forcedInputHeader : String) : CommandParsingResult = { throw new NotImplementedError() }
 }
 
-case class CommandRuntime(activePipeStep:Analysis = null, cacheDir: String = null , inputSource: GenomicIterator  = null) {
+/**
+  * The inputSignature identifies the rows the command reads, it returns null when they can not be identified.
+  */
+case class CommandRuntime(activePipeStep:Analysis = null, cacheDir: String = null , inputSource: GenomicIterator  = null,
+                          inputSignature: () => String = () => null) {
 
 }
@@ -39,6 +39,9 @@ object MapAndListUtilities {
   type singleHashMap =  java.util.Map[String,String] //scala.collection.mutable.HashMap[String, String]
   type multiHashMap = java.util.Map[String, Array[String]] //scala.collection.mutable.HashMap[String, List[String]]
 
+  // Poll for cancellation once every CancelCheckMask + 1 lines while building lookups
+  private val CancelCheckMask = 4095
+
   def exists(filename: String, reader: FileReader): Boolean = {
 
     if (filename == null) return false
@@ -100,9 +103,13 @@ object MapAndListUtilities {
       case None =>
         try {
           var theList : List[String] = Nil
+          val cancellationToken = session.getCancellationToken
+          var lineCount = 0
 
           while (iterator.hasNext) {
             theList ::= iterator.nextLine
+            lineCount += 1
+            if ((lineCount & CancelCheckMask) == 0) cancellationToken.throwIfCancelled()
           }
           theList = theList.reverse
           val theArray = theList.toArray
@@ -127,11 +134,15 @@ object MapAndListUtilities {
           val colMap = new java.util.HashMap[String, String]()
 
           val mmu: MemoryMonitorUtil =  new MemoryMonitorUtil(MemoryMonitorUtil.basicOutOfMemoryHandler)
+          val cancellationToken = session.getCancellationToken
+          var lineCount = 0
 
           while (iterator.hasNext) {
             val x = iterator.nextLine
             val cols = x.split("\t", -1)
             mmu.check("getSingleHashMap", mmu.lineNum, x)
+            lineCount += 1
+            if ((lineCount & CancelCheckMask) == 0) cancellationToken.throwIfCancelled()
             if (asSet) {
               val lookupString =
                 if (caseInsensitive) cols.slice(0, 1.max(ic)).mkString("\t").toUpperCase
@@ -173,10 +184,14 @@ object MapAndListUtilities {
         val multiMap = new java.util.HashMap[String, ListBuffer[String]]()
         try {
           val mmu: MemoryMonitorUtil = new MemoryMonitorUtil(MemoryMonitorUtil.basicOutOfMemoryHandler)
+          val cancellationToken = session.getCancellationToken
+          var lineCount = 0
           while (iterator.hasNext) {
             val x = iterator.nextLine
             val cols = x.split("\t", -1)
             mmu.check("getMultiHashMap", mmu.lineNum, x)
+            lineCount += 1
+            if ((lineCount & CancelCheckMask) == 0) cancellationToken.throwIfCancelled()
             if (cols.length >= ic + ocl) {
               val (a, b) = (cols.slice(0, ic).mkString("\t"), oc.tail.map(c => cols(c)).foldLeft(cols(oc.head))(_ + "\t" + _))
               val cisa = if (caseInsensitive) a.toUpperCase else a
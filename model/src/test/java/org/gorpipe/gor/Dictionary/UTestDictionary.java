@@ -15,6 +15,7 @@ package org.gorpipe.gor.Dictionary;
 import gorsat.TestUtils;
 import org.apache.commons.io.FileUtils;
 import org.gorpipe.exceptions.GorDataException;
+import org.gorpipe.gor.model.SourceRef;
 import org.gorpipe.gor.session.ProjectContext;
 import org.gorpipe.gor.table.Dictionary;
 import org.gorpipe.test.utils.FileTestUtils;
@@ -30,6 +31,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -427,4 +430,47 @@ public class UTestDictionary {
         Assert.assertEquals(2, dict.getSources(new HashSet<>(Arrays.asList("tagG", "tagH")), false, false).length);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testGetSourcesWithRange() throws IOException {
+        File gordFile = workDir.newFile("testGetSourcesWithRange.gord");
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(17);
+        for (int i = 0; i < 2000; i++) {
+            String chr = "chr" + (1 + random.nextInt(3));
+            int start = random.nextInt(1000000);
+            int stop = start + random.nextInt(50000);
+            sb.append("file").append(i).append(".gor\tp").append(i).append('\t')
+                    .append(chr).append('\t').append(start).append('\t').append(chr).append('\t').append(stop).append('\n');
+        }
+        sb.append("spanning.gor\tspan\tchr1\t500000\tchr3\t100\n");
+        sb.append("unranged.gor\tfree\n");
+        FileUtils.write(gordFile, sb.toString(), (Charset) null);
+
+        Dictionary dict = getDictionary(gordFile.getPath(), ".");
+        for (int q = 0; q < 50; q++) {
+            String chr = "chr" + (1 + random.nextInt(3));
+            int begin = random.nextInt(1000000);
+            int end = begin + random.nextInt(100000);
+
+            Set<String> expected = Arrays.stream(dict.getSources(null, true, false))
+                    .filter(l -> isInRange(l, chr, begin, end)).map(l -> l.alias).collect(Collectors.toSet());
+            Set<String> actual = Arrays.stream(dict.getSources(null, true, false, chr, begin, end))
+                    .map(l -> l.alias).collect(Collectors.toSet());
+            Assert.assertEquals(expected, actual);
+            Assert.assertTrue(actual.contains("free"));
+        }
+
+        Set<String> tags = new HashSet<>(Arrays.asList("p1", "p2", "span", "free"));
+        Set<String> expected = Arrays.stream(dict.getSources(tags, true, false))
+                .filter(l -> isInRange(l, "chr2", 0, Integer.MAX_VALUE)).map(l -> l.alias).collect(Collectors.toSet());
+        Set<String> actual = Arrays.stream(dict.getSources(tags, true, false, "chr2", 0, Integer.MAX_VALUE))
+                .map(l -> l.alias).collect(Collectors.toSet());
+        Assert.assertEquals(expected, actual);
+    }
+
+    private static boolean isInRange(Dictionary.DictionaryLine line, String chr, int begin, int end) {
+        return new SourceRef(line.fileRef.physical, null, null, line.alias, line.startChr, line.startPos, line.stopChr, line.stopPos,
+                line.tags, false, null, null).isInRange(chr, begin, end);
+    }
+}
@@ -32,7 +32,9 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.Random;
+import java.util.zip.Deflater;
 import java.util.stream.IntStream;
 import java.util.zip.InflaterOutputStream;
 
@@ -154,6 +156,34 @@ public class UTestGorZipLexOutputStream {
     }
 
 
+    @Test
+    public void testParallelWriteIsIdentical() throws IOException {
+        for (boolean columnEncoding : new boolean[]{false, true}) {
+            final File sequential = writeRandomFile("sequential" + columnEncoding, columnEncoding, false);
+            final File parallel = writeRandomFile("parallel" + columnEncoding, columnEncoding, true);
+            Assert.assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+            Assert.assertArrayEquals(Files.readAllBytes(new File(sequential + ".gori").toPath()), Files.readAllBytes(new File(parallel + ".gori").toPath()));
+        }
+    }
+
+    private File writeRandomFile(String name, boolean columnEncoding, boolean parallel) throws IOException {
+        final File file = new File(tf.getRoot(), name + ".gorz");
+        final Random random = new Random(7);
+        final String[] values = {"A", "C", "G", "T"};
+        try (GorZipLexOutputStream os = new GorZipLexOutputStream(file.getAbsolutePath(), false, columnEncoding, false, false, GorIndexType.CHROMINDEX, Deflater.BEST_SPEED)) {
+            os.setParallel(parallel);
+            os.setHeader("CHROM\tPOS\tREF\tALT\tVAL");
+            for (String chr : CHROMOSOMES) {
+                int pos = 0;
+                for (int i = 0; i < 5000; ++i) {
+                    pos += random.nextInt(100);
+                    os.write(RowObj.apply(chr + "\t" + pos + "\t" + values[random.nextInt(4)] + "\t" + values[random.nextInt(4)] + "\t" + random.nextInt(1000)));
+                }
+            }
+        }
+        return file;
+    }
+
     private void validateNotSoBigFile(String path, String header, String otherCols, String[] chromosomes, int posPerChr) throws IOException {
         final byte[] buffer = readAllFile(path);
         int begin = validateHeader(buffer, header);
@@ -75,4 +75,51 @@ public class UTestGorzSeekableIteratorColumnCompressed {
         Assert.assertEquals(gsi.getHeader(), fileReader.readHeaderLine(columnCompressed));
 
     }
+
+    @Test
+    public void test_pushdownSelect() throws IOException {
+        final String genes = "../tests/data/gor/genes.gor";
+        for (boolean columnCompress : new boolean[]{false, true}) {
+            final String gorz = tf.newFile("genes" + columnCompress + ".gorz").getAbsolutePath();
+            final GorZipLexOutputStream os = new GorZipLexOutputStream(gorz, columnCompress);
+            final BufferedReader br = new BufferedReader(new FileReader(genes));
+            os.setHeader(br.readLine());
+            br.lines().forEach(l -> {
+                try {
+                    os.write(RowObj.apply(l));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            os.close();
+            br.close();
+
+            final GorzSeekableIterator gsi = new GorzSeekableIterator(new StreamSourceSeekableFile(new FileSource(new SourceReference(gorz))));
+            Assert.assertFalse(gsi.pushdownSelect(new String[]{"Chrom", "Gene_Symbol"}));
+            Assert.assertFalse(gsi.pushdownSelect(new String[]{"Chrom", "gene_start", "Gene_Symbol", "gene_end"}));
+            Assert.assertTrue(gsi.pushdownSelect(new String[]{"Chrom", "gene_start", "Gene_Symbol"}));
+            Assert.assertEquals("Chrom\tgene_start\tGene_Symbol", gsi.getHeader());
+
+            final BufferedReader br2 = new BufferedReader(new FileReader(genes));
+            br2.readLine();
+            br2.lines().forEach(line -> {
+                Assert.assertTrue(gsi.hasNext());
+                final String[] cols = line.split("\t");
+                Assert.assertEquals(cols[0] + "\t" + cols[1] + "\t" + cols[3], gsi.next().toString());
+            });
+            Assert.assertFalse(gsi.hasNext());
+            br2.close();
+
+            Assert.assertTrue(gsi.seek("chr2", 0));
+            Assert.assertTrue(gsi.next().toString().startsWith("chr2\t"));
+            gsi.close();
+        }
+    }
+
+    @Test
+    public void test_selectColumnsInBuffer() {
+        final byte[] buffer = "chr1\t1\ta\tb\nchr1\t2\t\tc\n".getBytes();
+        final int upTo = GorzSeekableIterator.selectColumns(buffer, 0, buffer.length, new boolean[]{true, true, false, true});
+        Assert.assertEquals("chr1\t1\tb\nchr1\t2\tc\n", new String(buffer, 0, upTo));
+    }
 }
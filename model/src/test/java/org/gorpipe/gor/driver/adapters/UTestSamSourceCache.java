@@ -0,0 +1,85 @@
+package org.gorpipe.gor.driver.adapters;
+
+import htsjdk.samtools.seekablestream.SeekableMemoryStream;
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.gorpipe.gor.driver.meta.SourceReference;
+import org.gorpipe.gor.driver.providers.stream.sources.file.FileSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class UTestSamSourceCache {
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        SamSourceCache.clear();
+    }
+
+    private File createFile(String name, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) (i * 31);
+        File file = workDir.newFile(name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static byte[] readAll(SeekableStream stream, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        int read = 0;
+        while (read < size) {
+            int n = stream.read(bytes, read, Math.min(1000, size - read));
+            if (n < 0) break;
+            read += n;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void indexIsServedFromMemory() throws IOException {
+        File index = createFile("test.bai", 5000);
+        byte[] expected = Files.readAllBytes(index.toPath());
+
+        try (SeekableStream first = SamSourceCache.indexStream(new FileSource(new SourceReference(index.getAbsolutePath())))) {
+            Assert.assertTrue(first instanceof SeekableMemoryStream);
+            Assert.assertArrayEquals(expected, readAll(first, expected.length));
+        }
+
+        // A second open is served from the cached bytes
+        try (SeekableStream second = SamSourceCache.indexStream(new FileSource(new SourceReference(index.getAbsolutePath())))) {
+            second.seek(1234);
+            byte[] tail = readAll(second, expected.length - 1234);
+            for (int i = 0; i < tail.length; i++) {
+                Assert.assertEquals(expected[1234 + i], tail[i]);
+            }
+        }
+    }
+
+    @Test
+    public void headerPrefixIsRecordedAndReused() throws IOException {
+        File bam = createFile("test.bam", 100000);
+        byte[] expected = Files.readAllBytes(bam.toPath());
+        FileSource source = new FileSource(new SourceReference(bam.getAbsolutePath()));
+
+        SeekableStream first = SamSourceCache.dataStream(source);
+        Assert.assertArrayEquals(java.util.Arrays.copyOf(expected, 3000), readAll(first, 3000));
+        SamSourceCache.headerRead(source, first);
+        first.close();
+
+        try (SeekableStream second = SamSourceCache.dataStream(new FileSource(new SourceReference(bam.getAbsolutePath())))) {
+            Assert.assertArrayEquals(java.util.Arrays.copyOf(expected, 10000), readAll(second, 10000));
+            second.seek(2500);
+            byte[] mixed = readAll(second, 1000);
+            Assert.assertArrayEquals(java.util.Arrays.copyOfRange(expected, 2500, 3500), mixed);
+            Assert.assertEquals(3500, second.position());
+        }
+    }
+}
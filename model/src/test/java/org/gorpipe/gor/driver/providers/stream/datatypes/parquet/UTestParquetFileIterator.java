@@ -5,6 +5,12 @@ import ch.qos.logback.classic.LoggerContext;
 import gorsat.Commands.Analysis;
 import gorsat.ScalaTestUtils;
 import gorsat.TestUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
 import org.gorpipe.exceptions.GorSystemException;
 import org.gorpipe.gor.model.DriverBackedFileReader;
 import org.gorpipe.gor.session.GorSession;
@@ -29,8 +35,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Comparator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -100,6 +108,22 @@ public class UTestParquetFileIterator {
         assertEquals(expected, lastRow.getAllCols().toString());
     }
 
+    @Test
+    public void shouldReadTypedColumnsWithoutStringConversion() throws IOException {
+        StreamSourceFile file = createStreamSourceFile("../tests/data/parquet/dbsnp_test.parquet");
+        ParquetFileIterator iterator = new ParquetFileIterator(file);
+        iterator.init(gorSession);
+        iterator.getHeader();
+        Row lastRow = null;
+        while (iterator.hasNext()) {
+            lastRow = iterator.next();
+        }
+        Assert.assertNotNull(lastRow);
+        assertEquals(10069, lastRow.pos);
+        assertEquals(10069, lastRow.colAsInt(1));
+        assertEquals("rs111065272", lastRow.colAsString(4));
+    }
+
     @Test
     public void shouldReadParquetNorData() throws IOException {
         StreamSourceFile file = createStreamSourceFile("../tests/data/parquet/dbsnp_test.parquet");
@@ -250,6 +274,73 @@ public class UTestParquetFileIterator {
                 "chr17\t460\tG\tA\trs554808397\n", result);
     }
 
+    @Test
+    public void testPushdownSelect() throws IOException {
+        StreamSourceFile file = createStreamSourceFile("../tests/data/parquet/dbsnp_test.parquet");
+        ParquetFileIterator iterator = new ParquetFileIterator(file);
+        iterator.init(gorSession);
+        Assert.assertFalse(iterator.pushdownSelect(new String[] {"reference", "allele"}));
+        Assert.assertTrue(iterator.pushdownSelect(new String[] {"Chrom", "POS", "differentrsIDs"}));
+        assertEquals("Chrom\tPOS\tdifferentrsIDs", iterator.getHeader());
+        Row lastRow = null;
+        while (iterator.hasNext()) {
+            lastRow = iterator.next();
+        }
+        assertEquals("chrY\t10069\trs111065272", lastRow.getAllCols().toString());
+        iterator.close();
+    }
+
+    @Test
+    public void testPushdownSelectRowGroupReader() throws IOException {
+        Configuration configuration = new Configuration(true);
+        org.apache.hadoop.fs.Path path = new org.apache.hadoop.fs.Path(Paths.get("../tests/data/parquet/dbsnp_test.parquet").toAbsolutePath().toUri());
+        MessageType fileSchema;
+        try (ParquetFileReader fileReader = ParquetFileReader.open(HadoopInputFile.fromPath(path, configuration))) {
+            fileSchema = fileReader.getFileMetaData().getSchema();
+        }
+        MessageType projection = new MessageType("gortable", fileSchema.getType("Chrom"), fileSchema.getType("POS"),
+                fileSchema.getType("differentrsIDs"));
+        configuration.set(ReadSupport.PARQUET_READ_SCHEMA, projection.toString());
+        try (ParquetRowGroupReader reader = new ParquetRowGroupReader(path, configuration, null)) {
+            Group group;
+            Group lastGroup = null;
+            int count = 0;
+            while ((group = reader.read()) != null) {
+                Assert.assertEquals(3, group.getType().getFieldCount());
+                lastGroup = group;
+                count++;
+            }
+            assertEquals(48, count);
+            assertEquals("rs111065272", lastGroup.getString("differentrsIDs", 0));
+        }
+    }
+
+    @Test
+    public void testRowGroupReaderReadsLargeRowGroupsSequentially() throws IOException {
+        Configuration configuration = new Configuration(true);
+        org.apache.hadoop.fs.Path path = new org.apache.hadoop.fs.Path(Paths.get("../tests/data/parquet/dbsnp_test.parquet").toAbsolutePath().toUri());
+        List<String> decoded = new ArrayList<>();
+        try (ParquetRowGroupReader reader = new ParquetRowGroupReader(path, configuration, null)) {
+            Group group;
+            while ((group = reader.read()) != null) decoded.add(group.toString());
+        }
+        List<String> sequential = new ArrayList<>();
+        try (ParquetRowGroupReader reader = new ParquetRowGroupReader(path, configuration, null, 1)) {
+            Group group;
+            while ((group = reader.read()) != null) sequential.add(group.toString());
+        }
+        assertEquals(48, sequential.size());
+        assertEquals(decoded, sequential);
+    }
+
+    @Test
+    public void testPushdownSelectQuery() {
+        String result = TestUtils.runGorPipe("gor ../tests/data/parquet/dbsnp_test.parquet | select 1,2,differentrsIDs | where differentrsIDs in ('rs547289895','rs554808397')");
+        Assert.assertEquals("Wrong result from parquet pushdown query", "Chrom\tPOS\tdifferentrsIDs\n" +
+                "chr17\t186\trs547289895\n" +
+                "chr17\t460\trs554808397\n", result);
+    }
+
     @Test
     public void testParquetBigInt() throws IOException {
         String parqB64 = "UEFSMRUAFSwVLiwVBBUAFQYVCBwYEAAAAAAAAAACYp9m4MUwAAAYEAAAAAAAAAACYp9m4MUwAAAWAigQAAAAAAAAAAJin2bgxTAAABgQAAAAAAAAAAJin2bgxTAAAAAAABYQAgAAAAMBBTAAAAAAAmKfZuDFMAAAFQIZLEgMc3Bhcmtfc2NoZW1hFQIAFQ4VIBUCGA92YWx1ZV9hc19udW1iZXIlChUkFUwAFgQZHBkcJggcFQ4ZNQAGCBkYD3ZhbHVlX2FzX251bWJlchUCFgQW5gEW6AEmCDwYEAAAAAAAAAACYp9m4MUwAAAYEAAAAAAAAAACYp9m4MUwAAAWAigQAAAAAAAAAAJin2bgxTAAABgQAAAAAAAAAAJin2bgxTAAAAAZHBUAFQAVAgAAABbmARYEABksGBhvcmcuYXBhY2hlLnNwYXJrLnZlcnNpb24YBTMuMS4yABgpb3JnLmFwYWNoZS5zcGFyay5zcWwucGFycXVldC5yb3cubWV0YWRhdGEYbXsidHlwZSI6InN0cnVjdCIsImZpZWxkcyI6W3sibmFtZSI6InZhbHVlX2FzX251bWJlciIsInR5cGUiOiJkZWNpbWFsKDM4LDE4KSIsIm51bGxhYmxlIjp0cnVlLCJtZXRhZGF0YSI6e319XX0AGEpwYXJxdWV0LW1yIHZlcnNpb24gMS4xMC4xIChidWlsZCBhODlkZjhmOTkzMmI2ZWY2NjMzZDA2MDY5ZTUwYzliNzk3MGJlYmQxKRkcHAAAAM8BAABQQVIx";
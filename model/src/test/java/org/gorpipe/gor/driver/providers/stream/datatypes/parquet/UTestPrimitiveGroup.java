@@ -0,0 +1,70 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.datatypes.parquet;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroup;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UTestPrimitiveGroup {
+
+    private static final MessageType FLAT = MessageTypeParser.parseMessageType(
+            "message gor { required binary Chrom (UTF8); required int32 POS; required double score; " +
+                    "required float ratio; required boolean pass; optional int64 count; }");
+
+    @Test
+    public void valuesFormatLikeSimpleGroup() {
+        Group simple = new SimpleGroup(FLAT);
+        Group primitive = new PrimitiveGroup(PrimitiveGroup.Layout.of(FLAT));
+        for (Group group : new Group[] {simple, primitive}) {
+            group.add(0, Binary.fromString("chr1"));
+            group.add(1, 10069);
+            group.add(2, 0.125);
+            group.add(3, 1.1f);
+            group.add(4, true);
+        }
+
+        for (int i = 0; i < FLAT.getFieldCount(); i++) {
+            Assert.assertEquals(simple.getFieldRepetitionCount(i), primitive.getFieldRepetitionCount(i));
+            if (simple.getFieldRepetitionCount(i) > 0) {
+                Assert.assertEquals(simple.getValueToString(i, 0), primitive.getValueToString(i, 0));
+            }
+        }
+        Assert.assertEquals("chr1", primitive.getString(0, 0));
+        Assert.assertEquals(10069, primitive.getInteger(1, 0));
+        Assert.assertEquals(0.125, primitive.getDouble(2, 0), 0.0);
+        Assert.assertEquals(0, primitive.getFieldRepetitionCount(5));
+    }
+
+    @Test
+    public void nestedSchemaHasNoLayout() {
+        MessageType nested = MessageTypeParser.parseMessageType(
+                "message gor { required binary Chrom (UTF8); required int32 POS; repeated group values { required int32 v; } }");
+        Assert.assertNull(PrimitiveGroup.Layout.of(nested));
+        Assert.assertNotNull(PrimitiveGroup.Layout.of(FLAT));
+    }
+}
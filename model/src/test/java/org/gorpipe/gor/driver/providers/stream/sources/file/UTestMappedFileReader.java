@@ -0,0 +1,136 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.driver.providers.stream.sources.file;
+
+import org.gorpipe.gor.driver.adapters.StreamSourceSeekableFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UTestMappedFileReader {
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    private byte[] data;
+    private Path file;
+
+    private void createFile(int size) throws IOException {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        file = workDir.getRoot().toPath().resolve("data.bin");
+        Files.write(file, data);
+    }
+
+    @Test
+    public void testReadsAcrossWindows() throws IOException {
+        createFile(10000);
+        try (MappedFileReader reader = new MappedFileReader(file, data.length, 1000)) {
+            Random random = new Random(1);
+            for (int i = 0; i < 200; i++) {
+                int position = random.nextInt(data.length);
+                int len = random.nextInt(3000) + 1;
+                byte[] buf = new byte[len + 10];
+                int read = reader.read(position, buf, 10, len);
+                int expected = Math.min(len, data.length - position);
+                Assert.assertEquals(expected, read);
+                Assert.assertArrayEquals(Arrays.copyOfRange(data, position, position + expected),
+                        Arrays.copyOfRange(buf, 10, 10 + read));
+            }
+            Assert.assertEquals(-1, reader.read(data.length, new byte[10], 0, 10));
+        }
+    }
+
+    @Test
+    public void testSeekableFileReadsMappedFile() throws IOException {
+        createFile((int) MappedFileReader.MIN_SIZE + 12345);
+        try (StreamSourceSeekableFile seekable = new StreamSourceSeekableFile(new FileSource(file.toString()))) {
+            byte[] buf = new byte[100];
+            seekable.seek(data.length - 50);
+            Assert.assertEquals(50, seekable.read(buf, 0, buf.length));
+            Assert.assertArrayEquals(Arrays.copyOfRange(data, data.length - 50, data.length), Arrays.copyOf(buf, 50));
+            Assert.assertEquals(-1, seekable.read(buf, 0, buf.length));
+
+            seekable.seek(777);
+            Assert.assertEquals(data[777] & 0xff, seekable.read());
+            Assert.assertEquals(778, seekable.getFilePointer());
+        }
+    }
+
+    @Test
+    public void testMapFailureIsReported() throws IOException {
+        createFile(10000);
+        try (MappedFileReader reader = new FailingMappedFileReader(file, data.length, new AtomicInteger())) {
+            Assert.assertThrows(MappedFileReader.MapFailedException.class, () -> reader.read(0, new byte[10], 0, 10));
+        }
+    }
+
+    @Test
+    public void testSeekableFileFallsBackWhenMapFails() throws IOException {
+        createFile((int) MappedFileReader.MIN_SIZE + 12345);
+        AtomicInteger mapCalls = new AtomicInteger();
+        try (StreamSourceSeekableFile seekable = new StreamSourceSeekableFile(new FileSource(file.toString())) {
+            @Override
+            protected MappedFileReader createMappedReader(Path path, long length) throws IOException {
+                return new FailingMappedFileReader(path, length, mapCalls);
+            }
+        }) {
+            byte[] buf = new byte[100];
+            seekable.seek(1000);
+            Assert.assertEquals(100, seekable.read(buf, 0, buf.length));
+            Assert.assertArrayEquals(Arrays.copyOfRange(data, 1000, 1100), buf);
+            Assert.assertEquals(1100, seekable.getFilePointer());
+
+            seekable.seek(777);
+            Assert.assertEquals(data[777] & 0xff, seekable.read());
+            Assert.assertEquals(778, seekable.getFilePointer());
+
+            // Mapping is turned off after the first failure
+            Assert.assertEquals(1, mapCalls.get());
+        }
+    }
+
+    private static class FailingMappedFileReader extends MappedFileReader {
+        private final AtomicInteger mapCalls;
+
+        FailingMappedFileReader(Path path, long length, AtomicInteger mapCalls) throws IOException {
+            super(path, length);
+            this.mapCalls = mapCalls;
+        }
+
+        @Override
+        MappedByteBuffer map(long start, long size) throws IOException {
+            mapCalls.incrementAndGet();
+            throw new IOException("Map failed");
+        }
+    }
+}
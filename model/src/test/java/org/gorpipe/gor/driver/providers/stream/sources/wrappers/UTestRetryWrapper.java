@@ -1,5 +1,6 @@
 package org.gorpipe.gor.driver.providers.stream.sources.wrappers;
 
+import org.gorpipe.exceptions.GorCancelledException;
 import org.gorpipe.exceptions.GorException;
 import org.gorpipe.exceptions.GorResourceException;
 import org.gorpipe.exceptions.GorSystemException;
@@ -8,6 +9,7 @@ import org.gorpipe.gor.driver.providers.stream.sources.DummyStreamSource;
 import org.gorpipe.gor.driver.providers.stream.sources.StreamSource;
 import org.gorpipe.gor.driver.providers.stream.sources.UTestFileSource;
 import org.gorpipe.gor.driver.utils.RetryHandlerBase;
+import org.gorpipe.gor.monitor.CancellationToken;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -80,6 +82,22 @@ public class UTestRetryWrapper extends UTestFileSource {
         }
     }
 
+    @Test
+    public void testReadOfCancelledQueryIsNotRetried() {
+        CancellationToken token = new CancellationToken();
+        CancellationToken previous = CancellationToken.attach(token);
+        try {
+            FailingStreamSource source = new FailingStreamSource("ABCD", 0, 3);
+            RetryStreamSourceWrapper fs = new RetryStreamSourceWrapper(createHandler(4), source);
+            InputStream s = fs.open();
+            token.cancel();
+            Assert.assertThrows(GorCancelledException.class, () -> StreamUtils.readString(s, 100));
+            Assert.assertEquals(1, source.readFailed);
+        } finally {
+            CancellationToken.restore(previous);
+        }
+    }
+
     /**
      * Implements a dummy stream source that will fail on open as well as each read.
      */
@@ -0,0 +1,163 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.monitor;
+
+import org.gorpipe.exceptions.GorCancelledException;
+import org.gorpipe.exceptions.custom.GorTimeoutException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class UTestCancellationToken {
+
+    @Test
+    public void notCancelledAtStart() {
+        CancellationToken token = new CancellationToken();
+        assertFalse(token.isCancelled());
+        assertFalse(token.isTimedOut());
+        token.throwIfCancelled();
+    }
+
+    @Test
+    public void cancelRunsActions() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger count = new AtomicInteger();
+        token.onCancel(count::incrementAndGet);
+        token.cancel();
+        token.cancel();
+
+        assertTrue(token.isCancelled());
+        assertFalse(token.isTimedOut());
+        assertEquals(1, count.get());
+        assertThrows(GorCancelledException.class, token::throwIfCancelled);
+    }
+
+    @Test
+    public void actionRegisteredAfterCancelRunsImmediately() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AtomicInteger count = new AtomicInteger();
+        token.onCancel(count::incrementAndGet);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void closedRegistrationIsNotRun() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger count = new AtomicInteger();
+        token.onCancel(count::incrementAndGet).close();
+        token.cancel();
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    public void cancelledWithMonitor() {
+        CancellationToken token = new CancellationToken();
+        GorMonitor monitor = new GorMonitor();
+        token.link(monitor);
+        AtomicInteger count = new AtomicInteger();
+        token.onCancel(count::incrementAndGet);
+
+        monitor.setCancelled(true);
+        assertTrue(token.isCancelled());
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void cancelledWhenPollingMonitor() {
+        CancellationToken token = new CancellationToken();
+        token.link(new GorMonitor() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        });
+        assertTrue(token.isCancelled());
+    }
+
+    @Test
+    public void timeoutRunsActionsWithoutPolling() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+        CountDownLatch latch = new CountDownLatch(1);
+        token.onCancel(latch::countDown);
+        token.startTimeout(50);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(token.isTimedOut());
+        assertThrows(GorTimeoutException.class, token::throwIfCancelled);
+    }
+
+    @Test
+    public void closeClearsTimeoutAndActions() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+        CountDownLatch latch = new CountDownLatch(1);
+        token.onCancel(latch::countDown);
+        token.startTimeout(50);
+        token.close();
+
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(token.isCancelled());
+        token.cancel();
+        assertEquals(1, latch.getCount());
+    }
+
+    @Test
+    public void nestedCloseKeepsTimeout() throws InterruptedException {
+        CancellationToken token = new CancellationToken();
+        CountDownLatch latch = new CountDownLatch(1);
+        token.onCancel(latch::countDown);
+        token.startTimeout(50);
+        token.startTimeout(50);
+        token.close();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(token.isTimedOut());
+        token.close();
+        assertTrue(token.isTimedOut());
+    }
+
+    @Test
+    public void noneIsNeverCancelled() {
+        CancellationToken token = CancellationToken.none();
+        token.cancel();
+        token.startTimeout(1);
+        assertFalse(token.isCancelled());
+    }
+
+    @Test
+    public void currentToken() {
+        CancellationToken token = new CancellationToken();
+        assertSame(CancellationToken.none(), CancellationToken.current());
+        CancellationToken previous = CancellationToken.attach(token);
+        try {
+            assertSame(token, CancellationToken.current());
+        } finally {
+            CancellationToken.restore(previous);
+        }
+        assertSame(CancellationToken.none(), CancellationToken.current());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.stats;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class UTestQueryProfile {
+
+    @Test
+    public void queryIsNullWhenContextIsNotProfiled() {
+        assertNull(QueryProfile.query(null, "gor a.gor"));
+    }
+
+    @Test
+    public void queriesCreatedWhileActiveAreNested() {
+        QueryProfile root = QueryProfile.root("root", null);
+        QueryProfile outer = QueryProfile.query(root, "gor a.gor | map <(nor b.tsv)");
+        QueryProfile previous = QueryProfile.activate(outer);
+        QueryProfile inner;
+        try {
+            inner = QueryProfile.query(root, "nor b.tsv");
+        } finally {
+            QueryProfile.restore(previous);
+        }
+        QueryProfile next = QueryProfile.query(root, "gor c.gor");
+
+        assertEquals(List.of(outer, next), root.getChildren());
+        assertEquals(List.of(inner), outer.getChildren());
+    }
+
+    @Test
+    public void stepTimeIsExclusive() throws InterruptedException {
+        QueryProfile root = QueryProfile.root("root", null);
+        QueryProfile query = QueryProfile.query(root, "gor a.gor | sort genome");
+        QueryProfile sort = query.step("SORT");
+        QueryProfile output = query.step("OUTPUT");
+
+        // A row enters the sort step, which buffers it
+        QueryProfile previous = sort.enter();
+        Thread.sleep(20);
+        sort.exit(previous);
+        assertNull(previous);
+
+        // The sort step emits the row to the output when finishing
+        sort.finishing();
+        Thread.sleep(20);
+        previous = output.enter();
+        assertSame(sort, previous);
+        Thread.sleep(20);
+        output.exit(previous);
+        output.finishing();
+
+        long sortNanos = sort.getNanos();
+        long outputNanos = output.getNanos();
+        assertTrue(sortNanos >= 40_000_000L);
+        assertTrue(outputNanos >= 20_000_000L);
+
+        // Nothing is charged after the last step has finished
+        Thread.sleep(5);
+        assertEquals(sortNanos, sort.getNanos());
+        assertEquals(outputNanos, output.getNanos());
+
+        List<Map<String, Object>> steps = (List<Map<String, Object>>) query.toMap().get("steps");
+        assertEquals(2, steps.size());
+        assertEquals("SORT", steps.get(0).get("name"));
+        assertEquals(1L, steps.get(0).get("rowsIn"));
+        assertEquals(1L, steps.get(0).get("rowsOut"));
+        assertEquals(1L, steps.get(1).get("rowsIn"));
+    }
+
+    @Test
+    public void sourceCountsRowsAndBlockedTime() {
+        QueryProfile query = QueryProfile.query(QueryProfile.root("root", null), "gor a.gor");
+        QueryProfile source = query.source("GOR");
+        source.read(10);
+        source.read(15);
+        source.blocked(2_000_000L);
+
+        Map<String, Object> map = (Map<String, Object>) ((List<?>) query.toMap().get("children")).get(0);
+        assertEquals("source", map.get("kind"));
+        assertEquals(2L, map.get("rows"));
+        assertEquals(25L, map.get("bytes"));
+        assertEquals(2.0, (Double) map.get("blockedMs"), 1e-8);
+    }
+
+    @Test
+    public void foldedStacks() throws InterruptedException {
+        QueryProfile root = QueryProfile.root("root", null);
+        QueryProfile query = QueryProfile.query(root, "gor a.gor;\n | calc x 1");
+        QueryProfile calc = query.step("CALC");
+        query.source("GOR").blocked(3_000_000L);
+
+        QueryProfile previous = calc.enter();
+        Thread.sleep(2);
+        calc.exit(previous);
+
+        String[] lines = root.toFolded().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("root;gor a.gor, | calc x 1;0:CALC "));
+        assertEquals("root;gor a.gor, | calc x 1;source:GOR 3000", lines[1]);
+    }
+
+    @Test
+    public void json() {
+        QueryProfile root = QueryProfile.root("root", "gor a.gor");
+        QueryProfile.query(root, "gor a.gor").step("OUTPUT");
+        root.end();
+
+        String json = root.toJson();
+        assertTrue(json.contains("\"kind\" : \"query\""));
+        assertTrue(json.contains("\"name\" : \"OUTPUT\""));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  BEGIN_COPYRIGHT
+ *
+ *  Copyright (C) 2011-2013 deCODE genetics Inc.
+ *  Copyright (C) 2013-2019 WuXi NextCode Inc.
+ *  All Rights Reserved.
+ *
+ *  GORpipe is free software: you can redistribute it and/or modify
+ *  it under the terms of the AFFERO GNU General Public License as published by
+ *  the Free Software Foundation.
+ *
+ *  GORpipe is distributed "AS-IS" AND WITHOUT ANY WARRANTY OF ANY KIND,
+ *  INCLUDING ANY IMPLIED WARRANTY OF MERCHANTABILITY,
+ *  NON-INFRINGEMENT, OR FITNESS FOR A PARTICULAR PURPOSE. See
+ *  the AFFERO GNU General Public License for the complete license terms.
+ *
+ *  You should have received a copy of the AFFERO GNU General Public License
+ *  along with GORpipe.  If not, see <http://www.gnu.org/licenses/agpl-3.0.html>
+ *
+ *  END_COPYRIGHT
+ */
+
+package org.gorpipe.gor.table;
+
+import org.apache.commons.io.FileUtils;
+import org.gorpipe.gor.table.dictionary.DictionaryDeltaLog;
+import org.gorpipe.gor.table.dictionary.gor.GorDictionaryEntry;
+import org.gorpipe.gor.table.dictionary.gor.GorDictionaryTable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for the dictionary delta log, where inserts and deletes are appended instead of rewriting the table.
+ */
+public class UTestDictionaryDeltaLog {
+
+    private Path tableWorkDir;
+    private Path gordFile;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("gor.table.deltalog", "true");
+        tableWorkDir = Files.createTempDirectory("UnitTestDeltaLogWorkDir");
+        for (int i = 1; i < 10; i++) {
+            Files.createFile(tableWorkDir.resolve(String.format("filepath%d.gor", i)));
+        }
+        gordFile = tableWorkDir.resolve("deltalog.gord");
+        FileUtils.write(gordFile.toFile(), "filepath1.gor\tA\nfilepath2.gor\tB\n", (String) null);
+
+        // Full save to give the table a serial.
+        new GorDictionaryTable.Builder<>(gordFile).build().save();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty("gor.table.deltalog");
+        System.clearProperty("gor.table.deltalog.compact_records");
+        FileUtils.deleteDirectory(tableWorkDir.toFile());
+    }
+
+    @Test
+    public void testInsertIsAppendedToLog() throws IOException {
+        String mainContent = FileUtils.readFileToString(gordFile.toFile(), Charset.defaultCharset());
+
+        GorDictionaryTable dict = new GorDictionaryTable.Builder<>(gordFile).build();
+        dict.insert("filepath3.gor\tC");
+        dict.save();
+
+        Assert.assertTrue("Delta log should be created", Files.exists(Path.of(gordFile + DictionaryDeltaLog.DELTA_SUFFIX)));
+        Assert.assertEquals("Main file should not be rewritten", mainContent,
+                FileUtils.readFileToString(gordFile.toFile(), Charset.defaultCharset()));
+
+        GorDictionaryTable dict2 = new GorDictionaryTable.Builder<>(gordFile).build();
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(dict2));
+    }
+
+    @Test
+    public void testDeleteIsAppendedToLog() {
+        GorDictionaryTable dict = new GorDictionaryTable.Builder<>(gordFile).build();
+        dict.insert("filepath3.gor\tC");
+        dict.save();
+        dict.delete("filepath1.gor\tA");
+        dict.save();
+
+        GorDictionaryTable dict2 = new GorDictionaryTable.Builder<>(gordFile).build();
+        Assert.assertEquals(List.of("B", "C"), aliases(dict2));
+    }
+
+    @Test
+    public void testReaderRefreshesFromLog() {
+        GorDictionaryTable reader = new GorDictionaryTable.Builder<>(gordFile).build();
+        Assert.assertEquals(List.of("A", "B"), aliases(reader));
+        String oldId = reader.getId();
+
+        GorDictionaryTable writer = new GorDictionaryTable.Builder<>(gordFile).build();
+        writer.insert("filepath3.gor\tC");
+        writer.save();
+
+        GorDictionaryTable current = new GorDictionaryTable.Builder<>(gordFile).build();
+        Assert.assertNotEquals("Id should change when the log changes", oldId, current.getId());
+        Assert.assertTrue(current.refreshFromDeltaLog(reader));
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(current));
+        Assert.assertEquals("The loaded table should not change", List.of("A", "B"), aliases(reader));
+        Assert.assertEquals(oldId, reader.getId());
+    }
+
+    @Test
+    public void testIdChangesAfterInsert() {
+        GorDictionaryTable dict = new GorDictionaryTable.Builder<>(gordFile).build();
+        String oldId = dict.getId();
+        dict.insert("filepath3.gor\tC");
+        dict.save();
+
+        String newId = dict.getId();
+        Assert.assertNotEquals("Id of the writing table should change after an insert", oldId, newId);
+        Assert.assertEquals(new GorDictionaryTable.Builder<>(gordFile).build().getId(), newId);
+    }
+
+    @Test
+    public void testIdChangesAfterReload() {
+        GorDictionaryTable reader = new GorDictionaryTable.Builder<>(gordFile).build();
+        String oldId = reader.getId();
+
+        GorDictionaryTable writer = new GorDictionaryTable.Builder<>(gordFile).build();
+        writer.insert("filepath3.gor\tC");
+        writer.save();
+
+        reader.reload();
+        Assert.assertNotEquals("Id should change when a reloaded table sees new log records", oldId, reader.getId());
+        Assert.assertEquals(writer.getId(), reader.getId());
+        Assert.assertEquals(List.of("A", "B", "C"), aliases(reader));
+    }
+
+    @Test
+    public void testCompactionWhenLogIsFull() throws IOException {
+        System.setProperty("gor.table.deltalog.compact_records", "2");
+
+        GorDictionaryTable dict = new GorDictionaryTable.Builder<>(gordFile).build();
+        dict.insert("filepath3.gor\tC", "filepath4.gor\tD");
+        dict.save();
+        Assert.assertTrue(Files.exists(Path.of(gordFile + DictionaryDeltaLog.DELTA_SUFFIX)));
+
+        dict.insert("filepath5.gor\tE");
+        dict.save();
+        Assert.assertFalse("Log should be compacted into the table",
+                Files.exists(Path.of(gordFile + DictionaryDeltaLog.DELTA_SUFFIX)));
+        Assert.assertTrue(FileUtils.readFileToString(gordFile.toFile(), Charset.defaultCharset()).contains("filepath5.gor\tE"));
+
+        GorDictionaryTable dict2 = new GorDictionaryTable.Builder<>(gordFile).build();
+        Assert.assertEquals(List.of("A", "B", "C", "D", "E"), aliases(dict2));
+    }
+
+    private static List<String> aliases(GorDictionaryTable dict) {
+        return dict.getEntries().stream().map(GorDictionaryEntry::getAlias).sorted().collect(Collectors.toList());
+    }
+}
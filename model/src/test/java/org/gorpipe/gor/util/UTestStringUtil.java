@@ -27,6 +27,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 /**
  * Tests for StringUtil.
@@ -90,4 +91,23 @@ public class UTestStringUtil {
         Assert.assertEquals("klmnopqrst", StringUtil.limitSize("abcdefghijklmnopqrst", 10, 0));
         Assert.assertEquals("abc ... st", StringUtil.limitSize("abcdefghijklmnopqrst", 10, 0.6));
     }
+
+    @Test
+    public void testAppendFixed() {
+        final double[] values = {0.0, -0.0, 1.0 / 3, -2.0 / 3, 0.00005, 0.00015, -0.00004, 0.15, 2.5, 99999.99995,
+                1e-300, 1e12, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double value : values) {
+            for (int decimals = 0; decimals < 10; decimals++) {
+                final String expected = String.format("%1." + decimals + "f", value).replace(',', '.');
+                Assert.assertEquals(expected, StringUtil.appendFixed(new StringBuilder(), value, decimals).toString());
+            }
+        }
+
+        final Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            final double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+            Assert.assertEquals(String.format("%1.4f", value).replace(',', '.'),
+                    StringUtil.appendFixed(new StringBuilder(), value, 4).toString());
+        }
+    }
 }